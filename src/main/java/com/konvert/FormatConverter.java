@@ -1,9 +1,11 @@
 package com.konvert;
 
+import com.fasterxml.jackson.databind.MappingIterator;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.dataformat.xml.XmlMapper;
 import com.fasterxml.jackson.dataformat.yaml.YAMLMapper;
 import com.google.protobuf.util.JsonFormat;
+import com.konvert.table.ColumnarTable;
 import java.util.Base64;
 import com.moandjiezana.toml.Toml;
 import org.yaml.snakeyaml.Yaml;
@@ -12,6 +14,8 @@ import org.apache.commons.csv.CSVParser;
 import org.apache.commons.csv.CSVRecord;
 import org.apache.commons.csv.CSVPrinter;
 
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
 import java.io.StringReader;
 import java.io.StringWriter;
 import java.util.*;
@@ -36,6 +40,23 @@ public class FormatConverter {
         }
         
         try {
+            // Workbooks are binary; text callers receive them Base64 encoded
+            if ("xlsx".equalsIgnoreCase(toFormat)) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                writeWorkbook(input, fromFormat, protobufSchema, out);
+                return Base64.getEncoder().encodeToString(out.toByteArray());
+            }
+            
+            // Flat tabular data converts column-wise instead of through a Map per row
+            if (ColumnarTable.canWrite(toFormat) || "toon".equalsIgnoreCase(fromFormat)) {
+                ColumnarTable table = ColumnarTable.read(input, fromFormat);
+                if (table != null) {
+                    return ColumnarTable.canWrite(toFormat)
+                        ? table.write(toFormat)
+                        : formatOutput(table.toData(), toFormat, protobufSchema);
+                }
+            }
+            
             // Convert to intermediate object
             Object intermediate = parseInput(input, fromFormat, protobufSchema);
             
@@ -55,11 +76,61 @@ public class FormatConverter {
         }
     }
     
+    /**
+     * Convert input to an XLSX workbook written to the stream and return row, sheet and throughput statistics
+     */
+    public static Map<String, Object> convertToXlsx(String input, String fromFormat, String protobufSchema,
+                                                    OutputStream out) throws Exception {
+        if (input == null || input.trim().isEmpty()) {
+            throw new IllegalArgumentException("Input cannot be empty");
+        }
+        if (fromFormat == null) {
+            throw new IllegalArgumentException("Format must be specified");
+        }
+        return writeWorkbook(input, fromFormat, protobufSchema, out);
+    }
+    
+    // Cell types come from the inferred column types; nested data is written as JSON text
+    private static Map<String, Object> writeWorkbook(String input, String fromFormat, String protobufSchema,
+                                                     OutputStream out) throws Exception {
+        ColumnarTable table = ColumnarTable.read(input, fromFormat);
+        if (table == null) {
+            table = ColumnarTable.fromData(parseInput(input, fromFormat, protobufSchema));
+        }
+        return table.writeXlsx(out);
+    }
+    
+    /**
+     * Parse input into the intermediate Map/List representation shared by all formats
+     */
+    public static Object parse(String input, String format, String protobufSchema) throws Exception {
+        if (input == null || input.trim().isEmpty()) {
+            throw new IllegalArgumentException("Input cannot be empty");
+        }
+        if (format == null) {
+            throw new IllegalArgumentException("Format must be specified");
+        }
+        return parseInput(input, format, protobufSchema);
+    }
+
+    /**
+     * Render an intermediate Map/List structure in the given format
+     */
+    public static String render(Object data, String format, String protobufSchema) throws Exception {
+        if (format == null) {
+            throw new IllegalArgumentException("Format must be specified");
+        }
+        return formatOutput(data, format, protobufSchema);
+    }
+
     private static Object parseInput(String input, String format, String protobufSchema) throws Exception {
         switch (format.toLowerCase()) {
             case "json":
                 return jsonMapper.readValue(input, Object.class);
                 
+            case "ndjson":
+                return ndjsonToList(input);
+                
             case "yaml":
                 return yaml.load(input);
                 
@@ -83,7 +154,9 @@ public class FormatConverter {
                 return csvToMap(input);
                 
             case "toon":
-                return toonToMap(input);
+                // Tabular TOON (key[N]{fields}: rows) is read by the table engine
+                ColumnarTable table = ColumnarTable.read(input, "toon");
+                return table != null ? table.toData() : toonToMap(input);
                 
             default:
                 throw new IllegalArgumentException("Unsupported input format: " + format);
@@ -95,6 +168,9 @@ public class FormatConverter {
             case "json":
                 return jsonMapper.writerWithDefaultPrettyPrinter().writeValueAsString(data);
                 
+            case "ndjson":
+                return listToNdjson(data);
+                
             case "yaml":
                 return yamlMapper.writerWithDefaultPrettyPrinter().writeValueAsString(data);
                 
@@ -135,6 +211,27 @@ public class FormatConverter {
         }
     }
     
+    // NDJSON to List, one record per line
+    private static List<Object> ndjsonToList(String ndjson) throws Exception {
+        List<Object> records = new ArrayList<>();
+        try (MappingIterator<Object> it = jsonMapper.readerFor(Object.class).readValues(ndjson)) {
+            while (it.hasNextValue()) {
+                records.add(it.nextValue());
+            }
+        }
+        return records;
+    }
+    
+    // List to NDJSON, one record per line
+    private static String listToNdjson(Object data) throws Exception {
+        StringBuilder sb = new StringBuilder();
+        Collection<?> records = data instanceof Collection ? (Collection<?>) data : Collections.singletonList(data);
+        for (Object record : records) {
+            sb.append(jsonMapper.writeValueAsString(record)).append('\n');
+        }
+        return sb.toString();
+    }
+    
     // Properties to Map
     private static Map<String, Object> propertiesToMap(String propertiesString) {
         Map<String, Object> result = new LinkedHashMap<>();
@@ -279,13 +376,10 @@ public class FormatConverter {
         );
     }
     
-    // CSV to Map (List of Maps, where each map represents a row)
-    private static Object csvToMap(String csvString) throws Exception {
-        if (csvString == null || csvString.trim().isEmpty()) {
-            throw new IllegalArgumentException("CSV input cannot be empty");
-        }
-        
-        // Normalize line endings and ensure proper CSV format
+    /**
+     * Normalize pasted CSV text: trim, unify line endings, and split rows pasted onto a single line
+     */
+    public static String normalizeCsv(String csvString) {
         String normalized = csvString.trim()
             .replace("\r\n", "\n")  // Windows line endings
             .replace("\r", "\n");   // Old Mac line endings
@@ -301,6 +395,17 @@ public class FormatConverter {
             }
         }
         
+        return normalized;
+    }
+    
+    // CSV to Map (List of Maps, where each map represents a row)
+    private static Object csvToMap(String csvString) throws Exception {
+        if (csvString == null || csvString.trim().isEmpty()) {
+            throw new IllegalArgumentException("CSV input cannot be empty");
+        }
+        
+        String normalized = normalizeCsv(csvString);
+        
         try {
             StringReader reader = new StringReader(normalized);
             CSVParser parser = CSVFormat.DEFAULT.withFirstRecordAsHeader().withIgnoreEmptyLines().parse(reader);
@@ -590,7 +695,7 @@ public class FormatConverter {
     }
     
     // Sanitize XML element names (remove invalid characters)
-    private static String sanitizeXmlName(String name) {
+    public static String sanitizeXmlName(String name) {
         if (name == null || name.isEmpty()) {
             return "item";
         }
@@ -604,7 +709,7 @@ public class FormatConverter {
     }
     
     // Escape XML special characters
-    private static String escapeXml(String text) {
+    public static String escapeXml(String text) {
         if (text == null) {
             return "";
         }
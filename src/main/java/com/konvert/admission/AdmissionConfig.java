@@ -0,0 +1,63 @@
+package com.konvert.admission;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "konvertr.admission")
+public class AdmissionConfig {
+    private boolean enabled = true;
+    private double heapFraction = 0.6;
+    private long budgetMb = 0;
+    private long queueTimeoutMs = 3000;
+    private int retryAfterSeconds = 5;
+    private long streamingCostMb = 64;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public double getHeapFraction() {
+        return heapFraction;
+    }
+
+    public void setHeapFraction(double heapFraction) {
+        this.heapFraction = heapFraction;
+    }
+
+    public long getBudgetMb() {
+        return budgetMb;
+    }
+
+    public void setBudgetMb(long budgetMb) {
+        this.budgetMb = budgetMb;
+    }
+
+    public long getQueueTimeoutMs() {
+        return queueTimeoutMs;
+    }
+
+    public void setQueueTimeoutMs(long queueTimeoutMs) {
+        this.queueTimeoutMs = queueTimeoutMs;
+    }
+
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
+    public void setRetryAfterSeconds(int retryAfterSeconds) {
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getStreamingCostMb() {
+        return streamingCostMb;
+    }
+
+    public void setStreamingCostMb(long streamingCostMb) {
+        this.streamingCostMb = streamingCostMb;
+    }
+}
@@ -0,0 +1,120 @@
+package com.konvert.admission;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.konvert.util.FileFormatDetector;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.multipart.MultipartHttpServletRequest;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Admits, queues or rejects requests by their estimated heap cost. Created by {@link AdmissionWebConfig}
+ * with its streaming routes.
+ */
+public class AdmissionInterceptor implements HandlerInterceptor {
+    static final String TICKET_ATTRIBUTE = AdmissionInterceptor.class.getName() + ".ticket";
+    // Tells the client its response comes from a streaming endpoint rather than the one it called
+    static final String REROUTED_HEADER = "X-Admission-Rerouted";
+
+    private final AdmissionManager admissionManager;
+    private final AdmissionConfig config;
+    private final StreamingRoutes routes;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    AdmissionInterceptor(AdmissionManager admissionManager, AdmissionConfig config, StreamingRoutes routes) {
+        this.admissionManager = admissionManager;
+        this.config = config;
+        this.routes = routes;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
+            throws IOException, ServletException {
+        if (!config.isEnabled() || !"POST".equalsIgnoreCase(request.getMethod())) {
+            return true;
+        }
+
+        String format = resolveFormat(request);
+        long estimate = HeapCostEstimator.estimateBytes(request.getContentLengthLong(), format);
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        boolean streaming = routes.streams(path, format);
+
+        // The forwarded request is admitted again, at the streaming endpoint's cost
+        if (!streaming && !admissionManager.fits(estimate)) {
+            String target = routes.reroute(path, format, request.getParameter("toFormat"));
+            if (target != null) {
+                response.setHeader(REROUTED_HEADER, target);
+                request.getRequestDispatcher(target).forward(request, response);
+                return false;
+            }
+        }
+
+        AdmissionManager.Ticket ticket;
+        try {
+            ticket = admissionManager.admit(estimate, streaming);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            ticket = new AdmissionManager.Ticket(AdmissionManager.Decision.OVER_BUDGET, 0);
+        }
+
+        switch (ticket.getDecision()) {
+            case ADMITTED:
+                request.setAttribute(TICKET_ATTRIBUTE, ticket);
+                return true;
+            case STREAMING:
+                request.setAttribute(TICKET_ATTRIBUTE, ticket);
+                return true;
+            case TOO_LARGE:
+                reject(response, HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE,
+                        "Input is too large to convert with the available memory (estimated "
+                                + (estimate / (1024 * 1024)) + " MB).");
+                return false;
+            default:
+                response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(admissionManager.getRetryAfterSeconds()));
+                reject(response, 429, "Server is busy with other large conversions. Please retry shortly.");
+                return false;
+        }
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        Object ticket = request.getAttribute(TICKET_ATTRIBUTE);
+        if (ticket instanceof AdmissionManager.Ticket) {
+            request.removeAttribute(TICKET_ATTRIBUTE);
+            admissionManager.release((AdmissionManager.Ticket) ticket);
+        }
+    }
+
+    private String resolveFormat(HttpServletRequest request) {
+        String format = request.getParameter("fromFormat");
+        if (format == null || format.isBlank()) {
+            format = request.getParameter("format");
+        }
+        if ((format == null || format.isBlank()) && request instanceof MultipartHttpServletRequest) {
+            for (MultipartFile file : ((MultipartHttpServletRequest) request).getFileMap().values()) {
+                String detected = FileFormatDetector.detectFromFilename(file.getOriginalFilename());
+                if (!"unknown".equals(detected)) {
+                    return detected;
+                }
+            }
+        }
+        return format;
+    }
+
+    private void reject(HttpServletResponse response, int status, String message) throws IOException {
+        response.setStatus(status);
+        response.setContentType("application/json");
+        Map<String, Object> body = new HashMap<>();
+        body.put("success", false);
+        body.put("error", message);
+        body.put("admission", admissionManager.getStatus());
+        mapper.writeValue(response.getWriter(), body);
+    }
+}
@@ -0,0 +1,151 @@
+package com.konvert.admission;
+
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Component
+public class AdmissionManager {
+    private static final long MB = 1024L * 1024L;
+
+    public enum Decision {
+        ADMITTED,
+        STREAMING,
+        HELD,
+        OVER_BUDGET,
+        TOO_LARGE
+    }
+
+    public static class Ticket {
+        private final Decision decision;
+        private final int permits;
+
+        Ticket(Decision decision, int permits) {
+            this.decision = decision;
+            this.permits = permits;
+        }
+
+        public Decision getDecision() {
+            return decision;
+        }
+
+        public int getPermits() {
+            return permits;
+        }
+
+        public boolean isAdmitted() {
+            return decision == Decision.ADMITTED || decision == Decision.STREAMING || decision == Decision.HELD;
+        }
+    }
+
+    private final AdmissionConfig config;
+    private final int budgetPermits;
+    private final Semaphore budget;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger heldMb = new AtomicInteger();
+    private final AtomicLong rejected = new AtomicLong();
+
+    public AdmissionManager(AdmissionConfig config) {
+        this.config = config;
+        this.budgetPermits = resolveBudgetMb(config);
+        this.budget = new Semaphore(budgetPermits, true);
+    }
+
+    /**
+     * Reserve heap budget for a request, waiting up to the queue timeout when the budget is exhausted and
+     * charging a fixed streaming cost for oversized inputs when a streaming path exists
+     */
+    public Ticket admit(long estimatedBytes, boolean streamingPath) throws InterruptedException {
+        int permits = toPermits(estimatedBytes);
+        Decision decision = Decision.ADMITTED;
+
+        if (permits > budgetPermits) {
+            if (!streamingPath) {
+                rejected.incrementAndGet();
+                return new Ticket(Decision.TOO_LARGE, 0);
+            }
+            permits = (int) Math.min(budgetPermits, Math.max(1, config.getStreamingCostMb()));
+            decision = Decision.STREAMING;
+        }
+
+        if (!budget.tryAcquire(permits, config.getQueueTimeoutMs(), TimeUnit.MILLISECONDS)) {
+            rejected.incrementAndGet();
+            return new Ticket(Decision.OVER_BUDGET, 0);
+        }
+        inFlight.incrementAndGet();
+        return new Ticket(decision, permits);
+    }
+
+    /**
+     * Whether a request of this estimated cost fits the budget at all
+     */
+    public boolean fits(long estimatedBytes) {
+        return toPermits(estimatedBytes) <= budgetPermits;
+    }
+
+    /**
+     * Reserve heap budget for data kept after its request completes, such as a live session's document.
+     * Does not wait: returns OVER_BUDGET or TOO_LARGE at once so the caller can free older holdings.
+     */
+    public Ticket hold(long estimatedBytes) {
+        if (!config.isEnabled()) {
+            return new Ticket(Decision.HELD, 0);
+        }
+        int permits = toPermits(estimatedBytes);
+        if (permits > budgetPermits) {
+            rejected.incrementAndGet();
+            return new Ticket(Decision.TOO_LARGE, 0);
+        }
+        if (!budget.tryAcquire(permits)) {
+            return new Ticket(Decision.OVER_BUDGET, 0);
+        }
+        heldMb.addAndGet(permits);
+        return new Ticket(Decision.HELD, permits);
+    }
+
+    public void release(Ticket ticket) {
+        if (ticket == null || !ticket.isAdmitted()) {
+            return;
+        }
+        if (ticket.getDecision() == Decision.HELD) {
+            heldMb.addAndGet(-ticket.getPermits());
+        } else {
+            inFlight.decrementAndGet();
+        }
+        budget.release(ticket.getPermits());
+    }
+
+    public int getRetryAfterSeconds() {
+        return config.getRetryAfterSeconds();
+    }
+
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("budgetMb", budgetPermits);
+        status.put("availableMb", budget.availablePermits());
+        status.put("inFlight", inFlight.get());
+        status.put("heldMb", heldMb.get());
+        status.put("queued", budget.getQueueLength());
+        status.put("rejected", rejected.get());
+        return status;
+    }
+
+    private int toPermits(long bytes) {
+        long mb = (bytes + MB - 1) / MB;
+        return (int) Math.min(Integer.MAX_VALUE, Math.max(1, mb));
+    }
+
+    private static int resolveBudgetMb(AdmissionConfig config) {
+        if (config.getBudgetMb() > 0) {
+            return (int) Math.min(Integer.MAX_VALUE, config.getBudgetMb());
+        }
+        long maxHeap = Runtime.getRuntime().maxMemory();
+        double fraction = config.getHeapFraction() > 0 && config.getHeapFraction() <= 1 ? config.getHeapFraction() : 0.6;
+        return (int) Math.max(64, (long) (maxHeap * fraction) / MB);
+    }
+}
@@ -0,0 +1,53 @@
+package com.konvert.admission;
+
+import com.konvert.util.PdfTextExtractor;
+import com.konvert.util.XlsxStreamReader;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class AdmissionWebConfig implements WebMvcConfigurer {
+    private final AdmissionInterceptor admissionInterceptor;
+
+    public AdmissionWebConfig(AdmissionManager admissionManager, AdmissionConfig config) {
+        StreamingRoutes routes = StreamingRoutes.builder()
+                .stream("/api/files/schema/infer", "json", "ndjson", "yaml", "csv")
+                .stream("/api/files/convert/stream", "xlsx", "pdf")
+                // Record operations and joins spill sorted runs and partitions to disk
+                .stream("/api/files/transform/records", "json", "ndjson", "csv")
+                .stream("/api/files/transform/join", "json", "ndjson", "csv")
+                // Text diffs memory-map their uploads and record diffs partition them. A batch diff reads
+                // every changed file whole, so it is charged by size like any other endpoint.
+                .stream("/api/files/diff/text")
+                .stream("/api/files/diff/records", "json", "ndjson", "csv")
+                // PDFs are redacted from a temp file one page at a time
+                .stream("/api/mask/file", "pdf")
+                // Oversized workbooks and PDFs are downloaded from the streaming converter instead
+                .reroute("/api/files/upload", "/api/files/convert/stream", (from, to) -> "pdf".equals(from)
+                        ? PdfTextExtractor.canWrite(to) : XlsxStreamReader.canWrite(to))
+                .build();
+        this.admissionInterceptor = new AdmissionInterceptor(admissionManager, config, routes);
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        // Runs after the trial check so expired trials never hold heap budget
+        registry.addInterceptor(admissionInterceptor)
+                .addPathPatterns(
+                        "/api/convert",
+                        "/api/convert/session",
+                        "/api/toon/statistics",
+                        "/api/files/**",
+                        "/api/mask/**",
+                        "/api/format",
+                        "/api/validate",
+                        "/api/minify",
+                        "/api/beautify/**",
+                        "/api/compress/**",
+                        "/api/decompress/**",
+                        "/api/remove-comments",
+                        "/api/diff/**")
+                .order(1);
+    }
+}
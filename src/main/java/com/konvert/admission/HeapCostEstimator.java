@@ -0,0 +1,50 @@
+package com.konvert.admission;
+
+import java.util.Locale;
+import java.util.Map;
+
+public class HeapCostEstimator {
+
+    // Rough heap bytes per input byte while the input, its parsed tree and the
+    // rendered output are all alive at the same time.
+    private static final Map<String, Integer> EXPANSION_FACTORS = Map.ofEntries(
+            Map.entry("json", 8),
+            Map.entry("ndjson", 8),
+            Map.entry("yaml", 10),
+            Map.entry("yml", 10),
+            Map.entry("xml", 12),
+            Map.entry("toml", 8),
+            Map.entry("toon", 8),
+            Map.entry("csv", 6),
+            Map.entry("properties", 6),
+            Map.entry("protobuf", 6),
+            Map.entry("txt", 4),
+            Map.entry("text", 4),
+            Map.entry("docx", 15),
+            Map.entry("xlsx", 25),
+            Map.entry("xls", 25),
+            Map.entry("pdf", 8)
+    );
+
+    private static final int DEFAULT_FACTOR = 10;
+    private static final long MIN_COST_BYTES = 1024 * 1024;
+
+    private HeapCostEstimator() {
+    }
+
+    /**
+     * Estimate the peak heap a request will need from its input size and source format
+     */
+    public static long estimateBytes(long inputBytes, String format) {
+        if (inputBytes <= 0) {
+            return MIN_COST_BYTES;
+        }
+        int factor = EXPANSION_FACTORS.getOrDefault(normalize(format), DEFAULT_FACTOR);
+        long estimate = inputBytes > Long.MAX_VALUE / factor ? Long.MAX_VALUE : inputBytes * factor;
+        return Math.max(MIN_COST_BYTES, estimate);
+    }
+
+    private static String normalize(String format) {
+        return format == null ? "" : format.trim().toLowerCase(Locale.ROOT);
+    }
+}
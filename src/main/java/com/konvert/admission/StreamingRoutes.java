@@ -0,0 +1,104 @@
+package com.konvert.admission;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiPredicate;
+
+/**
+ * Endpoints that read given source formats in bounded memory, and the streaming endpoint that takes
+ * over an oversized request sent to another endpoint. Built once by the web configuration and
+ * read-only afterwards.
+ */
+public final class StreamingRoutes {
+    // Stands for every source format
+    private static final String ANY_FORMAT = "*";
+
+    private final Map<String, Set<String>> routes;
+    private final Map<String, Reroute> reroutes;
+
+    private StreamingRoutes(Map<String, Set<String>> routes, Map<String, Reroute> reroutes) {
+        Map<String, Set<String>> frozen = new HashMap<>();
+        routes.forEach((path, formats) -> frozen.put(path, Set.copyOf(formats)));
+        this.routes = Map.copyOf(frozen);
+        this.reroutes = Map.copyOf(reroutes);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Whether the endpoint reads this source format in bounded memory
+     */
+    public boolean streams(String path, String format) {
+        Set<String> formats = path == null ? null : routes.get(path);
+        return formats != null && (formats.contains(ANY_FORMAT) || formats.contains(normalize(format)));
+    }
+
+    /**
+     * The streaming endpoint that converts this source to this target for the given endpoint, or null
+     * when there is none
+     */
+    public String reroute(String path, String format, String toFormat) {
+        Reroute reroute = path == null ? null : reroutes.get(path);
+        if (reroute == null || !streams(reroute.target, format)
+                || !reroute.converts.test(normalize(format), normalize(toFormat))) {
+            return null;
+        }
+        return reroute.target;
+    }
+
+    private static String normalize(String format) {
+        return format == null ? "" : format.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static final class Reroute {
+        final String target;
+        final BiPredicate<String, String> converts;
+
+        Reroute(String target, BiPredicate<String, String> converts) {
+            this.target = target;
+            this.converts = converts;
+        }
+    }
+
+    public static final class Builder {
+        private final Map<String, Set<String>> routes = new LinkedHashMap<>();
+        private final Map<String, Reroute> reroutes = new LinkedHashMap<>();
+
+        private Builder() {
+        }
+
+        /**
+         * An endpoint that reads the given source formats in bounded memory, or every format when none
+         * are given
+         */
+        public Builder stream(String path, String... formats) {
+            Set<String> routeFormats = routes.computeIfAbsent(path, key -> new HashSet<>());
+            if (formats.length == 0) {
+                routeFormats.add(ANY_FORMAT);
+            }
+            for (String format : formats) {
+                routeFormats.add(normalize(format));
+            }
+            return this;
+        }
+
+        /**
+         * Forward oversized requests for the endpoint to a streaming endpoint that takes the same
+         * parameters, when it streams the source and the predicate accepts the source and target formats
+         */
+        public Builder reroute(String path, String target, BiPredicate<String, String> converts) {
+            reroutes.put(path, new Reroute(target, converts));
+            return this;
+        }
+
+        public StreamingRoutes build() {
+            return new StreamingRoutes(routes, reroutes);
+        }
+    }
+}
@@ -1,7 +1,19 @@
 package com.konvert.controller;
 
+import com.fasterxml.jackson.databind.node.TextNode;
 import com.konvert.FormatConverter;
+import com.konvert.util.BatchDiff;
+import com.konvert.util.ExternalSort;
 import com.konvert.util.FileFormatDetector;
+import com.konvert.util.HashJoin;
+import com.konvert.util.KeyedDiff;
+import com.konvert.util.PdfTextExtractor;
+import com.konvert.util.RecordStreams;
+import com.konvert.util.SchemaInferenceUtil;
+import com.konvert.util.TextDiff;
+import com.konvert.util.XlsxStreamReader;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.io.InputStreamResource;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -9,7 +21,18 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
 
 @RestController
@@ -22,7 +45,8 @@ public class FileUploadController {
             @RequestParam("file") MultipartFile file,
             @RequestParam(value = "fromFormat", required = false) String fromFormat,
             @RequestParam(value = "toFormat", required = false) String toFormat,
-            @RequestParam(value = "protobufSchema", required = false) String protobufSchema) {
+            @RequestParam(value = "protobufSchema", required = false) String protobufSchema,
+            @RequestParam(value = "sheet", required = false) String sheet) {
         
         Map<String, Object> response = new HashMap<>();
         
@@ -33,6 +57,12 @@ public class FileUploadController {
                 return ResponseEntity.badRequest().body(response);
             }
             
+            // Workbooks and PDFs are binary; read them from disk instead of as text
+            String binaryFormat = binarySourceFormat(file, fromFormat);
+            if (binaryFormat != null) {
+                return uploadBinary(file, binaryFormat, toFormat, protobufSchema, sheet);
+            }
+            
             // Read file content
             String content = new String(file.getBytes(), StandardCharsets.UTF_8);
             String originalFilename = file.getOriginalFilename();
@@ -84,15 +114,33 @@ public class FileUploadController {
                 return ResponseEntity.badRequest().body(response);
             }
             
-            // Perform conversion
-            String convertedContent = FormatConverter.convert(content, fromFormat, toFormat, protobufSchema);
-            
             // Generate output filename
             String outputFilename = FileFormatDetector.changeExtension(
                 originalFilename, 
                 FileFormatDetector.getExtensionForFormat(toFormat)
             );
             
+            // Workbooks are binary, so the content is already the Base64 payload
+            if ("xlsx".equalsIgnoreCase(toFormat)) {
+                ByteArrayOutputStream workbook = new ByteArrayOutputStream();
+                Map<String, Object> stats = FormatConverter.convertToXlsx(content, fromFormat, protobufSchema, workbook);
+                String base64Workbook = Base64.getEncoder().encodeToString(workbook.toByteArray());
+                
+                response.put("success", true);
+                response.put("originalFilename", originalFilename);
+                response.put("outputFilename", outputFilename);
+                response.put("detectedFormat", fromFormat);
+                response.put("convertedFormat", toFormat);
+                response.put("content", base64Workbook);
+                response.put("base64Content", base64Workbook);
+                response.put("size", workbook.size());
+                response.put("stats", stats);
+                return ResponseEntity.ok(response);
+            }
+            
+            // Perform conversion
+            String convertedContent = FormatConverter.convert(content, fromFormat, toFormat, protobufSchema);
+            
             // Encode content as base64 for transmission
             String base64Content = Base64.getEncoder().encodeToString(
                 convertedContent.getBytes(StandardCharsets.UTF_8)
@@ -116,6 +164,529 @@ public class FileUploadController {
         }
     }
     
+    private ResponseEntity<Map<String, Object>> uploadBinary(MultipartFile file, String fromFormat, String toFormat,
+                                                            String protobufSchema, String sheet) throws Exception {
+        Map<String, Object> response = new HashMap<>();
+        if (toFormat == null || toFormat.trim().isEmpty()) {
+            toFormat = "pdf".equals(fromFormat) ? "text" : "json";
+        }
+        if ("protobuf".equals(toFormat) && (protobufSchema == null || protobufSchema.trim().isEmpty())) {
+            response.put("success", false);
+            response.put("error", "Protobuf schema is required for Protobuf conversions");
+            return ResponseEntity.badRequest().body(response);
+        }
+        
+        Path tempFile = Files.createTempFile("konvertr-upload-", FileFormatDetector.getExtensionForFormat(fromFormat));
+        try {
+            file.transferTo(tempFile);
+            String convertedContent;
+            if (canStream(fromFormat, toFormat)) {
+                convertedContent = extractToString(tempFile, fromFormat, toFormat, sheet);
+            } else {
+                String json = extractToString(tempFile, fromFormat, "json", sheet);
+                convertedContent = FormatConverter.convert(json, "json", toFormat, protobufSchema);
+            }
+            
+            // Workbook output is already Base64 encoded by the converter
+            boolean workbook = "xlsx".equalsIgnoreCase(toFormat);
+            String originalFilename = file.getOriginalFilename();
+            response.put("success", true);
+            response.put("originalFilename", originalFilename);
+            response.put("outputFilename", FileFormatDetector.changeExtension(
+                originalFilename, FileFormatDetector.getExtensionForFormat(toFormat)));
+            response.put("detectedFormat", fromFormat);
+            response.put("convertedFormat", toFormat);
+            response.put("content", convertedContent);
+            response.put("base64Content", workbook ? convertedContent : Base64.getEncoder().encodeToString(
+                convertedContent.getBytes(StandardCharsets.UTF_8)));
+            response.put("size", workbook ? Base64.getDecoder().decode(convertedContent).length : convertedContent.length());
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            response.put("success", false);
+            response.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+    
+    /**
+     * Convert a large file to a downloadable file without holding the output in memory.
+     * XLSX sources stream to CSV, JSON, NDJSON or TOON, PDFs to text, JSON, NDJSON or CSV,
+     * and text sources stream to XLSX.
+     */
+    @PostMapping("/convert/stream")
+    public ResponseEntity<?> convertStream(
+            @RequestParam("file") MultipartFile file,
+            @RequestParam(value = "fromFormat", required = false) String fromFormat,
+            @RequestParam(value = "toFormat", required = false) String toFormat,
+            @RequestParam(value = "sheet", required = false) String sheet) {
+        
+        Map<String, Object> response = new HashMap<>();
+        Path tempFile = null;
+        Path outputFile = null;
+        
+        try {
+            if (file == null || file.isEmpty()) {
+                response.put("success", false);
+                response.put("error", "No file uploaded");
+                return ResponseEntity.badRequest().body(response);
+            }
+            String binaryFormat = binarySourceFormat(file, fromFormat);
+            if (toFormat == null || toFormat.trim().isEmpty()) {
+                toFormat = binaryFormat == null ? "xlsx" : "pdf".equals(binaryFormat) ? "text" : "csv";
+            }
+            if (binaryFormat != null && !canStream(binaryFormat, toFormat)) {
+                response.put("success", false);
+                response.put("error", "pdf".equals(binaryFormat)
+                    ? "PDFs can be streamed to TEXT, JSON, NDJSON or CSV"
+                    : "Workbooks can be streamed to CSV, JSON, NDJSON or TOON");
+                return ResponseEntity.badRequest().body(response);
+            }
+            if (binaryFormat == null && !"xlsx".equalsIgnoreCase(toFormat)) {
+                response.put("success", false);
+                response.put("error", "Streaming conversion supports XLSX and PDF sources and XLSX targets");
+                return ResponseEntity.badRequest().body(response);
+            }
+            
+            outputFile = Files.createTempFile("konvertr-output-", FileFormatDetector.getExtensionForFormat(toFormat));
+            if (binaryFormat != null) {
+                tempFile = Files.createTempFile("konvertr-upload-", FileFormatDetector.getExtensionForFormat(binaryFormat));
+                file.transferTo(tempFile);
+                try (OutputStream out = Files.newOutputStream(outputFile)) {
+                    extract(tempFile, binaryFormat, toFormat, sheet, out);
+                }
+            } else {
+                String content = new String(file.getBytes(), StandardCharsets.UTF_8);
+                if (fromFormat == null || fromFormat.trim().isEmpty()) {
+                    fromFormat = FileFormatDetector.detectFromFilename(file.getOriginalFilename());
+                    if ("unknown".equals(fromFormat)) {
+                        fromFormat = FileFormatDetector.detectFromContent(content);
+                    }
+                }
+                if ("unknown".equals(fromFormat)) {
+                    response.put("success", false);
+                    response.put("error", "Could not detect file format. Please specify the source format.");
+                    return ResponseEntity.badRequest().body(response);
+                }
+                // Rows are flushed to disk as the workbook is built, so only the parsed table stays on heap
+                try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(outputFile))) {
+                    FormatConverter.convertToXlsx(content, fromFormat, null, out);
+                }
+            }
+            
+            ResponseEntity<InputStreamResource> download = download(outputFile, MediaType.APPLICATION_OCTET_STREAM, new HttpHeaders(),
+                FileFormatDetector.changeExtension(file.getOriginalFilename(), FileFormatDetector.getExtensionForFormat(toFormat)));
+            outputFile = null;
+            return download;
+            
+        } catch (IllegalArgumentException e) {
+            response.put("success", false);
+            response.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        } finally {
+            deleteQuietly(tempFile);
+            deleteQuietly(outputFile);
+        }
+    }
+    
+    /**
+     * Sort, dedupe or group a JSON, NDJSON or CSV file of any size into a downloadable file. The upload
+     * is read as a stream and sorted runs spill to disk, so memory stays bounded.
+     */
+    @PostMapping("/transform/records")
+    public ResponseEntity<?> transformRecords(
+            @RequestParam("file") MultipartFile file,
+            @RequestParam("operation") String operation,
+            @RequestParam(value = "keys", required = false) String keys,
+            @RequestParam(value = "aggregates", required = false) String aggregates,
+            @RequestParam(value = "fromFormat", required = false) String fromFormat,
+            @RequestParam(value = "toFormat", required = false) String toFormat) {
+        
+        Map<String, Object> response = new HashMap<>();
+        Path outputFile = null;
+        
+        try {
+            if (file == null || file.isEmpty()) {
+                response.put("success", false);
+                response.put("error", "No file uploaded");
+                return ResponseEntity.badRequest().body(response);
+            }
+            if (fromFormat == null || fromFormat.trim().isEmpty()) {
+                fromFormat = FileFormatDetector.detectFromFilename(file.getOriginalFilename());
+            }
+            if (!RecordStreams.supports(fromFormat)) {
+                response.put("success", false);
+                response.put("error", "Record operations support JSON, NDJSON and CSV files");
+                return ResponseEntity.badRequest().body(response);
+            }
+            if (toFormat == null || toFormat.trim().isEmpty()) {
+                toFormat = fromFormat;
+            }
+            
+            ExternalSort sort = new ExternalSort(ExternalSort.Operation.fromString(operation), keys,
+                aggregates == null || aggregates.trim().isEmpty() ? null : TextNode.valueOf(aggregates));
+            outputFile = Files.createTempFile("konvertr-output-", FileFormatDetector.getExtensionForFormat(toFormat));
+            try (Reader in = new InputStreamReader(file.getInputStream(), StandardCharsets.UTF_8);
+                 Writer out = Files.newBufferedWriter(outputFile, StandardCharsets.UTF_8)) {
+                sort.run(in, fromFormat, out, toFormat);
+            }
+            
+            ResponseEntity<InputStreamResource> download = download(outputFile, MediaType.APPLICATION_OCTET_STREAM, new HttpHeaders(),
+                FileFormatDetector.changeExtension(file.getOriginalFilename(), FileFormatDetector.getExtensionForFormat(toFormat)));
+            outputFile = null;
+            return download;
+            
+        } catch (IllegalArgumentException e) {
+            response.put("success", false);
+            response.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        } finally {
+            deleteQuietly(outputFile);
+        }
+    }
+    
+    /**
+     * Join two files on key columns into a downloadable file. JSON, NDJSON and CSV files are read as
+     * streams; the smaller file is the hash table and partitions to disk when it does not fit.
+     */
+    @PostMapping("/transform/join")
+    public ResponseEntity<?> joinFiles(
+            @RequestParam("left") MultipartFile left,
+            @RequestParam("right") MultipartFile right,
+            @RequestParam("on") String on,
+            @RequestParam(value = "rightOn", required = false) String rightOn,
+            @RequestParam(value = "type", required = false) String type,
+            @RequestParam(value = "leftFormat", required = false) String leftFormat,
+            @RequestParam(value = "rightFormat", required = false) String rightFormat,
+            @RequestParam(value = "toFormat", required = false) String toFormat) {
+        
+        Map<String, Object> response = new HashMap<>();
+        Path outputFile = null;
+        
+        try {
+            if (left == null || left.isEmpty() || right == null || right.isEmpty()) {
+                response.put("success", false);
+                response.put("error", "Both files are required");
+                return ResponseEntity.badRequest().body(response);
+            }
+            leftFormat = recordFormat(left, leftFormat);
+            rightFormat = recordFormat(right, rightFormat);
+            if (toFormat == null || toFormat.trim().isEmpty()) {
+                toFormat = leftFormat;
+            }
+            
+            HashJoin join = new HashJoin(HashJoin.Type.fromString(type), on, rightOn, null);
+            outputFile = Files.createTempFile("konvertr-output-", FileFormatDetector.getExtensionForFormat(toFormat));
+            try (Writer out = Files.newBufferedWriter(outputFile, StandardCharsets.UTF_8)) {
+                join.join(openRecords(left, leftFormat), left.getSize(), openRecords(right, rightFormat), right.getSize(),
+                    out, toFormat);
+            }
+            
+            ResponseEntity<InputStreamResource> download = download(outputFile, MediaType.APPLICATION_OCTET_STREAM, new HttpHeaders(),
+                FileFormatDetector.changeExtension(left.getOriginalFilename(), FileFormatDetector.getExtensionForFormat(toFormat)));
+            outputFile = null;
+            return download;
+            
+        } catch (IllegalArgumentException e) {
+            response.put("success", false);
+            response.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        } finally {
+            deleteQuietly(outputFile);
+        }
+    }
+    
+    /**
+     * Line diff of two files of any size as a downloadable unified diff. Both uploads are saved to disk
+     * and memory-mapped, and hunks are written out as they are found.
+     */
+    @PostMapping("/diff/text")
+    public ResponseEntity<?> diffFiles(
+            @RequestParam("file1") MultipartFile file1,
+            @RequestParam("file2") MultipartFile file2,
+            @RequestParam(value = "context", required = false) Integer context) {
+        
+        Map<String, Object> response = new HashMap<>();
+        Path source1 = null;
+        Path source2 = null;
+        Path outputFile = null;
+        
+        try {
+            if (file1 == null || file1.isEmpty() || file2 == null || file2.isEmpty()) {
+                response.put("success", false);
+                response.put("error", "No file uploaded");
+                return ResponseEntity.badRequest().body(response);
+            }
+            
+            TextDiff diff = new TextDiff(context);
+            source1 = Files.createTempFile("konvertr-upload-", ".txt");
+            source2 = Files.createTempFile("konvertr-upload-", ".txt");
+            file1.transferTo(source1);
+            file2.transferTo(source2);
+            outputFile = Files.createTempFile("konvertr-output-", ".diff");
+            Map<String, Object> stats;
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(outputFile))) {
+                stats = diff.diff(source1, source2, out, label(file1, "file1"), label(file2, "file2"));
+            }
+            
+            HttpHeaders headers = new HttpHeaders();
+            headers.set("X-Diff-Hunks", String.valueOf(stats.get("hunks")));
+            headers.set("X-Diff-Identical", String.valueOf(stats.get("identical")));
+            ResponseEntity<InputStreamResource> download = download(outputFile, MediaType.TEXT_PLAIN, headers,
+                FileFormatDetector.changeExtension(file1.getOriginalFilename(), ".diff"));
+            outputFile = null;
+            return download;
+            
+        } catch (IllegalArgumentException e) {
+            response.put("success", false);
+            response.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        } finally {
+            deleteQuietly(source1);
+            deleteQuietly(source2);
+            deleteQuietly(outputFile);
+        }
+    }
+    
+    /**
+     * Row diff of two record files matched on key columns, as a downloadable file of changes (NDJSON
+     * unless toFormat says otherwise). Uploads are read as streams; the smaller file is the hash table
+     * and both are partitioned to disk when it does not fit.
+     */
+    @PostMapping("/diff/records")
+    public ResponseEntity<?> diffRecords(
+            @RequestParam("file1") MultipartFile file1,
+            @RequestParam("file2") MultipartFile file2,
+            @RequestParam("keys") String keys,
+            @RequestParam(value = "fromFormat", required = false) String fromFormat,
+            @RequestParam(value = "toFormat", required = false) String toFormat) {
+            
+        Map<String, Object> response = new HashMap<>();
+        Path outputFile = null;
+        
+        try {
+            if (file1 == null || file1.isEmpty() || file2 == null || file2.isEmpty()) {
+                response.put("success", false);
+                response.put("error", "Both files are required");
+                return ResponseEntity.badRequest().body(response);
+            }
+            String format1 = recordFormat(file1, fromFormat);
+            String format2 = recordFormat(file2, fromFormat);
+            if (toFormat == null || toFormat.trim().isEmpty()) {
+                toFormat = "ndjson";
+            }
+            
+            KeyedDiff diff = new KeyedDiff(keys);
+            outputFile = Files.createTempFile("konvertr-output-", FileFormatDetector.getExtensionForFormat(toFormat));
+            Map<String, Object> stats;
+            try (Writer out = Files.newBufferedWriter(outputFile, StandardCharsets.UTF_8)) {
+                stats = diff.compare(openRecords(file1, format1), file1.getSize(), openRecords(file2, format2),
+                    file2.getSize(), out, toFormat);
+            }
+            
+            HttpHeaders headers = new HttpHeaders();
+            headers.set("X-Diff-Added", String.valueOf(stats.get("added")));
+            headers.set("X-Diff-Removed", String.valueOf(stats.get("removed")));
+            headers.set("X-Diff-Changed", String.valueOf(stats.get("changed")));
+            headers.set("X-Diff-Identical", String.valueOf(stats.get("identical")));
+            ResponseEntity<InputStreamResource> download = download(outputFile, MediaType.APPLICATION_OCTET_STREAM, headers,
+                FileFormatDetector.changeExtension(file1.getOriginalFilename(), FileFormatDetector.getExtensionForFormat(toFormat)));
+            outputFile = null;
+            return download;
+            
+        } catch (IllegalArgumentException e) {
+            response.put("success", false);
+            response.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        } finally {
+            deleteQuietly(outputFile);
+        }
+    }
+    
+    /**
+     * Compare two sets of files, such as the config directories of two environments, paired by
+     * relative path. Each side is one or more uploads, any of which may be a ZIP archive. The result
+     * streams as NDJSON: one line per file as soon as its comparison finishes, then a summary line.
+     */
+    @PostMapping("/diff/batch")
+    public ResponseEntity<?> diffBatch(
+            @RequestParam("left") MultipartFile[] left,
+            @RequestParam("right") MultipartFile[] right,
+            @RequestParam(value = "arrayKey", required = false) String arrayKey,
+            @RequestParam(value = "context", required = false) Integer context,
+            HttpServletResponse servletResponse) {
+        
+        Map<String, Object> response = new HashMap<>();
+        BatchDiff.FileSet leftFiles = null;
+        BatchDiff.FileSet rightFiles = null;
+        
+        try {
+            if (left == null || left.length == 0 || right == null || right.length == 0) {
+                response.put("success", false);
+                response.put("error", "Files for both sides are required");
+                return ResponseEntity.badRequest().body(response);
+            }
+            
+            BatchDiff diff = new BatchDiff(arrayKey, context);
+            leftFiles = fileSet(left);
+            rightFiles = fileSet(right);
+            
+            // Written straight to the response so every line reaches the client as it is produced
+            servletResponse.setStatus(HttpStatus.OK.value());
+            servletResponse.setContentType("application/x-ndjson");
+            servletResponse.setCharacterEncoding("UTF-8");
+            diff.compare(leftFiles, rightFiles, servletResponse.getOutputStream());
+            return null;
+            
+        } catch (IllegalArgumentException e) {
+            response.put("success", false);
+            response.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        } catch (Exception e) {
+            if (servletResponse.isCommitted()) {
+                // Lines already sent stand; the stream ends without a summary
+                return null;
+            }
+            response.put("success", false);
+            response.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        } finally {
+            closeQuietly(leftFiles);
+            closeQuietly(rightFiles);
+        }
+    }
+    
+    // Each upload, or each entry of a ZIP upload, is copied to disk rather than read into memory
+    private static BatchDiff.FileSet fileSet(MultipartFile[] uploads) throws Exception {
+        BatchDiff.FileSet files = new BatchDiff.FileSet();
+        try {
+            for (MultipartFile upload : uploads) {
+                String name = label(upload, "file");
+                try (InputStream in = upload.getInputStream()) {
+                    if (name.toLowerCase().endsWith(".zip")) {
+                        files.addZip(in);
+                    } else {
+                        files.add(name, in);
+                    }
+                }
+            }
+            return files;
+        } catch (Exception e) {
+            closeQuietly(files);
+            throw e;
+        }
+    }
+    
+    private static String label(MultipartFile file, String fallback) {
+        String name = file.getOriginalFilename();
+        return name == null || name.trim().isEmpty() ? fallback : name;
+    }
+    
+    private static String recordFormat(MultipartFile file, String format) throws Exception {
+        if (format != null && !format.trim().isEmpty()) {
+            return format.trim().toLowerCase();
+        }
+        // Only a prefix is sniffed, so an upload larger than the heap is never read whole here
+        format = FileFormatDetector.detectFromStream(file.getInputStream(), file.getOriginalFilename());
+        if ("unknown".equals(format)) {
+            throw new IllegalArgumentException("Could not detect the format of " + file.getOriginalFilename());
+        }
+        return format;
+    }
+    
+    // JSON, NDJSON and CSV stream from the upload; other formats are parsed whole
+    private static RecordStreams.RecordReader openRecords(MultipartFile file, String format) throws Exception {
+        if (RecordStreams.supports(format)) {
+            return RecordStreams.reader(new InputStreamReader(file.getInputStream(), StandardCharsets.UTF_8), format);
+        }
+        return RecordStreams.reader(new String(file.getBytes(), StandardCharsets.UTF_8), format);
+    }
+    
+    // Returns "xlsx" or "pdf" for sources that must be read from disk, otherwise null
+    private static String binarySourceFormat(MultipartFile file, String fromFormat) {
+        String format = fromFormat != null && !fromFormat.trim().isEmpty()
+            ? fromFormat.trim().toLowerCase()
+            : FileFormatDetector.detectFromFilename(file.getOriginalFilename());
+        return "xlsx".equals(format) || "pdf".equals(format) ? format : null;
+    }
+    
+    private static boolean canStream(String binaryFormat, String toFormat) {
+        return "pdf".equals(binaryFormat) ? PdfTextExtractor.canWrite(toFormat) : XlsxStreamReader.canWrite(toFormat);
+    }
+    
+    private static void extract(Path source, String binaryFormat, String toFormat, String sheet, OutputStream out)
+            throws Exception {
+        if ("pdf".equals(binaryFormat)) {
+            PdfTextExtractor.extract(source, toFormat, out);
+        } else {
+            XlsxStreamReader.convert(source, toFormat, sheet, out);
+        }
+    }
+    
+    private static String extractToString(Path source, String binaryFormat, String toFormat, String sheet)
+            throws Exception {
+        return "pdf".equals(binaryFormat)
+            ? PdfTextExtractor.extractToString(source, toFormat)
+            : XlsxStreamReader.convertToString(source, toFormat, sheet);
+    }
+    
+    /**
+     * Send a finished output file as an attachment; the file is removed once the response body has been written
+     */
+    private static ResponseEntity<InputStreamResource> download(Path outputFile, MediaType contentType,
+                                                                HttpHeaders headers, String filename) throws IOException {
+        long size = Files.size(outputFile);
+        InputStreamResource body = new InputStreamResource(
+            Files.newInputStream(outputFile, StandardOpenOption.DELETE_ON_CLOSE));
+        headers.setContentType(contentType);
+        headers.setContentDispositionFormData("attachment", filename);
+        headers.setContentLength(size);
+        return ResponseEntity.ok()
+            .headers(headers)
+            .body(body);
+    }
+    
+    private static void deleteQuietly(Path path) {
+        if (path != null) {
+            try {
+                Files.deleteIfExists(path);
+            } catch (Exception ignored) {
+                // Temp directory cleanup is best effort
+            }
+        }
+    }
+    
+    private static void closeQuietly(BatchDiff.FileSet files) {
+        if (files != null) {
+            try {
+                files.close();
+            } catch (Exception ignored) {
+                // Temp directory cleanup is best effort
+            }
+        }
+    }
+    
     @PostMapping("/upload-batch")
     public ResponseEntity<Map<String, Object>> uploadBatch(
             @RequestParam("files") MultipartFile[] files,
@@ -195,9 +766,10 @@ public class FileUploadController {
                         FileFormatDetector.getExtensionForFormat(detectedToFormat)
                     );
                     
-                    String base64Content = Base64.getEncoder().encodeToString(
-                        convertedContent.getBytes(StandardCharsets.UTF_8)
-                    );
+                    // XLSX output is already Base64 encoded by the converter
+                    String base64Content = "xlsx".equalsIgnoreCase(detectedToFormat)
+                        ? convertedContent
+                        : Base64.getEncoder().encodeToString(convertedContent.getBytes(StandardCharsets.UTF_8));
                     
                     fileResult.put("success", true);
                     fileResult.put("originalFilename", originalFilename);
@@ -235,6 +807,61 @@ public class FileUploadController {
         }
     }
     
+    @PostMapping("/schema/infer")
+    public ResponseEntity<Map<String, Object>> inferSchema(
+            @RequestParam("file") MultipartFile file,
+            @RequestParam(value = "format", required = false) String format,
+            @RequestParam(value = "maxEnum", required = false) Integer maxEnum,
+            @RequestParam(value = "maxExamples", required = false) Integer maxExamples) {
+        
+        Map<String, Object> response = new HashMap<>();
+        Path tempFile = null;
+        
+        try {
+            if (file == null || file.isEmpty()) {
+                response.put("success", false);
+                response.put("error", "No file uploaded");
+                return ResponseEntity.badRequest().body(response);
+            }
+            
+            String originalFilename = file.getOriginalFilename();
+            if (format == null || format.trim().isEmpty()) {
+                format = FileFormatDetector.detectFromFilename(originalFilename);
+            }
+            if ("unknown".equals(format)) {
+                response.put("success", false);
+                response.put("error", "Could not detect file format. Please specify the source format.");
+                return ResponseEntity.badRequest().body(response);
+            }
+            
+            // Infer from disk so large uploads are never held in memory
+            tempFile = Files.createTempFile("konvertr-schema-", FileFormatDetector.getExtensionForFormat(format));
+            file.transferTo(tempFile);
+            
+            Map<String, Object> result = SchemaInferenceUtil.inferFile(tempFile, format,
+                maxEnum != null ? maxEnum : SchemaInferenceUtil.DEFAULT_MAX_ENUM,
+                maxExamples != null ? maxExamples : SchemaInferenceUtil.DEFAULT_MAX_EXAMPLES);
+            
+            response.put("success", true);
+            response.put("originalFilename", originalFilename);
+            response.put("detectedFormat", format);
+            response.put("output", FormatConverter.render(result.get("schema"), "json", null));
+            response.putAll(result);
+            return ResponseEntity.ok(response);
+            
+        } catch (IllegalArgumentException e) {
+            response.put("success", false);
+            response.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        } finally {
+            deleteQuietly(tempFile);
+        }
+    }
+    
     @PostMapping("/download")
     public ResponseEntity<byte[]> downloadFile(@RequestBody Map<String, String> request) {
         try {
@@ -4,6 +4,7 @@ import com.konvert.FormatFormatter;
 import com.konvert.util.CsvUtil;
 import com.konvert.util.MinifyUtil;
 import com.konvert.util.DiffUtil;
+import com.konvert.util.JsonPatchUtil;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -15,7 +16,7 @@ import java.util.Map;
 @RequestMapping("/api")
 @CrossOrigin(origins = "*")
 public class FormatterController {
-
+    
     @PostMapping("/format")
     public ResponseEntity<Map<String, Object>> format(
             @RequestBody Map<String, String> request) {
@@ -260,11 +261,114 @@ public class FormatterController {
                 return ResponseEntity.badRequest().body(response);
             }
             
-            Map<String, Object> comparisonResult = DiffUtil.compare(input1, input2, format);
+            // Optional: match array elements by this field instead of by position
+            String arrayKey = request.get("arrayKey");
+            // Optional: unchanged lines around each hunk of a text diff
+            String context = request.get("context");
+            // Optional: match records by these key columns, for CSV extracts in any row order
+            String keys = request.get("keys");
+            
+            if (keys != null && !keys.trim().isEmpty()) {
+                response.putAll(DiffUtil.compareRecords(input1, input2, format, keys));
+                return ResponseEntity.ok(response);
+            }
+            
+            Map<String, Object> comparisonResult = DiffUtil.isTextFormat(format)
+                ? DiffUtil.compareText(input1, input2, format,
+                    context == null || context.trim().isEmpty() ? null : Integer.valueOf(context.trim()))
+                : DiffUtil.compare(input1, input2, format, arrayKey);
             
             response.putAll(comparisonResult);
             return ResponseEntity.ok(response);
             
+        } catch (IllegalArgumentException e) {
+            response.put("success", false);
+            response.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+    
+    @PostMapping("/diff/patch")
+    public ResponseEntity<Map<String, Object>> patch(
+            @RequestBody Map<String, String> request) {
+            
+        Map<String, Object> response = new HashMap<>();
+        
+        try {
+            String input1 = request.get("input1");
+            String input2 = request.get("input2");
+            String format = request.getOrDefault("format", "json");
+            
+            if (input1 == null || input1.trim().isEmpty()) {
+                response.put("success", false);
+                response.put("error", "First input is required");
+                return ResponseEntity.badRequest().body(response);
+            }
+            
+            if (input2 == null || input2.trim().isEmpty()) {
+                response.put("success", false);
+                response.put("error", "Second input is required");
+                return ResponseEntity.badRequest().body(response);
+            }
+            
+            // Optional: json-patch (default) or merge-patch
+            response.putAll(DiffUtil.patch(input1, input2, format, request.get("type")));
+            return ResponseEntity.ok(response);
+            
+        } catch (IllegalArgumentException e) {
+            response.put("success", false);
+            response.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+    
+    @PostMapping("/diff/apply")
+    public ResponseEntity<Map<String, Object>> applyPatch(
+            @RequestBody Map<String, Object> request) {
+            
+        Map<String, Object> response = new HashMap<>();
+        
+        try {
+            Object input = request.get("input");
+            Object patch = request.get("patch");
+            
+            if (input == null || input.toString().trim().isEmpty()) {
+                response.put("success", false);
+                response.put("error", "Input is required");
+                return ResponseEntity.badRequest().body(response);
+            }
+            
+            if (patch == null) {
+                response.put("success", false);
+                response.put("error", "Patch is required");
+                return ResponseEntity.badRequest().body(response);
+            }
+            
+            Object format = request.get("format");
+            Object outputFormat = request.get("outputFormat");
+            Object type = request.get("type");
+            Map<String, Object> result = JsonPatchUtil.applyToDocument(input.toString(),
+                format == null ? null : format.toString(),
+                outputFormat == null ? null : outputFormat.toString(),
+                patch,
+                type == null ? null : type.toString());
+            
+            response.put("success", true);
+            response.putAll(result);
+            return ResponseEntity.ok(response);
+            
+        } catch (IllegalArgumentException e) {
+            response.put("success", false);
+            response.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
         } catch (Exception e) {
             response.put("success", false);
             response.put("error", e.getMessage());
@@ -1,5 +1,6 @@
 package com.konvert.controller;
 
+import com.konvert.admission.AdmissionManager;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -11,12 +12,18 @@ import java.util.Map;
 @RestController
 @RequestMapping("/api")
 public class HealthController {
+    private final AdmissionManager admissionManager;
+
+    public HealthController(AdmissionManager admissionManager) {
+        this.admissionManager = admissionManager;
+    }
 
     @GetMapping("/health")
     public ResponseEntity<Map<String, Object>> health() {
         Map<String, Object> response = new HashMap<>();
         response.put("status", "UP");
         response.put("service", "KonvertR");
+        response.put("admission", admissionManager.getStatus());
         return ResponseEntity.ok(response);
     }
 }
@@ -0,0 +1,184 @@
+package com.konvert.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.konvert.live.LiveSession;
+import com.konvert.live.LiveSessionManager;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Live editing: the document stays parsed on the server and each edit returns only the changed output region
+ */
+@RestController
+@RequestMapping("/api/convert/session")
+@CrossOrigin(origins = "*")
+public class LiveConversionController {
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final LiveSessionManager sessionManager;
+
+    public LiveConversionController(LiveSessionManager sessionManager) {
+        this.sessionManager = sessionManager;
+    }
+
+    @PostMapping
+    public ResponseEntity<Map<String, Object>> createSession(@RequestBody Map<String, String> request) {
+        Map<String, Object> response = new HashMap<>();
+
+        try {
+            String input = request.get("input");
+            String fromFormat = request.get("fromFormat");
+            String toFormat = request.get("toFormat");
+
+            if (input == null || input.trim().isEmpty()) {
+                response.put("success", false);
+                response.put("error", "Input data is required");
+                return ResponseEntity.badRequest().body(response);
+            }
+
+            if (fromFormat == null || toFormat == null) {
+                response.put("success", false);
+                response.put("error", "From and to formats are required");
+                return ResponseEntity.badRequest().body(response);
+            }
+
+            if ("protobuf".equalsIgnoreCase(fromFormat) || "protobuf".equalsIgnoreCase(toFormat)) {
+                response.put("success", false);
+                response.put("error", "Live sessions do not support Protobuf conversions");
+                return ResponseEntity.badRequest().body(response);
+            }
+
+            LiveSession session = sessionManager.create(input, fromFormat, toFormat);
+
+            response.put("success", true);
+            response.put("sessionId", session.getId());
+            response.put("version", session.getVersion());
+            response.put("output", session.getOutput());
+            return ResponseEntity.ok(response);
+
+        } catch (IllegalStateException e) {
+            response.put("success", false);
+            response.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(response);
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+
+    @PostMapping("/{sessionId}")
+    public ResponseEntity<Map<String, Object>> updateSession(
+            @PathVariable String sessionId,
+            @RequestBody Map<String, Object> request) {
+
+        Map<String, Object> response = new HashMap<>();
+
+        try {
+            LiveSession session = sessionManager.get(sessionId);
+            if (session == null) {
+                response.put("success", false);
+                response.put("error", "Session not found or expired");
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+            }
+
+            Object version = request.get("baseVersion");
+            Long baseVersion = version == null ? null : Long.parseLong(version.toString());
+
+            Map<String, Object> result;
+            if (request.containsKey("patch")) {
+                Object patch = request.get("patch");
+                JsonNode patchNode = patch instanceof String
+                        ? mapper.readTree((String) patch)
+                        : mapper.valueToTree(patch);
+                result = session.applyPatch(patchNode, baseVersion);
+            } else if (request.containsKey("edits") || request.containsKey("edit")) {
+                List<Map<String, Object>> edits = toEditList(request);
+                List<int[]> ranges = new ArrayList<>(edits.size());
+                List<String> texts = new ArrayList<>(edits.size());
+                for (Map<String, Object> edit : edits) {
+                    if (!(edit.get("start") instanceof Number) || !(edit.get("end") instanceof Number)) {
+                        response.put("success", false);
+                        response.put("error", "Each edit requires numeric start and end offsets");
+                        return ResponseEntity.badRequest().body(response);
+                    }
+                    ranges.add(new int[]{((Number) edit.get("start")).intValue(), ((Number) edit.get("end")).intValue()});
+                    texts.add(edit.get("text") == null ? "" : edit.get("text").toString());
+                }
+                result = session.applyEdits(ranges, texts, baseVersion);
+            } else {
+                response.put("success", false);
+                response.put("error", "Either patch or edits is required");
+                return ResponseEntity.badRequest().body(response);
+            }
+
+            sessionManager.resize(session);
+            response.put("success", true);
+            response.putAll(result);
+            return ResponseEntity.ok(response);
+
+        } catch (LiveSession.StaleVersionException e) {
+            response.put("success", false);
+            response.put("error", e.getMessage());
+            response.put("version", e.getCurrentVersion());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            response.put("success", false);
+            response.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+
+    @GetMapping("/{sessionId}")
+    public ResponseEntity<Map<String, Object>> getSession(@PathVariable String sessionId) {
+        Map<String, Object> response = new HashMap<>();
+        LiveSession session = sessionManager.get(sessionId);
+        if (session == null) {
+            response.put("success", false);
+            response.put("error", "Session not found or expired");
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+        }
+        response.put("success", true);
+        response.put("sessionId", session.getId());
+        response.put("version", session.getVersion());
+        response.put("output", session.getOutput());
+        return ResponseEntity.ok(response);
+    }
+
+    @DeleteMapping("/{sessionId}")
+    public ResponseEntity<Map<String, Object>> closeSession(@PathVariable String sessionId) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", sessionManager.close(sessionId));
+        return ResponseEntity.ok(response);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Map<String, Object>> toEditList(Map<String, Object> request) {
+        Object edits = request.containsKey("edits") ? request.get("edits") : request.get("edit");
+        if (edits instanceof Map) {
+            return Collections.singletonList((Map<String, Object>) edits);
+        }
+        if (edits instanceof List) {
+            List<Map<String, Object>> list = new ArrayList<>();
+            for (Object edit : (List<Object>) edits) {
+                if (!(edit instanceof Map)) {
+                    throw new IllegalArgumentException("Each edit must be an object with start, end and text");
+                }
+                list.add((Map<String, Object>) edit);
+            }
+            return list;
+        }
+        throw new IllegalArgumentException("Edits must be an object or an array of objects");
+    }
+}
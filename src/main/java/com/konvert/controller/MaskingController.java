@@ -51,12 +51,6 @@ public class MaskingController {
             if (detectedFormat == null || "unknown".equals(detectedFormat)) {
                 detectedFormat = "txt";
             }
-            if ("pdf".equalsIgnoreCase(detectedFormat)) {
-                response.put("success", false);
-                response.put("error", "PDF masking is temporarily disabled. Please use another format.");
-                return ResponseEntity.badRequest().body(response);
-            }
-
             String outputFilename = buildMaskedFilename(originalFilename, detectedFormat);
             EnumSet<MaskingType> typeSet = parseTypes(types);
             boolean fieldAwareEnabled = fieldAware != null ? fieldAware : ("json".equals(detectedFormat) || "yaml".equals(detectedFormat) || "yml".equals(detectedFormat));
@@ -78,6 +72,10 @@ public class MaskingController {
             }
 
             return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            response.put("success", false);
+            response.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
         } catch (Exception e) {
             response.put("success", false);
             response.put("error", e.getMessage());
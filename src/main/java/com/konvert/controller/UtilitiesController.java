@@ -1,9 +1,15 @@
 package com.konvert.controller;
 
+import com.konvert.FormatConverter;
 import com.konvert.util.DataTransformUtil;
 import com.konvert.util.EncodingUtil;
+import com.konvert.util.ExternalSort;
+import com.konvert.util.HashJoin;
 import com.konvert.util.HashUtil;
 import com.konvert.util.JWTUtil;
+import com.konvert.util.MergeEngine;
+import com.konvert.util.SchemaInferenceUtil;
+import com.konvert.util.TransformPipeline;
 import com.konvert.util.UUIDUtil;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -194,6 +200,46 @@ public class UtilitiesController {
         }
     }
     
+    @PostMapping("/transform/merge/deep")
+    public ResponseEntity<Map<String, Object>> deepMerge(@RequestBody Map<String, Object> request) {
+        Map<String, Object> response = new HashMap<>();
+        
+        try {
+            Object inputs = request.get("inputs");
+            
+            if (!(inputs instanceof java.util.List) || ((java.util.List<?>) inputs).isEmpty()) {
+                response.put("success", false);
+                response.put("error", "At least one input document is required");
+                return ResponseEntity.badRequest().body(response);
+            }
+            
+            Object inputFormat = request.get("inputFormat");
+            Object outputFormat = request.get("outputFormat");
+            Object arrays = request.get("arrays");
+            Object mergeKey = request.get("mergeKey");
+            Object nullDeletes = request.get("nullDeletes");
+            Map<String, Object> result = MergeEngine.merge((java.util.List<?>) inputs,
+                inputFormat == null ? null : inputFormat.toString(),
+                outputFormat == null ? null : outputFormat.toString(),
+                arrays == null ? null : arrays.toString(),
+                mergeKey == null ? null : mergeKey.toString(),
+                nullDeletes != null && Boolean.parseBoolean(nullDeletes.toString()));
+            
+            response.put("success", true);
+            response.putAll(result);
+            return ResponseEntity.ok(response);
+            
+        } catch (IllegalArgumentException e) {
+            response.put("success", false);
+            response.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+    
     @PostMapping("/transform/flatten")
     public ResponseEntity<Map<String, Object>> flattenData(@RequestBody Map<String, String> request) {
         Map<String, Object> response = new HashMap<>();
@@ -255,6 +301,10 @@ public class UtilitiesController {
             response.put("output", result);
             return ResponseEntity.ok(response);
             
+        } catch (IllegalArgumentException e) {
+            response.put("success", false);
+            response.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
         } catch (Exception e) {
             response.put("success", false);
             response.put("error", e.getMessage());
@@ -321,6 +371,10 @@ public class UtilitiesController {
             response.put("output", result);
             return ResponseEntity.ok(response);
             
+        } catch (IllegalArgumentException e) {
+            response.put("success", false);
+            response.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
         } catch (Exception e) {
             response.put("success", false);
             response.put("error", e.getMessage());
@@ -371,6 +425,43 @@ public class UtilitiesController {
         }
     }
     
+    @PostMapping("/transform/query")
+    public ResponseEntity<Map<String, Object>> queryPath(@RequestBody Map<String, String> request) {
+        Map<String, Object> response = new HashMap<>();
+        
+        try {
+            String input = request.get("input");
+            String path = request.get("path");
+            
+            if (input == null || input.trim().isEmpty()) {
+                response.put("success", false);
+                response.put("error", "Input data is required");
+                return ResponseEntity.badRequest().body(response);
+            }
+            
+            if (path == null || path.trim().isEmpty()) {
+                response.put("success", false);
+                response.put("error", "JSONPath expression is required");
+                return ResponseEntity.badRequest().body(response);
+            }
+            
+            String result = DataTransformUtil.queryPath(input, request.get("inputFormat"), request.get("outputFormat"), path);
+            
+            response.put("success", true);
+            response.put("output", result);
+            return ResponseEntity.ok(response);
+            
+        } catch (IllegalArgumentException e) {
+            response.put("success", false);
+            response.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+    
     @PostMapping("/transform/convert-types")
     public ResponseEntity<Map<String, Object>> convertTypes(@RequestBody Map<String, String> request) {
         Map<String, Object> response = new HashMap<>();
@@ -413,5 +504,185 @@ public class UtilitiesController {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
         }
     }
+    
+    @PostMapping("/transform/pipeline")
+    public ResponseEntity<Map<String, Object>> transformPipeline(@RequestBody Map<String, Object> request) {
+        Map<String, Object> response = new HashMap<>();
+        
+        try {
+            Object input = request.get("input");
+            Object steps = request.get("steps");
+            
+            if (input == null || input.toString().trim().isEmpty()) {
+                response.put("success", false);
+                response.put("error", "Input data is required");
+                return ResponseEntity.badRequest().body(response);
+            }
+            
+            if (!(steps instanceof java.util.List) || ((java.util.List<?>) steps).isEmpty()) {
+                response.put("success", false);
+                response.put("error", "Pipeline steps are required");
+                return ResponseEntity.badRequest().body(response);
+            }
+            
+            Object inputFormat = request.get("inputFormat");
+            Object outputFormat = request.get("outputFormat");
+            Map<String, Object> result = TransformPipeline.run(input.toString(),
+                inputFormat == null ? null : inputFormat.toString(),
+                outputFormat == null ? null : outputFormat.toString(),
+                (java.util.List<?>) steps);
+            
+            response.put("success", true);
+            response.putAll(result);
+            return ResponseEntity.ok(response);
+            
+        } catch (IllegalArgumentException e) {
+            response.put("success", false);
+            response.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+    
+    @PostMapping("/transform/sort")
+    public ResponseEntity<Map<String, Object>> sortRecords(@RequestBody Map<String, Object> request) {
+        return recordOperation("sort", request);
+    }
+    
+    @PostMapping("/transform/distinct")
+    public ResponseEntity<Map<String, Object>> distinctRecords(@RequestBody Map<String, Object> request) {
+        return recordOperation("distinct", request);
+    }
+    
+    @PostMapping("/transform/group-by")
+    public ResponseEntity<Map<String, Object>> groupRecords(@RequestBody Map<String, Object> request) {
+        return recordOperation("group-by", request);
+    }
+    
+    // Sort, distinct and group-by spill sorted runs to disk once the records outgrow the buffer
+    private ResponseEntity<Map<String, Object>> recordOperation(String operation, Map<String, Object> request) {
+        Map<String, Object> response = new HashMap<>();
+        
+        try {
+            Object input = request.get("input");
+            
+            if (input == null || input.toString().trim().isEmpty()) {
+                response.put("success", false);
+                response.put("error", "Input data is required");
+                return ResponseEntity.badRequest().body(response);
+            }
+            
+            Object inputFormat = request.get("inputFormat");
+            Object outputFormat = request.get("outputFormat");
+            Object bufferRecords = request.get("bufferRecords");
+            Map<String, Object> result = ExternalSort.run(input.toString(),
+                inputFormat == null ? null : inputFormat.toString(),
+                outputFormat == null ? null : outputFormat.toString(),
+                operation, request.get("keys"), request.get("aggregates"),
+                bufferRecords == null ? null : Integer.valueOf(bufferRecords.toString()));
+            
+            response.put("success", true);
+            response.putAll(result);
+            return ResponseEntity.ok(response);
+            
+        } catch (IllegalArgumentException e) {
+            response.put("success", false);
+            response.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+    
+    @PostMapping("/transform/join")
+    public ResponseEntity<Map<String, Object>> joinRecords(@RequestBody Map<String, String> request) {
+        Map<String, Object> response = new HashMap<>();
+        
+        try {
+            String left = request.get("left");
+            String right = request.get("right");
+            String on = request.get("on");
+            
+            if (left == null || left.trim().isEmpty() || right == null || right.trim().isEmpty()) {
+                response.put("success", false);
+                response.put("error", "Left and right inputs are required");
+                return ResponseEntity.badRequest().body(response);
+            }
+            
+            if (on == null || on.trim().isEmpty()) {
+                response.put("success", false);
+                response.put("error", "Join key is required");
+                return ResponseEntity.badRequest().body(response);
+            }
+            
+            Map<String, Object> result = HashJoin.join(left, request.get("leftFormat"), right,
+                request.get("rightFormat"), request.get("outputFormat"), on, request.get("rightOn"),
+                request.get("type"), null);
+            
+            response.put("success", true);
+            response.putAll(result);
+            return ResponseEntity.ok(response);
+            
+        } catch (IllegalArgumentException e) {
+            response.put("success", false);
+            response.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+    
+    // Schema Inference
+    @PostMapping("/schema/infer")
+    public ResponseEntity<Map<String, Object>> inferSchema(@RequestBody Map<String, String> request) {
+        Map<String, Object> response = new HashMap<>();
+        
+        try {
+            String input = request.get("input");
+            String format = request.getOrDefault("format", "json");
+            
+            if (input == null || input.trim().isEmpty()) {
+                response.put("success", false);
+                response.put("error", "Input data is required");
+                return ResponseEntity.badRequest().body(response);
+            }
+            
+            int maxEnum = parseLimit(request.get("maxEnum"), SchemaInferenceUtil.DEFAULT_MAX_ENUM);
+            int maxExamples = parseLimit(request.get("maxExamples"), SchemaInferenceUtil.DEFAULT_MAX_EXAMPLES);
+            
+            Map<String, Object> result = SchemaInferenceUtil.infer(input, format, maxEnum, maxExamples);
+            
+            response.put("success", true);
+            response.put("output", FormatConverter.render(result.get("schema"), "json", null));
+            response.putAll(result);
+            return ResponseEntity.ok(response);
+            
+        } catch (IllegalArgumentException e) {
+            response.put("success", false);
+            response.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+    
+    private int parseLimit(String value, int defaultValue) {
+        if (value == null || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+        int limit = Integer.parseInt(value.trim());
+        if (limit < 0) {
+            throw new IllegalArgumentException("Limits must not be negative");
+        }
+        return limit;
+    }
 }
-
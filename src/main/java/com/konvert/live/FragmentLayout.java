@@ -0,0 +1,150 @@
+package com.konvert.live;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.konvert.FormatConverter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Describes how a target format renders a document as prefix + fragment (separator fragment)* + suffix,
+ * with one fragment per top-level key or array element. Only layouts whose concatenation is
+ * byte-identical to FormatConverter's full rendering are supported; everything else re-renders fully.
+ */
+class FragmentLayout {
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    private final String format;
+    private final boolean objectRoot;
+    private final String prefix;
+    private final String separator;
+    private final String suffix;
+    private final List<String> csvHeaders;
+
+    private FragmentLayout(String format, boolean objectRoot, String prefix, String separator, String suffix, List<String> csvHeaders) {
+        this.format = format;
+        this.objectRoot = objectRoot;
+        this.prefix = prefix;
+        this.separator = separator;
+        this.suffix = suffix;
+        this.csvHeaders = csvHeaders;
+    }
+
+    /**
+     * Pick a layout for the root, or null when the target format must be rendered as a whole
+     */
+    static FragmentLayout forRoot(String toFormat, JsonNode root) throws Exception {
+        if (root == null || !root.isContainerNode() || root.size() == 0) {
+            return null;
+        }
+        boolean objectRoot = root.isObject();
+        switch (toFormat.toLowerCase()) {
+            case "json":
+                return objectRoot
+                        ? new FragmentLayout("json", true, "{\n", ",\n", "\n}", null)
+                        : new FragmentLayout("json", false, "[ ", ", ", " ]", null);
+            case "yaml":
+                return new FragmentLayout("yaml", objectRoot, "---\n", "", "", null);
+            case "toon":
+                return objectRoot ? new FragmentLayout("toon", true, "", "\n", "", null) : null;
+            case "toml":
+                return objectRoot ? new FragmentLayout("toml", true, "", "", "", null) : null;
+            case "csv":
+                if (objectRoot || !root.get(0).isObject()) {
+                    return null;
+                }
+                List<String> headers = fieldNames(root.get(0));
+                String headerLine = FormatConverter.render(Collections.singletonList(toObject(root.get(0))), "csv", null);
+                int rowStart = headerLine.indexOf("\r\n") + 2;
+                if (rowStart < 2) {
+                    return null;
+                }
+                return new FragmentLayout("csv", false, headerLine.substring(0, rowStart), "", "", headers);
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Whether this layout still renders the given root byte-identically
+     */
+    boolean fits(JsonNode root) {
+        if (root == null || !root.isContainerNode() || root.size() == 0 || root.isObject() != objectRoot) {
+            return false;
+        }
+        if (csvHeaders != null) {
+            return root.get(0).isObject() && csvHeaders.equals(fieldNames(root.get(0)));
+        }
+        return true;
+    }
+
+    boolean isObjectRoot() {
+        return objectRoot;
+    }
+
+    String prefix() {
+        return prefix;
+    }
+
+    String separator() {
+        return separator;
+    }
+
+    String suffix() {
+        return suffix;
+    }
+
+    /**
+     * Render one top-level entry; key is null for array elements
+     */
+    String render(String key, JsonNode value) throws Exception {
+        Object data = objectRoot
+                ? Collections.singletonMap(key, toObject(value))
+                : Collections.singletonList(toObject(value));
+
+        switch (format) {
+            case "json":
+                if (!objectRoot) {
+                    return FormatConverter.render(toObject(value), "json", null);
+                }
+                return strip(FormatConverter.render(data, "json", null), "{\n", "\n}");
+            case "yaml":
+                return strip(FormatConverter.render(data, "yaml", null), "---\n", "");
+            case "csv":
+                if (!value.isObject()) {
+                    return "";
+                }
+                Map<String, Object> row = new java.util.LinkedHashMap<>();
+                for (String header : csvHeaders) {
+                    row.put(header, toObject(value.get(header)));
+                }
+                return strip(FormatConverter.render(Collections.singletonList(row), "csv", null), prefix, "");
+            default:
+                return FormatConverter.render(data, format, null);
+        }
+    }
+
+    static Object toObject(JsonNode node) {
+        return node == null ? null : mapper.convertValue(node, Object.class);
+    }
+
+    private static String strip(String rendered, String head, String tail) {
+        if (!rendered.startsWith(head) || !rendered.endsWith(tail)) {
+            throw new IllegalStateException("Unexpected fragment rendering");
+        }
+        return rendered.substring(head.length(), rendered.length() - tail.length());
+    }
+
+    private static List<String> fieldNames(JsonNode node) {
+        List<String> names = new ArrayList<>();
+        Iterator<String> it = node.fieldNames();
+        while (it.hasNext()) {
+            names.add(it.next());
+        }
+        return names;
+    }
+}
@@ -0,0 +1,756 @@
+package com.konvert.live;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.konvert.FormatConverter;
+import com.konvert.util.JsonPatchUtil;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A server-held parsed document for live conversion. Edits update only the affected
+ * top-level entries and report the changed output region as splices against the previous output.
+ */
+public class LiveSession {
+    private static final ObjectMapper mapper = new ObjectMapper();
+    private static final ObjectReader strictReader = mapper.reader()
+            .with(DeserializationFeature.FAIL_ON_TRAILING_TOKENS);
+    private static final JsonFactory jsonFactory = new JsonFactory();
+
+    private final String id;
+    private final String fromFormat;
+    private final String toFormat;
+
+    private JsonNode root;
+    private FragmentLayout layout;
+    // Parallel lists: one rendered fragment per top-level entry; keys are null for array roots
+    private List<String> keys = new ArrayList<>();
+    private List<String> fragments = new ArrayList<>();
+    // Whole rendering, kept only when the target format has no fragment layout
+    private String fullOutput;
+    private int outputLength;
+    private long version;
+    private volatile long lastAccess = System.currentTimeMillis();
+
+    // Source text and top-level value spans, kept for JSON sources so edit ranges re-parse one subtree
+    private StringBuilder source;
+    private List<int[]> spans;
+    private boolean sourceValid = true;
+
+    LiveSession(String id, String input, String fromFormat, String toFormat) throws Exception {
+        this.id = id;
+        this.fromFormat = fromFormat.toLowerCase();
+        this.toFormat = toFormat.toLowerCase();
+
+        if ("json".equals(this.fromFormat)) {
+            this.root = strictReader.readTree(input);
+            this.source = new StringBuilder(input);
+            this.spans = computeSpans(input, root);
+        } else {
+            this.root = mapper.valueToTree(FormatConverter.parse(input, this.fromFormat, null));
+        }
+        rebuildAll();
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    long getLastAccess() {
+        return lastAccess;
+    }
+
+    void touch() {
+        lastAccess = System.currentTimeMillis();
+    }
+
+    String getFromFormat() {
+        return fromFormat;
+    }
+
+    synchronized int getOutputLength() {
+        return outputLength;
+    }
+
+    /**
+     * Full output, assembled from cached fragments
+     */
+    public synchronized String getOutput() {
+        return fullOutput != null ? fullOutput : assemble(fragments);
+    }
+
+    /**
+     * Raised when an edit names a base version the session has already moved past
+     */
+    public static class StaleVersionException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private final long currentVersion;
+
+        StaleVersionException(long currentVersion, long baseVersion) {
+            super("Session is at version " + currentVersion + ", not " + baseVersion);
+            this.currentVersion = currentVersion;
+        }
+
+        public long getCurrentVersion() {
+            return currentVersion;
+        }
+    }
+
+    /**
+     * Apply an RFC 6902 JSON Patch against the parsed document. When baseVersion is given the patch
+     * is applied only if the session is still at that version.
+     */
+    public synchronized Map<String, Object> applyPatch(JsonNode patch, Long baseVersion) throws Exception {
+        checkVersion(baseVersion);
+        if (patch == null || !patch.isArray()) {
+            throw new IllegalArgumentException("Patch must be a JSON Patch array");
+        }
+        Snapshot before = snapshot();
+        Set<String> dirtyKeys = new HashSet<>();
+        boolean rootReplaced = false;
+        // Patches are atomic: restore the previous state if any operation or the re-render fails
+        PatchBackup backup = new PatchBackup(root);
+
+        try {
+            for (JsonNode operation : patch) {
+                backup.save(root, operation);
+                JsonNode previousRoot = root;
+                root = JsonPatchUtil.applyOperation(root, operation);
+                if (root != previousRoot) {
+                    rootReplaced = true;
+                    continue;
+                }
+                if (rootReplaced || layout == null) {
+                    continue;
+                }
+                trackOperation(operation, dirtyKeys);
+            }
+
+            if (rootReplaced || layout == null || !layout.fits(root)) {
+                rebuildAll();
+            } else {
+                refresh(dirtyKeys);
+            }
+        } catch (Exception e) {
+            restore(before, backup);
+            throw e;
+        }
+
+        // Edit ranges refer to the original text, which no longer matches the tree
+        source = null;
+        spans = null;
+        return changesSince(before, true, null);
+    }
+
+    /**
+     * Apply text edits (replace [start, end) with text) against the JSON source. Each range refers to
+     * the text left by the edits before it; the batch is rejected as a whole if any range is invalid.
+     * When baseVersion is given the edits are applied only if the session is still at that version.
+     */
+    public synchronized Map<String, Object> applyEdits(List<int[]> ranges, List<String> texts, Long baseVersion)
+            throws Exception {
+        checkVersion(baseVersion);
+        if (source == null) {
+            throw new IllegalStateException("Edit ranges are only supported for JSON sources that have not been patched");
+        }
+        long length = source.length();
+        for (int i = 0; i < ranges.size(); i++) {
+            int start = ranges.get(i)[0];
+            int end = ranges.get(i)[1];
+            if (start < 0 || end < start || end > length) {
+                throw new IllegalArgumentException("Edit " + (i + 1) + " range [" + start + ", " + end
+                        + ") is outside the document");
+            }
+            length += (texts.get(i) == null ? 0 : texts.get(i).length()) - (end - start);
+        }
+        if (length > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Edits make the document too large");
+        }
+
+        Snapshot before = snapshot();
+        // Spans only ever replace top-level entries, so a shallow backup restores the tree
+        PatchBackup backup = new PatchBackup(root);
+        boolean wasValid = sourceValid;
+        List<String> replaced = new ArrayList<>(ranges.size());
+        Set<String> dirtyKeys = new HashSet<>();
+        boolean needsReparse = !sourceValid;
+
+        try {
+            for (int i = 0; i < ranges.size(); i++) {
+                int start = ranges.get(i)[0];
+                int end = ranges.get(i)[1];
+                String text = texts.get(i) == null ? "" : texts.get(i);
+                replaced.add(source.substring(start, end));
+                source.replace(start, end, text);
+                if (!needsReparse && !reparseSpan(start, end, text.length() - (end - start), dirtyKeys)) {
+                    needsReparse = true;
+                }
+            }
+
+            if (needsReparse) {
+                JsonNode reparsed;
+                try {
+                    reparsed = strictReader.readTree(source.toString());
+                } catch (Exception e) {
+                    // Keep the edited text, but the tree and rendering of the last valid version
+                    restore(before, backup);
+                    sourceValid = false;
+                    spans = null;
+                    return changesSince(before, false, e.getMessage());
+                }
+                JsonNode previous = root;
+                root = reparsed;
+                spans = computeSpans(source.toString(), root);
+                sourceValid = true;
+                reconcile(previous);
+            } else {
+                refresh(dirtyKeys);
+            }
+        } catch (Exception e) {
+            // Undo the text edits last to first, so each range again refers to the text it was given
+            for (int i = replaced.size() - 1; i >= 0; i--) {
+                int start = ranges.get(i)[0];
+                String text = texts.get(i) == null ? "" : texts.get(i);
+                source.replace(start, start + text.length(), replaced.get(i));
+            }
+            restore(before, backup);
+            sourceValid = wasValid;
+            spans = wasValid ? computeSpans(source.toString(), root) : null;
+            throw e;
+        }
+        return changesSince(before, true, null);
+    }
+
+    // Put back the tree, fragments, rendering and version recorded before a patch or edit batch
+    private void restore(Snapshot before, PatchBackup backup) {
+        root = backup.restore();
+        layout = before.layout;
+        keys = new ArrayList<>(before.keys);
+        fragments = new ArrayList<>(before.fragments);
+        fullOutput = before.fullOutput;
+        outputLength = before.outputLength;
+        version = before.version;
+    }
+
+    private void checkVersion(Long baseVersion) {
+        if (baseVersion != null && baseVersion != version) {
+            throw new StaleVersionException(version, baseVersion);
+        }
+    }
+
+    private boolean reparseSpan(int start, int end, int delta, Set<String> dirtyKeys) {
+        if (spans == null || layout == null) {
+            return false;
+        }
+        int index = findSpan(start, end);
+        if (index < 0) {
+            return false;
+        }
+        int[] span = spans.get(index);
+        JsonNode value;
+        try {
+            value = strictReader.readTree(source.substring(span[0], span[1] + delta));
+        } catch (Exception e) {
+            return false;
+        }
+        if (value == null || value.isMissingNode()) {
+            return false;
+        }
+
+        if (root.isObject()) {
+            ((ObjectNode) root).set(keys.get(index), value);
+            dirtyKeys.add(keys.get(index));
+        } else {
+            ((ArrayNode) root).set(index, value);
+            fragments.set(index, null);
+        }
+        span[1] += delta;
+        for (int i = index + 1; i < spans.size(); i++) {
+            spans.get(i)[0] += delta;
+            spans.get(i)[1] += delta;
+        }
+        return true;
+    }
+
+    private int findSpan(int start, int end) {
+        int lo = 0;
+        int hi = spans.size() - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int[] span = spans.get(mid);
+            if (start < span[0]) {
+                hi = mid - 1;
+            } else if (start > span[1]) {
+                lo = mid + 1;
+            } else {
+                return end <= span[1] ? mid : -1;
+            }
+        }
+        return -1;
+    }
+
+    private void trackOperation(JsonNode operation, Set<String> dirtyKeys) {
+        String op = operation.path("op").asText();
+        List<String> path = JsonPatchUtil.parsePointer(operation.path("path").asText());
+        List<String> from = operation.has("from") ? JsonPatchUtil.parsePointer(operation.path("from").asText()) : null;
+
+        if (layout.isObjectRoot()) {
+            if (!"test".equals(op)) {
+                dirtyKeys.add(path.get(0));
+                if (from != null && "move".equals(op)) {
+                    dirtyKeys.add(from.get(0));
+                }
+            }
+            return;
+        }
+
+        // Array roots: keep the fragment list in lockstep with the elements
+        switch (op) {
+            case "add":
+            case "copy":
+                if (path.size() == 1) {
+                    String cached = "copy".equals(op) && from != null && from.size() == 1
+                            ? fragments.get(Integer.parseInt(from.get(0))) : null;
+                    insertFragment(path.get(0), cached);
+                } else {
+                    markDirty(path.get(0));
+                }
+                break;
+            case "remove":
+                if (path.size() == 1) {
+                    fragments.remove(Integer.parseInt(path.get(0)));
+                    keys.remove(keys.size() - 1);
+                } else {
+                    markDirty(path.get(0));
+                }
+                break;
+            case "replace":
+                markDirty(path.get(0));
+                break;
+            case "move": {
+                String cached = null;
+                if (from.size() == 1) {
+                    cached = fragments.remove(Integer.parseInt(from.get(0)));
+                    keys.remove(keys.size() - 1);
+                } else {
+                    markDirty(from.get(0));
+                }
+                if (path.size() == 1) {
+                    insertFragment(path.get(0), from.size() == 1 ? cached : null);
+                } else {
+                    markDirty(path.get(0));
+                }
+                break;
+            }
+            default:
+                break;
+        }
+    }
+
+    private void insertFragment(String token, String cached) {
+        int index = "-".equals(token) ? fragments.size() : Integer.parseInt(token);
+        fragments.add(index, cached);
+        keys.add(null);
+    }
+
+    private void markDirty(String token) {
+        fragments.set(Integer.parseInt(token), null);
+    }
+
+    /**
+     * Re-render only dirty entries, reusing every other cached fragment
+     */
+    private void refresh(Set<String> dirtyKeys) throws Exception {
+        if (layout == null) {
+            rebuildAll();
+            return;
+        }
+        List<String> newKeys = new ArrayList<>(root.size());
+        List<String> newFragments = new ArrayList<>(root.size());
+
+        if (root.isObject()) {
+            Map<String, String> cache = new HashMap<>(keys.size() * 2);
+            for (int i = 0; i < keys.size(); i++) {
+                cache.put(keys.get(i), fragments.get(i));
+            }
+            Iterator<Map.Entry<String, JsonNode>> fields = root.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                String cached = dirtyKeys.contains(field.getKey()) ? null : cache.get(field.getKey());
+                newKeys.add(field.getKey());
+                newFragments.add(cached != null ? cached : layout.render(field.getKey(), field.getValue()));
+            }
+        } else {
+            for (int i = 0; i < root.size(); i++) {
+                String cached = i < fragments.size() ? fragments.get(i) : null;
+                newKeys.add(null);
+                newFragments.add(cached != null ? cached : layout.render(null, root.get(i)));
+            }
+        }
+        keys = newKeys;
+        fragments = newFragments;
+    }
+
+    /**
+     * After a full re-parse, keep fragments of entries whose subtree did not change
+     */
+    private void reconcile(JsonNode previous) throws Exception {
+        if (layout == null || !layout.fits(root) || previous == null || previous.isObject() != root.isObject()) {
+            rebuildAll();
+            return;
+        }
+        Set<String> dirtyKeys = new HashSet<>();
+        if (root.isObject()) {
+            Iterator<Map.Entry<String, JsonNode>> fields = root.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                if (!field.getValue().equals(previous.get(field.getKey()))) {
+                    dirtyKeys.add(field.getKey());
+                }
+            }
+            refresh(dirtyKeys);
+            return;
+        }
+
+        int oldSize = previous.size();
+        int newSize = root.size();
+        int head = 0;
+        while (head < oldSize && head < newSize && previous.get(head).equals(root.get(head))) {
+            head++;
+        }
+        int tail = 0;
+        while (tail < oldSize - head && tail < newSize - head
+                && previous.get(oldSize - 1 - tail).equals(root.get(newSize - 1 - tail))) {
+            tail++;
+        }
+        List<String> aligned = new ArrayList<>(newSize);
+        aligned.addAll(fragments.subList(0, head));
+        for (int i = head; i < newSize - tail; i++) {
+            aligned.add(null);
+        }
+        aligned.addAll(fragments.subList(oldSize - tail, oldSize));
+        fragments = aligned;
+        keys = new ArrayList<>(Collections.nCopies(newSize, null));
+        refresh(dirtyKeys);
+    }
+
+    private void rebuildAll() throws Exception {
+        layout = FragmentLayout.forRoot(toFormat, root);
+        keys = new ArrayList<>();
+        fragments = new ArrayList<>();
+        if (layout == null) {
+            fullOutput = FormatConverter.render(FragmentLayout.toObject(root), toFormat, null);
+            outputLength = fullOutput.length();
+            return;
+        }
+        fullOutput = null;
+        if (root.isObject()) {
+            Iterator<Map.Entry<String, JsonNode>> fields = root.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                keys.add(field.getKey());
+                fragments.add(layout.render(field.getKey(), field.getValue()));
+            }
+        } else {
+            for (JsonNode element : root) {
+                keys.add(null);
+                fragments.add(layout.render(null, element));
+            }
+        }
+        outputLength = measure(fragments);
+    }
+
+    private Snapshot snapshot() {
+        return new Snapshot(layout, keys, fragments, fullOutput, outputLength, version);
+    }
+
+    /**
+     * Describe the difference to the previous output as a single splice [start, end) -> text
+     */
+    private Map<String, Object> changesSince(Snapshot before, boolean valid, String error) {
+        List<Map<String, Object>> changes = new ArrayList<>();
+        if (valid) {
+            if (layout != null && before.layout == layout) {
+                addFragmentSplice(before, changes);
+                outputLength = measure(fragments);
+            } else {
+                String oldText = before.fullOutput != null ? before.fullOutput : assemble(before.layout, before.fragments);
+                String newText = getOutput();
+                addTextSplice(oldText, newText, changes);
+                outputLength = newText.length();
+            }
+            if (!changes.isEmpty()) {
+                version++;
+            }
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("sessionId", id);
+        result.put("version", version);
+        result.put("valid", valid);
+        if (error != null) {
+            result.put("error", error);
+        }
+        result.put("changes", changes);
+        result.put("outputLength", outputLength);
+        return result;
+    }
+
+    private void addFragmentSplice(Snapshot before, List<Map<String, Object>> changes) {
+        List<String> oldList = before.fragments;
+        List<String> newList = fragments;
+        int oldSize = oldList.size();
+        int newSize = newList.size();
+
+        int head = 0;
+        while (head < oldSize && head < newSize && oldList.get(head) == newList.get(head)) {
+            head++;
+        }
+        int tail = 0;
+        while (tail < oldSize - head && tail < newSize - head
+                && oldList.get(oldSize - 1 - tail) == newList.get(newSize - 1 - tail)) {
+            tail++;
+        }
+        int oldEndIndex = oldSize - tail;
+        int newEndIndex = newSize - tail;
+        if (head == oldEndIndex && head == newEndIndex) {
+            return;
+        }
+
+        String sep = layout.separator();
+        String inserted = String.join(sep, newList.subList(head, newEndIndex));
+        int start;
+        int end;
+        if (head < oldEndIndex) {
+            start = offsetOf(oldList, head);
+            end = offsetOf(oldList, oldEndIndex - 1) + oldList.get(oldEndIndex - 1).length();
+            if (head == newEndIndex) {
+                // Pure deletion: also drop one separator
+                if (oldEndIndex < oldSize) {
+                    end += sep.length();
+                } else {
+                    start -= sep.length();
+                }
+            }
+        } else if (head < oldSize) {
+            start = offsetOf(oldList, head);
+            end = start;
+            inserted = inserted + sep;
+        } else {
+            start = offsetOf(oldList, oldSize - 1) + oldList.get(oldSize - 1).length();
+            end = start;
+            inserted = sep + inserted;
+        }
+        changes.add(splice(start, end, inserted));
+    }
+
+    private int offsetOf(List<String> list, int index) {
+        int offset = layout.prefix().length() + index * layout.separator().length();
+        for (int i = 0; i < index; i++) {
+            offset += list.get(i).length();
+        }
+        return offset;
+    }
+
+    private void addTextSplice(String oldText, String newText, List<Map<String, Object>> changes) {
+        int head = 0;
+        int max = Math.min(oldText.length(), newText.length());
+        while (head < max && oldText.charAt(head) == newText.charAt(head)) {
+            head++;
+        }
+        int tail = 0;
+        while (tail < max - head
+                && oldText.charAt(oldText.length() - 1 - tail) == newText.charAt(newText.length() - 1 - tail)) {
+            tail++;
+        }
+        if (head == oldText.length() && head == newText.length()) {
+            return;
+        }
+        changes.add(splice(head, oldText.length() - tail, newText.substring(head, newText.length() - tail)));
+    }
+
+    private static Map<String, Object> splice(int start, int end, String text) {
+        Map<String, Object> change = new LinkedHashMap<>();
+        change.put("start", start);
+        change.put("end", end);
+        change.put("text", text);
+        return change;
+    }
+
+    private String assemble(List<String> list) {
+        return assemble(layout, list);
+    }
+
+    private static String assemble(FragmentLayout layout, List<String> list) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(layout.prefix());
+        for (int i = 0; i < list.size(); i++) {
+            if (i > 0) {
+                sb.append(layout.separator());
+            }
+            sb.append(list.get(i));
+        }
+        sb.append(layout.suffix());
+        return sb.toString();
+    }
+
+    private int measure(List<String> list) {
+        int length = layout.prefix().length() + layout.suffix().length()
+                + Math.max(0, list.size() - 1) * layout.separator().length();
+        for (String fragment : list) {
+            length += fragment.length();
+        }
+        return length;
+    }
+
+    /**
+     * Character spans of each top-level value in the JSON source, or null if they cannot be mapped
+     */
+    private static List<int[]> computeSpans(String text, JsonNode root) {
+        if (root == null || !root.isContainerNode()) {
+            return null;
+        }
+        List<int[]> result = new ArrayList<>(root.size());
+        try (JsonParser parser = jsonFactory.createParser(text)) {
+            JsonToken first = parser.nextToken();
+            JsonToken end = first == JsonToken.START_OBJECT ? JsonToken.END_OBJECT : JsonToken.END_ARRAY;
+            JsonToken token;
+            while ((token = parser.nextToken()) != end && token != null) {
+                if (token == JsonToken.FIELD_NAME) {
+                    token = parser.nextToken();
+                }
+                int start = (int) parser.getTokenLocation().getCharOffset();
+                if (token.isStructStart()) {
+                    parser.skipChildren();
+                } else {
+                    parser.finishToken();
+                }
+                int stop = (int) parser.getCurrentLocation().getCharOffset();
+                while (stop > start && Character.isWhitespace(text.charAt(stop - 1))) {
+                    stop--;
+                }
+                result.add(new int[]{start, stop});
+            }
+        } catch (Exception e) {
+            return null;
+        }
+        return result.size() == root.size() ? result : null;
+    }
+
+    /**
+     * Undo state for one patch. Top-level entries are recorded by reference, and an entry is deep-copied
+     * only before an operation changes something inside it, so a patch costs the size of what it touches
+     * rather than the whole document.
+     */
+    private static class PatchBackup {
+        private final JsonNode original;
+        private final List<String> names = new ArrayList<>();
+        private final List<JsonNode> values = new ArrayList<>();
+        private final Map<JsonNode, JsonNode> copies = new IdentityHashMap<>();
+
+        PatchBackup(JsonNode root) {
+            this.original = root;
+            if (root.isObject()) {
+                Iterator<Map.Entry<String, JsonNode>> fields = root.fields();
+                while (fields.hasNext()) {
+                    Map.Entry<String, JsonNode> field = fields.next();
+                    names.add(field.getKey());
+                    values.add(field.getValue());
+                }
+            } else if (root.isArray()) {
+                for (JsonNode element : root) {
+                    values.add(element);
+                }
+            }
+        }
+
+        // Copy the entries the operation will change inside of, before it runs
+        void save(JsonNode root, JsonNode operation) {
+            String op = operation.path("op").asText();
+            if ("test".equals(op)) {
+                return;
+            }
+            saveEntry(root, operation.path("path").asText());
+            if ("move".equals(op)) {
+                saveEntry(root, operation.path("from").asText());
+            }
+        }
+
+        private void saveEntry(JsonNode root, String pointer) {
+            List<String> path = JsonPatchUtil.parsePointer(pointer);
+            if (path.size() < 2) {
+                return;
+            }
+            JsonNode entry = root.isObject() ? root.get(path.get(0)) : root.isArray() ? root.get(index(path.get(0))) : null;
+            if (entry != null && entry.isContainerNode() && !copies.containsKey(entry)) {
+                copies.put(entry, entry.deepCopy());
+            }
+        }
+
+        JsonNode restore() {
+            if (original.isObject()) {
+                ObjectNode restored = mapper.createObjectNode();
+                for (int i = 0; i < names.size(); i++) {
+                    restored.set(names.get(i), copies.getOrDefault(values.get(i), values.get(i)));
+                }
+                return restored;
+            }
+            if (original.isArray()) {
+                ArrayNode restored = mapper.createArrayNode();
+                for (JsonNode value : values) {
+                    restored.add(copies.getOrDefault(value, value));
+                }
+                return restored;
+            }
+            return original;
+        }
+
+        private static int index(String token) {
+            try {
+                return Integer.parseInt(token);
+            } catch (NumberFormatException e) {
+                return -1;
+            }
+        }
+    }
+
+    private static class Snapshot {
+        final FragmentLayout layout;
+        final List<String> keys;
+        final List<String> fragments;
+        final String fullOutput;
+        final int outputLength;
+        final long version;
+
+        Snapshot(FragmentLayout layout, List<String> keys, List<String> fragments, String fullOutput, int outputLength,
+                 long version) {
+            this.layout = layout;
+            this.keys = new ArrayList<>(keys);
+            this.fragments = new ArrayList<>(fragments);
+            this.fullOutput = fullOutput;
+            this.outputLength = outputLength;
+            this.version = version;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.konvert.live;
+
+import com.konvert.admission.AdmissionManager;
+import com.konvert.admission.HeapCostEstimator;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Holds live conversion sessions in memory, bounded by count and idle time. Each session's parsed
+ * document is charged against the admission heap budget until the session is closed or evicted.
+ */
+@Component
+public class LiveSessionManager {
+    private static final int MAX_SESSIONS = 32;
+    private static final long IDLE_TIMEOUT_MS = 30L * 60 * 1000;
+
+    private final Map<String, LiveSession> sessions = new ConcurrentHashMap<>();
+    private final Map<String, AdmissionManager.Ticket> holds = new ConcurrentHashMap<>();
+    private final AdmissionManager admissionManager;
+
+    public LiveSessionManager(AdmissionManager admissionManager) {
+        this.admissionManager = admissionManager;
+    }
+
+    /**
+     * Parse a new session and reserve heap for it, evicting the least recently used sessions when the
+     * budget is short. Throws IllegalStateException when the document cannot be held even then.
+     */
+    public LiveSession create(String input, String fromFormat, String toFormat) throws Exception {
+        evictExpired();
+        AdmissionManager.Ticket ticket = reserve(HeapCostEstimator.estimateBytes(input.length(), fromFormat));
+        LiveSession session;
+        try {
+            session = new LiveSession(UUID.randomUUID().toString(), input, fromFormat, toFormat);
+        } catch (Exception | Error e) {
+            admissionManager.release(ticket);
+            throw e;
+        }
+        synchronized (sessions) {
+            while (sessions.size() >= MAX_SESSIONS) {
+                evictOldest();
+            }
+            sessions.put(session.getId(), session);
+            holds.put(session.getId(), ticket);
+        }
+        return session;
+    }
+
+    /**
+     * Look up a session, or null if it does not exist or has expired
+     */
+    public LiveSession get(String id) {
+        LiveSession session = sessions.get(id);
+        if (session == null) {
+            return null;
+        }
+        if (System.currentTimeMillis() - session.getLastAccess() > IDLE_TIMEOUT_MS) {
+            remove(id);
+            return null;
+        }
+        session.touch();
+        return session;
+    }
+
+    /**
+     * Re-charge a session after edits changed its size. When the new size cannot be reserved the old
+     * charge is kept, so an edit never fails for lack of budget.
+     */
+    public void resize(LiveSession session) {
+        long estimate = HeapCostEstimator.estimateBytes(session.getOutputLength(), session.getFromFormat());
+        AdmissionManager.Ticket previous = holds.get(session.getId());
+        if (previous == null) {
+            return;
+        }
+        AdmissionManager.Ticket ticket = admissionManager.hold(estimate);
+        if (!ticket.isAdmitted()) {
+            return;
+        }
+        if (holds.replace(session.getId(), previous, ticket)) {
+            admissionManager.release(previous);
+        } else {
+            admissionManager.release(ticket);
+        }
+    }
+
+    public boolean close(String id) {
+        return remove(id);
+    }
+
+    private AdmissionManager.Ticket reserve(long estimatedBytes) {
+        while (true) {
+            AdmissionManager.Ticket ticket = admissionManager.hold(estimatedBytes);
+            if (ticket.isAdmitted()) {
+                return ticket;
+            }
+            if (ticket.getDecision() == AdmissionManager.Decision.TOO_LARGE) {
+                throw new IllegalStateException("Document is too large to keep in a live session");
+            }
+            synchronized (sessions) {
+                if (sessions.isEmpty()) {
+                    throw new IllegalStateException("Not enough memory for another live session. Please retry shortly.");
+                }
+                evictOldest();
+            }
+        }
+    }
+
+    private void evictOldest() {
+        sessions.values().stream()
+                .min(Comparator.comparingLong(LiveSession::getLastAccess))
+                .ifPresent(oldest -> remove(oldest.getId()));
+    }
+
+    private boolean remove(String id) {
+        boolean removed = sessions.remove(id) != null;
+        admissionManager.release(holds.remove(id));
+        return removed;
+    }
+
+    private void evictExpired() {
+        long cutoff = System.currentTimeMillis() - IDLE_TIMEOUT_MS;
+        for (LiveSession session : sessions.values()) {
+            if (session.getLastAccess() < cutoff) {
+                remove(session.getId());
+            }
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.konvert.masking;
 
+import com.konvert.util.ParallelUtil;
 import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.CellType;
 import org.apache.poi.ss.usermodel.DataFormatter;
@@ -21,14 +22,21 @@ import org.springframework.web.multipart.MultipartFile;
 
 import java.io.ByteArrayOutputStream;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
 
 @Service
 public class MaskingService {
+    // Fewer paragraphs than this per worker are masked on the calling thread
+    private static final int MIN_TEXTS_PER_TASK = 64;
     private final SensitiveDataMasker masker = new SensitiveDataMasker();
+    private final PdfRedactor pdfRedactor = new PdfRedactor(masker);
     private final ObjectMapper jsonMapper = new ObjectMapper();
     private final YAMLMapper yamlMapper = new YAMLMapper();
     private static class MaskingAccumulator {
@@ -67,6 +75,8 @@ public class MaskingService {
             case "xlsx":
             case "xls":
                 return maskExcel(file, outputFilename, types);
+            case "pdf":
+                return maskPdf(file, outputFilename, types);
             case "json":
                 return maskStructured(file, outputFilename, types, fieldAware, true);
             case "yaml":
@@ -87,40 +97,73 @@ public class MaskingService {
     private MaskingResult maskDocx(MultipartFile file, String outputFilename, EnumSet<MaskingType> types) throws Exception {
         MaskingAccumulator accumulator = new MaskingAccumulator();
         try (XWPFDocument document = new XWPFDocument(file.getInputStream())) {
-            for (XWPFParagraph paragraph : document.getParagraphs()) {
-                maskParagraph(paragraph, accumulator, types);
-            }
+            List<XWPFParagraph> paragraphs = new ArrayList<>(document.getParagraphs());
             for (XWPFTable table : document.getTables()) {
                 for (XWPFTableRow row : table.getRows()) {
                     for (XWPFTableCell cell : row.getTableCells()) {
-                        for (XWPFParagraph paragraph : cell.getParagraphs()) {
-                            maskParagraph(paragraph, accumulator, types);
-                        }
+                        paragraphs.addAll(cell.getParagraphs());
                     }
                 }
             }
 
+            // XMLBeans serializes access per document, so run text is read and written on this
+            // thread and only the pattern matching runs on the worker pool
+            List<String> texts = new ArrayList<>(paragraphs.size());
+            for (XWPFParagraph paragraph : paragraphs) {
+                texts.add(paragraphText(paragraph));
+            }
+            List<MaskingOutcome> outcomes = maskTexts(texts, types);
+            for (int i = 0; i < paragraphs.size(); i++) {
+                MaskingOutcome outcome = outcomes.get(i);
+                if (outcome == null) {
+                    continue;
+                }
+                accumulator.add(outcome);
+                String text = texts.get(i);
+                if (!outcome.getText().equals(text)) {
+                    distributeMaskedText(paragraphs.get(i).getRuns(), text.length(), outcome.getText());
+                }
+            }
+
             ByteArrayOutputStream out = new ByteArrayOutputStream();
             document.write(out);
             return new MaskingResult(out.toByteArray(), null, outputFilename, "docx", accumulator.total(), accumulator.counts(), null);
         }
     }
 
-    private void maskParagraph(XWPFParagraph paragraph, MaskingAccumulator accumulator, EnumSet<MaskingType> types) {
+    private String paragraphText(XWPFParagraph paragraph) {
         if (paragraph == null) {
-            return;
+            return null;
         }
         List<XWPFRun> runs = paragraph.getRuns();
         if (runs == null || runs.isEmpty()) {
-            return;
+            return null;
         }
         String text = collectRunText(runs);
-        if (text == null || text.isEmpty()) {
-            return;
+        return text == null || text.isEmpty() ? null : text;
+    }
+
+    /**
+     * Mask texts in contiguous chunks on the shared pool; null texts yield null outcomes
+     */
+    private List<MaskingOutcome> maskTexts(List<String> texts, EnumSet<MaskingType> types) throws Exception {
+        int taskCount = Math.max(1, Math.min(ParallelUtil.parallelism(), texts.size() / MIN_TEXTS_PER_TASK));
+        List<Callable<List<MaskingOutcome>>> tasks = new ArrayList<>(taskCount);
+        for (int i = 0; i < taskCount; i++) {
+            List<String> chunk = texts.subList(texts.size() * i / taskCount, texts.size() * (i + 1) / taskCount);
+            tasks.add(() -> {
+                List<MaskingOutcome> outcomes = new ArrayList<>(chunk.size());
+                for (String text : chunk) {
+                    outcomes.add(text == null ? null : masker.maskText(text, types));
+                }
+                return outcomes;
+            });
         }
-        MaskingOutcome outcome = masker.maskText(text, types);
-        accumulator.add(outcome);
-        distributeMaskedText(runs, text.length(), outcome.getText());
+        List<MaskingOutcome> outcomes = new ArrayList<>(texts.size());
+        for (List<MaskingOutcome> chunk : ParallelUtil.invokeAll(tasks)) {
+            outcomes.addAll(chunk);
+        }
+        return outcomes;
     }
 
     private void clearRunText(XWPFRun run) {
@@ -214,6 +257,21 @@ public class MaskingService {
         return len;
     }
 
+    private MaskingResult maskPdf(MultipartFile file, String outputFilename, EnumSet<MaskingType> types) throws Exception {
+        Path source = Files.createTempFile("konvertr-mask-", ".pdf");
+        Path target = Files.createTempFile("konvertr-masked-", ".pdf");
+        try {
+            file.transferTo(source);
+            PdfRedactor.Summary summary = pdfRedactor.redact(source, target, types);
+            MaskingAccumulator accumulator = new MaskingAccumulator();
+            accumulator.add(new MaskingOutcome(null, summary.counts, summary.total));
+            return new MaskingResult(Files.readAllBytes(target), null, outputFilename, "pdf", accumulator.total(), accumulator.counts(), summary.warning);
+        } finally {
+            Files.deleteIfExists(source);
+            Files.deleteIfExists(target);
+        }
+    }
+
     private MaskingResult maskExcel(MultipartFile file, String outputFilename, EnumSet<MaskingType> types) throws Exception {
         MaskingAccumulator accumulator = new MaskingAccumulator();
         try (Workbook workbook = WorkbookFactory.create(file.getInputStream())) {
@@ -0,0 +1,625 @@
+package com.konvert.masking;
+
+import com.konvert.util.ParallelUtil;
+import org.apache.pdfbox.contentstream.operator.Operator;
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSFloat;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSNumber;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.cos.COSString;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.pdfparser.PDFStreamParser;
+import org.apache.pdfbox.pdfwriter.ContentStreamWriter;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDStream;
+import org.apache.pdfbox.pdmodel.encryption.InvalidPasswordException;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.graphics.form.PDFormXObject;
+import org.apache.pdfbox.pdmodel.graphics.form.PDTransparencyGroup;
+import org.apache.pdfbox.pdmodel.graphics.state.PDTextState;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.apache.pdfbox.text.TextPosition;
+import org.apache.pdfbox.util.Matrix;
+import org.apache.pdfbox.util.Vector;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Redacts sensitive values in a PDF's text layer. Page ranges are scanned in parallel with one
+ * PDDocument per worker: matched glyphs are removed from the page content stream, keeping their advance
+ * as a TJ offset so the rest of the line does not move, and a filled box is drawn over each match.
+ * Rewritten streams are spooled to temp files and swapped into the document before it is saved.
+ */
+final class PdfRedactor {
+    // Small ranges are not worth a second document load
+    private static final int MIN_PAGES_PER_RANGE = 8;
+    // Same order as SensitiveDataMasker.maskText, which decides the type of overlapping matches
+    private static final List<String> PRECEDENCE = Arrays.asList("email", "ssn", "pan", "aadhaar", "gstin", "vat",
+            "ein", "tin", "card", "account", "phone", "case_number", "invoice_id", "legal_id", "license_id", "secret");
+    // Box extent around the baseline, in font sizes
+    private static final float DESCENT = 0.25f;
+    private static final float ASCENT = 0.9f;
+
+    private final SensitiveDataMasker masker;
+
+    PdfRedactor(SensitiveDataMasker masker) {
+        this.masker = masker;
+    }
+
+    /**
+     * Summary of a redaction run
+     */
+    static final class Summary {
+        final Map<String, Integer> counts = new HashMap<>();
+        int total;
+        int pages;
+        String warning;
+    }
+
+    /**
+     * Redact {@code source} into {@code target}. Scanned pages without a text layer are copied as is.
+     */
+    Summary redact(Path source, Path target, Set<MaskingType> types) throws Exception {
+        int pageCount;
+        try (PDDocument document = load(source)) {
+            pageCount = document.getNumberOfPages();
+        }
+
+        int rangeCount = Math.max(1, Math.min(ParallelUtil.parallelism(),
+                (pageCount + MIN_PAGES_PER_RANGE - 1) / MIN_PAGES_PER_RANGE));
+        List<RangeOutput> outputs = new ArrayList<>(rangeCount);
+        List<Callable<RangeOutput>> tasks = new ArrayList<>(rangeCount);
+        Summary summary = new Summary();
+        summary.pages = pageCount;
+        try {
+            for (int i = 0; i < rangeCount; i++) {
+                int first = (int) ((long) pageCount * i / rangeCount) + 1;
+                int last = (int) ((long) pageCount * (i + 1) / rangeCount);
+                RangeOutput output = new RangeOutput(first, last, Files.createTempFile("konvertr-redact-", ".bin"));
+                outputs.add(output);
+                tasks.add(() -> scanRange(source, types, output));
+            }
+            ParallelUtil.invokeAll(tasks);
+
+            long glyphs = 0;
+            int uncovered = 0;
+            try (PDDocument document = load(source)) {
+                for (RangeOutput output : outputs) {
+                    glyphs += output.glyphs;
+                    uncovered += output.uncovered;
+                    summary.total += output.total;
+                    output.counts.forEach((type, count) -> summary.counts.merge(type, count, Integer::sum));
+                    replaceContents(document, output);
+                }
+                document.save(target.toFile());
+            }
+            summary.warning = warning(pageCount, glyphs, uncovered);
+        } catch (IllegalArgumentException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("PDF masking failed: " + e.getMessage(), e);
+        } finally {
+            for (RangeOutput output : outputs) {
+                Files.deleteIfExists(output.file);
+            }
+        }
+        return summary;
+    }
+
+    private static String warning(int pageCount, long glyphs, int uncovered) {
+        if (pageCount > 0 && glyphs == 0) {
+            return "No text layer found; scanned pages cannot be masked";
+        }
+        if (uncovered > 0) {
+            return uncovered + " masked characters are inside shared form objects and were covered but not removed";
+        }
+        return null;
+    }
+
+    private static PDDocument load(Path pdf) throws IOException {
+        try {
+            return PDDocument.load(pdf.toFile(), MemoryUsageSetting.setupTempFileOnly());
+        } catch (InvalidPasswordException e) {
+            throw new IllegalArgumentException("PDF is password protected");
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Not a readable PDF: " + e.getMessage(), e);
+        }
+    }
+
+    private RangeOutput scanRange(Path source, Set<MaskingType> types, RangeOutput output) throws Exception {
+        try (PDDocument document = load(source);
+             OutputStream spool = Files.newOutputStream(output.file)) {
+            PageScanner scanner = new PageScanner(types, output, spool);
+            scanner.setStartPage(output.firstPage);
+            scanner.setEndPage(output.lastPage);
+            scanner.setSortByPosition(true);
+            scanner.writeText(document, Writer.nullWriter());
+        }
+        return output;
+    }
+
+    private static void replaceContents(PDDocument document, RangeOutput output) throws IOException {
+        if (output.pages.isEmpty()) {
+            return;
+        }
+        try (RandomAccessFile spool = new RandomAccessFile(output.file.toFile(), "r")) {
+            for (SpooledPage spooled : output.pages) {
+                byte[] data = new byte[spooled.length];
+                spool.seek(spooled.offset);
+                spool.readFully(data);
+                COSStream stream = document.getDocument().createCOSStream();
+                try (OutputStream raw = stream.createRawOutputStream()) {
+                    raw.write(data);
+                }
+                stream.setItem(COSName.FILTER, COSName.FLATE_DECODE);
+                document.getPage(spooled.pageIndex).setContents(new PDStream(stream));
+            }
+        }
+    }
+
+    // Keep one match per region: earliest start, then longest, then maskText's type order
+    private static List<SensitiveDataMasker.MaskMatch> select(List<SensitiveDataMasker.MaskMatch> matches, Set<MaskingType> types) {
+        List<SensitiveDataMasker.MaskMatch> candidates = new ArrayList<>();
+        for (SensitiveDataMasker.MaskMatch match : matches) {
+            Optional<MaskingType> type = MaskingType.fromString(match.getType());
+            if (type.isPresent() && types.contains(type.get()) && match.getEnd() > match.getStart()) {
+                candidates.add(match);
+            }
+        }
+        candidates.sort(Comparator.comparingInt(SensitiveDataMasker.MaskMatch::getStart)
+                .thenComparing(match -> match.getStart() - match.getEnd())
+                .thenComparingInt(match -> PRECEDENCE.indexOf(match.getType())));
+        List<SensitiveDataMasker.MaskMatch> selected = new ArrayList<>();
+        int covered = 0;
+        for (SensitiveDataMasker.MaskMatch match : candidates) {
+            if (match.getStart() >= covered) {
+                selected.add(match);
+                covered = match.getEnd();
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * Collects every glyph of a page with the content-stream operator that drew it, matches the page
+     * text, and spools the rewritten content stream when anything was found.
+     */
+    private final class PageScanner extends PDFTextStripper {
+        private final Set<MaskingType> types;
+        private final RangeOutput output;
+        private final OutputStream spool;
+
+        private final List<Glyph> glyphs = new ArrayList<>();
+        private final Map<TextPosition, Glyph> byPosition = new IdentityHashMap<>();
+        private final StringBuilder text = new StringBuilder();
+        private final List<Glyph> textGlyphs = new ArrayList<>();
+        private Glyph pending;
+        // Top-level operator index on the page and glyph index within that operator
+        private int operator;
+        private int glyphIndex;
+        private int nesting;
+        // Depth inside form XObjects, whose streams are shared and are not rewritten
+        private int formDepth;
+
+        PageScanner(Set<MaskingType> types, RangeOutput output, OutputStream spool) throws IOException {
+            this.types = types;
+            this.output = output;
+            this.spool = spool;
+        }
+
+        @Override
+        protected void startPage(PDPage page) throws IOException {
+            glyphs.clear();
+            byPosition.clear();
+            text.setLength(0);
+            textGlyphs.clear();
+            operator = -1;
+            glyphIndex = 0;
+        }
+
+        @Override
+        protected void processOperator(Operator op, List<COSBase> operands) throws IOException {
+            if (nesting == 0) {
+                operator++;
+                glyphIndex = 0;
+            }
+            nesting++;
+            try {
+                super.processOperator(op, operands);
+            } finally {
+                nesting--;
+            }
+        }
+
+        @Override
+        public void showForm(PDFormXObject form) throws IOException {
+            formDepth++;
+            try {
+                super.showForm(form);
+            } finally {
+                formDepth--;
+            }
+        }
+
+        @Override
+        public void showTransparencyGroup(PDTransparencyGroup form) throws IOException {
+            formDepth++;
+            try {
+                super.showTransparencyGroup(form);
+            } finally {
+                formDepth--;
+            }
+        }
+
+        @Override
+        protected void showGlyph(Matrix textRenderingMatrix, PDFont font, int code, Vector displacement) throws IOException {
+            PDTextState state = getGraphicsState().getTextState();
+            Glyph glyph = new Glyph(formDepth == 0 ? operator : -1, formDepth == 0 ? glyphIndex++ : -1, font,
+                    displacement.getX(), state, textRenderingMatrix);
+            glyphs.add(glyph);
+            pending = glyph;
+            try {
+                super.showGlyph(textRenderingMatrix, font, code, displacement);
+            } finally {
+                pending = null;
+            }
+        }
+
+        @Override
+        protected void processTextPosition(TextPosition position) {
+            if (pending != null) {
+                byPosition.put(position, pending);
+            }
+            super.processTextPosition(position);
+        }
+
+        @Override
+        protected void writeString(String ignored, List<TextPosition> positions) {
+            for (TextPosition position : positions) {
+                Glyph glyph = byPosition.get(position);
+                String unicode = position.getUnicode();
+                for (int i = 0; i < unicode.length(); i++) {
+                    text.append(unicode.charAt(i));
+                    textGlyphs.add(glyph);
+                }
+            }
+        }
+
+        @Override
+        protected void writeWordSeparator() {
+            text.append(' ');
+            textGlyphs.add(null);
+        }
+
+        @Override
+        protected void writeLineSeparator() {
+            text.append('\n');
+            textGlyphs.add(null);
+        }
+
+        @Override
+        protected void endPage(PDPage page) throws IOException {
+            output.glyphs += glyphs.size();
+            List<SensitiveDataMasker.MaskMatch> matches = select(masker.findMatches(text.toString()), types);
+            if (matches.isEmpty()) {
+                return;
+            }
+
+            List<Box> boxes = new ArrayList<>();
+            for (SensitiveDataMasker.MaskMatch match : matches) {
+                output.counts.merge(match.getType(), 1, Integer::sum);
+                output.total++;
+                Box box = null;
+                for (int i = match.getStart(); i < match.getEnd() && i < textGlyphs.size(); i++) {
+                    Glyph glyph = textGlyphs.get(i);
+                    if (glyph == null || glyph.size == 0 || box != null && box.extend(glyph)) {
+                        continue;
+                    }
+                    box = new Box(glyph);
+                    boxes.add(box);
+                }
+            }
+
+            Map<Integer, Map<Integer, Glyph>> removed = new HashMap<>();
+            for (Glyph glyph : glyphs) {
+                for (Box box : boxes) {
+                    if (box.contains(glyph.centerX(), glyph.centerY())) {
+                        if (glyph.operator < 0) {
+                            output.uncovered++;
+                        } else {
+                            removed.computeIfAbsent(glyph.operator, key -> new HashMap<>()).put(glyph.index, glyph);
+                        }
+                        break;
+                    }
+                }
+            }
+
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+            try (DeflaterOutputStream out = new DeflaterOutputStream(compressed)) {
+                writeContents(page, removed, boxes, out);
+            }
+            output.pages.add(new SpooledPage(getCurrentPageNo() - 1, output.spooled, compressed.size()));
+            compressed.writeTo(spool);
+            output.spooled += compressed.size();
+        }
+    }
+
+    // Original operators with redacted glyphs cut out, wrapped in q/Q, followed by the boxes
+    private static void writeContents(PDPage page, Map<Integer, Map<Integer, Glyph>> removed, List<Box> boxes, OutputStream out) throws IOException {
+        PDFStreamParser parser = new PDFStreamParser(page);
+        parser.parse();
+        List<Object> tokens = new ArrayList<>();
+        int operator = -1;
+        int operandStart = 0;
+        for (Object token : parser.getTokens()) {
+            if (!(token instanceof Operator)) {
+                tokens.add(token);
+                continue;
+            }
+            Map<Integer, Glyph> glyphs = removed.get(++operator);
+            if (glyphs == null || !rewriteText((Operator) token, tokens, operandStart, glyphs)) {
+                tokens.add(token);
+            }
+            operandStart = tokens.size();
+        }
+
+        out.write("q\n".getBytes(StandardCharsets.US_ASCII));
+        new ContentStreamWriter(out).writeTokens(tokens);
+        StringBuilder fill = new StringBuilder("\nQ\nq 0 g\n");
+        for (Box box : boxes) {
+            box.appendPath(fill);
+        }
+        fill.append("Q\n");
+        out.write(fill.toString().getBytes(StandardCharsets.US_ASCII));
+    }
+
+    // Turns a text-showing operator into TJ without the removed glyphs; false leaves it untouched
+    private static boolean rewriteText(Operator operator, List<Object> tokens, int operandStart, Map<Integer, Glyph> glyphs) throws IOException {
+        String name = operator.getName();
+        int operands = tokens.size() - operandStart;
+        PDFont font = glyphs.values().iterator().next().font;
+        if (font == null || operands < 1) {
+            return false;
+        }
+        Object last = tokens.get(tokens.size() - 1);
+        COSArray parts;
+        if ("TJ".equals(name) && last instanceof COSArray) {
+            parts = (COSArray) last;
+        } else if (("Tj".equals(name) || "'".equals(name) || "\"".equals(name) && operands >= 3) && last instanceof COSString) {
+            parts = new COSArray();
+            parts.add((COSString) last);
+        } else {
+            return false;
+        }
+
+        COSArray rewritten = withoutGlyphs(parts, glyphs, font);
+        tokens.remove(tokens.size() - 1);
+        if ("\"".equals(name)) {
+            Object characterSpacing = tokens.remove(tokens.size() - 1);
+            tokens.add(Operator.getOperator("Tw"));
+            tokens.add(characterSpacing);
+            tokens.add(Operator.getOperator("Tc"));
+        }
+        if ("'".equals(name) || "\"".equals(name)) {
+            tokens.add(Operator.getOperator("T*"));
+        }
+        tokens.add(rewritten);
+        tokens.add(Operator.getOperator("TJ"));
+        return true;
+    }
+
+    private static COSArray withoutGlyphs(COSArray parts, Map<Integer, Glyph> glyphs, PDFont font) throws IOException {
+        COSArray result = new COSArray();
+        ByteArrayOutputStream kept = new ByteArrayOutputStream();
+        float offset = 0;
+        int index = 0;
+        for (COSBase part : parts) {
+            if (part instanceof COSNumber) {
+                offset += ((COSNumber) part).floatValue();
+                continue;
+            }
+            if (!(part instanceof COSString)) {
+                continue;
+            }
+            byte[] bytes = ((COSString) part).getBytes();
+            ByteArrayInputStream in = new ByteArrayInputStream(bytes);
+            int position = 0;
+            while (in.available() > 0) {
+                int before = in.available();
+                int code = font.readCode(in);
+                int length = before - in.available();
+                Glyph glyph = glyphs.get(index++);
+                if (glyph == null) {
+                    if (offset != 0) {
+                        flush(result, kept);
+                        result.add(new COSFloat(offset));
+                        offset = 0;
+                    }
+                    kept.write(bytes, position, length);
+                } else {
+                    offset += glyph.removalOffset(length == 1 && code == 32);
+                }
+                position += length;
+            }
+            flush(result, kept);
+        }
+        if (offset != 0) {
+            result.add(new COSFloat(offset));
+        }
+        return result;
+    }
+
+    private static void flush(COSArray result, ByteArrayOutputStream kept) {
+        if (kept.size() > 0) {
+            result.add(new COSString(kept.toByteArray()));
+            kept.reset();
+        }
+    }
+
+    /**
+     * A shown glyph: the operator that drew it, its text state and its position in user space
+     */
+    private static final class Glyph {
+        final int operator;
+        final int index;
+        final PDFont font;
+        final float width;
+        final float characterSpacing;
+        final float wordSpacing;
+        final float fontSize;
+        // Baseline origin, advance vector and up vector (one font size long) in user space
+        final float x;
+        final float y;
+        final float advanceX;
+        final float advanceY;
+        final float upX;
+        final float upY;
+        final float size;
+
+        Glyph(int operator, int index, PDFont font, float width, PDTextState state, Matrix matrix) {
+            this.operator = operator;
+            this.index = index;
+            this.font = font;
+            this.width = width;
+            this.characterSpacing = state.getCharacterSpacing();
+            this.wordSpacing = state.getWordSpacing();
+            this.fontSize = state.getFontSize();
+            this.x = matrix.getTranslateX();
+            this.y = matrix.getTranslateY();
+            this.advanceX = width * matrix.getValue(0, 0);
+            this.advanceY = width * matrix.getValue(0, 1);
+            this.upX = matrix.getValue(1, 0);
+            this.upY = matrix.getValue(1, 1);
+            this.size = (float) Math.hypot(upX, upY);
+        }
+
+        float centerX() {
+            return x + advanceX / 2 + upX * 0.3f;
+        }
+
+        float centerY() {
+            return y + advanceY / 2 + upY * 0.3f;
+        }
+
+        // TJ offset that advances exactly as far as the glyph did, in thousandths of a text space unit
+        float removalOffset(boolean wordSpace) {
+            float spacing = characterSpacing + (wordSpace ? wordSpacing : 0);
+            return -(width * 1000 + (fontSize == 0 ? 0 : spacing * 1000 / fontSize));
+        }
+    }
+
+    /**
+     * A redaction box along a baseline, grown glyph by glyph while they stay on the same line
+     */
+    private static final class Box {
+        private final float x;
+        private final float y;
+        private final float ux;
+        private final float uy;
+        private final float vx;
+        private final float vy;
+        private float length;
+        private float size;
+
+        Box(Glyph glyph) {
+            x = glyph.x;
+            y = glyph.y;
+            vx = glyph.upX / glyph.size;
+            vy = glyph.upY / glyph.size;
+            // Rotated text keeps its direction; zero-width glyphs fall back to the normal of the up vector
+            float advance = (float) Math.hypot(glyph.advanceX, glyph.advanceY);
+            ux = advance > 0 ? glyph.advanceX / advance : vy;
+            uy = advance > 0 ? glyph.advanceY / advance : -vx;
+            length = advance;
+            size = glyph.size;
+        }
+
+        boolean extend(Glyph glyph) {
+            float dx = glyph.x - x;
+            float dy = glyph.y - y;
+            float along = dx * ux + dy * uy;
+            float across = dx * vx + dy * vy;
+            if (Math.abs(across) > size / 2 || along < -size / 2) {
+                return false;
+            }
+            length = Math.max(length, along + glyph.advanceX * ux + glyph.advanceY * uy);
+            size = Math.max(size, glyph.size);
+            return true;
+        }
+
+        boolean contains(float px, float py) {
+            float dx = px - x;
+            float dy = py - y;
+            float along = dx * ux + dy * uy;
+            float across = dx * vx + dy * vy;
+            return along >= 0 && along <= length && across >= -DESCENT * size && across <= ASCENT * size;
+        }
+
+        void appendPath(StringBuilder path) {
+            float bottom = -DESCENT * size;
+            float top = ASCENT * size;
+            appendPoint(path, 0, bottom).append(" m ");
+            appendPoint(path, length, bottom).append(" l ");
+            appendPoint(path, length, top).append(" l ");
+            appendPoint(path, 0, top).append(" l h f\n");
+        }
+
+        private StringBuilder appendPoint(StringBuilder path, float along, float across) {
+            return path.append(String.format(Locale.ROOT, "%.3f %.3f",
+                    x + ux * along + vx * across, y + uy * along + vy * across));
+        }
+    }
+
+    private static final class SpooledPage {
+        final int pageIndex;
+        final long offset;
+        final int length;
+
+        SpooledPage(int pageIndex, long offset, int length) {
+            this.pageIndex = pageIndex;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    private static final class RangeOutput {
+        final int firstPage;
+        final int lastPage;
+        final Path file;
+        final List<SpooledPage> pages = new ArrayList<>();
+        final Map<String, Integer> counts = new HashMap<>();
+        long spooled;
+        long glyphs;
+        int total;
+        int uncovered;
+
+        RangeOutput(int firstPage, int lastPage, Path file) {
+            this.firstPage = firstPage;
+            this.lastPage = lastPage;
+            this.file = file;
+        }
+    }
+}
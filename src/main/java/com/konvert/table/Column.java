@@ -0,0 +1,463 @@
+package com.konvert.table;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A single typed column with a null bitmap. Textual columns hold values that were strings in the source
+ * (CSV, XML) and always render as strings, even when they are stored as numbers or booleans.
+ */
+abstract class Column {
+    enum Kind { LONG, DOUBLE, BOOLEAN, STRING, OBJECT }
+
+    final boolean textual;
+    final int size;
+    private final long[] nulls;
+
+    Column(boolean textual, int size, long[] nulls) {
+        this.textual = textual;
+        this.size = size;
+        this.nulls = nulls;
+    }
+
+    abstract Kind kind();
+
+    /**
+     * The value's string form as produced by {@code toString()} on the equivalent boxed value
+     */
+    abstract String text(int row);
+
+    /**
+     * The boxed value as the Map-based representation would hold it
+     */
+    abstract Object value(int row);
+
+    abstract void writeTypedJson(JsonGenerator generator, int row) throws IOException;
+
+    boolean isNull(int row) {
+        return (nulls[row >>> 6] & (1L << row)) != 0;
+    }
+
+    boolean isString(int row) {
+        return textual || kind() == Kind.STRING;
+    }
+
+    /**
+     * Value as it appears in CSV and XML cells; nulls render as empty text
+     */
+    String cell(int row) {
+        return isNull(row) ? "" : text(row);
+    }
+
+    Object boxed(int row) {
+        if (isNull(row)) {
+            return textual ? "" : null;
+        }
+        return textual ? text(row) : value(row);
+    }
+
+    void writeJson(JsonGenerator generator, int row) throws IOException {
+        if (isNull(row)) {
+            if (textual) {
+                generator.writeString("");
+            } else {
+                generator.writeNull();
+            }
+        } else if (textual) {
+            generator.writeString(text(row));
+        } else {
+            writeTypedJson(generator, row);
+        }
+    }
+
+    static final class LongColumn extends Column {
+        private final long[] values;
+
+        LongColumn(boolean textual, int size, long[] nulls, long[] values) {
+            super(textual, size, nulls);
+            this.values = values;
+        }
+
+        Kind kind() { return Kind.LONG; }
+
+        String text(int row) { return Long.toString(values[row]); }
+
+        Object value(int row) { return values[row]; }
+
+        void writeTypedJson(JsonGenerator generator, int row) throws IOException {
+            generator.writeNumber(values[row]);
+        }
+    }
+
+    static final class DoubleColumn extends Column {
+        private final double[] values;
+
+        DoubleColumn(boolean textual, int size, long[] nulls, double[] values) {
+            super(textual, size, nulls);
+            this.values = values;
+        }
+
+        Kind kind() { return Kind.DOUBLE; }
+
+        String text(int row) { return Double.toString(values[row]); }
+
+        Object value(int row) { return values[row]; }
+
+        void writeTypedJson(JsonGenerator generator, int row) throws IOException {
+            generator.writeNumber(values[row]);
+        }
+    }
+
+    static final class BooleanColumn extends Column {
+        private final long[] bits;
+
+        BooleanColumn(boolean textual, int size, long[] nulls, long[] bits) {
+            super(textual, size, nulls);
+            this.bits = bits;
+        }
+
+        Kind kind() { return Kind.BOOLEAN; }
+
+        private boolean get(int row) { return (bits[row >>> 6] & (1L << row)) != 0; }
+
+        String text(int row) { return get(row) ? "true" : "false"; }
+
+        Object value(int row) { return get(row); }
+
+        void writeTypedJson(JsonGenerator generator, int row) throws IOException {
+            generator.writeBoolean(get(row));
+        }
+    }
+
+    /**
+     * Dictionary-encoded strings: each distinct value is stored once and rows hold an int code
+     */
+    static final class DictionaryColumn extends Column {
+        private final int[] codes;
+        private final String[] dictionary;
+
+        DictionaryColumn(boolean textual, int size, long[] nulls, int[] codes, String[] dictionary) {
+            super(textual, size, nulls);
+            this.codes = codes;
+            this.dictionary = dictionary;
+        }
+
+        Kind kind() { return Kind.STRING; }
+
+        String text(int row) { return dictionary[codes[row]]; }
+
+        Object value(int row) { return dictionary[codes[row]]; }
+
+        void writeTypedJson(JsonGenerator generator, int row) throws IOException {
+            generator.writeString(dictionary[codes[row]]);
+        }
+
+        int distinctValues() { return dictionary.length; }
+    }
+
+    /**
+     * Strings with too many distinct values to benefit from a dictionary
+     */
+    static final class StringColumn extends Column {
+        private final String[] values;
+
+        StringColumn(boolean textual, int size, long[] nulls, String[] values) {
+            super(textual, size, nulls);
+            this.values = values;
+        }
+
+        Kind kind() { return Kind.STRING; }
+
+        String text(int row) { return values[row]; }
+
+        Object value(int row) { return values[row]; }
+
+        void writeTypedJson(JsonGenerator generator, int row) throws IOException {
+            generator.writeString(values[row]);
+        }
+    }
+
+    /**
+     * Fallback for columns whose values mix kinds
+     */
+    static final class ObjectColumn extends Column {
+        private final Object[] values;
+
+        ObjectColumn(boolean textual, int size, long[] nulls, Object[] values) {
+            super(textual, size, nulls);
+            this.values = values;
+        }
+
+        Kind kind() { return Kind.OBJECT; }
+
+        @Override
+        boolean isString(int row) { return textual || values[row] instanceof String; }
+
+        String text(int row) { return values[row].toString(); }
+
+        Object value(int row) { return values[row]; }
+
+        void writeTypedJson(JsonGenerator generator, int row) throws IOException {
+            generator.writeObject(values[row]);
+        }
+    }
+
+    /**
+     * Appends values one row at a time, inferring the narrowest column kind as it goes.
+     * Textual columns only take a typed encoding when the value's canonical form reproduces the source text,
+     * and fall back to dictionary strings otherwise; typed columns with mixed kinds fall back to objects.
+     */
+    static final class Builder {
+        // Dictionaries are dropped once most values turn out to be distinct
+        private static final int DICTIONARY_SAMPLE = 4096;
+        private static final int DICTIONARY_LIMIT = 1 << 16;
+
+        private final boolean textual;
+        private Kind kind;
+        private int size;
+        private long[] nulls = new long[1];
+
+        private long[] longs;
+        private double[] doubles;
+        private long[] bits;
+        private int[] codes;
+        private Map<String, Integer> codeLookup;
+        private List<String> dictionary;
+        private String[] strings;
+        private Object[] objects;
+
+        Builder(boolean textual) {
+            this.textual = textual;
+        }
+
+        void add(Object value) {
+            ensureCapacity(size + 1);
+            int row = size++;
+            if (value == null || (textual && "".equals(value))) {
+                nulls[row >>> 6] |= 1L << row;
+                return;
+            }
+            if (kind == Kind.STRING && textual) {
+                store(row, value);
+                return;
+            }
+            Kind valueKind = classify(value);
+            if (kind == null) {
+                start(valueKind);
+            } else if (kind != valueKind && kind != Kind.OBJECT && !(kind == Kind.STRING && textual)) {
+                promote();
+            }
+            store(row, value);
+        }
+
+        Column build() {
+            long[] nullBits = Arrays.copyOf(nulls, (size >>> 6) + 1);
+            if (kind == null) {
+                return new DictionaryColumn(textual, size, nullBits, new int[size], new String[0]);
+            }
+            switch (kind) {
+                case LONG:
+                    return new LongColumn(textual, size, nullBits, Arrays.copyOf(longs, size));
+                case DOUBLE:
+                    return new DoubleColumn(textual, size, nullBits, Arrays.copyOf(doubles, size));
+                case BOOLEAN:
+                    return new BooleanColumn(textual, size, nullBits, Arrays.copyOf(bits, (size >>> 6) + 1));
+                case STRING:
+                    if (strings != null) {
+                        return new StringColumn(textual, size, nullBits, Arrays.copyOf(strings, size));
+                    }
+                    return new DictionaryColumn(textual, size, nullBits, Arrays.copyOf(codes, size),
+                            dictionary.toArray(new String[0]));
+                default:
+                    return new ObjectColumn(textual, size, nullBits, Arrays.copyOf(objects, size));
+            }
+        }
+
+        private Kind classify(Object value) {
+            if (value instanceof String) {
+                return textual ? classifyText((String) value) : Kind.STRING;
+            }
+            if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+                return Kind.LONG;
+            }
+            if (value instanceof Double) {
+                return Kind.DOUBLE;
+            }
+            if (value instanceof Boolean) {
+                return Kind.BOOLEAN;
+            }
+            return Kind.OBJECT;
+        }
+
+        private static Kind classifyText(String text) {
+            if ("true".equals(text) || "false".equals(text)) {
+                return Kind.BOOLEAN;
+            }
+            int length = text.length();
+            int i = text.charAt(0) == '-' ? 1 : 0;
+            int digitsStart = i;
+            while (i < length && text.charAt(i) >= '0' && text.charAt(i) <= '9') {
+                i++;
+            }
+            int digits = i - digitsStart;
+            if (digits == 0) {
+                return Kind.STRING;
+            }
+            if (i == length) {
+                // Canonical integers only: no leading zeros, no "-0", within long range
+                boolean canonical = (digits == 1 || text.charAt(digitsStart) != '0')
+                        && !(digitsStart == 1 && digits == 1 && text.charAt(1) == '0');
+                if (canonical && digits <= 18) {
+                    return Kind.LONG;
+                }
+                if (canonical && digits == 19) {
+                    try {
+                        Long.parseLong(text);
+                        return Kind.LONG;
+                    } catch (NumberFormatException ignored) {
+                        return Kind.STRING;
+                    }
+                }
+                return Kind.STRING;
+            }
+            if (text.charAt(i) == '.' && length <= 24) {
+                int j = i + 1;
+                while (j < length && text.charAt(j) >= '0' && text.charAt(j) <= '9') {
+                    j++;
+                }
+                if (j == length && j > i + 1 && Double.toString(Double.parseDouble(text)).equals(text)) {
+                    return Kind.DOUBLE;
+                }
+            }
+            return Kind.STRING;
+        }
+
+        private void start(Kind startKind) {
+            kind = startKind;
+            int capacity = nulls.length * 64;
+            switch (startKind) {
+                case LONG: longs = new long[capacity]; break;
+                case DOUBLE: doubles = new double[capacity]; break;
+                case BOOLEAN: bits = new long[nulls.length]; break;
+                case STRING:
+                    codes = new int[capacity];
+                    codeLookup = new HashMap<>();
+                    dictionary = new ArrayList<>();
+                    break;
+                default: objects = new Object[capacity];
+            }
+        }
+
+        private void store(int row, Object value) {
+            switch (kind) {
+                case LONG:
+                    longs[row] = textual ? Long.parseLong((String) value) : ((Number) value).longValue();
+                    break;
+                case DOUBLE:
+                    doubles[row] = textual ? Double.parseDouble((String) value) : (Double) value;
+                    break;
+                case BOOLEAN:
+                    if (textual ? "true".equals(value) : (Boolean) value) {
+                        bits[row >>> 6] |= 1L << row;
+                    }
+                    break;
+                case STRING:
+                    String text = textual ? value.toString() : (String) value;
+                    if (strings != null) {
+                        strings[row] = text;
+                    } else {
+                        codes[row] = encode(text);
+                        if (shouldDropDictionary(row + 1)) {
+                            dropDictionary(row + 1);
+                        }
+                    }
+                    break;
+                default:
+                    objects[row] = value;
+            }
+        }
+
+        // Re-encode the rows stored so far in the widest representation
+        private void promote() {
+            int stored = size - 1;
+            Kind from = kind;
+            Object[] previous = new Object[stored];
+            for (int row = 0; row < stored; row++) {
+                if ((nulls[row >>> 6] & (1L << row)) == 0) {
+                    previous[row] = storedValue(from, row);
+                }
+            }
+            longs = null;
+            doubles = null;
+            bits = null;
+            codes = null;
+            strings = null;
+            objects = null;
+            start(textual ? Kind.STRING : Kind.OBJECT);
+            for (int row = 0; row < stored; row++) {
+                if (previous[row] != null) {
+                    store(row, textual ? previous[row].toString() : previous[row]);
+                }
+            }
+        }
+
+        private Object storedValue(Kind from, int row) {
+            switch (from) {
+                case LONG: return longs[row];
+                case DOUBLE: return doubles[row];
+                case BOOLEAN: return (bits[row >>> 6] & (1L << row)) != 0;
+                case STRING: return strings != null ? strings[row] : dictionary.get(codes[row]);
+                default: return objects[row];
+            }
+        }
+
+        private boolean shouldDropDictionary(int rows) {
+            int distinct = dictionary.size();
+            return distinct > DICTIONARY_LIMIT || (rows >= DICTIONARY_SAMPLE && distinct > rows / 2);
+        }
+
+        private void dropDictionary(int rows) {
+            strings = new String[codes.length];
+            for (int row = 0; row < rows; row++) {
+                if ((nulls[row >>> 6] & (1L << row)) == 0) {
+                    strings[row] = dictionary.get(codes[row]);
+                }
+            }
+            codes = null;
+            codeLookup = null;
+            dictionary = null;
+        }
+
+        private int encode(String value) {
+            Integer code = codeLookup.get(value);
+            if (code == null) {
+                code = dictionary.size();
+                dictionary.add(value);
+                codeLookup.put(value, code);
+            }
+            return code;
+        }
+
+        private void ensureCapacity(int rows) {
+            int words = (rows + 63) >>> 6;
+            if (words <= nulls.length) {
+                return;
+            }
+            int newWords = Math.max(words, nulls.length * 2);
+            int capacity = newWords * 64;
+            nulls = Arrays.copyOf(nulls, newWords);
+            if (longs != null) longs = Arrays.copyOf(longs, capacity);
+            if (doubles != null) doubles = Arrays.copyOf(doubles, capacity);
+            if (bits != null) bits = Arrays.copyOf(bits, newWords);
+            if (codes != null) codes = Arrays.copyOf(codes, capacity);
+            if (strings != null) strings = Arrays.copyOf(strings, capacity);
+            if (objects != null) objects = Arrays.copyOf(objects, capacity);
+        }
+    }
+}
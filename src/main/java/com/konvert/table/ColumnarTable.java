@@ -0,0 +1,721 @@
+package com.konvert.table;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.konvert.FormatConverter;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVPrinter;
+import org.apache.commons.csv.CSVRecord;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Column-oriented representation of tabular data: one shared header and a typed column per field,
+ * instead of a Map per row. Readers return null when the input is not a flat table, so callers can
+ * fall back to the general Map/List path; writers produce exactly what that path would produce.
+ */
+public class ColumnarTable {
+
+    private static final ObjectMapper jsonMapper = new ObjectMapper();
+    private static final ObjectWriter prettyWriter = jsonMapper.writerWithDefaultPrettyPrinter();
+    private static final JsonFactory jsonFactory = new JsonFactory();
+    private static final XMLInputFactory xmlInputFactory = createXmlInputFactory();
+
+    private static final Pattern TOON_HEADER = Pattern.compile("^([^\\s\\[\\]{}:]+)\\[(\\d+)\\]\\{([^{}]*)\\}:\\s*$");
+    // Top-level tabular TOON named "rows" is the wrapper FormatConverter uses for lists
+    private static final String TOON_LIST_KEY = "rows";
+    // Column name for records that are plain values rather than objects
+    private static final String SCALAR_COLUMN = "value";
+
+    private final String name;
+    private final List<String> header;
+    private final Column[] columns;
+    private final int rowCount;
+
+    private ColumnarTable(String name, List<String> header, Column[] columns, int rowCount) {
+        this.name = name;
+        this.header = header;
+        this.columns = columns;
+        this.rowCount = rowCount;
+    }
+
+    public List<String> getHeader() {
+        return Collections.unmodifiableList(header);
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Inferred storage type of each column: long, double, boolean, string or object
+     */
+    public Map<String, String> getColumnTypes() {
+        Map<String, String> types = new LinkedHashMap<>();
+        for (int i = 0; i < columns.length; i++) {
+            types.put(header.get(i), columns[i].kind().name().toLowerCase());
+        }
+        return types;
+    }
+
+    /**
+     * Whether a table can be written directly in this format
+     */
+    public static boolean canWrite(String format) {
+        switch (format.toLowerCase()) {
+            case "csv":
+            case "json":
+            case "toon":
+            case "xml":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Read input as a table, or return null if it is not flat tabular data in this format
+     */
+    public static ColumnarTable read(String input, String format) {
+        if (input == null || format == null) {
+            return null;
+        }
+        try {
+            switch (format.toLowerCase()) {
+                case "csv":
+                    return fromCsv(input);
+                case "json":
+                    return fromJson(input);
+                case "toon":
+                    return fromToon(input);
+                case "xml":
+                    return fromXml(input);
+                default:
+                    return null;
+            }
+        } catch (IOException | XMLStreamException | IllegalArgumentException | UncheckedIOException e) {
+            return null;
+        }
+    }
+
+    public String write(String format) throws Exception {
+        switch (format.toLowerCase()) {
+            case "csv":
+                return toCsv();
+            case "json":
+                return toJson();
+            case "toon":
+                return toToon();
+            case "xml":
+                return toXml();
+            default:
+                throw new IllegalArgumentException("Unsupported table output format: " + format);
+        }
+    }
+
+    /**
+     * Write the table as an XLSX workbook and return row, sheet and throughput statistics
+     */
+    public Map<String, Object> writeXlsx(OutputStream out) throws IOException {
+        return new XlsxTableWriter(name, header, columns, rowCount).write(out);
+    }
+
+    /**
+     * Build a table from the Map/List structure used by FormatConverter. Records may have different keys;
+     * the header is their union in first-seen order and nested values are kept as objects.
+     */
+    @SuppressWarnings("unchecked")
+    public static ColumnarTable fromData(Object data) {
+        String tableName = null;
+        if (data instanceof Map && ((Map<?, ?>) data).size() == 1) {
+            Map.Entry<?, ?> entry = ((Map<?, ?>) data).entrySet().iterator().next();
+            if (entry.getValue() instanceof List) {
+                tableName = String.valueOf(entry.getKey());
+                data = entry.getValue();
+            }
+        }
+        List<?> records = data instanceof List ? (List<?>) data : Collections.singletonList(data);
+
+        Map<String, Integer> fields = new LinkedHashMap<>();
+        for (Object record : records) {
+            if (record instanceof Map) {
+                for (Object key : ((Map<?, ?>) record).keySet()) {
+                    fields.putIfAbsent(String.valueOf(key), fields.size());
+                }
+            } else {
+                fields.putIfAbsent(SCALAR_COLUMN, fields.size());
+            }
+        }
+
+        Column.Builder[] builders = newBuilders(fields.size(), false);
+        Object[] values = new Object[fields.size()];
+        for (Object record : records) {
+            Arrays.fill(values, null);
+            if (record instanceof Map) {
+                for (Map.Entry<?, ?> entry : ((Map<?, ?>) record).entrySet()) {
+                    values[fields.get(String.valueOf(entry.getKey()))] = entry.getValue();
+                }
+            } else {
+                values[fields.get(SCALAR_COLUMN)] = record;
+            }
+            for (int i = 0; i < builders.length; i++) {
+                builders[i].add(values[i]);
+            }
+        }
+        return new ColumnarTable(tableName, new ArrayList<>(fields.keySet()), build(builders), records.size());
+    }
+
+    /**
+     * Materialize as the Map/List structure used by FormatConverter
+     */
+    public Object toData() {
+        List<Map<String, Object>> rows = new ArrayList<>(rowCount);
+        for (int row = 0; row < rowCount; row++) {
+            Map<String, Object> map = new LinkedHashMap<>();
+            for (int i = 0; i < columns.length; i++) {
+                map.put(header.get(i), columns[i].boxed(row));
+            }
+            rows.add(map);
+        }
+        if (name == null) {
+            return rows;
+        }
+        Map<String, Object> wrapper = new LinkedHashMap<>();
+        wrapper.put(name, rows);
+        return wrapper;
+    }
+
+    // ---- Readers ----
+
+    private static ColumnarTable fromCsv(String input) throws IOException {
+        if (input.trim().isEmpty()) {
+            return null;
+        }
+        String normalized = FormatConverter.normalizeCsv(input);
+        try (CSVParser parser = CSVFormat.DEFAULT.withFirstRecordAsHeader().withIgnoreEmptyLines()
+                .parse(new StringReader(normalized))) {
+            List<String> header = parser.getHeaderNames();
+            if (header == null || header.isEmpty() || new HashSet<>(header).size() != header.size()) {
+                return null;
+            }
+            Column.Builder[] builders = newBuilders(header.size(), true);
+            int rows = 0;
+            for (CSVRecord record : parser) {
+                // Short records take the legacy header-less path
+                if (record.size() < header.size()) {
+                    return null;
+                }
+                for (int i = 0; i < builders.length; i++) {
+                    builders[i].add(record.get(i));
+                }
+                rows++;
+            }
+            if (rows == 0) {
+                for (Column.Builder builder : builders) {
+                    builder.add("");
+                }
+                rows = 1;
+            }
+            return new ColumnarTable(null, header, build(builders), rows);
+        }
+    }
+
+    private static ColumnarTable fromJson(String input) throws IOException {
+        if (firstNonWhitespace(input) != '[') {
+            return null;
+        }
+        try (JsonParser parser = jsonFactory.createParser(input)) {
+            parser.nextToken();
+            List<String> header = null;
+            Column.Builder[] builders = null;
+            int rows = 0;
+            JsonToken token;
+            while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                if (token != JsonToken.START_OBJECT) {
+                    return null;
+                }
+                if (header == null) {
+                    header = new ArrayList<>();
+                    List<Object> values = new ArrayList<>();
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        header.add(parser.currentName());
+                        Object value = scalar(parser, parser.nextToken());
+                        if (value == NOT_SCALAR) {
+                            return null;
+                        }
+                        values.add(value);
+                    }
+                    if (header.isEmpty() || new HashSet<>(header).size() != header.size()) {
+                        return null;
+                    }
+                    builders = newBuilders(header.size(), false);
+                    for (int i = 0; i < values.size(); i++) {
+                        builders[i].add(values.get(i));
+                    }
+                } else {
+                    int field = 0;
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        if (field >= header.size() || !header.get(field).equals(parser.currentName())) {
+                            return null;
+                        }
+                        Object value = scalar(parser, parser.nextToken());
+                        if (value == NOT_SCALAR) {
+                            return null;
+                        }
+                        builders[field++].add(value);
+                    }
+                    if (field != header.size()) {
+                        return null;
+                    }
+                }
+                rows++;
+            }
+            if (rows == 0 || parser.nextToken() != null) {
+                return null;
+            }
+            return new ColumnarTable(null, header, build(builders), rows);
+        }
+    }
+
+    private static final Object NOT_SCALAR = new Object();
+
+    private static Object scalar(JsonParser parser, JsonToken token) throws IOException {
+        switch (token) {
+            case VALUE_STRING:
+                return parser.getText();
+            case VALUE_NUMBER_INT:
+                switch (parser.getNumberType()) {
+                    case INT:
+                    case LONG:
+                        return parser.getLongValue();
+                    default:
+                        return parser.getBigIntegerValue();
+                }
+            case VALUE_NUMBER_FLOAT:
+                return parser.getDoubleValue();
+            case VALUE_TRUE:
+                return Boolean.TRUE;
+            case VALUE_FALSE:
+                return Boolean.FALSE;
+            case VALUE_NULL:
+                return null;
+            default:
+                return NOT_SCALAR;
+        }
+    }
+
+    private static ColumnarTable fromToon(String input) {
+        String[] lines = input.trim().split("\r?\n");
+        Matcher matcher = TOON_HEADER.matcher(lines[0].trim());
+        if (!matcher.matches()) {
+            return null;
+        }
+        String key = matcher.group(1);
+        int declared = Integer.parseInt(matcher.group(2));
+        List<String> header = new ArrayList<>();
+        for (String field : matcher.group(3).split(",", -1)) {
+            header.add(field.trim());
+        }
+        if (header.isEmpty() || header.get(0).isEmpty() || new HashSet<>(header).size() != header.size()) {
+            return null;
+        }
+
+        Column.Builder[] builders = newBuilders(header.size(), false);
+        List<Object> values = new ArrayList<>(header.size());
+        int rows = 0;
+        for (int l = 1; l < lines.length; l++) {
+            String line = lines[l];
+            if (line.trim().isEmpty()) {
+                continue;
+            }
+            if (!line.startsWith(" ")) {
+                return null;
+            }
+            values.clear();
+            if (!splitToonRow(line.trim(), values) || values.size() != header.size()) {
+                return null;
+            }
+            for (int i = 0; i < builders.length; i++) {
+                builders[i].add(values.get(i));
+            }
+            rows++;
+        }
+        if (rows != declared || rows == 0) {
+            return null;
+        }
+        return new ColumnarTable(TOON_LIST_KEY.equals(key) ? null : key, header, build(builders), rows);
+    }
+
+    // Splits one tabular TOON row, honouring quoted values
+    private static boolean splitToonRow(String line, List<Object> values) {
+        int i = 0;
+        int length = line.length();
+        while (true) {
+            if (i < length && line.charAt(i) == '"') {
+                StringBuilder sb = new StringBuilder();
+                i++;
+                boolean closed = false;
+                while (i < length) {
+                    char c = line.charAt(i++);
+                    if (c == '\\' && i < length) {
+                        sb.append(line.charAt(i++));
+                    } else if (c == '"') {
+                        closed = true;
+                        break;
+                    } else {
+                        sb.append(c);
+                    }
+                }
+                if (!closed || (i < length && line.charAt(i) != ',')) {
+                    return false;
+                }
+                values.add(sb.toString());
+            } else {
+                int comma = line.indexOf(',', i);
+                int end = comma < 0 ? length : comma;
+                values.add(toonScalar(line.substring(i, end)));
+                i = end;
+            }
+            if (i >= length) {
+                return true;
+            }
+            i++;
+        }
+    }
+
+    private static Object toonScalar(String token) {
+        switch (token) {
+            case "null":
+                return null;
+            case "true":
+                return Boolean.TRUE;
+            case "false":
+                return Boolean.FALSE;
+            default:
+                break;
+        }
+        if (isJsonNumber(token)) {
+            try {
+                if (token.indexOf('.') < 0 && token.indexOf('e') < 0 && token.indexOf('E') < 0) {
+                    return Long.parseLong(token);
+                }
+                return Double.parseDouble(token);
+            } catch (NumberFormatException ignored) {
+                // Integers beyond a long fall through to a plain string
+            }
+        }
+        return token;
+    }
+
+    // JSON number syntax only: "01", "1." and "1d" are strings, as TOON keeps them
+    private static boolean isJsonNumber(String token) {
+        int length = token.length();
+        int i = length > 0 && token.charAt(0) == '-' ? 1 : 0;
+        if (i == length || !Character.isDigit(token.charAt(i))) {
+            return false;
+        }
+        if (token.charAt(i++) != '0') {
+            while (i < length && Character.isDigit(token.charAt(i))) {
+                i++;
+            }
+        }
+        if (i < length && token.charAt(i) == '.') {
+            int fraction = ++i;
+            while (i < length && Character.isDigit(token.charAt(i))) {
+                i++;
+            }
+            if (i == fraction) {
+                return false;
+            }
+        }
+        if (i < length && (token.charAt(i) == 'e' || token.charAt(i) == 'E')) {
+            i++;
+            if (i < length && (token.charAt(i) == '+' || token.charAt(i) == '-')) {
+                i++;
+            }
+            int exponent = i;
+            while (i < length && Character.isDigit(token.charAt(i))) {
+                i++;
+            }
+            if (i == exponent) {
+                return false;
+            }
+        }
+        return i == length;
+    }
+
+    /**
+     * Record lists: a root element whose children are repeated records of simple leaf elements.
+     * Anything richer (attributes, nesting, mixed content) is left to the general XML path.
+     */
+    private static ColumnarTable fromXml(String input) throws XMLStreamException {
+        if (firstNonWhitespace(input) != '<') {
+            return null;
+        }
+        XMLStreamReader reader = xmlInputFactory.createXMLStreamReader(new StringReader(input));
+        try {
+            if (!nextElement(reader) || !isPlain(reader)) {
+                return null;
+            }
+            String recordName = null;
+            List<String> header = null;
+            Column.Builder[] builders = null;
+            int rows = 0;
+            List<String> values = new ArrayList<>();
+
+            while (nextChild(reader)) {
+                if (!isPlain(reader)) {
+                    return null;
+                }
+                String elementName = reader.getLocalName();
+                if (recordName == null) {
+                    recordName = elementName;
+                } else if (!recordName.equals(elementName)) {
+                    return null;
+                }
+
+                List<String> fields = header == null ? new ArrayList<>() : null;
+                values.clear();
+                while (nextChild(reader)) {
+                    if (!isPlain(reader)) {
+                        return null;
+                    }
+                    String field = reader.getLocalName();
+                    String text = reader.getElementText();
+                    // Blank or padded text is normalized differently by the general path
+                    if (text.isEmpty() || text.trim().length() != text.length()) {
+                        return null;
+                    }
+                    if (fields != null) {
+                        fields.add(field);
+                    } else if (values.size() >= header.size() || !header.get(values.size()).equals(field)) {
+                        return null;
+                    }
+                    values.add(text);
+                }
+                if (header == null) {
+                    if (fields.isEmpty() || new HashSet<>(fields).size() != fields.size()) {
+                        return null;
+                    }
+                    header = fields;
+                    builders = newBuilders(header.size(), true);
+                } else if (values.size() != header.size()) {
+                    return null;
+                }
+                for (int i = 0; i < builders.length; i++) {
+                    builders[i].add(values.get(i));
+                }
+                rows++;
+            }
+            // A lone record only becomes a list when it is named "record"
+            if (rows == 0 || (rows == 1 && !"record".equals(recordName))) {
+                return null;
+            }
+            while (reader.hasNext()) {
+                if (reader.next() == XMLStreamConstants.START_ELEMENT) {
+                    return null;
+                }
+            }
+            return new ColumnarTable(null, header, build(builders), rows);
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static boolean nextElement(XMLStreamReader reader) throws XMLStreamException {
+        while (reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                return true;
+            }
+            if (event == XMLStreamConstants.DTD) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    // Advance to the next child element of the current element; false at its end tag
+    private static boolean nextChild(XMLStreamReader reader) throws XMLStreamException {
+        while (reader.hasNext()) {
+            int event = reader.next();
+            switch (event) {
+                case XMLStreamConstants.START_ELEMENT:
+                    return true;
+                case XMLStreamConstants.END_ELEMENT:
+                    return false;
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.SPACE:
+                    if (!reader.isWhiteSpace()) {
+                        throw new XMLStreamException("Mixed content");
+                    }
+                    break;
+                case XMLStreamConstants.COMMENT:
+                    break;
+                default:
+                    throw new XMLStreamException("Unsupported XML structure");
+            }
+        }
+        return false;
+    }
+
+    private static boolean isPlain(XMLStreamReader reader) {
+        String prefix = reader.getPrefix();
+        return reader.getAttributeCount() == 0 && reader.getNamespaceCount() == 0
+                && (prefix == null || prefix.isEmpty());
+    }
+
+    // ---- Writers ----
+
+    private String toCsv() throws IOException {
+        StringWriter writer = new StringWriter();
+        try (CSVPrinter printer = new CSVPrinter(writer, CSVFormat.DEFAULT)) {
+            printer.printRecord(header);
+            for (int row = 0; row < rowCount; row++) {
+                for (Column column : columns) {
+                    printer.print(column.cell(row));
+                }
+                printer.println();
+            }
+            printer.flush();
+        }
+        return writer.toString();
+    }
+
+    private String toJson() throws IOException {
+        StringWriter writer = new StringWriter();
+        try (JsonGenerator generator = prettyWriter.createGenerator(writer)) {
+            if (name != null) {
+                generator.writeStartObject();
+                generator.writeFieldName(name);
+            }
+            generator.writeStartArray();
+            for (int row = 0; row < rowCount; row++) {
+                generator.writeStartObject();
+                for (int i = 0; i < columns.length; i++) {
+                    generator.writeFieldName(header.get(i));
+                    columns[i].writeJson(generator, row);
+                }
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+            if (name != null) {
+                generator.writeEndObject();
+            }
+        }
+        return writer.toString();
+    }
+
+    private String toToon() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(name != null ? name : TOON_LIST_KEY).append('[').append(rowCount).append("]{");
+        sb.append(String.join(",", header)).append("}:\n");
+        for (int row = 0; row < rowCount; row++) {
+            sb.append("  ");
+            for (int i = 0; i < columns.length; i++) {
+                if (i > 0) {
+                    sb.append(',');
+                }
+                appendToonValue(columns[i], row, sb);
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    private static void appendToonValue(Column column, int row, StringBuilder sb) {
+        if (column.isNull(row) && !column.textual) {
+            sb.append("null");
+            return;
+        }
+        String text = column.cell(row);
+        if (column.isString(row)
+                && (text.isEmpty() || text.indexOf(',') >= 0 || text.indexOf('\n') >= 0 || text.indexOf(' ') >= 0)) {
+            sb.append('"').append(text.replace("\\", "\\\\").replace("\"", "\\\"")).append('"');
+        } else {
+            sb.append(text);
+        }
+    }
+
+    private String toXml() throws Exception {
+        if (name != null) {
+            return FormatConverter.render(toData(), "xml", null);
+        }
+        String[] tags = new String[header.size()];
+        for (int i = 0; i < tags.length; i++) {
+            tags[i] = FormatConverter.sanitizeXmlName(header.get(i));
+        }
+        StringBuilder xml = new StringBuilder();
+        xml.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        xml.append("<data>\n");
+        for (int row = 0; row < rowCount; row++) {
+            xml.append("  <record>\n");
+            for (int i = 0; i < columns.length; i++) {
+                xml.append("    <").append(tags[i]).append(">");
+                xml.append(FormatConverter.escapeXml(columns[i].cell(row)));
+                xml.append("</").append(tags[i]).append(">\n");
+            }
+            xml.append("  </record>\n");
+        }
+        xml.append("</data>");
+        return xml.toString();
+    }
+
+    // ---- Helpers ----
+
+    private static Column.Builder[] newBuilders(int count, boolean textual) {
+        Column.Builder[] builders = new Column.Builder[count];
+        for (int i = 0; i < count; i++) {
+            builders[i] = new Column.Builder(textual);
+        }
+        return builders;
+    }
+
+    private static Column[] build(Column.Builder[] builders) {
+        Column[] columns = new Column[builders.length];
+        for (int i = 0; i < builders.length; i++) {
+            columns[i] = builders[i].build();
+        }
+        return columns;
+    }
+
+    private static char firstNonWhitespace(String input) {
+        for (int i = 0; i < input.length(); i++) {
+            char c = input.charAt(i);
+            if (!Character.isWhitespace(c)) {
+                return c;
+            }
+        }
+        return 0;
+    }
+
+    private static XMLInputFactory createXmlInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        return factory;
+    }
+}
@@ -0,0 +1,158 @@
+package com.konvert.table;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.util.WorkbookUtil;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes a table as an XLSX workbook through SXSSF: only a small window of rows stays on heap and
+ * flushed rows go to compressed temp files. Tables longer than an Excel sheet continue on new sheets.
+ */
+final class XlsxTableWriter {
+    // Rows kept in memory per sheet before older rows are flushed to disk
+    private static final int ROW_WINDOW = 100;
+    // Excel's row limit minus the header row
+    private static final int MAX_DATA_ROWS = SpreadsheetVersion.EXCEL2007.getMaxRows() - 1;
+    private static final int MAX_CELL_TEXT = SpreadsheetVersion.EXCEL2007.getMaxTextLength();
+    // Doubles hold integers exactly only up to 2^53; larger longs are written as text
+    private static final long MAX_EXACT_LONG = 1L << 53;
+    private static final int HEAP_SAMPLE_ROWS = 1 << 16;
+
+    private static final ObjectMapper jsonMapper = new ObjectMapper();
+
+    private final String sheetName;
+    private final List<String> header;
+    private final Column[] columns;
+    private final int rowCount;
+
+    XlsxTableWriter(String sheetName, List<String> header, Column[] columns, int rowCount) {
+        this.sheetName = sheetName;
+        this.header = header;
+        this.columns = columns;
+        this.rowCount = rowCount;
+    }
+
+    Map<String, Object> write(OutputStream out) throws IOException {
+        long start = System.nanoTime();
+        Runtime runtime = Runtime.getRuntime();
+        long peakHeap = runtime.totalMemory() - runtime.freeMemory();
+        int sheets = 0;
+        int truncatedCells = 0;
+
+        SXSSFWorkbook workbook = new SXSSFWorkbook(ROW_WINDOW);
+        try {
+            workbook.setCompressTempFiles(true);
+            CellStyle headerStyle = workbook.createCellStyle();
+            Font bold = workbook.createFont();
+            bold.setBold(true);
+            headerStyle.setFont(bold);
+
+            int row = 0;
+            do {
+                SXSSFSheet sheet = workbook.createSheet(sheetName(++sheets));
+                sheet.createFreezePane(0, 1);
+                Row headerRow = sheet.createRow(0);
+                for (int i = 0; i < header.size(); i++) {
+                    Cell cell = headerRow.createCell(i);
+                    cell.setCellValue(header.get(i));
+                    cell.setCellStyle(headerStyle);
+                }
+
+                int end = (int) Math.min(rowCount, (long) row + MAX_DATA_ROWS);
+                for (int sheetRow = 1; row < end; row++, sheetRow++) {
+                    Row excelRow = sheet.createRow(sheetRow);
+                    for (int i = 0; i < columns.length; i++) {
+                        if (!columns[i].isNull(row) && !setCell(excelRow.createCell(i), columns[i], row)) {
+                            truncatedCells++;
+                        }
+                    }
+                    if (row % HEAP_SAMPLE_ROWS == 0) {
+                        peakHeap = Math.max(peakHeap, runtime.totalMemory() - runtime.freeMemory());
+                    }
+                }
+            } while (row < rowCount);
+
+            workbook.write(out);
+            peakHeap = Math.max(peakHeap, runtime.totalMemory() - runtime.freeMemory());
+        } finally {
+            workbook.dispose();
+            workbook.close();
+        }
+
+        long elapsedNanos = Math.max(1, System.nanoTime() - start);
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("rows", rowCount);
+        stats.put("sheets", sheets);
+        stats.put("truncatedCells", truncatedCells);
+        stats.put("elapsedMs", elapsedNanos / 1_000_000);
+        stats.put("rowsPerSecond", (long) (rowCount * 1_000_000_000.0 / elapsedNanos));
+        stats.put("peakHeapMb", peakHeap / (1024 * 1024));
+        return stats;
+    }
+
+    private String sheetName(int index) {
+        String base = WorkbookUtil.createSafeSheetName(sheetName == null ? "Sheet1" : sheetName);
+        if (index == 1) {
+            return base;
+        }
+        String suffix = " (" + index + ")";
+        // Sheet names are limited to 31 characters
+        return base.substring(0, Math.min(base.length(), 31 - suffix.length())) + suffix;
+    }
+
+    // Returns false when text had to be cut to Excel's cell limit
+    private static boolean setCell(Cell cell, Column column, int row) throws IOException {
+        switch (column.kind()) {
+            case LONG:
+            case DOUBLE:
+            case BOOLEAN:
+                return setValue(cell, column.value(row));
+            case STRING:
+                return setText(cell, column.text(row));
+            default:
+                Object value = column.value(row);
+                if (value instanceof Map || value instanceof List) {
+                    return setText(cell, jsonMapper.writeValueAsString(value));
+                }
+                return column.textual ? setText(cell, column.text(row)) : setValue(cell, value);
+        }
+    }
+
+    private static boolean setValue(Cell cell, Object value) {
+        if (value instanceof Boolean) {
+            cell.setCellValue((Boolean) value);
+            return true;
+        }
+        if (value instanceof Long && (Long) value >= -MAX_EXACT_LONG && (Long) value <= MAX_EXACT_LONG
+                || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            cell.setCellValue(((Number) value).doubleValue());
+            return true;
+        }
+        if (value instanceof Double && Double.isFinite((Double) value)) {
+            cell.setCellValue((Double) value);
+            return true;
+        }
+        return setText(cell, value.toString());
+    }
+
+    private static boolean setText(Cell cell, String text) {
+        if (text.length() > MAX_CELL_TEXT) {
+            cell.setCellValue(text.substring(0, MAX_CELL_TEXT));
+            return false;
+        }
+        cell.setCellValue(text);
+        return true;
+    }
+}
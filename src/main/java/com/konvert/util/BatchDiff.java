@@ -0,0 +1,288 @@
+package com.konvert.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Compares two sets of files, such as the config directories of two environments, pairing them by
+ * relative path. Files with the same content hash are reported identical without being parsed; the
+ * others are compared on the shared worker pool with {@link DiffUtil}, as trees for JSON, YAML and XML
+ * and line by line for anything else. Results are written as NDJSON, one line per file in the order
+ * the comparisons finish, followed by a summary line.
+ */
+public final class BatchDiff {
+
+    // Bounds on what the uploads of one side, archives included, may expand to
+    static final int MAX_FILES = 10_000;
+    static final long MAX_BYTES = 512L * 1024 * 1024;
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+    private static final Set<String> TREE_FORMATS = new HashSet<>(Arrays.asList("json", "yaml", "xml"));
+
+    private final String arrayKey;
+    private final Integer context;
+
+    /**
+     * A comparison that matches array elements by arrayKey in tree formats and shows the given number
+     * of context lines in line diffs; either may be null for the defaults
+     */
+    public BatchDiff(String arrayKey, Integer context) {
+        if (context != null && context < 0) {
+            throw new IllegalArgumentException("Context lines cannot be negative");
+        }
+        this.arrayKey = arrayKey;
+        this.context = context;
+    }
+
+    /**
+     * The files of one side by relative path, collected from uploads and ZIP archives. Each file is
+     * copied to a temporary file as it is added and hashed on the way, so nothing is held on the heap
+     * until it has to be compared; close the set to remove the copies.
+     */
+    public static final class FileSet implements Closeable {
+        private final Map<String, Spooled> files = new TreeMap<>();
+        private long bytes;
+
+        /**
+         * Add one file under its relative path, reading the stream to its end without closing it
+         */
+        public void add(String path, InputStream content) throws IOException {
+            path = normalize(path);
+            if (path.isEmpty()) {
+                throw new IllegalArgumentException("File path cannot be empty");
+            }
+            if (files.size() >= MAX_FILES) {
+                throw new IllegalArgumentException("Too many files to compare (at most " + MAX_FILES + " per side)");
+            }
+            if (files.containsKey(path)) {
+                throw new IllegalArgumentException("Duplicate file path: " + path);
+            }
+            // Registered before the copy, so close() removes the file even if the copy fails
+            Spooled file = new Spooled(Files.createTempFile("konvertr-batch-", ".tmp"));
+            files.put(path, file);
+            MessageDigest digest = sha256();
+            try (OutputStream out = new DigestOutputStream(Files.newOutputStream(file.path), digest)) {
+                byte[] buffer = new byte[64 * 1024];
+                int read;
+                while ((read = content.read(buffer)) > 0) {
+                    // Checked as the bytes arrive, so a zip bomb fails instead of filling the disk
+                    bytes += read;
+                    if (bytes > MAX_BYTES) {
+                        throw new IllegalArgumentException("Files to compare exceed " + (MAX_BYTES >> 20) + " MB per side");
+                    }
+                    out.write(buffer, 0, read);
+                    file.size += read;
+                }
+            }
+            file.sha256 = HexFormat.of().formatHex(digest.digest());
+        }
+
+        /**
+         * Add every file in a ZIP archive under its path in the archive
+         */
+        public void addZip(InputStream in) throws IOException {
+            try (ZipInputStream zip = new ZipInputStream(in)) {
+                ZipEntry entry;
+                while ((entry = zip.getNextEntry()) != null) {
+                    String path = normalize(entry.getName());
+                    // Folders, and the resource forks macOS adds to archives, are not files to compare
+                    if (entry.isDirectory() || path.startsWith("__MACOSX/") || path.endsWith(".DS_Store")) {
+                        continue;
+                    }
+                    add(path, zip);
+                }
+            }
+        }
+
+        public int size() {
+            return files.size();
+        }
+
+        /**
+         * Remove the temporary copies
+         */
+        @Override
+        public void close() throws IOException {
+            for (Spooled file : files.values()) {
+                Files.deleteIfExists(file.path);
+            }
+            files.clear();
+        }
+
+        // A top-level folder every file shares is dropped, so envA/app.yaml pairs with envB/app.yaml
+        private Map<String, Spooled> relative() {
+            String root = null;
+            for (String path : files.keySet()) {
+                int slash = path.indexOf('/');
+                String first = slash < 0 ? null : path.substring(0, slash + 1);
+                if (first == null || root != null && !root.equals(first)) {
+                    return files;
+                }
+                root = first;
+            }
+            if (root == null) {
+                return files;
+            }
+            Map<String, Spooled> relative = new TreeMap<>();
+            for (Map.Entry<String, Spooled> file : files.entrySet()) {
+                relative.put(file.getKey().substring(root.length()), file.getValue());
+            }
+            return relative;
+        }
+
+        private static String normalize(String path) {
+            path = path == null ? "" : path.replace('\\', '/');
+            while (path.startsWith("/") || path.startsWith("./")) {
+                path = path.substring(path.startsWith("/") ? 1 : 2);
+            }
+            return path;
+        }
+    }
+
+    // A file copied to disk, with its size and content hash
+    private static final class Spooled {
+        final Path path;
+        long size;
+        String sha256;
+
+        Spooled(Path path) {
+            this.path = path;
+        }
+    }
+
+    /**
+     * Compare the sets and write one NDJSON line per file, then the summary, flushing after each line.
+     * Returns the summary: counts of identical, equivalent (same data, different bytes), changed,
+     * added and removed files, files that could not be compared, and the time spent.
+     */
+    public Map<String, Object> compare(FileSet left, FileSet right, OutputStream out) throws IOException {
+        long start = System.nanoTime();
+        Map<String, Spooled> files1 = left.relative();
+        Map<String, Spooled> files2 = right.relative();
+        Set<String> paths = new TreeSet<>(files1.keySet());
+        paths.addAll(files2.keySet());
+
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("type", "summary");
+        summary.put("files", paths.size());
+        for (String status : Arrays.asList("identical", "equivalent", "changed", "added", "removed", "errors")) {
+            summary.put(status, 0);
+        }
+
+        // Files on one side only need no work, so they come first
+        List<Callable<Map<String, Object>>> tasks = new ArrayList<>();
+        for (String path : paths) {
+            Spooled file1 = files1.get(path);
+            Spooled file2 = files2.get(path);
+            if (file1 == null || file2 == null) {
+                Map<String, Object> result = new LinkedHashMap<>();
+                result.put("type", "file");
+                result.put("path", path);
+                result.put("status", file1 == null ? "added" : "removed");
+                result.put("size", file1 == null ? file2.size : file1.size);
+                write(result, summary, out);
+            } else {
+                tasks.add(() -> compareFile(path, file1, file2));
+            }
+        }
+
+        try {
+            ParallelUtil.invokeEach(tasks, result -> write(result, summary, out));
+        } catch (IOException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("Batch comparison failed: " + e.getMessage(), e);
+        }
+
+        summary.put("elapsedMs", (System.nanoTime() - start) / 1_000_000);
+        out.write(mapper.writeValueAsBytes(summary));
+        out.write('\n');
+        out.flush();
+        return summary;
+    }
+
+    // Only files whose hashes differ are read back from disk
+    private Map<String, Object> compareFile(String path, Spooled file1, Spooled file2) {
+        long start = System.nanoTime();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("type", "file");
+        result.put("path", path);
+        if (file1.sha256.equals(file2.sha256)) {
+            result.put("status", "identical");
+            result.put("sha256", file1.sha256);
+            result.put("elapsedMs", (System.nanoTime() - start) / 1_000_000);
+            return result;
+        }
+
+        try {
+            String format = FileFormatDetector.detectFromFilename(path);
+            String input1 = Files.readString(file1.path, StandardCharsets.UTF_8);
+            String input2 = Files.readString(file2.path, StandardCharsets.UTF_8);
+            // Empty documents do not parse, but still compare as lines
+            Map<String, Object> comparison = TREE_FORMATS.contains(format)
+                    && !input1.trim().isEmpty() && !input2.trim().isEmpty()
+                ? DiffUtil.compare(input1, input2, format, arrayKey)
+                : DiffUtil.compareText(input1, input2, DiffUtil.isTextFormat(format) ? format : "text", context);
+            if (!Boolean.TRUE.equals(comparison.get("success"))) {
+                result.put("status", "error");
+                result.put("error", comparison.get("error"));
+            } else {
+                result.put("status", Boolean.TRUE.equals(comparison.get("identical")) ? "equivalent" : "changed");
+                result.put("format", comparison.get("format"));
+                result.put("differenceCount", comparison.get("differenceCount"));
+                if (comparison.get("output") instanceof String) {
+                    result.put("output", comparison.get("output"));
+                } else {
+                    result.put("differences", comparison.get("differences"));
+                }
+            }
+        } catch (Exception e) {
+            result.put("status", "error");
+            result.put("error", e.getMessage());
+        }
+        result.put("elapsedMs", (System.nanoTime() - start) / 1_000_000);
+        return result;
+    }
+
+    // Results are written on the calling thread only, so the summary needs no locking
+    private static void write(Map<String, Object> result, Map<String, Object> summary, OutputStream out)
+            throws IOException {
+        String status = (String) result.get("status");
+        String counter = "error".equals(status) ? "errors" : status;
+        summary.put(counter, (Integer) summary.get(counter) + 1);
+        out.write(mapper.writeValueAsBytes(result));
+        out.write('\n');
+        out.flush();
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -1,12 +1,16 @@
 package com.konvert.util;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.util.MinimalPrettyPrinter;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.*;
 import com.konvert.FormatConverter;
 
+import java.io.IOException;
+import java.io.StringWriter;
 import java.util.*;
-import java.util.regex.Pattern;
 
 public class DataTransformUtil {
     
@@ -22,6 +26,7 @@ public class DataTransformUtil {
         
         try {
             ObjectNode merged = mapper.createObjectNode();
+            MergeEngine engine = new MergeEngine(MergeEngine.ArrayStrategy.REPLACE, null, false);
             
             for (String jsonStr : jsonStrings) {
                 if (jsonStr == null || jsonStr.trim().isEmpty()) {
@@ -30,7 +35,7 @@ public class DataTransformUtil {
                 
                 JsonNode node = mapper.readTree(jsonStr);
                 if (node.isObject()) {
-                    mergeNodes(merged, (ObjectNode) node);
+                    engine.mergeInto(merged, node);
                 } else if (node.isArray()) {
                     // If first item, create array; otherwise append
                     if (!merged.has("items")) {
@@ -47,23 +52,6 @@ public class DataTransformUtil {
         }
     }
     
-    private static void mergeNodes(ObjectNode target, ObjectNode source) {
-        Iterator<Map.Entry<String, JsonNode>> fields = source.fields();
-        while (fields.hasNext()) {
-            Map.Entry<String, JsonNode> entry = fields.next();
-            String key = entry.getKey();
-            JsonNode value = entry.getValue();
-            
-            if (target.has(key) && target.get(key).isObject() && value.isObject()) {
-                // Recursively merge nested objects
-                mergeNodes((ObjectNode) target.get(key), (ObjectNode) value);
-            } else {
-                // Overwrite or add new field
-                target.set(key, value);
-            }
-        }
-    }
-    
     /**
      * Flatten nested structure (supports JSON, YAML, XML, etc.)
      */
@@ -85,6 +73,11 @@ public class DataTransformUtil {
         }
         
         try {
+            // Records flatten straight from the parser into one row each
+            if (StreamingFlattener.canFlatten(inputFormat, outputFormat)) {
+                return StreamingFlattener.flattenToString(input, inputFormat, outputFormat, separator);
+            }
+            
             // Convert input to JSON first (intermediate format)
             String jsonString;
             if (!"json".equalsIgnoreCase(inputFormat)) {
@@ -95,17 +88,7 @@ public class DataTransformUtil {
             
             // Flatten the JSON structure
             JsonNode root = mapper.readTree(jsonString);
-            Map<String, Object> flattened = new LinkedHashMap<>();
-            
-            if (root.isObject()) {
-                flattenObject("", (ObjectNode) root, flattened, separator);
-            } else if (root.isArray()) {
-                flattenArray("", (ArrayNode) root, flattened, separator);
-            } else {
-                flattened.put("value", root.asText());
-            }
-            
-            String flattenedJson = mapper.writerWithDefaultPrettyPrinter().writeValueAsString(flattened);
+            String flattenedJson = mapper.writerWithDefaultPrettyPrinter().writeValueAsString(flatten(root, separator));
             
             // Convert to output format if needed
             if (!"json".equalsIgnoreCase(outputFormat)) {
@@ -118,6 +101,21 @@ public class DataTransformUtil {
         }
     }
     
+    /**
+     * Flatten a parsed tree into a single object keyed by path
+     */
+    static JsonNode flatten(JsonNode root, String separator) {
+        Map<String, Object> flattened = new LinkedHashMap<>();
+        if (root.isObject()) {
+            flattenObject("", (ObjectNode) root, flattened, separator);
+        } else if (root.isArray()) {
+            flattenArray("", (ArrayNode) root, flattened, separator);
+        } else {
+            flattened.put("value", root.asText());
+        }
+        return mapper.valueToTree(flattened);
+    }
+    
     private static void flattenObject(String prefix, ObjectNode node, Map<String, Object> result, String separator) {
         Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
         while (fields.hasNext()) {
@@ -190,28 +188,7 @@ public class DataTransformUtil {
             
             // Unflatten the JSON structure
             JsonNode root = mapper.readTree(jsonString);
-            if (!root.isObject()) {
-                throw new IllegalArgumentException("Input must be a flattened object structure");
-            }
-            
-            ObjectNode result = mapper.createObjectNode();
-            ObjectNode current = (ObjectNode) root;
-            
-            Iterator<Map.Entry<String, JsonNode>> fields = current.fields();
-            while (fields.hasNext()) {
-                Map.Entry<String, JsonNode> entry = fields.next();
-                String flatKey = entry.getKey();
-                JsonNode value = entry.getValue();
-                
-                // Handle array indices like "items[0]"
-                if (flatKey.contains("[")) {
-                    unflattenWithArray(flatKey, value, result, separator);
-                } else {
-                    unflattenKey(flatKey, value, result, separator);
-                }
-            }
-            
-            String unflattenedJson = mapper.writerWithDefaultPrettyPrinter().writeValueAsString(result);
+            String unflattenedJson = mapper.writerWithDefaultPrettyPrinter().writeValueAsString(unflatten(root, separator));
             
             // Convert to output format if needed
             if (!"json".equalsIgnoreCase(outputFormat)) {
@@ -219,52 +196,18 @@ public class DataTransformUtil {
             }
             
             return unflattenedJson;
+        } catch (IllegalArgumentException e) {
+            throw e;
         } catch (Exception e) {
             throw new RuntimeException("Data unflattening failed: " + e.getMessage(), e);
         }
     }
     
-    private static void unflattenKey(String flatKey, JsonNode value, ObjectNode result, String separator) {
-        String[] parts = flatKey.split(Pattern.quote(separator));
-        ObjectNode current = result;
-        
-        for (int i = 0; i < parts.length - 1; i++) {
-            String part = parts[i];
-            if (!current.has(part) || !current.get(part).isObject()) {
-                current.set(part, mapper.createObjectNode());
-            }
-            current = (ObjectNode) current.get(part);
-        }
-        
-        current.set(parts[parts.length - 1], value);
-    }
-    
-    private static void unflattenWithArray(String flatKey, JsonNode value, ObjectNode result, String separator) {
-        // Handle keys like "items[0].name"
-        Pattern arrayPattern = Pattern.compile("(.+?)\\[(\\d+)\\](.*)");
-        java.util.regex.Matcher matcher = arrayPattern.matcher(flatKey);
-        
-        if (matcher.matches()) {
-            String baseKey = matcher.group(1);
-            int index = Integer.parseInt(matcher.group(2));
-            String remainder = matcher.group(3);
-            
-            if (!result.has(baseKey) || !result.get(baseKey).isArray()) {
-                result.set(baseKey, mapper.createArrayNode());
-            }
-            
-            ArrayNode array = (ArrayNode) result.get(baseKey);
-            while (array.size() <= index) {
-                array.add(mapper.createObjectNode());
-            }
-            
-            if (remainder.isEmpty()) {
-                array.set(index, value);
-            } else {
-                String newKey = remainder.startsWith(".") ? remainder.substring(1) : remainder;
-                unflattenKey(newKey, value, (ObjectNode) array.get(index), separator);
-            }
-        }
+    /**
+     * Rebuild nested structure from an object keyed by flattened paths
+     */
+    static JsonNode unflatten(JsonNode root, String separator) {
+        return PathUnflattener.unflatten(root, separator);
     }
     
     /**
@@ -287,50 +230,17 @@ public class DataTransformUtil {
                 throw new IllegalArgumentException("Rename map must be a JSON object");
             }
             
-            JsonNode result = renameKeysRecursive(root, renameMap);
+            // Keys may be path rules such as "user.*.name"; matching keys are renamed in place
+            JsonNode result = KeyPathMatcher.forRename(renameMap).rename(root);
             return mapper.writerWithDefaultPrettyPrinter().writeValueAsString(result);
         } catch (Exception e) {
             throw new RuntimeException("Key renaming failed: " + e.getMessage(), e);
         }
     }
     
-    private static JsonNode renameKeysRecursive(JsonNode node, JsonNode renameMap) {
-        if (node.isObject()) {
-            ObjectNode result = mapper.createObjectNode();
-            ObjectNode obj = (ObjectNode) node;
-            ObjectNode map = (ObjectNode) renameMap;
-            
-            Iterator<Map.Entry<String, JsonNode>> fields = obj.fields();
-            while (fields.hasNext()) {
-                Map.Entry<String, JsonNode> entry = fields.next();
-                String oldKey = entry.getKey();
-                JsonNode value = entry.getValue();
-                
-                // Check if this key should be renamed
-                String newKey = map.has(oldKey) ? map.get(oldKey).asText() : oldKey;
-                
-                // Recursively process nested objects
-                if (value.isObject() || value.isArray()) {
-                    result.set(newKey, renameKeysRecursive(value, renameMap));
-                } else {
-                    result.set(newKey, value);
-                }
-            }
-            return result;
-        } else if (node.isArray()) {
-            ArrayNode result = mapper.createArrayNode();
-            ArrayNode array = (ArrayNode) node;
-            
-            for (JsonNode item : array) {
-                result.add(renameKeysRecursive(item, renameMap));
-            }
-            return result;
-        }
-        return node;
-    }
-    
     /**
-     * Transform values in JSON
+     * Transform values in JSON with a chain such as "trim|lowercase" or a JSON plan of path-scoped
+     * rules; see {@link ValueTransforms}
      */
     public static String transformValues(String jsonString, String transformation) {
         if (jsonString == null || jsonString.trim().isEmpty()) {
@@ -341,66 +251,15 @@ public class DataTransformUtil {
             throw new IllegalArgumentException("Transformation cannot be empty");
         }
         
+        ValueTransforms plan = ValueTransforms.compile(transformation);
         try {
-            JsonNode root = mapper.readTree(jsonString);
-            JsonNode result = transformValuesRecursive(root, transformation);
+            JsonNode result = plan.apply(mapper.readTree(jsonString));
             return mapper.writerWithDefaultPrettyPrinter().writeValueAsString(result);
         } catch (Exception e) {
             throw new RuntimeException("Value transformation failed: " + e.getMessage(), e);
         }
     }
     
-    private static JsonNode transformValuesRecursive(JsonNode node, String transformation) {
-        if (node.isObject()) {
-            ObjectNode result = mapper.createObjectNode();
-            ObjectNode obj = (ObjectNode) node;
-            
-            Iterator<Map.Entry<String, JsonNode>> fields = obj.fields();
-            while (fields.hasNext()) {
-                Map.Entry<String, JsonNode> entry = fields.next();
-                String key = entry.getKey();
-                JsonNode value = entry.getValue();
-                
-                if (value.isObject() || value.isArray()) {
-                    result.set(key, transformValuesRecursive(value, transformation));
-                } else {
-                    result.set(key, transformValue(value, transformation));
-                }
-            }
-            return result;
-        } else if (node.isArray()) {
-            ArrayNode result = mapper.createArrayNode();
-            ArrayNode array = (ArrayNode) node;
-            
-            for (JsonNode item : array) {
-                if (item.isObject() || item.isArray()) {
-                    result.add(transformValuesRecursive(item, transformation));
-                } else {
-                    result.add(transformValue(item, transformation));
-                }
-            }
-            return result;
-        }
-        return transformValue(node, transformation);
-    }
-    
-    private static JsonNode transformValue(JsonNode value, String transformation) {
-        String strValue = value.asText();
-        
-        switch (transformation.toLowerCase()) {
-            case "uppercase":
-                return new TextNode(strValue.toUpperCase());
-            case "lowercase":
-                return new TextNode(strValue.toLowerCase());
-            case "trim":
-                return new TextNode(strValue.trim());
-            case "reverse":
-                return new TextNode(new StringBuilder(strValue).reverse().toString());
-            default:
-                return value;
-        }
-    }
-    
     /**
      * Filter/Remove fields from JSON or YAML (supports multiple formats)
      */
@@ -422,6 +281,15 @@ public class DataTransformUtil {
         }
         
         try {
+            // Field names or path rules such as "a.*.secret" and "**.password"
+            KeyPathMatcher matcher = KeyPathMatcher.forFilter(parseFieldSet(fieldsToRemove));
+            
+            // JSON to JSON and NDJSON to NDJSON are filtered token by token without building a tree
+            if (inputFormat.equalsIgnoreCase(outputFormat)
+                    && ("json".equalsIgnoreCase(inputFormat) || "ndjson".equalsIgnoreCase(inputFormat))) {
+                return filterStreaming(input, "ndjson".equalsIgnoreCase(inputFormat), matcher);
+            }
+            
             // Convert input to JSON first (intermediate format)
             String jsonString;
             if (!"json".equalsIgnoreCase(inputFormat)) {
@@ -430,25 +298,9 @@ public class DataTransformUtil {
                 jsonString = input;
             }
             
-            // Parse fields to remove (comma-separated or JSON array)
-            Set<String> fieldsSet = new HashSet<>();
-            if (fieldsToRemove.trim().startsWith("[")) {
-                JsonNode fieldsArray = mapper.readTree(fieldsToRemove);
-                if (fieldsArray.isArray()) {
-                    for (JsonNode field : fieldsArray) {
-                        fieldsSet.add(field.asText());
-                    }
-                }
-            } else {
-                String[] fields = fieldsToRemove.split(",");
-                for (String field : fields) {
-                    fieldsSet.add(field.trim());
-                }
-            }
-            
-            // Filter the JSON structure
+            // Filter the JSON structure in place
             JsonNode root = mapper.readTree(jsonString);
-            JsonNode result = filterFieldsRecursive(root, fieldsSet);
+            JsonNode result = matcher.remove(root);
             String filteredJson = mapper.writerWithDefaultPrettyPrinter().writeValueAsString(result);
             
             // Convert to output format if needed
@@ -462,6 +314,24 @@ public class DataTransformUtil {
         }
     }
     
+    // Copy the input token by token without the removed keys; pretty JSON matches the tree path's output
+    private static String filterStreaming(String input, boolean ndjson, KeyPathMatcher matcher) throws IOException {
+        StringWriter out = new StringWriter(input.length());
+        try (JsonParser parser = mapper.getFactory().createParser(input);
+             JsonGenerator generator = mapper.getFactory().createGenerator(out)) {
+            if (ndjson) {
+                generator.setPrettyPrinter(new MinimalPrettyPrinter("\n"));
+            } else {
+                generator.useDefaultPrettyPrinter();
+            }
+            matcher.remove(parser, generator);
+        }
+        if (ndjson && out.getBuffer().length() > 0) {
+            out.write('\n');
+        }
+        return out.toString();
+    }
+    
     /**
      * Filter/Remove fields from JSON (backward compatibility method)
      */
@@ -469,36 +339,25 @@ public class DataTransformUtil {
         return filterFields(jsonString, "json", "json", fieldsToRemove);
     }
     
-    private static JsonNode filterFieldsRecursive(JsonNode node, Set<String> fieldsToRemove) {
-        if (node.isObject()) {
-            ObjectNode result = mapper.createObjectNode();
-            ObjectNode obj = (ObjectNode) node;
-            
-            Iterator<Map.Entry<String, JsonNode>> fields = obj.fields();
-            while (fields.hasNext()) {
-                Map.Entry<String, JsonNode> entry = fields.next();
-                String key = entry.getKey();
-                JsonNode value = entry.getValue();
-                
-                if (!fieldsToRemove.contains(key)) {
-                    if (value.isObject() || value.isArray()) {
-                        result.set(key, filterFieldsRecursive(value, fieldsToRemove));
-                    } else {
-                        result.set(key, value);
-                    }
+    /**
+     * Parse fields to remove (comma-separated or JSON array)
+     */
+    static Set<String> parseFieldSet(String fieldsToRemove) throws IOException {
+        Set<String> fieldsSet = new HashSet<>();
+        if (fieldsToRemove.trim().startsWith("[")) {
+            JsonNode fieldsArray = mapper.readTree(fieldsToRemove);
+            if (fieldsArray.isArray()) {
+                for (JsonNode field : fieldsArray) {
+                    fieldsSet.add(field.asText());
                 }
             }
-            return result;
-        } else if (node.isArray()) {
-            ArrayNode result = mapper.createArrayNode();
-            ArrayNode array = (ArrayNode) node;
-            
-            for (JsonNode item : array) {
-                result.add(filterFieldsRecursive(item, fieldsToRemove));
+        } else {
+            String[] fields = fieldsToRemove.split(",");
+            for (String field : fields) {
+                fieldsSet.add(field.trim());
             }
-            return result;
         }
-        return node;
+        return fieldsSet;
     }
     
     /**
@@ -530,15 +389,13 @@ public class DataTransformUtil {
                 jsonString = input;
             }
             
-            // Parse type map
-            JsonNode typeMap = mapper.readTree(typeMapJson);
-            if (!typeMap.isObject()) {
-                throw new IllegalArgumentException("Type map must be a JSON object");
-            }
+            // Parse type map; "auto" infers column types instead
+            TypeCoercer coercer = TypeCoercer.compile("auto".equalsIgnoreCase(typeMapJson.trim())
+                    ? TextNode.valueOf("auto") : mapper.readTree(typeMapJson));
             
-            // Convert types in the JSON structure
+            // Convert types in the JSON structure in place
             JsonNode root = mapper.readTree(jsonString);
-            JsonNode result = convertTypesRecursive(root, typeMap);
+            JsonNode result = coercer.apply(root);
             String convertedJson = mapper.writerWithDefaultPrettyPrinter().writeValueAsString(result);
             
             // Convert to output format if needed
@@ -559,76 +416,40 @@ public class DataTransformUtil {
         return convertTypes(jsonString, "json", "json", typeMapJson);
     }
     
-    private static JsonNode convertTypesRecursive(JsonNode node, JsonNode typeMap) {
-        if (node.isObject()) {
-            ObjectNode result = mapper.createObjectNode();
-            ObjectNode obj = (ObjectNode) node;
-            ObjectNode map = (ObjectNode) typeMap;
-            
-            Iterator<Map.Entry<String, JsonNode>> fields = obj.fields();
-            while (fields.hasNext()) {
-                Map.Entry<String, JsonNode> entry = fields.next();
-                String key = entry.getKey();
-                JsonNode value = entry.getValue();
-                
-                if (value.isObject() || value.isArray()) {
-                    result.set(key, convertTypesRecursive(value, typeMap));
-                } else {
-                    String targetType = map.has(key) ? map.get(key).asText() : null;
-                    result.set(key, convertValue(value, targetType));
-                }
-            }
-            return result;
-        } else if (node.isArray()) {
-            ArrayNode result = mapper.createArrayNode();
-            ArrayNode array = (ArrayNode) node;
-            
-            for (JsonNode item : array) {
-                if (item.isObject() || item.isArray()) {
-                    result.add(convertTypesRecursive(item, typeMap));
-                } else {
-                    String targetType = typeMap.has("_default") ? typeMap.get("_default").asText() : null;
-                    result.add(convertValue(item, targetType));
-                }
-            }
-            return result;
+    /**
+     * Select the values matching a JSONPath expression and return them as an array in the output format.
+     * JSON and NDJSON input are queried while streaming, other formats are parsed first.
+     */
+    public static String queryPath(String input, String inputFormat, String outputFormat, String path) {
+        if (input == null || input.trim().isEmpty()) {
+            throw new IllegalArgumentException("Input cannot be empty");
         }
-        return node;
-    }
-    
-    private static JsonNode convertValue(JsonNode value, String targetType) {
-        if (targetType == null || targetType.isEmpty()) {
-            return value;
+        
+        if (inputFormat == null || inputFormat.trim().isEmpty()) {
+            inputFormat = "json";
         }
         
-        String strValue = value.asText();
+        if (outputFormat == null || outputFormat.trim().isEmpty()) {
+            outputFormat = "json";
+        }
         
+        JsonPathQuery query = JsonPathQuery.compile(path);
         try {
-            switch (targetType.toLowerCase()) {
-                case "number":
-                case "int":
-                    if (strValue.matches("-?\\d+")) {
-                        return new IntNode(Integer.parseInt(strValue));
-                    } else if (strValue.matches("-?\\d+\\.\\d+")) {
-                        return new DoubleNode(Double.parseDouble(strValue));
-                    }
-                    break;
-                case "float":
-                case "double":
-                    return new DoubleNode(Double.parseDouble(strValue));
-                case "boolean":
-                case "bool":
-                    return BooleanNode.valueOf(Boolean.parseBoolean(strValue));
-                case "string":
-                    return new TextNode(strValue);
-                case "null":
-                    return NullNode.getInstance();
+            ArrayNode matches = mapper.createArrayNode();
+            if ("json".equalsIgnoreCase(inputFormat) || "ndjson".equalsIgnoreCase(inputFormat)) {
+                query.select(input, matches::add);
+            } else {
+                matches.addAll(query.select(TransformPipeline.read(input, inputFormat)));
             }
+            return TransformPipeline.write(matches, outputFormat);
         } catch (Exception e) {
-            // If conversion fails, return original value
+            throw new RuntimeException("JSONPath query failed: " + e.getMessage(), e);
         }
-        
-        return value;
+    }
+    
+    static JsonNode queryPath(JsonNode root, JsonPathQuery query) {
+        ArrayNode matches = mapper.createArrayNode();
+        matches.addAll(query.select(root));
+        return matches;
     }
 }
-
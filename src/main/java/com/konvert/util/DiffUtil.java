@@ -10,11 +10,21 @@ public class DiffUtil {
     
     private static final ObjectMapper jsonMapper = new ObjectMapper();
     private static final Yaml yaml = new Yaml();
+    // Formats compared line by line instead of as parsed trees
+    private static final Set<String> TEXT_FORMATS = new HashSet<>(Arrays.asList("text", "txt", "log", "csv"));
     
     /**
      * Compare two data structures and generate diff report
      */
     public static Map<String, Object> compare(String input1, String input2, String format) {
+        return compare(input1, input2, format, null);
+    }
+    
+    /**
+     * Compare two data structures, matching array elements that are objects by the given key field
+     * instead of by position when every element has a distinct value for it
+     */
+    public static Map<String, Object> compare(String input1, String input2, String format, String arrayKey) {
         Map<String, Object> result = new LinkedHashMap<>();
         List<Map<String, Object>> differences = new ArrayList<>();
         
@@ -36,12 +46,23 @@ public class DiffUtil {
         
         format = format.toLowerCase();
         
+        if (isTextFormat(format)) {
+            return compareText(input1, input2, format, null);
+        }
+        
         try {
             Object obj1 = parseInput(input1, format);
             Object obj2 = parseInput(input2, format);
             
+            if (arrayKey != null && arrayKey.trim().isEmpty()) {
+                arrayKey = null;
+            }
+            
+            // Hash every subtree once so identical regions are skipped without walking them
+            DiffContext context = new DiffContext(arrayKey, SubtreeHashes.of(obj1, obj2));
+            
             // Compare objects
-            compareObjects(obj1, obj2, "", differences);
+            compareObjects(obj1, obj2, "", context, differences);
             
             result.put("success", true);
             result.put("format", format);
@@ -57,6 +78,140 @@ public class DiffUtil {
         return result;
     }
     
+    /**
+     * Whether inputs in this format are compared as lines of text
+     */
+    public static boolean isTextFormat(String format) {
+        return format != null && TEXT_FORMATS.contains(format.trim().toLowerCase());
+    }
+    
+    /**
+     * Compare two inputs line by line, producing a unified diff with the given context lines
+     */
+    public static Map<String, Object> compareText(String input1, String input2, String format, Integer context) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        
+        if (input1 == null || input2 == null) {
+            result.put("success", false);
+            result.put("error", "Both inputs are required");
+            return result;
+        }
+        
+        try {
+            Map<String, Object> diff = TextDiff.diff(input1, input2, context);
+            result.put("success", true);
+            result.put("format", format == null ? "text" : format.toLowerCase());
+            result.put("identical", diff.get("identical"));
+            result.put("differences", new ArrayList<>());
+            result.put("differenceCount", diff.get("hunks"));
+            result.putAll(diff);
+        } catch (IllegalArgumentException e) {
+            throw e;
+        } catch (Exception e) {
+            result.put("success", false);
+            result.put("error", "Comparison failed: " + e.getMessage());
+        }
+        
+        return result;
+    }
+    
+    /**
+     * Compare two record inputs, such as CSV extracts, row by row on comma-separated key columns
+     * instead of by position. Each difference is an added, removed or changed row; changed rows list
+     * the old and new value of every changed column.
+     */
+    public static Map<String, Object> compareRecords(String input1, String input2, String format, String keys) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        
+        if (input1 == null || input1.trim().isEmpty() || input2 == null || input2.trim().isEmpty()) {
+            result.put("success", false);
+            result.put("error", "Both inputs are required");
+            return result;
+        }
+        
+        format = format == null || format.trim().isEmpty() ? "csv" : format.toLowerCase();
+        if (!RecordStreams.supports(format)) {
+            throw new IllegalArgumentException("Keyed comparison supports JSON, NDJSON and CSV records, not " + format);
+        }
+        
+        try {
+            Map<String, Object> diff = KeyedDiff.compare(input1, input2, format, keys, null);
+            result.put("success", true);
+            result.put("format", format);
+            result.put("identical", diff.get("identical"));
+            result.put("differences", diff.remove("changes"));
+            result.put("differenceCount", (Long) diff.get("added") + (Long) diff.get("removed") + (Long) diff.get("changed"));
+            result.putAll(diff);
+        } catch (IllegalArgumentException e) {
+            throw e;
+        } catch (Exception e) {
+            result.put("success", false);
+            result.put("error", "Comparison failed: " + e.getMessage());
+        }
+        
+        return result;
+    }
+    
+    /**
+     * Express the changes from the first input to the second as a patch, serialized compactly in
+     * output: an RFC 6902 JSON Patch ("json-patch", the default) whose operations replay the change
+     * in order, or an RFC 7386 JSON Merge Patch ("merge-patch"). A merge patch replaces arrays whole
+     * and reads null as a deletion, so a member set to null in the second input is removed instead.
+     */
+    public static Map<String, Object> patch(String input1, String input2, String format, String type) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        
+        if (type == null || type.trim().isEmpty()) {
+            type = "json-patch";
+        }
+        type = type.trim().toLowerCase();
+        if (!"json-patch".equals(type) && !"merge-patch".equals(type)) {
+            throw new IllegalArgumentException("Unsupported patch type: " + type + " (use json-patch or merge-patch)");
+        }
+        
+        if (input1 == null || input1.trim().isEmpty()) {
+            result.put("success", false);
+            result.put("error", "First input cannot be empty");
+            return result;
+        }
+        
+        if (input2 == null || input2.trim().isEmpty()) {
+            result.put("success", false);
+            result.put("error", "Second input cannot be empty");
+            return result;
+        }
+        
+        if (format == null || format.trim().isEmpty()) {
+            format = "json";
+        }
+        format = format.toLowerCase();
+        
+        try {
+            Object obj1 = parseInput(input1, format);
+            Object obj2 = parseInput(input2, format);
+            SubtreeHashes hashes = SubtreeHashes.of(obj1, obj2);
+            
+            result.put("success", true);
+            result.put("format", format);
+            result.put("type", type);
+            result.put("identical", hashes.same(obj1, obj2));
+            if ("merge-patch".equals(type)) {
+                result.put("output", jsonMapper.writeValueAsString(mergePatch(obj1, obj2, hashes)));
+            } else {
+                List<Map<String, Object>> operations = new ArrayList<>();
+                patchObjects(obj1, obj2, "", hashes, operations);
+                result.put("operationCount", operations.size());
+                result.put("output", jsonMapper.writeValueAsString(operations));
+            }
+            
+        } catch (Exception e) {
+            result.put("success", false);
+            result.put("error", "Patch generation failed: " + e.getMessage());
+        }
+        
+        return result;
+    }
+    
     /**
      * Parse input based on format
      */
@@ -108,7 +263,8 @@ public class DiffUtil {
      * Compare two objects recursively
      */
     @SuppressWarnings("unchecked")
-    private static void compareObjects(Object obj1, Object obj2, String path, List<Map<String, Object>> differences) {
+    private static void compareObjects(Object obj1, Object obj2, String path, DiffContext context,
+                                       List<Map<String, Object>> differences) {
         // Both null - identical
         if (obj1 == null && obj2 == null) {
             return;
@@ -120,6 +276,11 @@ public class DiffUtil {
             return;
         }
         
+        // Identical subtrees
+        if (context.hashes.same(obj1, obj2)) {
+            return;
+        }
+        
         // Different types
         if (!obj1.getClass().equals(obj2.getClass())) {
             addDifference(differences, path, obj1, obj2, "type_mismatch");
@@ -128,9 +289,9 @@ public class DiffUtil {
         
         // Compare based on type
         if (obj1 instanceof Map) {
-            compareMaps((Map<String, Object>) obj1, (Map<String, Object>) obj2, path, differences);
+            compareMaps((Map<String, Object>) obj1, (Map<String, Object>) obj2, path, context, differences);
         } else if (obj1 instanceof List) {
-            compareLists((List<Object>) obj1, (List<Object>) obj2, path, differences);
+            compareLists((List<Object>) obj1, (List<Object>) obj2, path, context, differences);
         } else {
             // Primitive values
             if (!obj1.equals(obj2)) {
@@ -143,51 +304,359 @@ public class DiffUtil {
      * Compare two maps
      */
     private static void compareMaps(Map<String, Object> map1, Map<String, Object> map2, 
-                                   String path, List<Map<String, Object>> differences) {
-        Set<String> allKeys = new HashSet<>();
-        allKeys.addAll(map1.keySet());
-        allKeys.addAll(map2.keySet());
-        
-        for (String key : allKeys) {
-            String newPath = path.isEmpty() ? key : path + "." + key;
-            Object val1 = map1.get(key);
+                                   String path, DiffContext context, List<Map<String, Object>> differences) {
+        for (Map.Entry<String, Object> entry : map1.entrySet()) {
+            String key = entry.getKey();
+            Object val1 = entry.getValue();
             Object val2 = map2.get(key);
-            
+            if (val2 == null && !map2.containsKey(key)) {
+                addDifference(differences, path.isEmpty() ? key : path + "." + key, val1, null, "removed");
+            } else if (!context.hashes.same(val1, val2)) {
+                compareObjects(val1, val2, path.isEmpty() ? key : path + "." + key, context, differences);
+            }
+        }
+        for (Map.Entry<String, Object> entry : map2.entrySet()) {
+            String key = entry.getKey();
             if (!map1.containsKey(key)) {
-                addDifference(differences, newPath, null, val2, "added");
-            } else if (!map2.containsKey(key)) {
-                addDifference(differences, newPath, val1, null, "removed");
-            } else {
-                compareObjects(val1, val2, newPath, differences);
+                addDifference(differences, path.isEmpty() ? key : path + "." + key, null, entry.getValue(), "added");
             }
         }
     }
     
     /**
-     * Compare two lists
+     * Compare two lists as sequences, so an inserted or removed element is one difference rather than
+     * a change at every later index. Changed and added elements are reported at their index in the
+     * second list, removed ones at their index in the first. An element removed in one place and
+     * added unchanged in another is reported as moved.
      */
     private static void compareLists(List<Object> list1, List<Object> list2, 
-                                     String path, List<Map<String, Object>> differences) {
-        int maxSize = Math.max(list1.size(), list2.size());
+                                     String path, DiffContext context, List<Map<String, Object>> differences) {
+        if (context.arrayKey != null && compareKeyed(list1, list2, path, context, differences)) {
+            return;
+        }
         
-        for (int i = 0; i < maxSize; i++) {
-            String newPath = path + "[" + i + "]";
-            
-            if (i >= list1.size()) {
-                addDifference(differences, newPath, null, list2.get(i), "added");
-            } else if (i >= list2.size()) {
-                addDifference(differences, newPath, list1.get(i), null, "removed");
+        // Only the range between the common prefix and suffix needs a sequence diff
+        int start = 0;
+        int end1 = list1.size();
+        int end2 = list2.size();
+        while (start < end1 && start < end2 && context.hashes.same(list1.get(start), list2.get(start))) {
+            start++;
+        }
+        while (end1 > start && end2 > start && context.hashes.same(list1.get(end1 - 1), list2.get(end2 - 1))) {
+            end1--;
+            end2--;
+        }
+        list1 = list1.subList(start, end1);
+        list2 = list2.subList(start, end2);
+        path = path + "[";
+        
+        // Equal elements share a symbol, so the sequence diff compares ints instead of trees
+        Map<Long, Integer> symbols = new HashMap<>();
+        List<Object> representatives = new ArrayList<>();
+        int[] symbols1 = symbolize(list1, context.hashes, symbols, representatives);
+        int[] symbols2 = symbolize(list2, context.hashes, symbols, representatives);
+        List<MyersDiff.Region> regions = MyersDiff.diff(symbols1, symbols2);
+        
+        // A changed element on the new side that equals one on the old side was moved, not edited
+        Map<Integer, ArrayDeque<Integer>> removed = new HashMap<>();
+        for (MyersDiff.Region region : regions) {
+            for (int i = region.aStart; i < region.aEnd; i++) {
+                removed.computeIfAbsent(symbols1[i], symbol -> new ArrayDeque<>()).add(i);
+            }
+        }
+        int[] movedFrom = new int[list2.size()];
+        boolean[] movedAway = new boolean[list1.size()];
+        for (MyersDiff.Region region : regions) {
+            for (int j = region.bStart; j < region.bEnd; j++) {
+                ArrayDeque<Integer> candidates = removed.get(symbols2[j]);
+                movedFrom[j] = candidates == null || candidates.isEmpty() ? -1 : candidates.poll();
+                if (movedFrom[j] >= 0) {
+                    movedAway[movedFrom[j]] = true;
+                }
+            }
+        }
+        
+        for (MyersDiff.Region region : regions) {
+            int i = region.aStart;
+            for (int j = region.bStart; j < region.bEnd; j++) {
+                if (movedFrom[j] >= 0) {
+                    // Reordering around an element can leave it at its old index, where it is unchanged
+                    if (movedFrom[j] != j) {
+                        addMove(differences, path, start + movedFrom[j], start + j);
+                    }
+                    continue;
+                }
+                while (i < region.aEnd && movedAway[i]) {
+                    i++;
+                }
+                if (i < region.aEnd) {
+                    // Elements replaced one for one are compared in depth
+                    compareObjects(list1.get(i), list2.get(j), path + (start + j) + "]", context, differences);
+                    i++;
+                } else {
+                    addDifference(differences, path + (start + j) + "]", null, list2.get(j), "added");
+                }
+            }
+            for (; i < region.aEnd; i++) {
+                if (!movedAway[i]) {
+                    addDifference(differences, path + (start + i) + "]", list1.get(i), null, "removed");
+                }
+            }
+        }
+    }
+    
+    // A value whose hash collides with a different one gets a symbol of its own
+    private static int[] symbolize(List<Object> list, SubtreeHashes hashes, Map<Long, Integer> symbols,
+                                   List<Object> representatives) {
+        int[] result = new int[list.size()];
+        for (int i = 0; i < result.length; i++) {
+            Object element = list.get(i);
+            long hash = hashes.hash(element);
+            Integer symbol = symbols.get(hash);
+            if (symbol == null || !hashes.same(representatives.get(symbol), element)) {
+                symbol = representatives.size();
+                representatives.add(element);
+                symbols.putIfAbsent(hash, symbol);
+            }
+            result[i] = symbol;
+        }
+        return result;
+    }
+    
+    /**
+     * Match object elements by their key value. Returns false, comparing nothing, unless every element
+     * of both lists is an object with a distinct value for the key.
+     */
+    @SuppressWarnings("unchecked")
+    private static boolean compareKeyed(List<Object> list1, List<Object> list2, String path, DiffContext context,
+                                        List<Map<String, Object>> differences) {
+        String arrayKey = context.arrayKey;
+        Map<Object, Integer> index1 = keyIndex(list1, arrayKey);
+        Map<Object, Integer> index2 = index1 == null ? null : keyIndex(list2, arrayKey);
+        if (index2 == null) {
+            return false;
+        }
+        
+        // Old positions of the matched elements, in new order
+        int[] matched = new int[list2.size()];
+        int[] matchedAt = new int[list2.size()];
+        int count = 0;
+        for (int j = 0; j < list2.size(); j++) {
+            Object element = list2.get(j);
+            Integer i = index1.get(((Map<String, Object>) element).get(arrayKey));
+            if (i == null) {
+                addDifference(differences, path + "[" + j + "]", null, element, "added");
+            } else {
+                compareObjects(list1.get(i), element, path + "[" + j + "]", context, differences);
+                matched[count] = i;
+                matchedAt[count++] = j;
+            }
+        }
+        for (int i = 0; i < list1.size(); i++) {
+            Object element = list1.get(i);
+            if (!index2.containsKey(((Map<String, Object>) element).get(arrayKey))) {
+                addDifference(differences, path + "[" + i + "]", element, null, "removed");
+            }
+        }
+        
+        // Elements outside the longest run kept in order are the ones that moved
+        boolean[] inOrder = longestIncreasing(matched, count);
+        for (int c = 0; c < count; c++) {
+            if (!inOrder[c]) {
+                addMove(differences, path + "[", matched[c], matchedAt[c]);
+            }
+        }
+        return true;
+    }
+    
+    // The path ends with the opening bracket of the index
+    private static void addMove(List<Map<String, Object>> differences, String path, int from, int to) {
+        Map<String, Object> diff = addDifference(differences, path + to + "]", null, null, "moved");
+        diff.put("from", path + from + "]");
+        diff.put("description", "Moved from index " + from + " to " + to);
+    }
+    
+    // Key value to position, or null when an element is not an object or a key is missing or repeated
+    @SuppressWarnings("unchecked")
+    private static Map<Object, Integer> keyIndex(List<Object> list, String arrayKey) {
+        Map<Object, Integer> index = new HashMap<>();
+        for (int i = 0; i < list.size(); i++) {
+            Object element = list.get(i);
+            if (!(element instanceof Map)) {
+                return null;
+            }
+            Object key = ((Map<String, Object>) element).get(arrayKey);
+            if (key == null || index.put(key, i) != null) {
+                return null;
+            }
+        }
+        return index;
+    }
+    
+    // Marks one longest strictly increasing subsequence of values[0, count), in O(n log n)
+    private static boolean[] longestIncreasing(int[] values, int count) {
+        int[] tails = new int[count];
+        int[] previous = new int[count];
+        int length = 0;
+        for (int c = 0; c < count; c++) {
+            int low = 0;
+            int high = length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (values[tails[mid]] < values[c]) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            previous[c] = low > 0 ? tails[low - 1] : -1;
+            tails[low] = c;
+            if (low == length) {
+                length++;
+            }
+        }
+        boolean[] result = new boolean[count];
+        for (int c = length > 0 ? tails[length - 1] : -1; c >= 0; c = previous[c]) {
+            result[c] = true;
+        }
+        return result;
+    }
+    
+    /**
+     * Append the JSON Patch operations that turn obj1 into obj2, with pointer as the path of both
+     */
+    @SuppressWarnings("unchecked")
+    private static void patchObjects(Object obj1, Object obj2, String pointer, SubtreeHashes hashes,
+                                     List<Map<String, Object>> operations) {
+        if (hashes.same(obj1, obj2)) {
+            return;
+        }
+        if (obj1 instanceof Map && obj2 instanceof Map) {
+            patchMaps((Map<Object, Object>) obj1, (Map<Object, Object>) obj2, pointer, hashes, operations);
+        } else if (obj1 instanceof List && obj2 instanceof List) {
+            patchLists((List<Object>) obj1, (List<Object>) obj2, pointer, hashes, operations);
+        } else {
+            addOperation(operations, "replace", pointer, obj2);
+        }
+    }
+    
+    private static void patchMaps(Map<Object, Object> map1, Map<Object, Object> map2, String pointer,
+                                  SubtreeHashes hashes, List<Map<String, Object>> operations) {
+        for (Map.Entry<Object, Object> entry : map1.entrySet()) {
+            Object key = entry.getKey();
+            String child = pointer + "/" + JsonPatchUtil.escapeToken(String.valueOf(key));
+            Object val2 = map2.get(key);
+            if (val2 == null && !map2.containsKey(key)) {
+                addOperation(operations, "remove", child, null);
             } else {
-                compareObjects(list1.get(i), list2.get(i), newPath, differences);
+                patchObjects(entry.getValue(), val2, child, hashes, operations);
+            }
+        }
+        for (Map.Entry<Object, Object> entry : map2.entrySet()) {
+            if (!map1.containsKey(entry.getKey())) {
+                addOperation(operations, "add", pointer + "/" + JsonPatchUtil.escapeToken(String.valueOf(entry.getKey())),
+                        entry.getValue());
+            }
+        }
+    }
+    
+    /**
+     * Patch a list region by region from the end, so every operation can use the old index: elements
+     * before the region have not moved yet, and those after it are already in their final place.
+     * Elements replaced one for one are patched in depth, the rest are removed or inserted.
+     */
+    private static void patchLists(List<Object> list1, List<Object> list2, String pointer, SubtreeHashes hashes,
+                                   List<Map<String, Object>> operations) {
+        int start = 0;
+        int end1 = list1.size();
+        int end2 = list2.size();
+        while (start < end1 && start < end2 && hashes.same(list1.get(start), list2.get(start))) {
+            start++;
+        }
+        while (end1 > start && end2 > start && hashes.same(list1.get(end1 - 1), list2.get(end2 - 1))) {
+            end1--;
+            end2--;
+        }
+        list1 = list1.subList(start, end1);
+        list2 = list2.subList(start, end2);
+        
+        Map<Long, Integer> symbols = new HashMap<>();
+        List<Object> representatives = new ArrayList<>();
+        List<MyersDiff.Region> regions = MyersDiff.diff(symbolize(list1, hashes, symbols, representatives),
+            symbolize(list2, hashes, symbols, representatives));
+        for (int r = regions.size() - 1; r >= 0; r--) {
+            MyersDiff.Region region = regions.get(r);
+            int paired = Math.min(region.aEnd - region.aStart, region.bEnd - region.bStart);
+            int at = start + region.aStart;
+            for (int p = 0; p < paired; p++) {
+                patchObjects(list1.get(region.aStart + p), list2.get(region.bStart + p), pointer + "/" + (at + p),
+                        hashes, operations);
+            }
+            for (int i = region.aStart + paired; i < region.aEnd; i++) {
+                addOperation(operations, "remove", pointer + "/" + (at + paired), null);
             }
+            for (int j = region.bStart + paired; j < region.bEnd; j++) {
+                addOperation(operations, "add", pointer + "/" + (at + j - region.bStart), list2.get(j));
+            }
+        }
+    }
+    
+    private static void addOperation(List<Map<String, Object>> operations, String op, String pointer, Object value) {
+        Map<String, Object> operation = new LinkedHashMap<>();
+        operation.put("op", op);
+        operation.put("path", pointer);
+        if (!"remove".equals(op)) {
+            operation.put("value", value);
+        }
+        operations.add(operation);
+    }
+    
+    /**
+     * The merge patch from obj1 to obj2: objects are patched member by member, anything else is
+     * replaced by the new value
+     */
+    @SuppressWarnings("unchecked")
+    private static Object mergePatch(Object obj1, Object obj2, SubtreeHashes hashes) {
+        if (!(obj1 instanceof Map) || !(obj2 instanceof Map)) {
+            return obj2;
+        }
+        Map<Object, Object> map1 = (Map<Object, Object>) obj1;
+        Map<Object, Object> map2 = (Map<Object, Object>) obj2;
+        Map<Object, Object> patch = new LinkedHashMap<>();
+        for (Object key : map1.keySet()) {
+            if (!map2.containsKey(key)) {
+                patch.put(key, null);
+            }
+        }
+        for (Map.Entry<Object, Object> entry : map2.entrySet()) {
+            Object key = entry.getKey();
+            if (!map1.containsKey(key)) {
+                patch.put(key, entry.getValue());
+            } else if (!hashes.same(map1.get(key), entry.getValue())) {
+                patch.put(key, mergePatch(map1.get(key), entry.getValue(), hashes));
+            }
+        }
+        return patch;
+    }
+    
+    /**
+     * Settings and subtree hashes shared by one comparison
+     */
+    private static final class DiffContext {
+        final String arrayKey;
+        final SubtreeHashes hashes;
+        
+        DiffContext(String arrayKey, SubtreeHashes hashes) {
+            this.arrayKey = arrayKey;
+            this.hashes = hashes;
         }
     }
     
     /**
      * Add a difference to the list
      */
-    private static void addDifference(List<Map<String, Object>> differences, String path, 
-                                     Object value1, Object value2, String type) {
+    private static Map<String, Object> addDifference(List<Map<String, Object>> differences, String path, 
+                                                    Object value1, Object value2, String type) {
         Map<String, Object> diff = new LinkedHashMap<>();
         diff.put("path", path);
         diff.put("type", type);
@@ -195,6 +664,7 @@ public class DiffUtil {
         diff.put("value2", value2);
         diff.put("description", getDifferenceDescription(type, path, value1, value2));
         differences.add(diff);
+        return diff;
     }
     
     /**
@@ -256,7 +726,11 @@ public class DiffUtil {
         @SuppressWarnings("unchecked")
         List<Map<String, Object>> differences = (List<Map<String, Object>>) comparisonResult.get("differences");
         
-        if (differences == null || differences.isEmpty()) {
+        if (comparisonResult.get("output") instanceof String) {
+            // Line diffs carry their hunks as a unified diff
+            String output = (String) comparisonResult.get("output");
+            report.append(output.isEmpty() ? "✅ Files are identical. No differences found.\n" : output);
+        } else if (differences == null || differences.isEmpty()) {
             report.append("✅ Files are identical. No differences found.\n");
         } else {
             report.append("=== Differences ===\n\n");
@@ -0,0 +1,759 @@
+package com.konvert.util;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.util.MinimalPrettyPrinter;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.DoubleNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.LongNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Sorts, deduplicates and groups record streams with bounded memory. Records are buffered up to a
+ * memory budget, sorted, and spilled to temporary NDJSON runs, which are then merged k ways with a
+ * priority queue; more runs than the merge fan-in are first merged into longer runs. Distinct and
+ * group-by work on the merged stream, where equal keys are adjacent, so only one group is ever held.
+ * The sort is stable: records with equal keys keep their input order.
+ */
+public final class ExternalSort {
+
+    public enum Operation {
+        SORT, DISTINCT, GROUP_BY;
+
+        /**
+         * Parse sort, distinct or group-by (also groupBy, group_by)
+         */
+        public static Operation fromString(String name) {
+            if (name == null || name.trim().isEmpty()) {
+                throw new IllegalArgumentException("Operation is required: sort, distinct or group-by");
+            }
+            switch (name.trim().toLowerCase(Locale.ROOT).replace("-", "").replace("_", "")) {
+                case "sort":
+                    return SORT;
+                case "distinct":
+                case "dedupe":
+                    return DISTINCT;
+                case "groupby":
+                case "group":
+                    return GROUP_BY;
+                default:
+                    throw new IllegalArgumentException("Unknown record operation: " + name
+                            + ". Use sort, distinct or group-by");
+            }
+        }
+    }
+
+    // Records held in memory before a run is spilled, by estimated heap size
+    static final long DEFAULT_RUN_BYTES = 64L * 1024 * 1024;
+    // Smallest run a caller may ask for; smaller runs only add temp files and merge passes
+    static final int MIN_RUN_RECORDS = 1000;
+    // Runs merged at once; more runs are merged in several passes
+    static final int MERGE_FAN_IN = 64;
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+    private static final JsonNodeFactory nodes = JsonNodeFactory.instance;
+
+    private final Operation operation;
+    private final List<SortKey> keys;
+    private final List<Aggregate> aggregates;
+    private long runBytes = DEFAULT_RUN_BYTES;
+    private int runRecords = Integer.MAX_VALUE;
+
+    private long records;
+    private long written;
+    private int runs;
+    private int passes;
+    private final List<Path> files = new ArrayList<>();
+
+    /**
+     * An operation over keys such as {@code region,-amount} or {@code amount:desc}; dotted keys reach
+     * into nested objects. Distinct without keys compares whole records. Aggregates apply to
+     * group-by; see {@link #parseAggregates(JsonNode)}.
+     */
+    public ExternalSort(Operation operation, String keys, JsonNode aggregates) {
+        this.operation = operation;
+        this.keys = SortKey.parse(keys);
+        if (this.keys.isEmpty() && operation != Operation.DISTINCT) {
+            throw new IllegalArgumentException("At least one key is required for "
+                    + operation.name().toLowerCase(Locale.ROOT).replace('_', '-'));
+        }
+        this.aggregates = operation == Operation.GROUP_BY ? parseAggregates(aggregates) : List.of();
+    }
+
+    /**
+     * Cap the records held before a run is spilled, by estimated bytes and by count
+     */
+    public ExternalSort limitRuns(long bytes, int count) {
+        if (bytes <= 0 || count <= 0) {
+            throw new IllegalArgumentException("Run limits must be positive");
+        }
+        this.runBytes = bytes;
+        this.runRecords = count;
+        return this;
+    }
+
+    /**
+     * Run an operation over records given as text and return the output with statistics. Keys may be
+     * a comma-separated string or a list, aggregates a string, list or object. A run buffer, when given,
+     * holds at least {@value #MIN_RUN_RECORDS} records.
+     */
+    public static Map<String, Object> run(String input, String inputFormat, String outputFormat, String operation,
+                                          Object keys, Object aggregates, Integer bufferRecords) throws IOException {
+        if (input == null || input.trim().isEmpty()) {
+            throw new IllegalArgumentException("Input cannot be empty");
+        }
+        if (inputFormat == null || inputFormat.trim().isEmpty()) {
+            inputFormat = "json";
+        }
+        if (outputFormat == null || outputFormat.trim().isEmpty()) {
+            outputFormat = inputFormat;
+        }
+        String keyList = keys instanceof List ? String.join(",", ((List<?>) keys).stream().map(String::valueOf).toList())
+                : keys == null ? null : keys.toString();
+        ExternalSort sort = new ExternalSort(Operation.fromString(operation), keyList,
+                aggregates == null ? null : mapper.valueToTree(aggregates));
+        if (bufferRecords != null) {
+            if (bufferRecords < MIN_RUN_RECORDS) {
+                throw new IllegalArgumentException("bufferRecords must be at least " + MIN_RUN_RECORDS);
+            }
+            sort.limitRuns(DEFAULT_RUN_BYTES, bufferRecords);
+        }
+        StringWriter out = new StringWriter(input.length());
+        Map<String, Object> stats = sort.run(RecordStreams.reader(input, inputFormat), out, outputFormat);
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("output", out.toString());
+        result.putAll(stats);
+        return result;
+    }
+
+    /**
+     * Read records from the input, write the result to the output and return record, run and
+     * merge pass counts. Temporary runs are removed before returning.
+     */
+    public Map<String, Object> run(Reader in, String inputFormat, Writer out, String outputFormat) throws IOException {
+        return run(RecordStreams.reader(in, inputFormat), out, outputFormat);
+    }
+
+    private Map<String, Object> run(RecordStreams.RecordReader records, Writer out, String outputFormat) throws IOException {
+        long start = System.nanoTime();
+        RecordStreams.RecordWriter writer = RecordStreams.writer(out, outputFormat);
+        try (RecordStreams.RecordReader reader = records) {
+            try (Cursor sorted = sort(reader)) {
+                emit(sorted, writer);
+            }
+            writer.close();
+        } finally {
+            for (Path file : files) {
+                Files.deleteIfExists(file);
+            }
+            files.clear();
+        }
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("records", records);
+        stats.put("written", written);
+        stats.put("runs", runs);
+        stats.put("mergePasses", passes);
+        stats.put("elapsedMs", (System.nanoTime() - start) / 1_000_000);
+        return stats;
+    }
+
+    // Sorted runs merged into one cursor; a single run never touches the disk
+    private Cursor sort(Iterator<JsonNode> reader) throws IOException {
+        List<Entry> buffer = new ArrayList<>();
+        List<Path> spilled = new ArrayList<>();
+        long bytes = 0;
+        while (reader.hasNext()) {
+            JsonNode record = reader.next();
+            records++;
+            buffer.add(new Entry(keyOf(record), record));
+            bytes += estimate(record);
+            if (bytes >= runBytes || buffer.size() >= runRecords) {
+                spilled.add(spill(buffer));
+                buffer = new ArrayList<>();
+                bytes = 0;
+            }
+        }
+        buffer.sort(this::compare);
+        runs = spilled.size() + (buffer.isEmpty() ? 0 : 1);
+        if (spilled.isEmpty()) {
+            return new ListCursor(buffer);
+        }
+        while (spilled.size() + 1 > MERGE_FAN_IN) {
+            // Merge the oldest runs first so equal keys keep their input order
+            List<Path> group = new ArrayList<>(spilled.subList(0, MERGE_FAN_IN));
+            spilled.subList(0, MERGE_FAN_IN).clear();
+            spilled.add(0, write(merge(open(group))));
+            for (Path file : group) {
+                Files.deleteIfExists(file);
+                files.remove(file);
+            }
+            passes++;
+        }
+        List<Cursor> cursors = open(spilled);
+        if (!buffer.isEmpty()) {
+            cursors.add(new ListCursor(buffer));
+        }
+        passes++;
+        return merge(cursors);
+    }
+
+    private Path spill(List<Entry> buffer) throws IOException {
+        buffer.sort(this::compare);
+        return write(new ListCursor(buffer));
+    }
+
+    private Path write(Cursor cursor) throws IOException {
+        Path file = Files.createTempFile("konvertr-sort-", ".ndjson");
+        files.add(file);
+        try (cursor;
+             JsonGenerator generator = mapper.getFactory().createGenerator(
+                     Files.newBufferedWriter(file, StandardCharsets.UTF_8))) {
+            generator.setPrettyPrinter(new MinimalPrettyPrinter("\n"));
+            for (Entry entry = cursor.next(); entry != null; entry = cursor.next()) {
+                mapper.writeTree(generator, entry.record);
+            }
+        }
+        return file;
+    }
+
+    private List<Cursor> open(List<Path> runFiles) throws IOException {
+        List<Cursor> cursors = new ArrayList<>(runFiles.size());
+        try {
+            for (Path file : runFiles) {
+                cursors.add(new FileCursor(file));
+            }
+        } catch (IOException e) {
+            for (Cursor cursor : cursors) {
+                cursor.close();
+            }
+            throw e;
+        }
+        return cursors;
+    }
+
+    private Cursor merge(List<Cursor> cursors) throws IOException {
+        return cursors.size() == 1 ? cursors.get(0) : new MergeCursor(cursors);
+    }
+
+    private void emit(Cursor sorted, RecordStreams.RecordWriter writer) throws IOException {
+        Entry previous = null;
+        Group group = null;
+        for (Entry entry = sorted.next(); entry != null; entry = sorted.next()) {
+            switch (operation) {
+                case SORT:
+                    writer.write(entry.record);
+                    written++;
+                    break;
+                case DISTINCT:
+                    if (previous == null || compareKeys(previous.key, entry.key) != 0) {
+                        writer.write(entry.record);
+                        written++;
+                    }
+                    break;
+                default:
+                    if (group == null || compareKeys(group.key, entry.key) != 0) {
+                        if (group != null) {
+                            writer.write(group.finish());
+                            written++;
+                        }
+                        group = new Group(entry);
+                    }
+                    group.add(entry.record);
+            }
+            previous = entry;
+        }
+        if (group != null) {
+            writer.write(group.finish());
+            written++;
+        }
+    }
+
+    private JsonNode[] keyOf(JsonNode record) {
+        if (keys.isEmpty()) {
+            return new JsonNode[] {record};
+        }
+        JsonNode[] key = new JsonNode[keys.size()];
+        for (int i = 0; i < key.length; i++) {
+            key[i] = comparable(keys.get(i).valueIn(record));
+        }
+        return key;
+    }
+
+    private int compare(Entry a, Entry b) {
+        return compareKeys(a.key, b.key);
+    }
+
+    private int compareKeys(JsonNode[] a, JsonNode[] b) {
+        for (int i = 0; i < a.length; i++) {
+            boolean descending = !keys.isEmpty() && keys.get(i).descending;
+            int order = compareValues(a[i], b[i], descending);
+            if (order != 0) {
+                return order;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Order values booleans first, then numbers, text and containers; missing values and nulls
+     * come last in either direction
+     */
+    static int compareValues(JsonNode a, JsonNode b, boolean descending) {
+        boolean aMissing = a == null || a.isNull() || a.isMissingNode();
+        boolean bMissing = b == null || b.isNull() || b.isMissingNode();
+        if (aMissing || bMissing) {
+            return Boolean.compare(aMissing, bMissing);
+        }
+        int order = rank(a) - rank(b);
+        if (order == 0) {
+            if (a.isNumber()) {
+                order = compareNumbers(a, b);
+            } else if (a.isTextual()) {
+                order = a.textValue().compareTo(b.textValue());
+            } else if (a.isBoolean()) {
+                order = Boolean.compare(a.booleanValue(), b.booleanValue());
+            } else {
+                order = a.equals(b) ? 0 : a.toString().compareTo(b.toString());
+            }
+        }
+        return descending ? -order : order;
+    }
+
+    private static int rank(JsonNode value) {
+        if (value.isBoolean()) {
+            return 0;
+        }
+        if (value.isNumber()) {
+            return 1;
+        }
+        return value.isTextual() ? 2 : 3;
+    }
+
+    private static int compareNumbers(JsonNode a, JsonNode b) {
+        if (a.isIntegralNumber() && b.isIntegralNumber() && a.canConvertToLong() && b.canConvertToLong()) {
+            return Long.compare(a.longValue(), b.longValue());
+        }
+        if (!a.isBigDecimal() && !a.isBigInteger() && !b.isBigDecimal() && !b.isBigInteger()) {
+            return Double.compare(a.doubleValue(), b.doubleValue());
+        }
+        return a.decimalValue().compareTo(b.decimalValue());
+    }
+
+    // The value at a dotted key split into segments, or null when it is missing
+    static JsonNode valueAt(JsonNode record, String[] path) {
+        JsonNode value = record;
+        for (String segment : path) {
+            value = value.isObject() ? value.get(segment) : null;
+            if (value == null) {
+                return null;
+            }
+        }
+        return value;
+    }
+
+    // Numeric text, as every CSV value is, compares as a number; codes with leading zeros stay text
+    // and blank text, an empty CSV cell, counts as missing
+    static JsonNode comparable(JsonNode value) {
+        if (value == null || !value.isTextual()) {
+            return value;
+        }
+        String text = value.textValue();
+        if (text.isBlank()) {
+            return null;
+        }
+        int digits = text.startsWith("-") ? 1 : 0;
+        if (text.length() > digits + 1 && text.charAt(digits) == '0' && Character.isDigit(text.charAt(digits + 1))) {
+            return value;
+        }
+        return TypeCoercer.coerce(value, TypeCoercer.Type.NUMBER);
+    }
+
+    // Rough heap footprint of a tree, enough to bound a run
+    static long estimate(JsonNode node) {
+        if (node.isTextual()) {
+            return 56 + 2L * node.textValue().length();
+        }
+        if (!node.isContainerNode()) {
+            return 24;
+        }
+        long size = 64;
+        if (node.isObject()) {
+            Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                size += 48 + 2L * field.getKey().length() + estimate(field.getValue());
+            }
+        } else {
+            for (JsonNode element : node) {
+                size += 8 + estimate(element);
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Aggregates for group-by from an object mapping output names to {@code count}, {@code count:field},
+     * {@code sum:field}, {@code avg:field}, {@code min:field}, {@code max:field}, {@code first:field}
+     * or {@code last:field}, or from a comma-separated list of those, named like {@code sum_amount}.
+     * Without aggregates each group gets a count.
+     */
+    static List<Aggregate> parseAggregates(JsonNode spec) {
+        if (spec != null && spec.isTextual() && spec.asText().trim().matches("[\\[{].*")) {
+            try {
+                spec = mapper.readTree(spec.asText());
+            } catch (IOException e) {
+                throw new IllegalArgumentException("Invalid aggregates JSON: " + e.getMessage(), e);
+            }
+        }
+        List<Aggregate> result = new ArrayList<>();
+        if (spec == null || spec.isNull() || spec.isTextual() && spec.asText().trim().isEmpty()) {
+            result.add(Aggregate.parse(null, "count"));
+        } else if (spec.isObject()) {
+            Iterator<Map.Entry<String, JsonNode>> fields = spec.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                result.add(Aggregate.parse(field.getKey(), field.getValue().asText()));
+            }
+        } else if (spec.isArray()) {
+            for (JsonNode element : spec) {
+                result.add(Aggregate.parse(null, element.asText()));
+            }
+        } else {
+            for (String part : spec.asText().split(",")) {
+                if (!part.trim().isEmpty()) {
+                    result.add(Aggregate.parse(null, part));
+                }
+            }
+        }
+        return result;
+    }
+
+    private static final class SortKey {
+        final String name;
+        final String[] path;
+        final boolean descending;
+
+        SortKey(String name, boolean descending) {
+            this.name = name;
+            this.path = name.split("\\.");
+            this.descending = descending;
+        }
+
+        static List<SortKey> parse(String spec) {
+            List<SortKey> keys = new ArrayList<>();
+            if (spec == null) {
+                return keys;
+            }
+            for (String part : spec.split(",")) {
+                String key = part.trim();
+                if (key.isEmpty()) {
+                    continue;
+                }
+                boolean descending = false;
+                String lower = key.toLowerCase(Locale.ROOT);
+                if (key.startsWith("-")) {
+                    descending = true;
+                    key = key.substring(1).trim();
+                } else if (lower.endsWith(":desc") || lower.endsWith(":asc")) {
+                    descending = lower.endsWith(":desc");
+                    key = key.substring(0, key.lastIndexOf(':')).trim();
+                }
+                keys.add(new SortKey(key, descending));
+            }
+            return keys;
+        }
+
+        JsonNode valueIn(JsonNode record) {
+            return valueAt(record, path);
+        }
+    }
+
+    private static final class Aggregate {
+        final String name;
+        final String function;
+        final SortKey field;
+
+        private Aggregate(String name, String function, SortKey field) {
+            this.name = name;
+            this.function = function;
+            this.field = field;
+        }
+
+        static Aggregate parse(String name, String spec) {
+            String text = spec.trim();
+            int colon = text.indexOf(':');
+            String function = (colon < 0 ? text : text.substring(0, colon)).trim().toLowerCase(Locale.ROOT);
+            String field = colon < 0 ? null : text.substring(colon + 1).trim();
+            switch (function) {
+                case "count":
+                    break;
+                case "sum":
+                case "avg":
+                case "min":
+                case "max":
+                case "first":
+                case "last":
+                    if (field == null || field.isEmpty()) {
+                        throw new IllegalArgumentException("Aggregate " + function + " needs a field, as in "
+                                + function + ":amount");
+                    }
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown aggregate: " + function
+                            + ". Use count, sum, avg, min, max, first or last");
+            }
+            if (name == null || name.trim().isEmpty()) {
+                name = field == null ? function : function + "_" + field;
+            }
+            return new Aggregate(name, function, field == null || field.isEmpty() ? null : new SortKey(field, false));
+        }
+    }
+
+    /**
+     * Running aggregates for the records of one key
+     */
+    private final class Group {
+        final JsonNode[] key;
+        private final JsonNode first;
+        private final long[] counts;
+        private final long[] longSums;
+        private final BigDecimal[] sums;
+        private final JsonNode[] values;
+        private final JsonNode[] originals;
+
+        Group(Entry entry) {
+            this.key = entry.key;
+            this.first = entry.record;
+            int size = aggregates.size();
+            counts = new long[size];
+            longSums = new long[size];
+            sums = new BigDecimal[size];
+            values = new JsonNode[size];
+            originals = new JsonNode[size];
+        }
+
+        void add(JsonNode record) {
+            for (int i = 0; i < aggregates.size(); i++) {
+                Aggregate aggregate = aggregates.get(i);
+                JsonNode original = aggregate.field == null ? record : aggregate.field.valueIn(record);
+                JsonNode value = aggregate.field == null ? record : comparable(original);
+                if (value == null || value.isNull()) {
+                    continue;
+                }
+                switch (aggregate.function) {
+                    case "count":
+                        counts[i]++;
+                        break;
+                    case "sum":
+                    case "avg":
+                        addNumber(i, value);
+                        break;
+                    case "min":
+                    case "max":
+                        int order = values[i] == null ? 0 : compareValues(value, values[i], false);
+                        if (values[i] == null || ("min".equals(aggregate.function) ? order < 0 : order > 0)) {
+                            values[i] = value;
+                            originals[i] = original;
+                        }
+                        break;
+                    case "first":
+                        if (originals[i] == null) {
+                            originals[i] = original;
+                        }
+                        break;
+                    default:
+                        originals[i] = original;
+                }
+            }
+        }
+
+        // Integers add exactly in a long until it would overflow, anything else in a BigDecimal
+        private void addNumber(int i, JsonNode value) {
+            if (!value.isNumber()) {
+                return;
+            }
+            counts[i]++;
+            if (sums[i] == null && value.isIntegralNumber() && value.canConvertToLong()) {
+                try {
+                    longSums[i] = Math.addExact(longSums[i], value.longValue());
+                    return;
+                } catch (ArithmeticException overflow) {
+                    // Continue in BigDecimal
+                }
+            }
+            if (sums[i] == null) {
+                sums[i] = BigDecimal.valueOf(longSums[i]);
+            }
+            sums[i] = sums[i].add(value.decimalValue());
+        }
+
+        JsonNode finish() {
+            ObjectNode result = nodes.objectNode();
+            for (SortKey sortKey : keys) {
+                JsonNode value = sortKey.valueIn(first);
+                result.set(sortKey.name, value == null ? nodes.nullNode() : value);
+            }
+            for (int i = 0; i < aggregates.size(); i++) {
+                Aggregate aggregate = aggregates.get(i);
+                switch (aggregate.function) {
+                    case "count":
+                        result.put(aggregate.name, counts[i]);
+                        break;
+                    case "sum":
+                        result.set(aggregate.name, sums[i] == null ? LongNode.valueOf(longSums[i])
+                                : DoubleNode.valueOf(sums[i].doubleValue()));
+                        break;
+                    case "avg":
+                        if (counts[i] == 0) {
+                            result.putNull(aggregate.name);
+                        } else {
+                            BigDecimal sum = sums[i] == null ? BigDecimal.valueOf(longSums[i]) : sums[i];
+                            result.put(aggregate.name, sum.doubleValue() / counts[i]);
+                        }
+                        break;
+                    default:
+                        result.set(aggregate.name, originals[i] == null ? nodes.nullNode() : originals[i]);
+                }
+            }
+            return result;
+        }
+    }
+
+    private static final class Entry {
+        final JsonNode[] key;
+        final JsonNode record;
+
+        Entry(JsonNode[] key, JsonNode record) {
+            this.key = key;
+            this.record = record;
+        }
+    }
+
+    /**
+     * Entries in key order; next returns null at the end
+     */
+    private interface Cursor extends Closeable {
+        Entry next() throws IOException;
+
+        @Override
+        default void close() throws IOException {
+        }
+    }
+
+    private static final class ListCursor implements Cursor {
+        private final Iterator<Entry> entries;
+
+        ListCursor(List<Entry> entries) {
+            this.entries = entries.iterator();
+        }
+
+        @Override
+        public Entry next() {
+            return entries.hasNext() ? entries.next() : null;
+        }
+    }
+
+    private final class FileCursor implements Cursor {
+        private final JsonParser parser;
+
+        FileCursor(Path file) throws IOException {
+            parser = mapper.getFactory().createParser(Files.newBufferedReader(file, StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public Entry next() throws IOException {
+            if (parser.nextToken() == null) {
+                return null;
+            }
+            JsonNode record = parser.readValueAsTree();
+            return new Entry(keyOf(record), record);
+        }
+
+        @Override
+        public void close() throws IOException {
+            parser.close();
+        }
+    }
+
+    /**
+     * K-way merge over cursors; ties go to the earlier cursor, which holds earlier input
+     */
+    private final class MergeCursor implements Cursor {
+        private final List<Cursor> cursors;
+        private final PriorityQueue<Head> heads;
+
+        MergeCursor(List<Cursor> cursors) throws IOException {
+            this.cursors = cursors;
+            this.heads = new PriorityQueue<>(Math.max(1, cursors.size()), (a, b) -> {
+                int order = compareKeys(a.entry.key, b.entry.key);
+                return order != 0 ? order : Integer.compare(a.source, b.source);
+            });
+            for (int i = 0; i < cursors.size(); i++) {
+                Entry entry = cursors.get(i).next();
+                if (entry != null) {
+                    heads.add(new Head(entry, i));
+                }
+            }
+        }
+
+        @Override
+        public Entry next() throws IOException {
+            Head head = heads.poll();
+            if (head == null) {
+                return null;
+            }
+            Entry entry = head.entry;
+            Entry following = cursors.get(head.source).next();
+            if (following != null) {
+                head.entry = following;
+                heads.add(head);
+            }
+            return entry;
+        }
+
+        @Override
+        public void close() throws IOException {
+            IOException failure = null;
+            for (Cursor cursor : cursors) {
+                try {
+                    cursor.close();
+                } catch (IOException e) {
+                    failure = e;
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    private static final class Head {
+        Entry entry;
+        final int source;
+
+        Head(Entry entry, int source) {
+            this.entry = entry;
+            this.source = source;
+        }
+    }
+}
@@ -1,9 +1,9 @@
 package com.konvert.util;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.Reader;
 import java.nio.charset.StandardCharsets;
 import java.util.regex.Pattern;
 
@@ -13,8 +13,12 @@ public class FileFormatDetector {
     private static final Pattern XML_PATTERN = Pattern.compile("^\\s*<[^>]+>.*</[^>]+>", Pattern.DOTALL);
     private static final Pattern YAML_PATTERN = Pattern.compile("^\\s*[a-zA-Z_][a-zA-Z0-9_]*\\s*:", Pattern.MULTILINE);
     private static final Pattern TOML_PATTERN = Pattern.compile("^\\s*\\[.*\\]\\s*$", Pattern.MULTILINE);
+    private static final Pattern TOML_TABLE_PATTERN = Pattern.compile("^\\[\\[?[A-Za-z0-9_.\\- ]+\\]\\]?$");
     private static final Pattern PROPERTIES_PATTERN = Pattern.compile("^\\s*[a-zA-Z0-9._-]+\\s*=\\s*.*$", Pattern.MULTILINE);
-    private static final Pattern CSV_PATTERN = Pattern.compile("^[^,]+(,[^,]+)+", Pattern.MULTILINE);
+    private static final Pattern CSV_PATTERN = Pattern.compile("^[^,\\n]+(,[^,\\n]+)+", Pattern.MULTILINE);
+    
+    // Content detection on a stream looks no further than this
+    static final int SNIFF_CHARS = 64 * 1024;
     
     /**
      * Detect file format from filename extension
@@ -26,6 +30,7 @@ public class FileFormatDetector {
         
         String lower = filename.toLowerCase();
         if (lower.endsWith(".json")) return "json";
+        if (lower.endsWith(".ndjson") || lower.endsWith(".jsonl")) return "ndjson";
         if (lower.endsWith(".yaml") || lower.endsWith(".yml")) return "yaml";
         if (lower.endsWith(".xml")) return "xml";
         if (lower.endsWith(".toml")) return "toml";
@@ -96,7 +101,7 @@ public class FileFormatDetector {
     }
     
     /**
-     * Detect format from file input stream
+     * Detect format from file input stream, reading at most the first {@value #SNIFF_CHARS} characters
      */
     public static String detectFromStream(InputStream inputStream, String filename) throws IOException {
         // First try filename
@@ -106,20 +111,26 @@ public class FileFormatDetector {
         }
         
         // Then try content
-        try (BufferedReader reader = new BufferedReader(
-                new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
-            
-            StringBuilder content = new StringBuilder();
-            String line;
-            int lineCount = 0;
-            
-            // Read first 50 lines or 10KB, whichever comes first
-            while ((line = reader.readLine()) != null && lineCount < 50 && content.length() < 10000) {
-                content.append(line).append("\n");
-                lineCount++;
+        try (Reader reader = new InputStreamReader(inputStream, StandardCharsets.UTF_8)) {
+            char[] buffer = new char[SNIFF_CHARS + 1];
+            int length = 0;
+            int read;
+            while (length < buffer.length && (read = reader.read(buffer, length, buffer.length - length)) > 0) {
+                length += read;
+            }
+            String content = new String(buffer, 0, Math.min(length, SNIFF_CHARS));
+            if (length <= SNIFF_CHARS) {
+                return detectFromContent(content);
             }
             
-            return detectFromContent(content.toString());
+            // A prefix of a larger file: JSON never closes within it, and the last line may be cut off
+            String trimmed = content.trim();
+            String firstLine = trimmed.split("\n", 2)[0].trim();
+            if (trimmed.startsWith("{") || trimmed.startsWith("[") && !TOML_TABLE_PATTERN.matcher(firstLine).matches()) {
+                return "json";
+            }
+            int lastLine = content.lastIndexOf('\n');
+            return detectFromContent(lastLine > 0 ? content.substring(0, lastLine) : content);
         }
     }
     
@@ -131,6 +142,7 @@ public class FileFormatDetector {
         
         switch (format.toLowerCase()) {
             case "json": return ".json";
+            case "ndjson": return ".ndjson";
             case "yaml": return ".yaml";
             case "xml": return ".xml";
             case "toml": return ".toml";
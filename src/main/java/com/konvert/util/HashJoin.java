@@ -0,0 +1,474 @@
+package com.konvert.util;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.util.MinimalPrettyPrinter;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Joins two record streams on key fields with a build and probe hash join. The smaller input is
+ * loaded into a hash table and the larger one streams past it, so output follows the larger input's
+ * order. When the build side outgrows its memory budget, both sides are split by key hash into
+ * partitions on disk and each pair of partitions is joined on its own (a Grace hash join); the output
+ * is then ordered by partition. Keys compare by value across formats, so the CSV text {@code 7}
+ * matches the JSON number 7, and a missing or null key never matches.
+ */
+public final class HashJoin {
+
+    public enum Type {
+        INNER, LEFT, RIGHT, FULL;
+
+        /**
+         * Parse inner, left, right or full (also outer); null means inner
+         */
+        public static Type fromString(String name) {
+            if (name == null || name.trim().isEmpty()) {
+                return INNER;
+            }
+            switch (name.trim().toLowerCase(Locale.ROOT)) {
+                case "inner":
+                    return INNER;
+                case "left":
+                    return LEFT;
+                case "right":
+                    return RIGHT;
+                case "full":
+                case "outer":
+                    return FULL;
+                default:
+                    throw new IllegalArgumentException("Unknown join type: " + name + ". Use inner, left, right or full");
+            }
+        }
+    }
+
+    // Estimated heap the build side may use before the join partitions to disk
+    static final long DEFAULT_MEMORY_BYTES = 64L * 1024 * 1024;
+    static final int PARTITIONS = 32;
+    // Partitions that still do not fit are split again with another hash, this many times at most
+    private static final int MAX_DEPTH = 3;
+    private static final String DEFAULT_PREFIX = "right_";
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+    private static final JsonNodeFactory nodes = JsonNodeFactory.instance;
+
+    private final Type type;
+    private final String[] leftKeys;
+    private final String[] rightKeys;
+    private final String[][] leftPaths;
+    private final String[][] rightPaths;
+    private final String prefix;
+    private long memoryBytes = DEFAULT_MEMORY_BYTES;
+
+    // Columns of each side, from its first record, so outer rows fill the other side with nulls
+    private List<String> leftColumns;
+    private List<String> rightColumns;
+    private long leftRecords;
+    private long rightRecords;
+    private long written;
+    private int partitions;
+    private final List<Path> files = new ArrayList<>();
+
+    /**
+     * A join on comma-separated key fields of each side; the right side uses the left keys when it
+     * names none. Non-key right fields whose names the left side already uses get the prefix.
+     */
+    public HashJoin(Type type, String leftKeys, String rightKeys, String prefix) {
+        this.type = type;
+        this.leftKeys = splitKeys(leftKeys);
+        this.rightKeys = rightKeys == null || rightKeys.trim().isEmpty() ? this.leftKeys : splitKeys(rightKeys);
+        if (this.leftKeys.length == 0) {
+            throw new IllegalArgumentException("Join key is required");
+        }
+        if (this.leftKeys.length != this.rightKeys.length) {
+            throw new IllegalArgumentException("Both sides must name the same number of join keys");
+        }
+        this.prefix = prefix == null || prefix.isEmpty() ? DEFAULT_PREFIX : prefix;
+        this.leftPaths = paths(this.leftKeys);
+        this.rightPaths = paths(this.rightKeys);
+    }
+
+    /**
+     * Cap the estimated heap of the build side before the join partitions to disk
+     */
+    public HashJoin limitMemory(long bytes) {
+        if (bytes <= 0) {
+            throw new IllegalArgumentException("Memory limit must be positive");
+        }
+        this.memoryBytes = bytes;
+        return this;
+    }
+
+    /**
+     * Join two inputs given as text in any supported format and return the output with statistics
+     */
+    public static Map<String, Object> join(String left, String leftFormat, String right, String rightFormat,
+                                           String outputFormat, String on, String rightOn, String type,
+                                           Long memoryBytes) throws IOException {
+        if (left == null || left.trim().isEmpty() || right == null || right.trim().isEmpty()) {
+            throw new IllegalArgumentException("Both inputs are required");
+        }
+        leftFormat = leftFormat == null || leftFormat.trim().isEmpty() ? "json" : leftFormat;
+        rightFormat = rightFormat == null || rightFormat.trim().isEmpty() ? leftFormat : rightFormat;
+        outputFormat = outputFormat == null || outputFormat.trim().isEmpty() ? leftFormat : outputFormat;
+        HashJoin join = new HashJoin(Type.fromString(type), on, rightOn, null);
+        if (memoryBytes != null) {
+            join.limitMemory(memoryBytes);
+        }
+        StringWriter out = new StringWriter();
+        Map<String, Object> stats = join.join(RecordStreams.reader(left, leftFormat), left.length(),
+                RecordStreams.reader(right, rightFormat), right.length(), out, outputFormat);
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("output", out.toString());
+        result.putAll(stats);
+        return result;
+    }
+
+    /**
+     * Join the readers, building the hash table from the smaller side by size, and write the joined
+     * records. Returns record counts per side, the number of disk partitions and the time spent.
+     */
+    public Map<String, Object> join(RecordStreams.RecordReader left, long leftSize,
+                                    RecordStreams.RecordReader right, long rightSize,
+                                    Writer out, String outputFormat) throws IOException {
+        long start = System.nanoTime();
+        boolean buildLeft = leftSize <= rightSize;
+        RecordStreams.RecordWriter writer = RecordStreams.writer(out, outputFormat);
+        try (RecordStreams.RecordReader l = left; RecordStreams.RecordReader r = right) {
+            Side build = buildLeft ? new Side(true, l) : new Side(false, r);
+            Side probe = buildLeft ? new Side(false, r) : new Side(true, l);
+            run(build, probe, writer, 0);
+            writer.close();
+        } finally {
+            for (Path file : files) {
+                Files.deleteIfExists(file);
+            }
+            files.clear();
+        }
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("leftRecords", leftRecords);
+        stats.put("rightRecords", rightRecords);
+        stats.put("written", written);
+        stats.put("buildSide", buildLeft ? "left" : "right");
+        stats.put("partitions", partitions);
+        stats.put("elapsedMs", (System.nanoTime() - start) / 1_000_000);
+        return stats;
+    }
+
+    private void run(Side build, Side probe, RecordStreams.RecordWriter writer, int depth) throws IOException {
+        Map<String, List<Row>> table = new HashMap<>();
+        long bytes = 0;
+        while (build.records.hasNext()) {
+            JsonNode record = build.next(this);
+            String key = keyOf(record, build.left);
+            if (key == null && !outer(build.left)) {
+                continue;
+            }
+            // Rows without a key sit under the null key, which no probe looks up, until the end
+            table.computeIfAbsent(key, k -> new ArrayList<>(1)).add(new Row(record));
+            bytes += 48 + (key == null ? 0 : 2L * key.length()) + ExternalSort.estimate(record);
+            if (bytes > memoryBytes && depth < MAX_DEPTH) {
+                partition(table, build, probe, writer, depth);
+                return;
+            }
+        }
+        while (probe.records.hasNext()) {
+            JsonNode record = probe.next(this);
+            String key = keyOf(record, probe.left);
+            List<Row> matches = key == null ? null : table.get(key);
+            if (matches == null) {
+                emitUnmatched(record, probe.left, writer);
+                continue;
+            }
+            for (Row row : matches) {
+                row.matched = true;
+                emit(build.left ? row.record : record, build.left ? record : row.record, writer);
+            }
+        }
+        if (outer(build.left)) {
+            for (List<Row> rows : table.values()) {
+                for (Row row : rows) {
+                    if (!row.matched) {
+                        emitUnmatched(row.record, build.left, writer);
+                    }
+                }
+            }
+        }
+    }
+
+    // Spread the rest of both sides over partition files by key hash and join them pair by pair
+    private void partition(Map<String, List<Row>> table, Side build, Side probe, RecordStreams.RecordWriter writer,
+                           int depth) throws IOException {
+        Path[] buildParts = new Path[PARTITIONS];
+        Path[] probeParts = new Path[PARTITIONS];
+        try (Partitions buildOut = new Partitions(buildParts, depth, "konvertr-join-", files)) {
+            for (List<Row> rows : table.values()) {
+                for (Row row : rows) {
+                    buildOut.write(keyOf(row.record, build.left), row.record);
+                }
+            }
+            table.clear();
+            while (build.records.hasNext()) {
+                JsonNode record = build.next(this);
+                buildOut.write(keyOf(record, build.left), record);
+            }
+        }
+        try (Partitions probeOut = new Partitions(probeParts, depth, "konvertr-join-", files)) {
+            while (probe.records.hasNext()) {
+                JsonNode record = probe.next(this);
+                String key = keyOf(record, probe.left);
+                if (key == null) {
+                    emitUnmatched(record, probe.left, writer);
+                } else {
+                    probeOut.write(key, record);
+                }
+            }
+        }
+        partitions += PARTITIONS;
+        for (int i = 0; i < PARTITIONS; i++) {
+            try (FileRecords buildPart = new FileRecords(buildParts[i]);
+                 FileRecords probePart = new FileRecords(probeParts[i])) {
+                // Records were counted when first read
+                run(new Side(build.left, buildPart, false), new Side(probe.left, probePart, false), writer, depth + 1);
+            }
+            Files.deleteIfExists(buildParts[i]);
+            Files.deleteIfExists(probeParts[i]);
+        }
+    }
+
+    private boolean outer(boolean left) {
+        return type == Type.FULL || (left ? type == Type.LEFT : type == Type.RIGHT);
+    }
+
+    private void emitUnmatched(JsonNode record, boolean left, RecordStreams.RecordWriter writer) throws IOException {
+        if (outer(left)) {
+            emit(left ? record : null, left ? null : record, writer);
+        }
+    }
+
+    private void emit(JsonNode left, JsonNode right, RecordStreams.RecordWriter writer) throws IOException {
+        ObjectNode joined = nodes.objectNode();
+        if (left != null) {
+            joined.setAll((ObjectNode) left);
+        } else if (leftColumns != null) {
+            for (String column : leftColumns) {
+                joined.putNull(column);
+            }
+            // The matching key is known from the right side
+            for (int i = 0; i < leftKeys.length; i++) {
+                JsonNode key = ExternalSort.valueAt(right, rightPaths[i]);
+                if (!leftKeys[i].contains(".")) {
+                    joined.set(leftKeys[i], key == null ? nodes.nullNode() : key);
+                }
+            }
+        }
+        if (right != null) {
+            Iterator<Map.Entry<String, JsonNode>> fields = right.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                putRight(joined, field.getKey(), field.getValue(), left != null);
+            }
+        } else if (rightColumns != null) {
+            for (String column : rightColumns) {
+                putRight(joined, column, nodes.nullNode(), true);
+            }
+        }
+        writer.write(joined);
+        written++;
+    }
+
+    private void putRight(ObjectNode joined, String name, JsonNode value, boolean leftPresent) {
+        if (isKey(name)) {
+            if (!joined.has(name) || !leftPresent) {
+                joined.set(name, value);
+            }
+            return;
+        }
+        joined.set(joined.has(name) ? prefix + name : name, value);
+    }
+
+    // A right key column named like its left key holds the same value, so it is written once
+    private boolean isKey(String name) {
+        for (int i = 0; i < rightKeys.length; i++) {
+            if (rightKeys[i].equals(name) && leftKeys[i].equals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private String keyOf(JsonNode record, boolean left) {
+        return keyOf(record, left ? leftPaths : rightPaths);
+    }
+
+    // Key values as canonical text: numbers, and numeric text, by value; null when any part is missing
+    static String keyOf(JsonNode record, String[][] paths) {
+        StringBuilder key = paths.length == 1 ? null : new StringBuilder();
+        for (String[] path : paths) {
+            JsonNode value = ExternalSort.comparable(ExternalSort.valueAt(record, path));
+            if (value == null || value.isNull() || value.isContainerNode()) {
+                return null;
+            }
+            String text;
+            if (value.isIntegralNumber() && value.canConvertToLong()) {
+                text = Long.toString(value.longValue());
+            } else if (value.isNumber()) {
+                BigDecimal decimal = value.decimalValue().stripTrailingZeros();
+                text = decimal.scale() <= 0 ? decimal.toBigInteger().toString() : decimal.toPlainString();
+            } else {
+                text = value.asText();
+            }
+            if (key == null) {
+                return text;
+            }
+            key.append(text.length()).append(':').append(text);
+        }
+        return key.toString();
+    }
+
+    static String[] splitKeys(String keys) {
+        if (keys == null) {
+            return new String[0];
+        }
+        List<String> result = new ArrayList<>();
+        for (String key : keys.split(",")) {
+            if (!key.trim().isEmpty()) {
+                result.add(key.trim());
+            }
+        }
+        return result.toArray(new String[0]);
+    }
+
+    static String[][] paths(String[] keys) {
+        String[][] paths = new String[keys.length][];
+        for (int i = 0; i < keys.length; i++) {
+            paths[i] = keys[i].split("\\.");
+        }
+        return paths;
+    }
+
+    /**
+     * One input of the join, counting its records and noting its columns as they are read
+     */
+    private static final class Side {
+        final boolean left;
+        final Iterator<JsonNode> records;
+        private final boolean count;
+
+        Side(boolean left, Iterator<JsonNode> records) {
+            this(left, records, true);
+        }
+
+        Side(boolean left, Iterator<JsonNode> records, boolean count) {
+            this.left = left;
+            this.records = records;
+            this.count = count;
+        }
+
+        JsonNode next(HashJoin join) {
+            JsonNode record = records.next();
+            if (!record.isObject()) {
+                throw new IllegalArgumentException("Join records must be objects, found: " + record.getNodeType());
+            }
+            if (count) {
+                if (left) {
+                    join.leftRecords++;
+                } else {
+                    join.rightRecords++;
+                }
+            }
+            if (left && join.leftColumns == null) {
+                join.leftColumns = columns(record);
+            } else if (!left && join.rightColumns == null) {
+                join.rightColumns = columns(record);
+            }
+            return record;
+        }
+
+        private static List<String> columns(JsonNode record) {
+            List<String> columns = new ArrayList<>();
+            record.fieldNames().forEachRemaining(columns::add);
+            return columns;
+        }
+    }
+
+    private static final class Row {
+        final JsonNode record;
+        boolean matched;
+
+        Row(JsonNode record) {
+            this.record = record;
+        }
+    }
+
+    /**
+     * NDJSON partition files written by key hash; each level of partitioning mixes the hash differently.
+     * The files are added to the given list as they are created, so the owner can remove them.
+     */
+    static final class Partitions implements AutoCloseable {
+        private final JsonGenerator[] generators = new JsonGenerator[PARTITIONS];
+        private final int seed;
+
+        Partitions(Path[] paths, int depth, String prefix, List<Path> files) throws IOException {
+            this.seed = 0x9E3779B9 * (depth + 1);
+            for (int i = 0; i < PARTITIONS; i++) {
+                paths[i] = Files.createTempFile(prefix, ".ndjson");
+                files.add(paths[i]);
+                generators[i] = mapper.getFactory().createGenerator(Files.newBufferedWriter(paths[i], StandardCharsets.UTF_8));
+                generators[i].setPrettyPrinter(new MinimalPrettyPrinter("\n"));
+            }
+        }
+
+        // Rows without a key go to a partition of their own choosing and stay unmatched there
+        void write(String key, JsonNode record) throws IOException {
+            int hash = (key == null ? 0 : key.hashCode()) * seed;
+            hash ^= hash >>> 16;
+            mapper.writeTree(generators[Math.floorMod(hash, PARTITIONS)], record);
+        }
+
+        @Override
+        public void close() throws IOException {
+            for (JsonGenerator generator : generators) {
+                if (generator != null) {
+                    generator.close();
+                }
+            }
+        }
+    }
+
+    static final class FileRecords extends RecordStreams.RecordReader {
+        private final JsonParser parser;
+
+        FileRecords(Path file) throws IOException {
+            parser = mapper.getFactory().createParser(Files.newBufferedReader(file, StandardCharsets.UTF_8));
+        }
+
+        @Override
+        protected JsonNode read() throws IOException {
+            return parser.nextToken() == null ? null : parser.readValueAsTree();
+        }
+
+        @Override
+        public void close() throws IOException {
+            parser.close();
+        }
+    }
+}
@@ -0,0 +1,312 @@
+package com.konvert.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class JsonPatchUtil {
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    /**
+     * Apply a patch to a document in any supported format and serialize the result in the output
+     * format. The patch is JSON text or an already parsed value; its type is "json-patch" or
+     * "merge-patch", or when not given, a JSON Patch if it is an array and a merge patch otherwise.
+     */
+    public static Map<String, Object> applyToDocument(String input, String inputFormat, String outputFormat,
+                                                      Object patch, String type) throws Exception {
+        if (input == null || input.trim().isEmpty()) {
+            throw new IllegalArgumentException("Input cannot be empty");
+        }
+        if (patch == null) {
+            throw new IllegalArgumentException("Patch is required");
+        }
+        if (inputFormat == null || inputFormat.trim().isEmpty()) {
+            inputFormat = "json";
+        }
+        if (outputFormat == null || outputFormat.trim().isEmpty()) {
+            outputFormat = inputFormat;
+        }
+        JsonNode patchNode;
+        try {
+            patchNode = patch instanceof String ? mapper.readTree((String) patch) : mapper.valueToTree(patch);
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Patch is not valid JSON: " + e.getMessage(), e);
+        }
+        if (type == null || type.trim().isEmpty()) {
+            type = patchNode.isArray() ? "json-patch" : "merge-patch";
+        }
+        type = type.trim().toLowerCase();
+        if (!"json-patch".equals(type) && !"merge-patch".equals(type)) {
+            throw new IllegalArgumentException("Unsupported patch type: " + type + " (use json-patch or merge-patch)");
+        }
+
+        long start = System.nanoTime();
+        JsonNode root = TransformPipeline.read(input, inputFormat);
+        root = "json-patch".equals(type) ? apply(root, patchNode) : merge(root, patchNode);
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("output", TransformPipeline.write(root, outputFormat));
+        result.put("type", type);
+        if ("json-patch".equals(type)) {
+            result.put("operations", patchNode.size());
+        }
+        result.put("elapsedMs", (System.nanoTime() - start) / 1_000_000);
+        return result;
+    }
+
+    /**
+     * Apply an RFC 6902 JSON Patch to a document, mutating it in place.
+     * Returns the resulting root, which differs from the input only when the root itself is replaced.
+     */
+    public static JsonNode apply(JsonNode root, JsonNode patch) {
+        if (patch == null || !patch.isArray()) {
+            throw new IllegalArgumentException("JSON Patch must be an array of operations");
+        }
+        JsonNode current = root;
+        for (JsonNode operation : patch) {
+            current = applyOperation(current, operation);
+        }
+        return current;
+    }
+
+    /**
+     * Apply a single JSON Patch operation, mutating the document in place
+     */
+    public static JsonNode applyOperation(JsonNode root, JsonNode operation) {
+        if (operation == null || !operation.isObject()) {
+            throw new IllegalArgumentException("Each JSON Patch operation must be an object");
+        }
+        String op = requireText(operation, "op");
+        List<String> path = parsePointer(requireText(operation, "path"));
+
+        switch (op) {
+            case "add":
+                return add(root, path, requireValue(operation).deepCopy());
+            case "remove":
+                remove(root, path);
+                return root;
+            case "replace":
+                if (path.isEmpty()) {
+                    return requireValue(operation).deepCopy();
+                }
+                replace(root, path, requireValue(operation).deepCopy());
+                return root;
+            case "move": {
+                List<String> from = parsePointer(requireText(operation, "from"));
+                if (isProperPrefix(from, path)) {
+                    throw new IllegalArgumentException("Cannot move a value into one of its own children: " + toPointer(path));
+                }
+                if (from.equals(path)) {
+                    resolve(root, from);
+                    return root;
+                }
+                JsonNode value = remove(root, from);
+                return add(root, path, value);
+            }
+            case "copy": {
+                List<String> from = parsePointer(requireText(operation, "from"));
+                return add(root, path, resolve(root, from).deepCopy());
+            }
+            case "test": {
+                JsonNode actual = resolve(root, path);
+                if (!actual.equals(requireValue(operation))) {
+                    throw new IllegalArgumentException("Test failed at " + toPointer(path));
+                }
+                return root;
+            }
+            default:
+                throw new IllegalArgumentException("Unsupported JSON Patch operation: " + op);
+        }
+    }
+
+    /**
+     * Apply an RFC 7386 JSON Merge Patch: an object patch sets its members on the target recursively,
+     * removing those that are null, and any other patch replaces the target. Objects are updated in place.
+     */
+    public static JsonNode merge(JsonNode target, JsonNode patch) {
+        if (patch == null) {
+            throw new IllegalArgumentException("Merge patch is required");
+        }
+        if (!patch.isObject()) {
+            return patch.deepCopy();
+        }
+        ObjectNode result = target != null && target.isObject() ? (ObjectNode) target : JsonNodeFactory.instance.objectNode();
+        Iterator<Map.Entry<String, JsonNode>> fields = patch.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            if (field.getValue().isNull()) {
+                result.remove(field.getKey());
+            } else {
+                result.set(field.getKey(), merge(result.get(field.getKey()), field.getValue()));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Split a JSON Pointer (RFC 6901) into unescaped reference tokens
+     */
+    public static List<String> parsePointer(String pointer) {
+        if (pointer == null || pointer.isEmpty()) {
+            return Collections.emptyList();
+        }
+        if (pointer.charAt(0) != '/') {
+            throw new IllegalArgumentException("Invalid JSON Pointer: " + pointer);
+        }
+        List<String> tokens = new ArrayList<>();
+        int start = 1;
+        while (true) {
+            int slash = pointer.indexOf('/', start);
+            String raw = slash < 0 ? pointer.substring(start) : pointer.substring(start, slash);
+            tokens.add(raw.indexOf('~') < 0 ? raw : raw.replace("~1", "/").replace("~0", "~"));
+            if (slash < 0) {
+                return tokens;
+            }
+            start = slash + 1;
+        }
+    }
+
+    /**
+     * Build a JSON Pointer from reference tokens
+     */
+    public static String toPointer(List<String> tokens) {
+        StringBuilder sb = new StringBuilder();
+        for (String token : tokens) {
+            sb.append('/').append(escapeToken(token));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Escape a single reference token for use in a JSON Pointer
+     */
+    public static String escapeToken(String token) {
+        if (token.indexOf('~') < 0 && token.indexOf('/') < 0) {
+            return token;
+        }
+        return token.replace("~", "~0").replace("/", "~1");
+    }
+
+    private static JsonNode add(JsonNode root, List<String> path, JsonNode value) {
+        if (path.isEmpty()) {
+            return value;
+        }
+        JsonNode parent = resolve(root, path.subList(0, path.size() - 1));
+        String last = path.get(path.size() - 1);
+
+        if (parent.isObject()) {
+            ((ObjectNode) parent).set(last, value);
+        } else if (parent.isArray()) {
+            ArrayNode array = (ArrayNode) parent;
+            if ("-".equals(last)) {
+                array.add(value);
+            } else {
+                int index = parseIndex(last, array.size() + 1);
+                array.insert(index, value);
+            }
+        } else {
+            throw new IllegalArgumentException("Cannot add to a scalar at " + toPointer(path));
+        }
+        return root;
+    }
+
+    private static void replace(JsonNode root, List<String> path, JsonNode value) {
+        JsonNode parent = resolve(root, path.subList(0, path.size() - 1));
+        String last = path.get(path.size() - 1);
+
+        // Replace in place so object keys keep their position
+        if (parent.isObject() && parent.has(last)) {
+            ((ObjectNode) parent).set(last, value);
+        } else if (parent.isArray()) {
+            ArrayNode array = (ArrayNode) parent;
+            array.set(parseIndex(last, array.size()), value);
+        } else {
+            throw new IllegalArgumentException("No value to replace at " + toPointer(path));
+        }
+    }
+
+    private static JsonNode remove(JsonNode root, List<String> path) {
+        if (path.isEmpty()) {
+            throw new IllegalArgumentException("Cannot remove the document root");
+        }
+        JsonNode parent = resolve(root, path.subList(0, path.size() - 1));
+        String last = path.get(path.size() - 1);
+
+        if (parent.isObject()) {
+            JsonNode removed = ((ObjectNode) parent).remove(last);
+            if (removed == null) {
+                throw new IllegalArgumentException("No value to remove at " + toPointer(path));
+            }
+            return removed;
+        } else if (parent.isArray()) {
+            ArrayNode array = (ArrayNode) parent;
+            return array.remove(parseIndex(last, array.size()));
+        }
+        throw new IllegalArgumentException("No value to remove at " + toPointer(path));
+    }
+
+    private static JsonNode resolve(JsonNode root, List<String> path) {
+        JsonNode current = root;
+        for (int i = 0; i < path.size(); i++) {
+            String token = path.get(i);
+            JsonNode next = null;
+            if (current.isObject()) {
+                next = current.get(token);
+            } else if (current.isArray()) {
+                next = current.get(parseIndex(token, current.size()));
+            }
+            if (next == null) {
+                throw new IllegalArgumentException("Path not found: " + toPointer(path.subList(0, i + 1)));
+            }
+            current = next;
+        }
+        return current;
+    }
+
+    private static int parseIndex(String token, int limit) {
+        if (token.isEmpty() || (token.length() > 1 && token.charAt(0) == '0')) {
+            throw new IllegalArgumentException("Invalid array index: " + token);
+        }
+        int index = 0;
+        for (int i = 0; i < token.length(); i++) {
+            char c = token.charAt(i);
+            if (c < '0' || c > '9' || index > (Integer.MAX_VALUE - 9) / 10) {
+                throw new IllegalArgumentException("Invalid array index: " + token);
+            }
+            index = index * 10 + (c - '0');
+        }
+        if (index >= limit) {
+            throw new IllegalArgumentException("Array index out of bounds: " + token);
+        }
+        return index;
+    }
+
+    private static boolean isProperPrefix(List<String> prefix, List<String> path) {
+        return prefix.size() < path.size() && path.subList(0, prefix.size()).equals(prefix);
+    }
+
+    private static String requireText(JsonNode operation, String field) {
+        JsonNode value = operation.get(field);
+        if (value == null || !value.isTextual()) {
+            throw new IllegalArgumentException("JSON Patch operation is missing \"" + field + "\"");
+        }
+        return value.asText();
+    }
+
+    private static JsonNode requireValue(JsonNode operation) {
+        if (!operation.has("value")) {
+            throw new IllegalArgumentException("JSON Patch operation is missing \"value\"");
+        }
+        return operation.get("value");
+    }
+}
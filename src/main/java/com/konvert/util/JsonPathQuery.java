@@ -0,0 +1,700 @@
+package com.konvert.util;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * A compiled JSONPath expression. Supports {@code $}, {@code .name}, {@code ['a','b']}, {@code [0]},
+ * negative indices, {@code [*]}, slices {@code [start:end:step]}, recursive descent {@code ..} and
+ * filters {@code [?(@.qty > 10 && @.sku)]} with {@code == != < <= > >=}, {@code !} and parentheses.
+ * Compiled expressions are cached by their text.
+ *
+ * <p>Over a JSON token stream the leading run of steps that only depend on a name or a position
+ * (single names, wildcards, non-negative indices and slices) is matched token by token, skipping
+ * everything else unread. Only the values reached by that run are materialized; a filter step right
+ * after it materializes one candidate element at a time.
+ */
+public final class JsonPathQuery {
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+    private static final JsonFactory jsonFactory = mapper.getFactory();
+    private static final int CACHE_SIZE = 256;
+    private static final Map<String, JsonPathQuery> cache = Collections.synchronizedMap(
+            new LinkedHashMap<String, JsonPathQuery>(64, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, JsonPathQuery> eldest) {
+                    return size() > CACHE_SIZE;
+                }
+            });
+
+    private final String expression;
+    private final List<Step> steps;
+    // Number of leading steps the streaming evaluator matches without building nodes
+    private final int streamable;
+
+    private JsonPathQuery(String expression, List<Step> steps, boolean filtersUseRoot) {
+        this.expression = expression;
+        this.steps = steps;
+        int count = 0;
+        // A filter comparing against $ needs the whole document built
+        while (!filtersUseRoot && count < steps.size() && steps.get(count).positional()) {
+            count++;
+        }
+        this.streamable = count;
+    }
+
+    /**
+     * Compile an expression, reusing the cached result for text seen before
+     */
+    public static JsonPathQuery compile(String expression) {
+        if (expression == null || expression.trim().isEmpty()) {
+            throw new IllegalArgumentException("JSONPath expression is required");
+        }
+        String text = expression.trim();
+        JsonPathQuery query = cache.get(text);
+        if (query == null) {
+            Parser parser = new Parser(text);
+            query = new JsonPathQuery(text, parser.parseQuery(), parser.usesRoot);
+            cache.put(text, query);
+        }
+        return query;
+    }
+
+    public String expression() {
+        return expression;
+    }
+
+    /**
+     * Matches in a parsed tree, in document order for positional steps
+     */
+    public List<JsonNode> select(JsonNode root) {
+        List<JsonNode> matches = new ArrayList<>();
+        evaluate(steps, 0, root, root, matches::add);
+        return matches;
+    }
+
+    /**
+     * Stream the JSON or NDJSON text and pass each match to the consumer. Every root value of the
+     * input is queried in turn, so NDJSON records are matched one line at a time.
+     */
+    public int select(String json, Consumer<JsonNode> matches) throws IOException {
+        int[] count = new int[1];
+        Consumer<JsonNode> counting = node -> {
+            count[0]++;
+            matches.accept(node);
+        };
+        try (JsonParser parser = jsonFactory.createParser(json)) {
+            JsonToken token;
+            while ((token = parser.nextToken()) != null) {
+                stream(parser, token, 0, counting);
+            }
+        }
+        return count[0];
+    }
+
+    private void stream(JsonParser parser, JsonToken token, int depth, Consumer<JsonNode> matches) throws IOException {
+        if (depth == streamable) {
+            finish(parser, token, depth, matches);
+            return;
+        }
+        Step step = steps.get(depth);
+        if (token == JsonToken.START_OBJECT) {
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if (step.matchesName(name)) {
+                    stream(parser, value, depth + 1, matches);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        } else if (token == JsonToken.START_ARRAY) {
+            int index = 0;
+            JsonToken value;
+            while ((value = parser.nextToken()) != JsonToken.END_ARRAY) {
+                if (step.matchesIndex(index++)) {
+                    stream(parser, value, depth + 1, matches);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        // A scalar has no children to match
+    }
+
+    // Build the value reached by the positional prefix and evaluate the remaining steps on it
+    private void finish(JsonParser parser, JsonToken token, int depth, Consumer<JsonNode> matches) throws IOException {
+        if (depth < steps.size() && steps.get(depth) instanceof Filter && token.isStructStart()) {
+            Filter filter = (Filter) steps.get(depth);
+            boolean object = token == JsonToken.START_OBJECT;
+            while ((token = parser.nextToken()) != (object ? JsonToken.END_OBJECT : JsonToken.END_ARRAY)) {
+                if (object) {
+                    token = parser.nextToken();
+                }
+                JsonNode candidate = mapper.readTree(parser);
+                if (filter.condition.test(candidate, null)) {
+                    evaluate(steps, depth + 1, candidate, null, matches);
+                }
+            }
+            return;
+        }
+        JsonNode node = mapper.readTree(parser);
+        // Filters only see $ when nothing was streamed past, see the constructor
+        evaluate(steps, depth, node, depth == 0 ? node : null, matches);
+    }
+
+    private static void evaluate(List<Step> steps, int index, JsonNode node, JsonNode root, Consumer<JsonNode> matches) {
+        if (index == steps.size()) {
+            matches.accept(node);
+            return;
+        }
+        steps.get(index).apply(node, root, child -> evaluate(steps, index + 1, child, root, matches));
+    }
+
+    private abstract static class Step {
+        abstract void apply(JsonNode node, JsonNode root, Consumer<JsonNode> out);
+
+        // Whether matching depends only on the field name or array position
+        boolean positional() {
+            return false;
+        }
+
+        boolean matchesName(String name) {
+            return false;
+        }
+
+        boolean matchesIndex(int index) {
+            return false;
+        }
+    }
+
+    private static final class Names extends Step {
+        private final List<String> names;
+
+        Names(List<String> names) {
+            this.names = names;
+        }
+
+        @Override
+        void apply(JsonNode node, JsonNode root, Consumer<JsonNode> out) {
+            if (node.isObject()) {
+                for (String name : names) {
+                    JsonNode child = node.get(name);
+                    if (child != null) {
+                        out.accept(child);
+                    }
+                }
+            }
+        }
+
+        // A union is returned in the order written, which only the tree evaluator can do
+        @Override
+        boolean positional() {
+            return names.size() == 1;
+        }
+
+        @Override
+        boolean matchesName(String name) {
+            return names.get(0).equals(name);
+        }
+    }
+
+    private static final class Indices extends Step {
+        private final int[] indices;
+
+        Indices(int[] indices) {
+            this.indices = indices;
+        }
+
+        @Override
+        void apply(JsonNode node, JsonNode root, Consumer<JsonNode> out) {
+            if (node.isArray()) {
+                for (int index : indices) {
+                    JsonNode child = node.get(index < 0 ? node.size() + index : index);
+                    if (child != null) {
+                        out.accept(child);
+                    }
+                }
+            }
+        }
+
+        @Override
+        boolean positional() {
+            return indices.length == 1 && indices[0] >= 0;
+        }
+
+        @Override
+        boolean matchesIndex(int index) {
+            return index == indices[0];
+        }
+    }
+
+    private static final class Wildcard extends Step {
+        @Override
+        void apply(JsonNode node, JsonNode root, Consumer<JsonNode> out) {
+            if (node.isContainerNode()) {
+                node.elements().forEachRemaining(out);
+            }
+        }
+
+        @Override
+        boolean positional() {
+            return true;
+        }
+
+        @Override
+        boolean matchesName(String name) {
+            return true;
+        }
+
+        @Override
+        boolean matchesIndex(int index) {
+            return true;
+        }
+    }
+
+    private static final class Slice extends Step {
+        private final Integer start;
+        private final Integer end;
+        private final int step;
+
+        Slice(Integer start, Integer end, int step) {
+            this.start = start;
+            this.end = end;
+            this.step = step;
+        }
+
+        @Override
+        void apply(JsonNode node, JsonNode root, Consumer<JsonNode> out) {
+            if (!node.isArray()) {
+                return;
+            }
+            int size = node.size();
+            if (step > 0) {
+                int from = bound(start, 0, size);
+                int to = bound(end, size, size);
+                for (int i = from; i < to; i += step) {
+                    out.accept(node.get(i));
+                }
+            } else {
+                int from = start == null ? size - 1 : Math.min(bound(start, 0, size), size - 1);
+                int to = end == null ? -1 : bound(end, 0, size);
+                for (int i = from; i > to; i += step) {
+                    out.accept(node.get(i));
+                }
+            }
+        }
+
+        private static int bound(Integer value, int fallback, int size) {
+            if (value == null) {
+                return fallback;
+            }
+            int resolved = value < 0 ? size + value : value;
+            return Math.max(0, Math.min(resolved, size));
+        }
+
+        @Override
+        boolean positional() {
+            return step > 0 && (start == null || start >= 0) && (end == null || end >= 0);
+        }
+
+        @Override
+        boolean matchesIndex(int index) {
+            int from = start == null ? 0 : start;
+            return index >= from && (end == null || index < end) && (index - from) % step == 0;
+        }
+    }
+
+    // ..step: the step applied to the node and every descendant
+    private static final class Descendants extends Step {
+        private final Step inner;
+
+        Descendants(Step inner) {
+            this.inner = inner;
+        }
+
+        @Override
+        void apply(JsonNode node, JsonNode root, Consumer<JsonNode> out) {
+            inner.apply(node, root, out);
+            if (node.isContainerNode()) {
+                Iterator<JsonNode> children = node.elements();
+                while (children.hasNext()) {
+                    apply(children.next(), root, out);
+                }
+            }
+        }
+    }
+
+    private static final class Filter extends Step {
+        private final Condition condition;
+
+        Filter(Condition condition) {
+            this.condition = condition;
+        }
+
+        @Override
+        void apply(JsonNode node, JsonNode root, Consumer<JsonNode> out) {
+            if (node.isContainerNode()) {
+                Iterator<JsonNode> children = node.elements();
+                while (children.hasNext()) {
+                    JsonNode child = children.next();
+                    if (condition.test(child, root)) {
+                        out.accept(child);
+                    }
+                }
+            }
+        }
+    }
+
+    private interface Condition {
+        boolean test(JsonNode current, JsonNode root);
+    }
+
+    private interface Operand {
+        // The operand's value, or null when a path matches nothing
+        JsonNode value(JsonNode current, JsonNode root);
+    }
+
+    private static Operand path(List<Step> steps, boolean fromRoot) {
+        return (current, root) -> {
+            JsonNode start = fromRoot ? root : current;
+            if (start == null) {
+                return null;
+            }
+            JsonNode[] first = new JsonNode[1];
+            evaluate(steps, 0, start, root, node -> {
+                if (first[0] == null) {
+                    first[0] = node;
+                }
+            });
+            return first[0];
+        };
+    }
+
+    private static boolean compare(JsonNode left, String op, JsonNode right) {
+        if (left == null || right == null) {
+            // Only "is not equal" holds when a side is missing
+            return "!=".equals(op) && (left != null || right != null);
+        }
+        int order;
+        if (left.isNumber() && right.isNumber()) {
+            order = left.decimalValue().compareTo(right.decimalValue());
+        } else if (left.isTextual() && right.isTextual()) {
+            order = left.textValue().compareTo(right.textValue());
+        } else {
+            boolean equal = left.equals(right);
+            return "==".equals(op) ? equal : "!=".equals(op) && !equal;
+        }
+        switch (op) {
+            case "==":
+                return order == 0;
+            case "!=":
+                return order != 0;
+            case "<":
+                return order < 0;
+            case "<=":
+                return order <= 0;
+            case ">":
+                return order > 0;
+            default:
+                return order >= 0;
+        }
+    }
+
+    private static final class Parser {
+        private final String text;
+        private int pos;
+        private boolean usesRoot;
+
+        Parser(String text) {
+            this.text = text;
+        }
+
+        List<Step> parseQuery() {
+            skipSpaces();
+            if (!consume('$')) {
+                throw error("must start with $");
+            }
+            List<Step> steps = parseSteps();
+            skipSpaces();
+            if (pos < text.length()) {
+                throw error("unexpected '" + text.charAt(pos) + "'");
+            }
+            return steps;
+        }
+
+        private List<Step> parseSteps() {
+            List<Step> steps = new ArrayList<>();
+            while (pos < text.length()) {
+                char c = text.charAt(pos);
+                if (text.startsWith("..", pos)) {
+                    pos += 2;
+                    steps.add(new Descendants(peek('[') ? parseBracket() : parseDotted()));
+                } else if (c == '.') {
+                    pos++;
+                    steps.add(parseDotted());
+                } else if (c == '[') {
+                    steps.add(parseBracket());
+                } else {
+                    break;
+                }
+            }
+            return steps;
+        }
+
+        private Step parseDotted() {
+            if (consume('*')) {
+                return new Wildcard();
+            }
+            int start = pos;
+            while (pos < text.length() && (Character.isLetterOrDigit(text.charAt(pos)) || "_-$@".indexOf(text.charAt(pos)) >= 0)) {
+                pos++;
+            }
+            if (start == pos) {
+                throw error("expected a field name");
+            }
+            return new Names(Collections.singletonList(text.substring(start, pos)));
+        }
+
+        private Step parseBracket() {
+            expect('[');
+            skipSpaces();
+            Step step;
+            if (consume('*')) {
+                step = new Wildcard();
+            } else if (consume('?')) {
+                skipSpaces();
+                boolean parenthesized = consume('(');
+                step = new Filter(parseOr());
+                if (parenthesized) {
+                    skipSpaces();
+                    expect(')');
+                }
+            } else if (peek('\'') || peek('"')) {
+                List<String> names = new ArrayList<>();
+                do {
+                    skipSpaces();
+                    names.add(parseString());
+                    skipSpaces();
+                } while (consume(','));
+                step = new Names(names);
+            } else {
+                step = parseIndexOrSlice();
+            }
+            skipSpaces();
+            expect(']');
+            return step;
+        }
+
+        private Step parseIndexOrSlice() {
+            Integer first = parseOptionalInt();
+            skipSpaces();
+            if (peek(':')) {
+                Integer[] parts = {first, null, null};
+                for (int i = 1; i < 3 && consume(':'); i++) {
+                    skipSpaces();
+                    parts[i] = parseOptionalInt();
+                    skipSpaces();
+                }
+                int step = parts[2] == null ? 1 : parts[2];
+                if (step == 0) {
+                    throw error("slice step cannot be 0");
+                }
+                return new Slice(parts[0], parts[1], step);
+            }
+            if (first == null) {
+                throw error("expected an index, a name, * or a filter");
+            }
+            List<Integer> indices = new ArrayList<>();
+            indices.add(first);
+            while (consume(',')) {
+                skipSpaces();
+                Integer next = parseOptionalInt();
+                if (next == null) {
+                    throw error("expected an index");
+                }
+                indices.add(next);
+                skipSpaces();
+            }
+            return new Indices(indices.stream().mapToInt(Integer::intValue).toArray());
+        }
+
+        private Integer parseOptionalInt() {
+            int start = pos;
+            if (peek('-')) {
+                pos++;
+            }
+            while (pos < text.length() && Character.isDigit(text.charAt(pos))) {
+                pos++;
+            }
+            if (pos == start || (pos == start + 1 && text.charAt(start) == '-')) {
+                pos = start;
+                return null;
+            }
+            try {
+                return Integer.parseInt(text.substring(start, pos));
+            } catch (NumberFormatException e) {
+                throw error("index out of range");
+            }
+        }
+
+        private Condition parseOr() {
+            Condition left = parseAnd();
+            while (skipSpaces() && consume("||")) {
+                Condition a = left;
+                Condition b = parseAnd();
+                left = (current, root) -> a.test(current, root) || b.test(current, root);
+            }
+            return left;
+        }
+
+        private Condition parseAnd() {
+            Condition left = parseUnary();
+            while (skipSpaces() && consume("&&")) {
+                Condition a = left;
+                Condition b = parseUnary();
+                left = (current, root) -> a.test(current, root) && b.test(current, root);
+            }
+            return left;
+        }
+
+        private Condition parseUnary() {
+            skipSpaces();
+            if (consume('!')) {
+                Condition inner = parseUnary();
+                return (current, root) -> !inner.test(current, root);
+            }
+            if (consume('(')) {
+                Condition inner = parseOr();
+                skipSpaces();
+                expect(')');
+                return inner;
+            }
+            Operand left = parseOperand();
+            skipSpaces();
+            String op = null;
+            for (String candidate : new String[] {"==", "!=", "<=", ">=", "<", ">"}) {
+                if (consume(candidate)) {
+                    op = candidate;
+                    break;
+                }
+            }
+            if (op == null) {
+                // A bare operand tests that the path exists
+                return (current, root) -> {
+                    JsonNode value = left.value(current, root);
+                    return value != null && !(value.isBoolean() && !value.booleanValue());
+                };
+            }
+            skipSpaces();
+            Operand right = parseOperand();
+            String operator = op;
+            return (current, root) -> compare(left.value(current, root), operator, right.value(current, root));
+        }
+
+        private Operand parseOperand() {
+            skipSpaces();
+            if (consume('@')) {
+                List<Step> steps = parseSteps();
+                return path(steps, false);
+            }
+            if (consume('$')) {
+                usesRoot = true;
+                List<Step> steps = parseSteps();
+                return path(steps, true);
+            }
+            JsonNode literal = parseLiteral();
+            return (current, root) -> literal;
+        }
+
+        private JsonNode parseLiteral() {
+            if (peek('\'') || peek('"')) {
+                return JsonNodeFactory.instance.textNode(parseString());
+            }
+            for (String keyword : new String[] {"true", "false", "null"}) {
+                if (consume(keyword)) {
+                    return keyword.equals("null") ? JsonNodeFactory.instance.nullNode()
+                            : JsonNodeFactory.instance.booleanNode(keyword.equals("true"));
+                }
+            }
+            int start = pos;
+            while (pos < text.length() && "+-.eE0123456789".indexOf(text.charAt(pos)) >= 0) {
+                pos++;
+            }
+            if (start == pos) {
+                throw error("expected @, $ or a literal");
+            }
+            try {
+                return JsonNodeFactory.instance.numberNode(new BigDecimal(text.substring(start, pos)));
+            } catch (NumberFormatException e) {
+                throw error("invalid number " + text.substring(start, pos));
+            }
+        }
+
+        private String parseString() {
+            char quote = text.charAt(pos++);
+            StringBuilder value = new StringBuilder();
+            while (pos < text.length() && text.charAt(pos) != quote) {
+                char c = text.charAt(pos++);
+                if (c == '\\' && pos < text.length()) {
+                    c = text.charAt(pos++);
+                }
+                value.append(c);
+            }
+            expect(quote);
+            return value.toString();
+        }
+
+        // Always true, so it can lead a condition in a loop test
+        private boolean skipSpaces() {
+            while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+                pos++;
+            }
+            return true;
+        }
+
+        private boolean peek(char c) {
+            return pos < text.length() && text.charAt(pos) == c;
+        }
+
+        private boolean consume(char c) {
+            if (peek(c)) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        private boolean consume(String token) {
+            if (text.startsWith(token, pos)) {
+                pos += token.length();
+                return true;
+            }
+            return false;
+        }
+
+        private void expect(char c) {
+            if (!consume(c)) {
+                throw error("expected '" + c + "'");
+            }
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException("Invalid JSONPath '" + text + "' at position " + pos + ": " + message);
+        }
+    }
+}
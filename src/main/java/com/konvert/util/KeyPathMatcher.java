@@ -0,0 +1,430 @@
+package com.konvert.util;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+
+/**
+ * Matches object keys by their path against a set of rules such as {@code password},
+ * {@code a.*.secret} or {@code **.token}, and removes or renames the matches in place.
+ * A segment is a key name, {@code *} for any one key or {@code **} for any number of keys, and a
+ * backslash escapes a dot inside a name. Array elements do not add a segment, so {@code items.sku}
+ * reaches the sku of every item. A rule without a dot matches its key at any depth, as field names
+ * always did; a dotted rule without wildcards also still matches a key spelled exactly like it.
+ *
+ * <p>The rules are compiled into an automaton over key names whose states are built on first use.
+ * Keys that no rule mentions share one transition, so the number of states stays bounded. Subtrees
+ * that no rule can reach are never visited, and objects without a match are left untouched. Large
+ * JSON can also be filtered straight from a parser to a generator without building a tree.
+ * States are cached in concurrent maps, so large arrays can be mapped by several threads at once.
+ */
+public final class KeyPathMatcher {
+
+    private static final String ANY = "*";
+    private static final String ANY_DEPTH = "**";
+    // Arrays with at least this many elements are mapped in parallel chunks
+    private static final int PARALLEL_THRESHOLD = 10_000;
+
+    // One NFA position per (pattern, segment index), numbered pattern by pattern
+    private final List<String[]> patterns = new ArrayList<>();
+    private final List<Integer> ruleOf = new ArrayList<>();
+    private final List<String> replacements;
+    private int[] patternAt;
+    private int[] positionAt;
+    private int[] offsets;
+    private final Set<String> literals = new HashSet<>();
+    private final Map<BitSet, State> states = new ConcurrentHashMap<>();
+    private final State start;
+
+    private KeyPathMatcher(List<String> rules, List<String> replacements) {
+        this.replacements = replacements;
+        for (int rule = 0; rule < rules.size(); rule++) {
+            addRule(rules.get(rule), rule);
+        }
+        index();
+        BitSet initial = new BitSet();
+        for (int i = 0; i < patterns.size(); i++) {
+            initial.set(offsets[i]);
+        }
+        start = state(closure(initial));
+    }
+
+    /**
+     * Rules for removing keys
+     */
+    public static KeyPathMatcher forFilter(Collection<String> rules) {
+        return new KeyPathMatcher(nonEmpty(rules), null);
+    }
+
+    /**
+     * Rules for renaming keys, from an object mapping each rule to the new key name
+     */
+    public static KeyPathMatcher forRename(JsonNode renameMap) {
+        if (renameMap == null || !renameMap.isObject()) {
+            throw new IllegalArgumentException("Rename map must be a JSON object");
+        }
+        return forMap(renameMap, Collections.emptySet());
+    }
+
+    /**
+     * Rules from an object mapping each rule to a text value, leaving out the given keys
+     */
+    public static KeyPathMatcher forMap(JsonNode map, Set<String> excluded) {
+        List<String> rules = new ArrayList<>();
+        List<String> values = new ArrayList<>();
+        Iterator<Map.Entry<String, JsonNode>> fields = map.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            if (!excluded.contains(field.getKey())) {
+                rules.add(field.getKey());
+                values.add(field.getValue().asText());
+            }
+        }
+        return new KeyPathMatcher(rules, values);
+    }
+
+    private static List<String> nonEmpty(Collection<String> rules) {
+        List<String> result = new ArrayList<>();
+        for (String rule : rules) {
+            if (rule != null && !rule.trim().isEmpty()) {
+                result.add(rule.trim());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Remove every matching key from the tree in place and return the tree
+     */
+    public JsonNode remove(JsonNode root) {
+        remove(root, start);
+        return root;
+    }
+
+    private void remove(JsonNode node, State state) {
+        if (node.isArray()) {
+            for (JsonNode element : node) {
+                if (element.isContainerNode()) {
+                    remove(element, state);
+                }
+            }
+        } else if (node.isObject()) {
+            Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                State next = state.next(field.getKey());
+                if (next.rule >= 0) {
+                    fields.remove();
+                } else if (!next.dead && field.getValue().isContainerNode()) {
+                    remove(field.getValue(), next);
+                }
+            }
+        }
+    }
+
+    /**
+     * Rename every matching key in place and return the tree. An object is rebuilt, in its original
+     * key order, only when one of its own keys is renamed.
+     */
+    public JsonNode rename(JsonNode root) {
+        rename(root, start);
+        return root;
+    }
+
+    private void rename(JsonNode node, State state) {
+        if (node.isArray()) {
+            for (JsonNode element : node) {
+                if (element.isContainerNode()) {
+                    rename(element, state);
+                }
+            }
+        } else if (node.isObject()) {
+            boolean renamed = false;
+            Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                State next = state.next(field.getKey());
+                renamed |= next.rule >= 0;
+                if (!next.dead && field.getValue().isContainerNode()) {
+                    rename(field.getValue(), next);
+                }
+            }
+            if (renamed) {
+                ObjectNode object = (ObjectNode) node;
+                Map<String, JsonNode> entries = new LinkedHashMap<>();
+                object.fields().forEachRemaining(field -> entries.put(field.getKey(), field.getValue()));
+                object.removeAll();
+                for (Map.Entry<String, JsonNode> entry : entries.entrySet()) {
+                    State next = state.next(entry.getKey());
+                    object.set(next.rule >= 0 ? replacements.get(next.rule) : entry.getKey(), entry.getValue());
+                }
+            }
+        }
+    }
+
+    /**
+     * Replace scalar values in place with the function's result. A scalar under a matching key, or in
+     * an array under one, is passed with its rule's mapped value; with {@code allArrays}, scalars in
+     * other arrays are passed with null. Large arrays are split across the shared worker pool, so the
+     * function must be safe to call from several threads. Returns the tree.
+     */
+    public JsonNode mapValues(JsonNode root, boolean allArrays, BiFunction<JsonNode, String, JsonNode> function) {
+        mapValues(root, start, null, allArrays, function);
+        return root;
+    }
+
+    private void mapValues(JsonNode node, State state, String mapped, boolean allArrays,
+                           BiFunction<JsonNode, String, JsonNode> function) {
+        if (node.isArray()) {
+            ArrayNode array = (ArrayNode) node;
+            if (array.size() >= PARALLEL_THRESHOLD) {
+                mapInParallel(array, state, mapped, allArrays, function);
+            } else {
+                mapElements(array, 0, array.size(), state, mapped, allArrays, function);
+            }
+        } else if (node.isObject()) {
+            Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                State next = state.next(field.getKey());
+                String value = next.rule >= 0 ? replacements.get(next.rule) : null;
+                JsonNode child = field.getValue();
+                if (!child.isContainerNode()) {
+                    if (value != null) {
+                        field.setValue(function.apply(child, value));
+                    }
+                } else if (value != null || !next.dead || allArrays) {
+                    mapValues(child, next, child.isArray() ? value : null, allArrays, function);
+                }
+            }
+        }
+    }
+
+    private void mapElements(ArrayNode array, int from, int to, State state, String mapped, boolean allArrays,
+                             BiFunction<JsonNode, String, JsonNode> function) {
+        for (int i = from; i < to; i++) {
+            JsonNode element = array.get(i);
+            if (element.isContainerNode()) {
+                mapValues(element, state, mapped, allArrays, function);
+            } else if (mapped != null || allArrays) {
+                array.set(i, function.apply(element, mapped));
+            }
+        }
+    }
+
+    // Chunks replace disjoint elements only, so the array is never resized while shared
+    private void mapInParallel(ArrayNode array, State state, String mapped, boolean allArrays,
+                               BiFunction<JsonNode, String, JsonNode> function) {
+        int size = array.size();
+        int chunks = ParallelUtil.parallelism() * 4;
+        List<Callable<Void>> tasks = new ArrayList<>(chunks);
+        for (int chunk = 0; chunk < chunks; chunk++) {
+            int from = (int) ((long) size * chunk / chunks);
+            int to = (int) ((long) size * (chunk + 1) / chunks);
+            tasks.add(() -> {
+                mapElements(array, from, to, state, mapped, allArrays, function);
+                return null;
+            });
+        }
+        try {
+            ParallelUtil.invokeAll(tasks);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("Parallel value mapping failed: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Copy every root value from the parser to the generator, dropping matching keys token by token.
+     * Removed values are skipped unread and subtrees no rule can reach are copied whole.
+     */
+    public void remove(JsonParser parser, JsonGenerator generator) throws IOException {
+        JsonToken token;
+        while ((token = parser.nextToken()) != null) {
+            copy(parser, generator, token, start);
+        }
+    }
+
+    private void copy(JsonParser parser, JsonGenerator generator, JsonToken token, State state) throws IOException {
+        if (token == JsonToken.START_OBJECT) {
+            generator.writeStartObject();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.getCurrentName();
+                State next = state.next(name);
+                JsonToken value = parser.nextToken();
+                if (next.rule >= 0) {
+                    parser.skipChildren();
+                    continue;
+                }
+                generator.writeFieldName(name);
+                if (next.dead) {
+                    generator.copyCurrentStructure(parser);
+                } else {
+                    copy(parser, generator, value, next);
+                }
+            }
+            generator.writeEndObject();
+        } else if (token == JsonToken.START_ARRAY) {
+            generator.writeStartArray();
+            JsonToken element;
+            while ((element = parser.nextToken()) != JsonToken.END_ARRAY) {
+                copy(parser, generator, element, state);
+            }
+            generator.writeEndArray();
+        } else {
+            generator.copyCurrentEvent(parser);
+        }
+    }
+
+    private void addRule(String rule, int index) {
+        List<String> segments = split(rule);
+        boolean wildcard = segments.contains(ANY) || segments.contains(ANY_DEPTH);
+        if (segments.size() == 1 && !wildcard) {
+            addPattern(new String[] {ANY_DEPTH, segments.get(0)}, index);
+            return;
+        }
+        addPattern(segments.toArray(new String[0]), index);
+        if (!wildcard) {
+            // A flattened key such as "user.name" keeps matching the way it did before paths were scoped
+            addPattern(new String[] {ANY_DEPTH, rule}, index);
+        }
+    }
+
+    private void addPattern(String[] segments, int rule) {
+        patterns.add(segments);
+        ruleOf.add(rule);
+        for (String segment : segments) {
+            if (!ANY.equals(segment) && !ANY_DEPTH.equals(segment)) {
+                literals.add(segment);
+            }
+        }
+    }
+
+    private static List<String> split(String rule) {
+        List<String> segments = new ArrayList<>();
+        StringBuilder segment = new StringBuilder();
+        for (int i = 0; i < rule.length(); i++) {
+            char c = rule.charAt(i);
+            if (c == '\\' && i + 1 < rule.length()) {
+                segment.append(rule.charAt(++i));
+            } else if (c == '.') {
+                segments.add(segment.toString());
+                segment.setLength(0);
+            } else {
+                segment.append(c);
+            }
+        }
+        segments.add(segment.toString());
+        return segments;
+    }
+
+    private void index() {
+        offsets = new int[patterns.size()];
+        int size = 0;
+        for (int i = 0; i < patterns.size(); i++) {
+            offsets[i] = size;
+            size += patterns.get(i).length + 1;
+        }
+        patternAt = new int[size];
+        positionAt = new int[size];
+        for (int i = 0; i < patterns.size(); i++) {
+            for (int p = 0; p <= patterns.get(i).length; p++) {
+                patternAt[offsets[i] + p] = i;
+                positionAt[offsets[i] + p] = p;
+            }
+        }
+    }
+
+    // ** may also match no key at all
+    private BitSet closure(BitSet positions) {
+        for (int bit = positions.nextSetBit(0); bit >= 0; bit = positions.nextSetBit(bit + 1)) {
+            String[] segments = patterns.get(patternAt[bit]);
+            int position = positionAt[bit];
+            if (position < segments.length && ANY_DEPTH.equals(segments[position])) {
+                positions.set(bit + 1);
+            }
+        }
+        return positions;
+    }
+
+    private BitSet step(BitSet positions, String name) {
+        BitSet next = new BitSet();
+        for (int bit = positions.nextSetBit(0); bit >= 0; bit = positions.nextSetBit(bit + 1)) {
+            String[] segments = patterns.get(patternAt[bit]);
+            int position = positionAt[bit];
+            if (position == segments.length) {
+                continue;
+            }
+            String segment = segments[position];
+            if (ANY_DEPTH.equals(segment)) {
+                next.set(bit);
+            } else if (ANY.equals(segment) || segment.equals(name)) {
+                next.set(bit + 1);
+            }
+        }
+        return closure(next);
+    }
+
+    private State state(BitSet positions) {
+        State state = states.get(positions);
+        return state != null ? state : states.computeIfAbsent(positions, State::new);
+    }
+
+    private final class State {
+        private final BitSet positions;
+        // Earliest rule whose pattern is complete here, or -1
+        final int rule;
+        // No rule can match at or below this key
+        final boolean dead;
+        private final Map<String, State> byName = new ConcurrentHashMap<>();
+        // Threads racing to fill a transition compute the same state, which state() deduplicates
+        private volatile State other;
+
+        State(BitSet positions) {
+            this.positions = positions;
+            this.dead = positions.isEmpty();
+            int matched = -1;
+            for (int bit = positions.nextSetBit(0); bit >= 0; bit = positions.nextSetBit(bit + 1)) {
+                if (positionAt[bit] == patterns.get(patternAt[bit]).length) {
+                    int rule = ruleOf.get(patternAt[bit]);
+                    matched = matched < 0 ? rule : Math.min(matched, rule);
+                }
+            }
+            this.rule = matched;
+        }
+
+        State next(String name) {
+            if (!literals.contains(name)) {
+                if (other == null) {
+                    other = state(step(positions, name));
+                }
+                return other;
+            }
+            State next = byName.get(name);
+            if (next == null) {
+                next = state(step(positions, name));
+                byName.put(name, next);
+            }
+            return next;
+        }
+    }
+}
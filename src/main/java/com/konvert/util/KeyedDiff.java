@@ -0,0 +1,430 @@
+package com.konvert.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+/**
+ * Compares two record streams row by row on key fields, so reordered extracts line up. The smaller
+ * input is loaded into a hash table by key and the larger one streams past it. When the table
+ * outgrows its memory budget, both inputs are split by key hash into partitions on disk, as in
+ * {@link HashJoin}, and the pairs of partitions are compared in parallel. Each change is one record:
+ * an added or removed row, or a changed row with the old and new value of every changed column.
+ * Keys compare by value, so {@code 007} and {@code 7} differ but {@code 7} and {@code 7.0} do not; a
+ * row with a missing or blank key never matches and is reported as added or removed.
+ */
+public final class KeyedDiff {
+
+    // Partitions that still do not fit are split again with another hash, this many times at most
+    private static final int MAX_DEPTH = 3;
+    private static final String PREFIX = "konvertr-diff-";
+
+    private static final JsonNodeFactory nodes = JsonNodeFactory.instance;
+
+    private final String[] keys;
+    private final String[][] paths;
+    private long memoryBytes = HashJoin.DEFAULT_MEMORY_BYTES;
+
+    private long leftRecords;
+    private long rightRecords;
+    private int partitions;
+    // Partition tasks create files concurrently
+    private final List<Path> files = Collections.synchronizedList(new ArrayList<>());
+
+    /**
+     * A diff keyed on comma-separated key fields, which may be dotted paths into nested records
+     */
+    public KeyedDiff(String keys) {
+        this.keys = HashJoin.splitKeys(keys);
+        if (this.keys.length == 0) {
+            throw new IllegalArgumentException("At least one key column is required");
+        }
+        this.paths = HashJoin.paths(this.keys);
+    }
+
+    /**
+     * Cap the estimated heap of the hash table before the diff partitions to disk
+     */
+    public KeyedDiff limitMemory(long bytes) {
+        if (bytes <= 0) {
+            throw new IllegalArgumentException("Memory limit must be positive");
+        }
+        this.memoryBytes = bytes;
+        return this;
+    }
+
+    /**
+     * Compare two inputs given as text in any supported format and return the changes with statistics
+     */
+    public static Map<String, Object> compare(String input1, String input2, String format, String keys,
+                                              Long memoryBytes) throws IOException {
+        if (input1 == null || input1.trim().isEmpty() || input2 == null || input2.trim().isEmpty()) {
+            throw new IllegalArgumentException("Both inputs are required");
+        }
+        format = format == null || format.trim().isEmpty() ? "csv" : format;
+        KeyedDiff diff = new KeyedDiff(keys);
+        if (memoryBytes != null) {
+            diff.limitMemory(memoryBytes);
+        }
+        ArrayNode changes = nodes.arrayNode();
+        Map<String, Object> stats = diff.compare(RecordStreams.reader(input1, format), input1.length(),
+                RecordStreams.reader(input2, format), input2.length(), new Collector(changes));
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("changes", changes);
+        result.putAll(stats);
+        return result;
+    }
+
+    /**
+     * Compare the readers and write one record per change in the output format. Returns record counts
+     * per side, counts per kind of change, the number of disk partitions and the time spent.
+     */
+    public Map<String, Object> compare(RecordStreams.RecordReader left, long leftSize,
+                                       RecordStreams.RecordReader right, long rightSize,
+                                       Writer out, String outputFormat) throws IOException {
+        RecordStreams.RecordWriter writer = RecordStreams.writer(out, outputFormat);
+        Map<String, Object> stats = compare(left, leftSize, right, rightSize, writer);
+        writer.close();
+        return stats;
+    }
+
+    private Map<String, Object> compare(RecordStreams.RecordReader left, long leftSize,
+                                        RecordStreams.RecordReader right, long rightSize,
+                                        RecordStreams.RecordWriter writer) throws IOException {
+        long start = System.nanoTime();
+        boolean buildLeft = leftSize <= rightSize;
+        Changes changes = new Changes(writer);
+        try (RecordStreams.RecordReader l = left; RecordStreams.RecordReader r = right) {
+            Side build = buildLeft ? new Side(true, l) : new Side(false, r);
+            Side probe = buildLeft ? new Side(false, r) : new Side(true, l);
+            run(build, probe, changes, memoryBytes, 0);
+        } finally {
+            for (Path file : files) {
+                Files.deleteIfExists(file);
+            }
+            files.clear();
+        }
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("identical", changes.added + changes.removed + changes.changed == 0);
+        stats.put("leftRecords", leftRecords);
+        stats.put("rightRecords", rightRecords);
+        stats.put("added", changes.added);
+        stats.put("removed", changes.removed);
+        stats.put("changed", changes.changed);
+        stats.put("unchanged", changes.unchanged);
+        stats.put("partitions", partitions);
+        stats.put("elapsedMs", (System.nanoTime() - start) / 1_000_000);
+        return stats;
+    }
+
+    private void run(Side build, Side probe, Changes changes, long budget, int depth) throws IOException {
+        Map<String, Row> table = new LinkedHashMap<>();
+        List<JsonNode> keyless = new ArrayList<>();
+        long bytes = 0;
+        while (build.records.hasNext()) {
+            JsonNode record = build.next(this);
+            String key = HashJoin.keyOf(record, paths);
+            if (key == null) {
+                keyless.add(record);
+            } else if (table.put(key, new Row(record)) != null) {
+                throw duplicate(key, build.left);
+            }
+            bytes += 48 + (key == null ? 0 : 2L * key.length()) + ExternalSort.estimate(record);
+            if (bytes > budget && depth < MAX_DEPTH) {
+                partition(table, keyless, build, probe, changes, budget, depth);
+                return;
+            }
+        }
+        while (probe.records.hasNext()) {
+            JsonNode record = probe.next(this);
+            String key = HashJoin.keyOf(record, paths);
+            Row row = key == null ? null : table.get(key);
+            if (row == null) {
+                changes.unmatched(record, probe.left, this);
+            } else if (row.matched) {
+                throw duplicate(key, probe.left);
+            } else {
+                row.matched = true;
+                changes.matched(build.left ? row.record : record, build.left ? record : row.record, this);
+            }
+        }
+        for (Row row : table.values()) {
+            if (!row.matched) {
+                changes.unmatched(row.record, build.left, this);
+            }
+        }
+        for (JsonNode record : keyless) {
+            changes.unmatched(record, build.left, this);
+        }
+    }
+
+    // Spread the rest of both sides over partition files by key hash. The first level compares the
+    // pairs in parallel, each into a file of its own, and copies those out in partition order.
+    private void partition(Map<String, Row> table, List<JsonNode> keyless, Side build, Side probe, Changes changes,
+                           long budget, int depth) throws IOException {
+        Path[] buildParts = new Path[HashJoin.PARTITIONS];
+        Path[] probeParts = new Path[HashJoin.PARTITIONS];
+        try (HashJoin.Partitions buildOut = new HashJoin.Partitions(buildParts, depth, PREFIX, files)) {
+            for (Map.Entry<String, Row> entry : table.entrySet()) {
+                buildOut.write(entry.getKey(), entry.getValue().record);
+            }
+            table.clear();
+            while (build.records.hasNext()) {
+                JsonNode record = build.next(this);
+                String key = HashJoin.keyOf(record, paths);
+                if (key == null) {
+                    keyless.add(record);
+                } else {
+                    buildOut.write(key, record);
+                }
+            }
+        }
+        try (HashJoin.Partitions probeOut = new HashJoin.Partitions(probeParts, depth, PREFIX, files)) {
+            while (probe.records.hasNext()) {
+                JsonNode record = probe.next(this);
+                String key = HashJoin.keyOf(record, paths);
+                if (key == null) {
+                    changes.unmatched(record, probe.left, this);
+                } else {
+                    probeOut.write(key, record);
+                }
+            }
+        }
+        synchronized (this) {
+            partitions += HashJoin.PARTITIONS;
+        }
+
+        if (depth > 0) {
+            for (int i = 0; i < HashJoin.PARTITIONS; i++) {
+                comparePartition(buildParts[i], probeParts[i], build.left, changes, budget, depth);
+            }
+        } else {
+            // Every task holds a table at once, so they share the budget
+            long share = Math.max(1, budget / ParallelUtil.parallelism());
+            List<Callable<Path>> tasks = new ArrayList<>(HashJoin.PARTITIONS);
+            for (int i = 0; i < HashJoin.PARTITIONS; i++) {
+                Path buildPart = buildParts[i];
+                Path probePart = probeParts[i];
+                tasks.add(() -> {
+                    Path output = Files.createTempFile(PREFIX, ".ndjson");
+                    files.add(output);
+                    try (Writer out = Files.newBufferedWriter(output, StandardCharsets.UTF_8)) {
+                        RecordStreams.RecordWriter writer = RecordStreams.writer(out, "ndjson");
+                        Changes local = new Changes(writer);
+                        comparePartition(buildPart, probePart, build.left, local, share, depth);
+                        writer.close();
+                        changes.add(local);
+                    }
+                    return output;
+                });
+            }
+            List<Path> outputs;
+            try {
+                outputs = ParallelUtil.invokeAll(tasks);
+            } catch (IOException | RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new RuntimeException("Keyed diff failed: " + e.getMessage(), e);
+            }
+            for (Path output : outputs) {
+                try (HashJoin.FileRecords records = new HashJoin.FileRecords(output)) {
+                    while (records.hasNext()) {
+                        changes.writer.write(records.next());
+                    }
+                }
+                Files.deleteIfExists(output);
+            }
+        }
+        for (JsonNode record : keyless) {
+            changes.unmatched(record, build.left, this);
+        }
+    }
+
+    private void comparePartition(Path buildPart, Path probePart, boolean buildLeft, Changes changes, long budget,
+                                  int depth) throws IOException {
+        try (HashJoin.FileRecords buildRecords = new HashJoin.FileRecords(buildPart);
+             HashJoin.FileRecords probeRecords = new HashJoin.FileRecords(probePart)) {
+            // Records were counted when first read
+            run(new Side(buildLeft, buildRecords, false), new Side(!buildLeft, probeRecords, false), changes,
+                    budget, depth + 1);
+        }
+        Files.deleteIfExists(buildPart);
+        Files.deleteIfExists(probePart);
+    }
+
+    private IllegalArgumentException duplicate(String key, boolean left) {
+        return new IllegalArgumentException("Key " + key + " appears more than once in the "
+                + (left ? "first" : "second") + " input");
+    }
+
+    // The key fields of a record, named as given
+    private ObjectNode keyFields(JsonNode record) {
+        ObjectNode key = nodes.objectNode();
+        for (int i = 0; i < keys.length; i++) {
+            JsonNode value = ExternalSort.valueAt(record, paths[i]);
+            key.set(keys[i], value == null ? nodes.nullNode() : value);
+        }
+        return key;
+    }
+
+    // Equal values, with numbers of different types compared by value
+    private static boolean same(JsonNode a, JsonNode b) {
+        if (a == null || b == null) {
+            return a == b;
+        }
+        return a.equals(b) || a.isNumber() && b.isNumber() && ExternalSort.compareValues(a, b, false) == 0;
+    }
+
+    /**
+     * Writes change records and counts them; one per thread
+     */
+    private static final class Changes {
+        final RecordStreams.RecordWriter writer;
+        long added;
+        long removed;
+        long changed;
+        long unchanged;
+
+        Changes(RecordStreams.RecordWriter writer) {
+            this.writer = writer;
+        }
+
+        void unmatched(JsonNode record, boolean left, KeyedDiff diff) throws IOException {
+            ObjectNode change = nodes.objectNode();
+            change.put("change", left ? "removed" : "added");
+            change.set("key", diff.keyFields(record));
+            change.set("row", record);
+            writer.write(change);
+            if (left) {
+                removed++;
+            } else {
+                added++;
+            }
+        }
+
+        void matched(JsonNode left, JsonNode right, KeyedDiff diff) throws IOException {
+            ObjectNode columns = nodes.objectNode();
+            Iterator<Map.Entry<String, JsonNode>> fields = left.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                JsonNode value = right.get(field.getKey());
+                if (!same(field.getValue(), value)) {
+                    columns.set(field.getKey(), column(field.getValue(), value));
+                }
+            }
+            fields = right.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                if (!left.has(field.getKey())) {
+                    columns.set(field.getKey(), column(null, field.getValue()));
+                }
+            }
+            if (columns.isEmpty()) {
+                unchanged++;
+                return;
+            }
+            ObjectNode change = nodes.objectNode();
+            change.put("change", "changed");
+            change.set("key", diff.keyFields(left));
+            change.set("columns", columns);
+            writer.write(change);
+            changed++;
+        }
+
+        private static ObjectNode column(JsonNode from, JsonNode to) {
+            ObjectNode column = nodes.objectNode();
+            column.set("from", from == null ? nodes.nullNode() : from);
+            column.set("to", to == null ? nodes.nullNode() : to);
+            return column;
+        }
+
+        synchronized void add(Changes other) {
+            added += other.added;
+            removed += other.removed;
+            changed += other.changed;
+            unchanged += other.unchanged;
+        }
+    }
+
+    /**
+     * One input of the diff, counting its records as they are first read
+     */
+    private static final class Side {
+        final boolean left;
+        final Iterator<JsonNode> records;
+        private final boolean count;
+
+        Side(boolean left, Iterator<JsonNode> records) {
+            this(left, records, true);
+        }
+
+        Side(boolean left, Iterator<JsonNode> records, boolean count) {
+            this.left = left;
+            this.records = records;
+            this.count = count;
+        }
+
+        JsonNode next(KeyedDiff diff) {
+            JsonNode record = records.next();
+            if (!record.isObject()) {
+                throw new IllegalArgumentException("Diff records must be objects, found: " + record.getNodeType());
+            }
+            if (count) {
+                if (left) {
+                    diff.leftRecords++;
+                } else {
+                    diff.rightRecords++;
+                }
+            }
+            return record;
+        }
+    }
+
+    private static final class Row {
+        final JsonNode record;
+        boolean matched;
+
+        Row(JsonNode record) {
+            this.record = record;
+        }
+    }
+
+    /**
+     * Collects change records in memory, for inputs given as text
+     */
+    private static final class Collector implements RecordStreams.RecordWriter {
+        private final ArrayNode changes;
+
+        Collector(ArrayNode changes) {
+            this.changes = changes;
+        }
+
+        @Override
+        public void write(JsonNode record) {
+            changes.add(record);
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
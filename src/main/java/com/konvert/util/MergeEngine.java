@@ -0,0 +1,274 @@
+package com.konvert.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.RuntimeJsonMappingException;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.NullNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Deep-merges any number of documents in a single streaming pass. Each overlay is folded into the
+ * result as soon as it is parsed and then dropped, so NDJSON overlays are read one line at a time.
+ * Merging happens in place: nodes of the documents become part of the result without being copied,
+ * and a value that is replaced is never visited. Arrays are replaced, appended or merged by key,
+ * and a null can delete the value below it as in a JSON merge patch.
+ */
+public class MergeEngine {
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    public enum ArrayStrategy {
+        REPLACE, APPEND, MERGE_BY_KEY;
+
+        /**
+         * Parse replace, append or merge-by-key (also mergeByKey, merge_by_key); null means replace
+         */
+        public static ArrayStrategy fromString(String name) {
+            if (name == null || name.trim().isEmpty()) {
+                return REPLACE;
+            }
+            switch (name.trim().toLowerCase(Locale.ROOT).replace("-", "").replace("_", "")) {
+                case "replace":
+                    return REPLACE;
+                case "append":
+                case "concat":
+                    return APPEND;
+                case "mergebykey":
+                    return MERGE_BY_KEY;
+                default:
+                    throw new IllegalArgumentException("Unknown array strategy: " + name
+                            + ". Use replace, append or merge-by-key");
+            }
+        }
+    }
+
+    private final ArrayStrategy arrays;
+    private final String mergeKey;
+    private final boolean nullDeletes;
+    private int documents;
+
+    public MergeEngine(ArrayStrategy arrays, String mergeKey, boolean nullDeletes) {
+        if (arrays == ArrayStrategy.MERGE_BY_KEY && (mergeKey == null || mergeKey.isEmpty())) {
+            throw new IllegalArgumentException("Merge key is required for the merge-by-key array strategy");
+        }
+        this.arrays = arrays == null ? ArrayStrategy.REPLACE : arrays;
+        this.mergeKey = mergeKey;
+        this.nullDeletes = nullDeletes;
+    }
+
+    /**
+     * Merge inputs given as strings in the input format, or as already parsed JSON values. With NDJSON
+     * input every line of every input is an overlay. Returns the output with the number of documents
+     * merged and the time spent.
+     */
+    public static Map<String, Object> merge(List<?> inputs, String inputFormat, String outputFormat,
+                                            String arrayStrategy, String mergeKey, boolean nullDeletes) throws Exception {
+        if (inputs == null || inputs.isEmpty()) {
+            throw new IllegalArgumentException("At least one input document is required");
+        }
+        if (inputFormat == null || inputFormat.trim().isEmpty()) {
+            inputFormat = "json";
+        }
+        if (outputFormat == null || outputFormat.trim().isEmpty()) {
+            outputFormat = "ndjson".equalsIgnoreCase(inputFormat) ? "json" : inputFormat;
+        }
+        MergeEngine engine = new MergeEngine(ArrayStrategy.fromString(arrayStrategy), mergeKey, nullDeletes);
+
+        long start = System.nanoTime();
+        JsonNode merged = engine.merge(new Layers(inputs, inputFormat));
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("output", TransformPipeline.write(merged, outputFormat));
+        result.put("documents", engine.documents);
+        result.put("elapsedMs", (System.nanoTime() - start) / 1_000_000);
+        return result;
+    }
+
+    /**
+     * Fold the documents bottom to top into the first one. Nodes from the documents are reused and
+     * modified in place, and only one overlay is held at a time.
+     */
+    public JsonNode merge(Iterator<JsonNode> layers) {
+        JsonNode merged = null;
+        boolean started = false;
+        while (layers.hasNext()) {
+            JsonNode overlay = layers.next();
+            documents++;
+            merged = started ? mergeInto(merged, overlay) : overlay;
+            started = true;
+        }
+        // No documents, or the whole document deleted by a null overlay
+        return merged == null ? NullNode.getInstance() : merged;
+    }
+
+    /**
+     * Merge the overlay into the target and return the resulting value, which is the target itself
+     * when both are containers that combine. Returns null when the overlay deletes the value.
+     */
+    JsonNode mergeInto(JsonNode target, JsonNode overlay) {
+        if (overlay.isNull() && nullDeletes) {
+            return null;
+        }
+        if (target == null) {
+            return fresh(overlay);
+        }
+        if (target.isObject() && overlay.isObject()) {
+            ObjectNode object = (ObjectNode) target;
+            Iterator<Map.Entry<String, JsonNode>> fields = overlay.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                JsonNode existing = object.get(field.getKey());
+                JsonNode value = mergeInto(existing, field.getValue());
+                if (value == null) {
+                    object.remove(field.getKey());
+                } else if (value != existing) {
+                    object.set(field.getKey(), value);
+                }
+            }
+            return object;
+        }
+        if (target.isArray() && overlay.isArray() && arrays != ArrayStrategy.REPLACE) {
+            return mergeArrays((ArrayNode) target, (ArrayNode) overlay);
+        }
+        return fresh(overlay);
+    }
+
+    // A value that replaces or adds to the target; with null deletes its null fields mean "absent" too
+    private JsonNode fresh(JsonNode value) {
+        if (nullDeletes && value.isObject()) {
+            Iterator<JsonNode> children = value.elements();
+            while (children.hasNext()) {
+                JsonNode child = children.next();
+                if (child.isNull()) {
+                    children.remove();
+                } else {
+                    fresh(child);
+                }
+            }
+        }
+        return value;
+    }
+
+    private JsonNode mergeArrays(ArrayNode target, ArrayNode overlay) {
+        if (arrays == ArrayStrategy.APPEND) {
+            return target.addAll(overlay);
+        }
+        // Merge by key: an element whose key is already present merges into it, any other is appended
+        Map<String, Integer> positions = new HashMap<>();
+        for (int i = 0; i < target.size(); i++) {
+            String key = keyOf(target.get(i));
+            if (key != null) {
+                positions.putIfAbsent(key, i);
+            }
+        }
+        for (JsonNode element : overlay) {
+            String key = keyOf(element);
+            Integer position = key == null ? null : positions.get(key);
+            if (position == null) {
+                if (key != null) {
+                    positions.put(key, target.size());
+                }
+                target.add(fresh(element));
+            } else {
+                target.set(position, mergeInto(target.get(position), element));
+            }
+        }
+        return target;
+    }
+
+    // The merge key of an element, as JSON text so that 1 and "1" stay apart
+    private String keyOf(JsonNode element) {
+        JsonNode key = element.isObject() ? element.get(mergeKey) : null;
+        return key != null && key.isValueNode() ? key.toString() : null;
+    }
+
+    /**
+     * The parsed input documents in order, reading NDJSON lines lazily
+     */
+    private static final class Layers implements Iterator<JsonNode> {
+        private final Iterator<?> inputs;
+        private final String format;
+        private Iterator<JsonNode> current = Collections.emptyIterator();
+
+        Layers(List<?> inputs, String format) {
+            this.inputs = inputs.iterator();
+            this.format = format;
+        }
+
+        // NDJSON lines are parsed as they are read, so a malformed line surfaces here rather than in open()
+        @Override
+        public boolean hasNext() {
+            try {
+                while (!current.hasNext()) {
+                    if (!inputs.hasNext()) {
+                        return false;
+                    }
+                    current = open(inputs.next());
+                }
+                return true;
+            } catch (RuntimeException e) {
+                throw lineError(e);
+            }
+        }
+
+        @Override
+        public JsonNode next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            try {
+                return current.next();
+            } catch (RuntimeException e) {
+                throw lineError(e);
+            }
+        }
+
+        // MappingIterator reports bad lines as RuntimeJsonMappingException, or a RuntimeException around
+        // the parser's IOException
+        private RuntimeException lineError(RuntimeException e) {
+            return e instanceof RuntimeJsonMappingException || e.getCause() instanceof IOException ? invalid(e) : e;
+        }
+
+        private IllegalArgumentException invalid(Exception e) {
+            return new IllegalArgumentException("Invalid " + format + " input: " + e.getMessage(), e);
+        }
+
+        private Iterator<JsonNode> open(Object input) {
+            if (input == null) {
+                return Collections.emptyIterator();
+            }
+            if (!(input instanceof String)) {
+                JsonNode tree = mapper.valueToTree(input);
+                return Collections.singletonList(tree).iterator();
+            }
+            String text = (String) input;
+            if (text.trim().isEmpty()) {
+                return Collections.emptyIterator();
+            }
+            try {
+                if ("ndjson".equalsIgnoreCase(format)) {
+                    MappingIterator<JsonNode> lines = mapper.readerFor(JsonNode.class).readValues(text);
+                    return lines;
+                }
+                return Collections.singletonList(TransformPipeline.read(text, format)).iterator();
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw invalid(e);
+            }
+        }
+    }
+}
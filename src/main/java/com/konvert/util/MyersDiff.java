@@ -0,0 +1,244 @@
+package com.konvert.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Myers' O(ND) difference algorithm in linear space over sequences of int symbols, where equal
+ * symbols stand for equal elements. Common prefixes and suffixes are trimmed first, then the middle
+ * snake of the remaining range splits it in two until only changed regions are left. The result is
+ * the list of regions that differ, so its size follows the number of changes, not the input length.
+ * When a range needs more edits than the cost limit, it is first split on anchors, as in patience
+ * diff: elements that occur exactly once in each side, taken in the longest run whose order both
+ * sides agree on. Each piece between anchors is diffed again. Without anchors the range is split at
+ * the furthest point the forward search reached instead, so the result stays a valid diff in bounded
+ * time but may not be minimal; a range with too few matches on that path is one changed region.
+ */
+final class MyersDiff {
+
+    // Largest half edit distance searched for one middle snake before giving up on the range
+    static final int DEFAULT_COST_LIMIT = 1024;
+
+    /**
+     * A changed region: a[aStart, aEnd) is replaced by b[bStart, bEnd); either side may be empty
+     */
+    static final class Region {
+        final int aStart;
+        final int aEnd;
+        final int bStart;
+        final int bEnd;
+
+        Region(int aStart, int aEnd, int bStart, int bEnd) {
+            this.aStart = aStart;
+            this.aEnd = aEnd;
+            this.bStart = bStart;
+            this.bEnd = bEnd;
+        }
+    }
+
+    private final int[] a;
+    private final int[] b;
+    private final int costLimit;
+    private final List<Region> regions = new ArrayList<>();
+    // Set by middleSnake when the cost limit cut its search short
+    private boolean limited;
+
+    private MyersDiff(int[] a, int[] b, int costLimit) {
+        this.a = a;
+        this.b = b;
+        this.costLimit = costLimit;
+    }
+
+    /**
+     * The changed regions between the sequences, in order
+     */
+    static List<Region> diff(int[] a, int[] b) {
+        return diff(a, b, DEFAULT_COST_LIMIT);
+    }
+
+    static List<Region> diff(int[] a, int[] b, int costLimit) {
+        MyersDiff diff = new MyersDiff(a, b, costLimit);
+        diff.compare(0, a.length, 0, b.length);
+        return diff.regions;
+    }
+
+    private void compare(int aLo, int aHi, int bLo, int bHi) {
+        while (aLo < aHi && bLo < bHi && a[aLo] == b[bLo]) {
+            aLo++;
+            bLo++;
+        }
+        while (aLo < aHi && bLo < bHi && a[aHi - 1] == b[bHi - 1]) {
+            aHi--;
+            bHi--;
+        }
+        if (aLo == aHi || bLo == bHi) {
+            add(aLo, aHi, bLo, bHi);
+            return;
+        }
+        int[] snake = middleSnake(aLo, aHi, bLo, bHi);
+        if (limited && compareAnchored(aLo, aHi, bLo, bHi)) {
+            return;
+        }
+        if (snake == null
+                || snake[0] == aLo && snake[1] == bLo && snake[2] == aLo && snake[3] == bLo
+                || snake[0] == aHi && snake[1] == bHi) {
+            // No split that makes progress
+            add(aLo, aHi, bLo, bHi);
+            return;
+        }
+        compare(aLo, snake[0], bLo, snake[1]);
+        compare(snake[2], aHi, snake[3], bHi);
+    }
+
+    // Splits the range on its unique common elements and compares the pieces between them, or returns
+    // false when there are none
+    private boolean compareAnchored(int aLo, int aHi, int bLo, int bHi) {
+        // Per symbol: occurrences in a, occurrences in b, and the position in b of the last one
+        Map<Integer, int[]> counts = new HashMap<>();
+        for (int i = aLo; i < aHi; i++) {
+            counts.computeIfAbsent(a[i], key -> new int[3])[0]++;
+        }
+        for (int j = bLo; j < bHi; j++) {
+            int[] count = counts.get(b[j]);
+            if (count != null && count[1]++ == 0) {
+                count[2] = j;
+            }
+        }
+        int[] anchorA = new int[Math.min(aHi - aLo, bHi - bLo)];
+        int[] anchorB = new int[anchorA.length];
+        int candidates = 0;
+        for (int i = aLo; i < aHi; i++) {
+            int[] count = counts.get(a[i]);
+            if (count[0] == 1 && count[1] == 1) {
+                anchorA[candidates] = i;
+                anchorB[candidates++] = count[2];
+            }
+        }
+        if (candidates == 0) {
+            return false;
+        }
+
+        // Longest increasing run of b positions, by patience sorting: tails[p] is the candidate ending
+        // the best run of length p + 1 found so far, and previous links each candidate to its run
+        int[] tails = new int[candidates];
+        int[] previous = new int[candidates];
+        int length = 0;
+        for (int c = 0; c < candidates; c++) {
+            int lo = 0;
+            int hi = length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (anchorB[tails[mid]] < anchorB[c]) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            previous[c] = lo > 0 ? tails[lo - 1] : -1;
+            tails[lo] = c;
+            if (lo == length) {
+                length++;
+            }
+        }
+        int[] run = new int[length];
+        for (int c = tails[length - 1], p = length - 1; c >= 0; c = previous[c], p--) {
+            run[p] = c;
+        }
+
+        int fromA = aLo;
+        int fromB = bLo;
+        for (int c : run) {
+            compare(fromA, anchorA[c], fromB, anchorB[c]);
+            fromA = anchorA[c] + 1;
+            fromB = anchorB[c] + 1;
+        }
+        compare(fromA, aHi, fromB, bHi);
+        return true;
+    }
+
+    // Adjacent regions are joined, as splitting can leave two touching pieces of one change
+    private void add(int aLo, int aHi, int bLo, int bHi) {
+        if (aLo == aHi && bLo == bHi) {
+            return;
+        }
+        if (!regions.isEmpty()) {
+            Region last = regions.get(regions.size() - 1);
+            if (last.aEnd == aLo && last.bEnd == bLo) {
+                regions.set(regions.size() - 1, new Region(last.aStart, aHi, last.bStart, bHi));
+                return;
+            }
+        }
+        regions.add(new Region(aLo, aHi, bLo, bHi));
+    }
+
+    /**
+     * The snake in the middle of a shortest edit path as {aStart, bStart, aEnd, bEnd}. When the range
+     * needs more edits than the cost limit allows, the furthest point reached going forward instead.
+     */
+    private int[] middleSnake(int aLo, int aHi, int bLo, int bHi) {
+        limited = false;
+        int n = aHi - aLo;
+        int m = bHi - bLo;
+        int delta = n - m;
+        boolean odd = (delta & 1) != 0;
+        int maxD = Math.min((n + m + 1) / 2, costLimit);
+        int offset = maxD + 1;
+        // Furthest x reached on each diagonal, forwards from the start and backwards from the end
+        int[] forward = new int[2 * maxD + 3];
+        int[] backward = new int[2 * maxD + 3];
+
+        for (int d = 0; d <= maxD; d++) {
+            for (int k = -d; k <= d; k += 2) {
+                int x = k == -d || k != d && forward[offset + k - 1] < forward[offset + k + 1]
+                        ? forward[offset + k + 1] : forward[offset + k - 1] + 1;
+                int y = x - k;
+                int x0 = x;
+                int y0 = y;
+                while (x < n && y < m && a[aLo + x] == b[bLo + y]) {
+                    x++;
+                    y++;
+                }
+                forward[offset + k] = x;
+                int reverse = delta - k;
+                if (odd && reverse >= -(d - 1) && reverse <= d - 1 && x + backward[offset + reverse] >= n) {
+                    return new int[] {aLo + x0, bLo + y0, aLo + x, bLo + y};
+                }
+            }
+            for (int k = -d; k <= d; k += 2) {
+                int x = k == -d || k != d && backward[offset + k - 1] < backward[offset + k + 1]
+                        ? backward[offset + k + 1] : backward[offset + k - 1] + 1;
+                int y = x - k;
+                int x0 = x;
+                int y0 = y;
+                while (x < n && y < m && a[aHi - 1 - x] == b[bHi - 1 - y]) {
+                    x++;
+                    y++;
+                }
+                backward[offset + k] = x;
+                int ahead = delta - k;
+                if (!odd && ahead >= -d && ahead <= d && x + forward[offset + ahead] >= n) {
+                    return new int[] {aHi - x, bHi - y, aHi - x0, bHi - y0};
+                }
+            }
+        }
+        limited = true;
+        int best = -1;
+        int bestX = 0;
+        for (int k = -maxD; k <= maxD; k += 2) {
+            int x = forward[offset + k];
+            int y = x - k;
+            if (x <= n && y >= 0 && y <= m && x + y > best) {
+                best = x + y;
+                bestX = x;
+            }
+        }
+        // A path that is mostly edits means the range has little in common; keep it as one region
+        if (best - maxD < 2 * maxD) {
+            return null;
+        }
+        int bestY = best - bestX;
+        return new int[] {aLo + bestX, bLo + bestY, aLo + bestX, bLo + bestY};
+    }
+}
@@ -0,0 +1,129 @@
+package com.konvert.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ParallelUtil {
+
+    private static final int PARALLELISM = Math.max(1, Runtime.getRuntime().availableProcessors());
+    private static final ExecutorService executor = Executors.newFixedThreadPool(PARALLELISM, daemonThreads());
+    private static final ThreadLocal<Boolean> IN_WORKER = ThreadLocal.withInitial(() -> false);
+
+    /**
+     * Number of worker threads available for CPU-bound work
+     */
+    public static int parallelism() {
+        return PARALLELISM;
+    }
+
+    /**
+     * Run tasks on the shared worker pool and return their results in task order.
+     * A single task, or tasks submitted from a worker thread, run on the calling thread so nested
+     * calls cannot starve the pool. The first failure is rethrown with its original cause.
+     */
+    public static <T> List<T> invokeAll(List<? extends Callable<T>> tasks) throws Exception {
+        List<T> results = new ArrayList<>(tasks.size());
+        if (tasks.size() <= 1 || IN_WORKER.get()) {
+            for (Callable<T> task : tasks) {
+                results.add(task.call());
+            }
+            return results;
+        }
+
+        List<Future<T>> futures = new ArrayList<>(tasks.size());
+        for (Callable<T> task : tasks) {
+            futures.add(executor.submit(task));
+        }
+        try {
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+        } catch (ExecutionException e) {
+            cancelAll(futures);
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw new RuntimeException("Parallel task failed: " + cause.getMessage(), cause);
+        } catch (InterruptedException e) {
+            cancelAll(futures);
+            Thread.currentThread().interrupt();
+            throw e;
+        }
+        return results;
+    }
+
+    /**
+     * Receives task results as they complete
+     */
+    @FunctionalInterface
+    public interface ResultHandler<T> {
+        void accept(T result) throws Exception;
+    }
+
+    /**
+     * Run tasks on the shared worker pool and hand each result to the handler, on the calling thread,
+     * as soon as its task finishes. Runs inline under the same rules as {@link #invokeAll}; a failing
+     * task or handler cancels the tasks still pending and is rethrown.
+     */
+    public static <T> void invokeEach(List<? extends Callable<T>> tasks, ResultHandler<T> handler) throws Exception {
+        if (tasks.size() <= 1 || IN_WORKER.get()) {
+            for (Callable<T> task : tasks) {
+                handler.accept(task.call());
+            }
+            return;
+        }
+
+        CompletionService<T> completion = new ExecutorCompletionService<>(executor);
+        List<Future<T>> futures = new ArrayList<>(tasks.size());
+        for (Callable<T> task : tasks) {
+            futures.add(completion.submit(task));
+        }
+        try {
+            for (int i = 0; i < futures.size(); i++) {
+                handler.accept(completion.take().get());
+            }
+        } catch (ExecutionException e) {
+            cancelAll(futures);
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw new RuntimeException("Parallel task failed: " + cause.getMessage(), cause);
+        } catch (InterruptedException e) {
+            cancelAll(futures);
+            Thread.currentThread().interrupt();
+            throw e;
+        } catch (Exception e) {
+            cancelAll(futures);
+            throw e;
+        }
+    }
+
+    private static <T> void cancelAll(List<Future<T>> futures) {
+        for (Future<T> future : futures) {
+            future.cancel(true);
+        }
+    }
+
+    private static ThreadFactory daemonThreads() {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(() -> {
+                IN_WORKER.set(true);
+                runnable.run();
+            }, "konvertr-worker-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,216 @@
+package com.konvert.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ContainerNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.NullNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rebuilds nested structure from an object keyed by flattened paths in one pass. Each key is split by
+ * a hand-written tokenizer into field names and array indices, then inserted into the result tree,
+ * which serves as the path trie. The containers along the previous key's path are kept, so sibling
+ * keys such as {@code user.address.city} and {@code user.address.zip} resume below their shared
+ * prefix instead of descending from the root again.
+ */
+public class PathUnflattener {
+
+    private static final JsonNodeFactory nodes = JsonNodeFactory.instance;
+    // Most missing array elements all the keys of one document may fill with nulls
+    private static final int MAX_PADDING = 100_000;
+
+    /**
+     * Unflatten keys such as {@code a.b}, {@code items[0].name} and {@code m[1][2]}.
+     * A backslash escapes the separator, brackets and itself, so {@code a\.b} is the single key
+     * {@code a.b}; before any other character it is kept as written. Keys starting with an index make
+     * the result an array; missing array elements are null.
+     * A path used as an array by one key and as an object by another is rejected.
+     */
+    public static JsonNode unflatten(JsonNode flat, String separator) {
+        if (flat == null || !flat.isObject()) {
+            throw new IllegalArgumentException("Input must be a flattened object structure");
+        }
+        Tokenizer tokenizer = new Tokenizer(separator == null || separator.isEmpty() ? "." : separator);
+        Trie trie = new Trie();
+        Iterator<Map.Entry<String, JsonNode>> fields = flat.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> entry = fields.next();
+            trie.insert(tokenizer.tokenize(entry.getKey()), entry.getValue(), entry.getKey());
+        }
+        return trie.root == null ? nodes.objectNode() : trie.root;
+    }
+
+    /**
+     * Splits a flattened key into String field names and Integer array indices
+     */
+    static final class Tokenizer {
+        private final String separator;
+        private final List<Object> tokens = new ArrayList<>();
+        private final StringBuilder segment = new StringBuilder();
+
+        Tokenizer(String separator) {
+            this.separator = separator;
+        }
+
+        // Returns a reused list, valid until the next call
+        List<Object> tokenize(String key) {
+            tokens.clear();
+            segment.setLength(0);
+            // A separator promises a field name, even an empty one as in "a..b"
+            boolean expectField = true;
+            int length = key.length();
+            int i = 0;
+            while (i < length) {
+                char c = key.charAt(i);
+                if (c == '\\' && escapes(key, i + 1)) {
+                    int escaped = key.startsWith(separator, i + 1) ? separator.length() : 1;
+                    segment.append(key, i + 1, i + 1 + escaped);
+                    i += 1 + escaped;
+                } else if (key.startsWith(separator, i)) {
+                    if (segment.length() > 0 || expectField) {
+                        tokens.add(segment.toString());
+                    }
+                    segment.setLength(0);
+                    expectField = true;
+                    i += separator.length();
+                } else if (c == '[') {
+                    int close = indexEnd(key, i + 1);
+                    if (close < 0) {
+                        segment.append(c);
+                        i++;
+                        continue;
+                    }
+                    if (segment.length() > 0) {
+                        tokens.add(segment.toString());
+                        segment.setLength(0);
+                    }
+                    tokens.add(Integer.parseInt(key, i + 1, close, 10));
+                    expectField = false;
+                    i = close + 1;
+                } else {
+                    segment.append(c);
+                    i++;
+                }
+            }
+            // A trailing separator adds no level, as with String.split
+            if (segment.length() > 0 || tokens.isEmpty()) {
+                tokens.add(segment.toString());
+            }
+            return tokens;
+        }
+
+        // Only these follow an escaping backslash; any other backslash, as in a Windows path, is literal text
+        private boolean escapes(String key, int next) {
+            if (next >= key.length()) {
+                return false;
+            }
+            char c = key.charAt(next);
+            return c == '\\' || c == '[' || c == ']' || key.startsWith(separator, next);
+        }
+
+        // Position of the ']' closing an index of 1 to 9 digits, or -1 when the bracket is literal text
+        private static int indexEnd(String key, int from) {
+            int i = from;
+            while (i < key.length() && i - from < 10 && Character.isDigit(key.charAt(i))) {
+                i++;
+            }
+            return i > from && i - from < 10 && i < key.length() && key.charAt(i) == ']' ? i : -1;
+        }
+    }
+
+    private static final class Trie {
+        JsonNode root;
+        // Containers along the previous key: path.get(0) is the root and path.get(i + 1) is reached
+        // from path.get(i) through steps.get(i)
+        private final List<Object> steps = new ArrayList<>();
+        private final List<ContainerNode<?>> path = new ArrayList<>();
+        private int padding;
+
+        void insert(List<Object> tokens, JsonNode value, String key) {
+            boolean arrayRoot = tokens.get(0) instanceof Integer;
+            if (root == null) {
+                root = arrayRoot ? nodes.arrayNode() : nodes.objectNode();
+                path.add((ContainerNode<?>) root);
+            } else if (root.isArray() != arrayRoot) {
+                throw new IllegalArgumentException("Key '" + key + "' does not match the "
+                        + (root.isArray() ? "array" : "object") + " structure of the earlier keys");
+            }
+
+            int last = tokens.size() - 1;
+            int shared = 0;
+            int limit = Math.min(last, steps.size());
+            while (shared < limit && steps.get(shared).equals(tokens.get(shared))) {
+                shared++;
+            }
+            steps.subList(shared, steps.size()).clear();
+            path.subList(shared + 1, path.size()).clear();
+
+            ContainerNode<?> node = path.get(shared);
+            if (shared > 0) {
+                checkKind(node, tokens.get(shared), key);
+            }
+            for (int i = shared; i < last; i++) {
+                Object token = tokens.get(i);
+                node = child(node, token, tokens.get(i + 1) instanceof Integer, key);
+                steps.add(token);
+                path.add(node);
+            }
+            set(node, tokens.get(last), value, key);
+        }
+
+        // The container under token; a scalar there is replaced as the last key wins
+        private ContainerNode<?> child(ContainerNode<?> parent, Object token, boolean array, String key) {
+            JsonNode existing = token instanceof Integer ? parent.get((Integer) token) : parent.get((String) token);
+            if (existing != null && existing.isContainerNode()) {
+                if (existing.isArray() != array) {
+                    throw conflict(key, token, existing.isArray());
+                }
+                return (ContainerNode<?>) existing;
+            }
+            ContainerNode<?> created = array ? nodes.arrayNode() : nodes.objectNode();
+            set(parent, token, created, key);
+            return created;
+        }
+
+        // A container reused from the previous key must be the kind the next token steps into
+        private void checkKind(ContainerNode<?> node, Object token, String key) {
+            if (node.isArray() != token instanceof Integer) {
+                throw conflict(key, steps.get(steps.size() - 1), node.isArray());
+            }
+        }
+
+        private static IllegalArgumentException conflict(String key, Object token, boolean array) {
+            return new IllegalArgumentException("Key '" + key + "' uses '" + token + "' as "
+                    + (array ? "an object" : "an array") + ", but an earlier key made it "
+                    + (array ? "an array" : "an object"));
+        }
+
+        private void set(ContainerNode<?> parent, Object token, JsonNode value, String key) {
+            if (parent instanceof ObjectNode) {
+                ((ObjectNode) parent).set(token.toString(), value);
+                return;
+            }
+            ArrayNode array = (ArrayNode) parent;
+            int index = (Integer) token;
+            if (index < array.size()) {
+                array.set(index, value);
+                return;
+            }
+            padding += index - array.size();
+            if (padding > MAX_PADDING) {
+                throw new IllegalArgumentException("Array index in key '" + key + "' leaves more than "
+                        + MAX_PADDING + " missing elements in the document");
+            }
+            while (array.size() < index) {
+                array.add(NullNode.getInstance());
+            }
+            array.add(value);
+        }
+    }
+}
@@ -0,0 +1,418 @@
+package com.konvert.util;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.DefaultPrettyPrinter;
+import com.fasterxml.jackson.core.util.MinimalPrettyPrinter;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVPrinter;
+import org.apache.commons.csv.CSVRecord;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.encryption.InvalidPasswordException;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.apache.pdfbox.text.TextPosition;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+/**
+ * Extracts PDF text as plain text, per-page JSON/NDJSON blocks, or CSV of table-like regions.
+ * Documents are loaded with temp-file-only buffering, and page ranges are extracted in parallel with
+ * one PDDocument per worker, so heap use does not grow with the size of the file.
+ */
+public class PdfTextExtractor {
+
+    private static final JsonFactory jsonFactory = new JsonFactory();
+    private static final List<String> FORMATS = Arrays.asList("text", "txt", "json", "ndjson", "csv");
+    // Small ranges are not worth a second document load
+    private static final int MIN_PAGES_PER_RANGE = 8;
+    // Word gaps wider than this many space widths start a new table cell
+    private static final float CELL_GAP_SPACES = 2.5f;
+
+    /**
+     * Whether PDF text can be extracted into this format
+     */
+    public static boolean canWrite(String format) {
+        return format != null && FORMATS.contains(format.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Extract into a string; see {@link #extract(Path, String, OutputStream)}
+     */
+    public static String extractToString(Path pdf, String toFormat) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        extract(pdf, toFormat, out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Extract a PDF's text layer and write it to the stream.
+     * Text keeps the reading order with a blank line between pages. JSON is an array of
+     * {@code {page, blocks, tables}} objects, NDJSON one such object per line. CSV holds the rows of
+     * every detected table, prefixed with their page and table number. Scanned pages without a
+     * text layer yield no text.
+     */
+    public static Map<String, Object> extract(Path pdf, String toFormat, OutputStream out) throws Exception {
+        if (!canWrite(toFormat)) {
+            throw new IllegalArgumentException("PDF text can be extracted as TEXT, JSON, NDJSON or CSV, not " + toFormat);
+        }
+        String format = toFormat.toLowerCase(Locale.ROOT);
+        if ("txt".equals(format)) {
+            format = "text";
+        }
+        long start = System.nanoTime();
+
+        int pageCount;
+        try (PDDocument document = load(pdf)) {
+            pageCount = document.getNumberOfPages();
+        }
+
+        int rangeCount = Math.max(1, Math.min(ParallelUtil.parallelism(),
+                (pageCount + MIN_PAGES_PER_RANGE - 1) / MIN_PAGES_PER_RANGE));
+        List<RangeOutput> outputs = new ArrayList<>(rangeCount);
+        List<Callable<RangeOutput>> tasks = new ArrayList<>(rangeCount);
+        String outputFormat = format;
+        try {
+            for (int i = 0; i < rangeCount; i++) {
+                int first = (int) ((long) pageCount * i / rangeCount) + 1;
+                int last = (int) ((long) pageCount * (i + 1) / rangeCount);
+                RangeOutput output = new RangeOutput(first, last, Files.createTempFile("konvertr-pdf-", "." + format));
+                outputs.add(output);
+                tasks.add(() -> extractRange(pdf, outputFormat, output));
+            }
+            ParallelUtil.invokeAll(tasks);
+            assemble(outputs, format, out);
+        } catch (IllegalArgumentException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("PDF extraction failed: " + e.getMessage(), e);
+        } finally {
+            for (RangeOutput output : outputs) {
+                Files.deleteIfExists(output.file);
+            }
+        }
+
+        int tables = 0;
+        for (RangeOutput output : outputs) {
+            tables += output.tables;
+        }
+        Map<String, Object> result = new HashMap<>();
+        result.put("pages", pageCount);
+        result.put("ranges", rangeCount);
+        result.put("tables", tables);
+        result.put("elapsedMs", (System.nanoTime() - start) / 1_000_000);
+        return result;
+    }
+
+    private static PDDocument load(Path pdf) throws IOException {
+        try {
+            return PDDocument.load(pdf.toFile(), MemoryUsageSetting.setupTempFileOnly());
+        } catch (InvalidPasswordException e) {
+            throw new IllegalArgumentException("PDF is password protected");
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Not a readable PDF: " + e.getMessage(), e);
+        }
+    }
+
+    private static RangeOutput extractRange(Path pdf, String format, RangeOutput output) throws Exception {
+        try (PDDocument document = load(pdf);
+             Writer writer = Files.newBufferedWriter(output.file, StandardCharsets.UTF_8)) {
+            PageCollector collector = new PageCollector(format, writer, output);
+            collector.setStartPage(output.firstPage);
+            collector.setEndPage(output.lastPage);
+            collector.setSortByPosition(true);
+            collector.setLineSeparator("\n");
+            collector.setPageEnd("\n\n");
+            collector.writeText(document, "text".equals(format) ? writer : Writer.nullWriter());
+            collector.finish();
+        }
+        return output;
+    }
+
+    private static void assemble(List<RangeOutput> outputs, String format, OutputStream out) throws IOException {
+        Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+        switch (format) {
+            case "json":
+                // Matches the default pretty printer, including "[ ]" for no pages
+                writer.write("[");
+                boolean first = true;
+                for (RangeOutput output : outputs) {
+                    if (output.pages == 0) {
+                        continue;
+                    }
+                    writer.write(first ? " " : ", ");
+                    first = false;
+                    copy(output.file, writer);
+                }
+                writer.write(" ]");
+                break;
+            case "csv":
+                int width = 0;
+                for (RangeOutput output : outputs) {
+                    width = Math.max(width, output.width);
+                }
+                CSVPrinter printer = new CSVPrinter(writer, CSVFormat.DEFAULT);
+                List<String> header = new ArrayList<>(Arrays.asList("page", "table"));
+                for (int i = 1; i <= width; i++) {
+                    header.add("column" + i);
+                }
+                printer.printRecord(header);
+                int tableOffset = 0;
+                for (RangeOutput output : outputs) {
+                    // Rows are read back one at a time from the range's file
+                    try (Reader reader = Files.newBufferedReader(output.file, StandardCharsets.UTF_8);
+                         CSVParser parser = new CSVParser(reader, CSVFormat.DEFAULT)) {
+                        for (CSVRecord row : parser) {
+                            List<String> padded = new ArrayList<>(width + 2);
+                            row.forEach(padded::add);
+                            // Table numbers are counted per range; make them document-wide
+                            padded.set(1, String.valueOf(Integer.parseInt(row.get(1)) + tableOffset));
+                            while (padded.size() < width + 2) {
+                                padded.add("");
+                            }
+                            printer.printRecord(padded);
+                        }
+                    }
+                    tableOffset += output.tables;
+                }
+                printer.flush();
+                break;
+            default:
+                for (RangeOutput output : outputs) {
+                    copy(output.file, writer);
+                }
+        }
+        writer.flush();
+    }
+
+    private static void copy(Path file, Writer writer) throws IOException {
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            reader.transferTo(writer);
+        }
+    }
+
+    /**
+     * Collects each page's lines as cells split on wide word gaps, groups them into blocks at
+     * paragraph breaks, and treats runs of multi-cell lines as tables
+     */
+    private static final class PageCollector extends PDFTextStripper {
+        private final String format;
+        private final RangeOutput output;
+        private final JsonGenerator generator;
+        private final CSVPrinter printer;
+
+        private final List<String> blocks = new ArrayList<>();
+        private final List<List<String>> lines = new ArrayList<>();
+        private final StringBuilder block = new StringBuilder();
+        private List<String> line = new ArrayList<>();
+        private StringBuilder cell = new StringBuilder();
+        private float lastEnd = Float.NaN;
+
+        PageCollector(String format, Writer writer, RangeOutput output) throws IOException {
+            this.format = format;
+            this.output = output;
+            if ("json".equals(format) || "ndjson".equals(format)) {
+                generator = jsonFactory.createGenerator(writer);
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                generator.setPrettyPrinter("json".equals(format)
+                        ? new DefaultPrettyPrinter().withRootSeparator(", ")
+                        : new MinimalPrettyPrinter(""));
+            } else {
+                generator = null;
+            }
+            printer = "csv".equals(format) ? new CSVPrinter(writer, CSVFormat.DEFAULT) : null;
+        }
+
+        @Override
+        protected void startPage(PDPage page) throws IOException {
+            super.startPage(page);
+            blocks.clear();
+            lines.clear();
+            block.setLength(0);
+            resetLine();
+        }
+
+        @Override
+        protected void writeString(String text, List<TextPosition> positions) throws IOException {
+            super.writeString(text, positions);
+            if (positions.isEmpty()) {
+                cell.append(text);
+                return;
+            }
+            TextPosition firstPosition = positions.get(0);
+            TextPosition lastPosition = positions.get(positions.size() - 1);
+            float spaceWidth = firstPosition.getWidthOfSpace();
+            if (!(spaceWidth > 0)) {
+                spaceWidth = firstPosition.getWidthDirAdj();
+            }
+            float gap = firstPosition.getXDirAdj() - lastEnd;
+            if (cell.length() > 0 && gap > spaceWidth * CELL_GAP_SPACES) {
+                line.add(cell.toString());
+                cell = new StringBuilder();
+            } else if (cell.length() > 0) {
+                cell.append(' ');
+            }
+            cell.append(text);
+            lastEnd = lastPosition.getXDirAdj() + lastPosition.getWidthDirAdj();
+        }
+
+        @Override
+        protected void writeLineSeparator() throws IOException {
+            super.writeLineSeparator();
+            endLine();
+        }
+
+        @Override
+        protected void writeParagraphEnd() throws IOException {
+            super.writeParagraphEnd();
+            endLine();
+            endBlock();
+        }
+
+        @Override
+        protected void endPage(PDPage page) throws IOException {
+            endLine();
+            endBlock();
+            writePage(getCurrentPageNo());
+            output.pages++;
+            super.endPage(page);
+        }
+
+        void finish() throws IOException {
+            if (generator != null) {
+                generator.flush();
+            }
+            if (printer != null) {
+                printer.flush();
+            }
+        }
+
+        private void resetLine() {
+            line = new ArrayList<>();
+            cell = new StringBuilder();
+            lastEnd = Float.NaN;
+        }
+
+        private void endLine() {
+            if (cell.length() > 0) {
+                line.add(cell.toString());
+            }
+            if (!line.isEmpty()) {
+                lines.add(line);
+                if (block.length() > 0) {
+                    block.append('\n');
+                }
+                block.append(String.join(" ", line));
+            }
+            resetLine();
+        }
+
+        private void endBlock() {
+            String text = block.toString().trim();
+            if (!text.isEmpty()) {
+                blocks.add(text);
+            }
+            block.setLength(0);
+        }
+
+        // Two or more consecutive lines with at least two cells each form a table
+        private List<List<List<String>>> detectTables() {
+            List<List<List<String>>> tables = new ArrayList<>();
+            List<List<String>> current = new ArrayList<>();
+            for (List<String> cells : lines) {
+                if (cells.size() >= 2) {
+                    current.add(cells);
+                    continue;
+                }
+                if (current.size() >= 2) {
+                    tables.add(current);
+                }
+                current = new ArrayList<>();
+            }
+            if (current.size() >= 2) {
+                tables.add(current);
+            }
+            return tables;
+        }
+
+        private void writePage(int pageNumber) throws IOException {
+            if ("text".equals(format)) {
+                return;
+            }
+            List<List<List<String>>> tables = detectTables();
+            if ("csv".equals(format)) {
+                // Rows go to the range's file as each page ends; columns are padded when ranges are joined
+                for (List<List<String>> table : tables) {
+                    output.tables++;
+                    for (List<String> row : table) {
+                        List<String> record = new ArrayList<>(row.size() + 2);
+                        record.add(String.valueOf(pageNumber));
+                        record.add(String.valueOf(output.tables));
+                        record.addAll(row);
+                        printer.printRecord(record);
+                        output.width = Math.max(output.width, row.size());
+                    }
+                }
+                return;
+            }
+            output.tables += tables.size();
+            generator.writeStartObject();
+            generator.writeNumberField("page", pageNumber);
+            generator.writeArrayFieldStart("blocks");
+            for (String text : blocks) {
+                generator.writeString(text);
+            }
+            generator.writeEndArray();
+            generator.writeArrayFieldStart("tables");
+            for (List<List<String>> table : tables) {
+                generator.writeStartArray();
+                for (List<String> row : table) {
+                    generator.writeStartArray();
+                    for (String value : row) {
+                        generator.writeString(value);
+                    }
+                    generator.writeEndArray();
+                }
+                generator.writeEndArray();
+            }
+            generator.writeEndArray();
+            generator.writeEndObject();
+            if ("ndjson".equals(format)) {
+                generator.writeRaw('\n');
+            }
+        }
+    }
+
+    private static final class RangeOutput {
+        final int firstPage;
+        final int lastPage;
+        final Path file;
+        int pages;
+        int tables;
+        // Most cells in one table row
+        int width;
+
+        RangeOutput(int firstPage, int lastPage, Path file) {
+            this.firstPage = firstPage;
+            this.lastPage = lastPage;
+            this.file = file;
+        }
+    }
+}
@@ -0,0 +1,390 @@
+package com.konvert.util;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.util.MinimalPrettyPrinter;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVPrinter;
+import org.apache.commons.csv.CSVRecord;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads and writes record streams one record at a time: the elements of a JSON array, NDJSON lines
+ * or CSV rows keyed by the header. Nothing but the current record is held, so operations over
+ * records can work on inputs larger than the heap. Other formats go through the
+ * {@link com.konvert.FormatConverter} readers and writers as whole documents.
+ */
+public final class RecordStreams {
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+    private static final JsonFactory jsonFactory = mapper.getFactory();
+    private static final List<String> FORMATS = Arrays.asList("json", "ndjson", "csv");
+
+    private RecordStreams() {
+    }
+
+    /**
+     * Whether records can be streamed in this format
+     */
+    public static boolean supports(String format) {
+        return format != null && FORMATS.contains(format.trim().toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Records from the reader. A JSON document that is not an array is a single record.
+     */
+    public static RecordReader reader(Reader in, String format) throws IOException {
+        switch (checked(format)) {
+            case "csv":
+                return new CsvRecords(in);
+            case "ndjson":
+                return new JsonRecords(jsonFactory.createParser(in), false);
+            default:
+                return new JsonRecords(jsonFactory.createParser(in), true);
+        }
+    }
+
+    /**
+     * Records from text in any supported format; formats that cannot be streamed are parsed whole
+     */
+    public static RecordReader reader(String input, String format) throws IOException {
+        if (supports(format)) {
+            return reader(new StringReader(input), format);
+        }
+        try {
+            return new TreeRecords(TransformPipeline.read(input, format));
+        } catch (RuntimeException | IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Invalid " + format + " input: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * A writer of records to the output. CSV takes its columns from the keys of every record, in
+     * first-seen order, so its rows wait in a temporary file until close. Formats that cannot be
+     * streamed collect the records into an array and render it on close.
+     */
+    public static RecordWriter writer(Writer out, String format) throws IOException {
+        if (!supports(format)) {
+            return new RenderedWriter(out, format);
+        }
+        switch (checked(format)) {
+            case "csv":
+                return new CsvWriter(out);
+            case "ndjson":
+                JsonGenerator lines = jsonFactory.createGenerator(out);
+                lines.setPrettyPrinter(new MinimalPrettyPrinter("\n"));
+                return new JsonWriter(lines, false);
+            default:
+                JsonGenerator array = jsonFactory.createGenerator(out);
+                array.useDefaultPrettyPrinter();
+                return new JsonWriter(array, true);
+        }
+    }
+
+    private static String checked(String format) {
+        if (!supports(format)) {
+            throw new IllegalArgumentException("Record streams support JSON, NDJSON and CSV, not " + format);
+        }
+        return format.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * A closeable iterator over records. Read failures surface as {@link UncheckedIOException}.
+     */
+    public abstract static class RecordReader implements Iterator<JsonNode>, Closeable {
+        private JsonNode next;
+
+        // The next record, or null at the end
+        protected abstract JsonNode read() throws IOException;
+
+        @Override
+        public boolean hasNext() {
+            if (next == null) {
+                try {
+                    next = read();
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Failed to read record: " + e.getMessage(), e);
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public JsonNode next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            JsonNode record = next;
+            next = null;
+            return record;
+        }
+    }
+
+    /**
+     * Writes records one at a time; closing finishes the document and flushes, but leaves the
+     * underlying writer open
+     */
+    public interface RecordWriter extends Closeable, Flushable {
+        void write(JsonNode record) throws IOException;
+    }
+
+    private static final class JsonRecords extends RecordReader {
+        private final JsonParser parser;
+        private final boolean document;
+        private boolean started;
+        private boolean inArray;
+
+        JsonRecords(JsonParser parser, boolean document) {
+            this.parser = parser;
+            this.document = document;
+        }
+
+        @Override
+        protected JsonNode read() throws IOException {
+            JsonToken token = parser.nextToken();
+            if (!started) {
+                started = true;
+                if (document && token == JsonToken.START_ARRAY) {
+                    inArray = true;
+                    token = parser.nextToken();
+                }
+            }
+            if (token == null || inArray && token == JsonToken.END_ARRAY) {
+                return null;
+            }
+            return parser.readValueAsTree();
+        }
+
+        @Override
+        public void close() throws IOException {
+            parser.close();
+        }
+    }
+
+    private static final class TreeRecords extends RecordReader {
+        private final Iterator<JsonNode> records;
+
+        TreeRecords(JsonNode root) {
+            records = root.isArray() ? root.elements() : Collections.singletonList(root).iterator();
+        }
+
+        @Override
+        protected JsonNode read() {
+            return records.hasNext() ? records.next() : null;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private static final class CsvRecords extends RecordReader {
+        private final CSVParser parser;
+        private final Iterator<CSVRecord> rows;
+        private final List<String> headers;
+
+        CsvRecords(Reader in) throws IOException {
+            parser = CSVFormat.DEFAULT.withFirstRecordAsHeader().withIgnoreEmptyLines().parse(in);
+            headers = parser.getHeaderNames();
+            if (headers == null || headers.isEmpty()) {
+                throw new IllegalArgumentException("CSV must have a header row");
+            }
+            rows = parser.iterator();
+        }
+
+        @Override
+        protected JsonNode read() {
+            if (!rows.hasNext()) {
+                return null;
+            }
+            CSVRecord row = rows.next();
+            ObjectNode record = JsonNodeFactory.instance.objectNode();
+            for (int i = 0; i < headers.size(); i++) {
+                record.put(headers.get(i), i < row.size() ? row.get(i) : "");
+            }
+            return record;
+        }
+
+        @Override
+        public void close() throws IOException {
+            parser.close();
+        }
+    }
+
+    private static final class JsonWriter implements RecordWriter {
+        private final JsonGenerator generator;
+        private final boolean array;
+
+        JsonWriter(JsonGenerator generator, boolean array) throws IOException {
+            this.generator = generator;
+            this.array = array;
+            generator.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+            if (array) {
+                generator.writeStartArray();
+            }
+        }
+
+        @Override
+        public void write(JsonNode record) throws IOException {
+            mapper.writeTree(generator, record);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            generator.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (array) {
+                generator.writeEndArray();
+            }
+            generator.close();
+        }
+    }
+
+    // The header is only known once every record is seen, so rows are spilled to a file deleted on
+    // close; rows written before a new key appeared are padded when they are copied out
+    private static final class CsvWriter implements RecordWriter {
+        private final Writer out;
+        private final Map<String, Integer> headers = new LinkedHashMap<>();
+        private FileChannel spill;
+        private CSVPrinter printer;
+        private int narrowest = Integer.MAX_VALUE;
+
+        CsvWriter(Writer out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(JsonNode record) throws IOException {
+            if (printer == null) {
+                spill = FileChannel.open(Files.createTempFile("konvertr-csv-", ".csv"), StandardOpenOption.READ,
+                        StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE);
+                printer = new CSVPrinter(new BufferedWriter(Channels.newWriter(spill, StandardCharsets.UTF_8)),
+                        CSVFormat.DEFAULT);
+            }
+            if (!record.isObject()) {
+                printer.printRecord(cell(record));
+                narrowest = 1;
+                return;
+            }
+            record.fieldNames().forEachRemaining(name -> headers.putIfAbsent(name, headers.size()));
+            narrowest = Math.min(narrowest, headers.size());
+            String[] values = new String[headers.size()];
+            Arrays.fill(values, "");
+            record.fields().forEachRemaining(field -> values[headers.get(field.getKey())] = cell(field.getValue()));
+            printer.printRecord((Object[]) values);
+        }
+
+        private static String cell(JsonNode value) {
+            if (value == null || value.isNull()) {
+                return "";
+            }
+            return value.isContainerNode() ? value.toString() : value.asText();
+        }
+
+        // Rows reach the output only on close, once the header is complete
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (printer == null) {
+                return;
+            }
+            try {
+                printer.flush();
+                spill.position(0);
+                CSVPrinter output = new CSVPrinter(out, CSVFormat.DEFAULT);
+                if (!headers.isEmpty()) {
+                    output.printRecord(headers.keySet());
+                }
+                Reader rows = new BufferedReader(Channels.newReader(spill, StandardCharsets.UTF_8));
+                if (narrowest >= headers.size()) {
+                    output.flush();
+                    rows.transferTo(out);
+                } else {
+                    for (CSVRecord row : CSVParser.parse(rows, CSVFormat.DEFAULT)) {
+                        List<String> values = new ArrayList<>(headers.size());
+                        row.forEach(values::add);
+                        while (values.size() < headers.size()) {
+                            values.add("");
+                        }
+                        output.printRecord(values);
+                    }
+                }
+                output.flush();
+            } finally {
+                printer = null;
+                spill.close();
+            }
+        }
+    }
+
+    private static final class RenderedWriter implements RecordWriter {
+        private final Writer out;
+        private final String format;
+        private final ArrayNode records = JsonNodeFactory.instance.arrayNode();
+
+        RenderedWriter(Writer out, String format) {
+            this.out = out;
+            this.format = format;
+        }
+
+        @Override
+        public void write(JsonNode record) {
+            records.add(record);
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                out.write(TransformPipeline.write(records, format));
+            } catch (RuntimeException | IOException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IOException("Failed to write " + format + ": " + e.getMessage(), e);
+            }
+            out.flush();
+        }
+    }
+}
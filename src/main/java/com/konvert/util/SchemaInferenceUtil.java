@@ -0,0 +1,829 @@
+package com.konvert.util;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import com.konvert.FormatConverter;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+public class SchemaInferenceUtil {
+
+    public static final int DEFAULT_MAX_ENUM = 20;
+    public static final int DEFAULT_MAX_EXAMPLES = 3;
+
+    private static final ObjectMapper jsonMapper = new ObjectMapper();
+    private static final JsonFactory jsonFactory = new JsonFactory();
+    private static final YAMLFactory yamlFactory = new YAMLFactory();
+
+    // Inputs below this size are folded on the calling thread
+    private static final int PARALLEL_THRESHOLD = 1024 * 1024;
+    private static final long MIN_CHUNK_BYTES = 8L * 1024 * 1024;
+    private static final long MAX_CHUNK_BYTES = 256L * 1024 * 1024;
+    private static final int MAX_ENUM_VALUE_LENGTH = 64;
+    private static final int MAX_EXAMPLE_LENGTH = 200;
+
+    /**
+     * Infer a JSON Schema and column spec from in-memory input
+     */
+    public static Map<String, Object> infer(String input, String format, int maxEnum, int maxExamples) throws Exception {
+        if (input == null || input.trim().isEmpty()) {
+            throw new IllegalArgumentException("Input cannot be empty");
+        }
+        long start = System.currentTimeMillis();
+        String fmt = normalizeFormat(format);
+        SchemaNode root;
+        int chunks = 1;
+
+        try {
+            switch (fmt) {
+                case "json":
+                    try (JsonParser parser = jsonFactory.createParser(input)) {
+                        root = foldDocuments(parser, new SchemaNode(maxEnum, maxExamples));
+                    }
+                    break;
+                case "ndjson": {
+                    char[] chars = input.toCharArray();
+                    List<int[]> ranges = splitLines(chars);
+                    chunks = ranges.size();
+                    root = asArray(foldCharChunks(chars, ranges, maxEnum, maxExamples), maxEnum, maxExamples);
+                    break;
+                }
+                case "yaml":
+                    try (JsonParser parser = yamlFactory.createParser(input)) {
+                        root = foldDocuments(parser, new SchemaNode(maxEnum, maxExamples));
+                    }
+                    break;
+                case "csv":
+                    root = asArray(foldCsv(new StringReader(input), maxEnum, maxExamples), maxEnum, maxExamples);
+                    break;
+                default:
+                    root = foldParsed(input, fmt, maxEnum, maxExamples);
+            }
+        } catch (IllegalArgumentException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("Schema inference failed: " + e.getMessage(), e);
+        }
+        return buildResult(root, chunks, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Infer a JSON Schema and column spec from a file without loading it into memory.
+     * NDJSON files are split at line boundaries and folded in parallel.
+     */
+    public static Map<String, Object> inferFile(Path file, String format, int maxEnum, int maxExamples) throws Exception {
+        long start = System.currentTimeMillis();
+        String fmt = normalizeFormat(format);
+        SchemaNode root;
+        int chunks = 1;
+
+        try {
+            switch (fmt) {
+                case "json":
+                    try (JsonParser parser = jsonFactory.createParser(Files.newInputStream(file))) {
+                        root = foldDocuments(parser, new SchemaNode(maxEnum, maxExamples));
+                    }
+                    break;
+                case "ndjson": {
+                    List<long[]> ranges = splitFile(file);
+                    chunks = ranges.size();
+                    root = asArray(foldFileChunks(file, ranges, maxEnum, maxExamples), maxEnum, maxExamples);
+                    break;
+                }
+                case "yaml":
+                    try (JsonParser parser = yamlFactory.createParser(Files.newInputStream(file))) {
+                        root = foldDocuments(parser, new SchemaNode(maxEnum, maxExamples));
+                    }
+                    break;
+                case "csv":
+                    try (Reader reader = new BufferedReader(new InputStreamReader(Files.newInputStream(file), StandardCharsets.UTF_8))) {
+                        root = asArray(foldCsv(reader, maxEnum, maxExamples), maxEnum, maxExamples);
+                    }
+                    break;
+                default:
+                    root = foldParsed(Files.readString(file, StandardCharsets.UTF_8), fmt, maxEnum, maxExamples);
+            }
+        } catch (IllegalArgumentException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("Schema inference failed: " + e.getMessage(), e);
+        }
+        return buildResult(root, chunks, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Fold every root-level value of a token stream into the given node
+     */
+    public static SchemaNode foldDocuments(JsonParser parser, SchemaNode node) throws IOException {
+        JsonToken token;
+        while ((token = parser.nextToken()) != null) {
+            observe(parser, token, node);
+        }
+        return node;
+    }
+
+    /**
+     * Fold the value starting at the current token into the node, reading only tokens
+     */
+    public static void observe(JsonParser parser, JsonToken token, SchemaNode node) throws IOException {
+        node.count++;
+        switch (token) {
+            case START_OBJECT:
+                node.objects++;
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    SchemaNode child = node.property(parser.currentName());
+                    observe(parser, parser.nextToken(), child);
+                }
+                break;
+            case START_ARRAY: {
+                node.arrays++;
+                SchemaNode items = node.items();
+                long length = 0;
+                JsonToken next;
+                while ((next = parser.nextToken()) != JsonToken.END_ARRAY) {
+                    observe(parser, next, items);
+                    length++;
+                }
+                node.observeLength(length);
+                break;
+            }
+            case VALUE_STRING:
+                node.observeString(parser.getText());
+                break;
+            case VALUE_NUMBER_INT:
+                if (parser.getNumberType() == JsonParser.NumberType.BIG_INTEGER) {
+                    node.observeInteger(parser.getDoubleValue(), parser.getBigIntegerValue());
+                } else {
+                    long value = parser.getLongValue();
+                    node.observeInteger(value, value);
+                }
+                break;
+            case VALUE_NUMBER_FLOAT:
+                node.observeNumber(parser.getDoubleValue(), parser.getNumberValue());
+                break;
+            case VALUE_TRUE:
+            case VALUE_FALSE:
+                node.observeBoolean(token == JsonToken.VALUE_TRUE);
+                break;
+            case VALUE_NULL:
+                node.nulls++;
+                break;
+            default:
+                node.observeString(parser.getText());
+        }
+    }
+
+    private static String normalizeFormat(String format) {
+        if (format == null || format.trim().isEmpty()) {
+            throw new IllegalArgumentException("Format must be specified");
+        }
+        String fmt = format.trim().toLowerCase();
+        if ("yml".equals(fmt)) {
+            return "yaml";
+        }
+        if ("jsonl".equals(fmt)) {
+            return "ndjson";
+        }
+        if ("protobuf".equals(fmt)) {
+            throw new IllegalArgumentException("Schema inference is not supported for Protobuf input");
+        }
+        return fmt;
+    }
+
+    // Formats without a streaming reader are parsed once and folded from the tree's token stream
+    private static SchemaNode foldParsed(String input, String format, int maxEnum, int maxExamples) throws Exception {
+        Object data = FormatConverter.parse(input, format, null);
+        try (JsonParser parser = jsonMapper.treeAsTokens(jsonMapper.valueToTree(data))) {
+            return foldDocuments(parser, new SchemaNode(maxEnum, maxExamples));
+        }
+    }
+
+    private static SchemaNode foldCsv(Reader reader, int maxEnum, int maxExamples) throws IOException {
+        SchemaNode row = new SchemaNode(maxEnum, maxExamples);
+        try (CSVParser parser = CSVFormat.DEFAULT.withFirstRecordAsHeader().withIgnoreEmptyLines().parse(reader)) {
+            List<String> headers = parser.getHeaderNames();
+            if (headers == null || headers.isEmpty()) {
+                throw new IllegalArgumentException("CSV must have a header row");
+            }
+            SchemaNode[] columns = new SchemaNode[headers.size()];
+            for (int i = 0; i < columns.length; i++) {
+                columns[i] = row.property(headers.get(i));
+            }
+            for (CSVRecord record : parser) {
+                row.count++;
+                row.objects++;
+                for (int i = 0; i < columns.length; i++) {
+                    columns[i].observeText(i < record.size() ? record.get(i) : "");
+                }
+            }
+        }
+        return row;
+    }
+
+    private static SchemaNode asArray(SchemaNode items, int maxEnum, int maxExamples) {
+        SchemaNode array = new SchemaNode(maxEnum, maxExamples);
+        array.count = 1;
+        array.arrays = 1;
+        array.items = items;
+        array.observeLength(items.count);
+        return array;
+    }
+
+    private static List<int[]> splitLines(char[] chars) {
+        List<int[]> ranges = new ArrayList<>();
+        int chunkCount = chars.length < PARALLEL_THRESHOLD ? 1 : ParallelUtil.parallelism() * 4;
+        int target = Math.max(1, chars.length / chunkCount);
+        int start = 0;
+        while (start < chars.length) {
+            int end = Math.min(chars.length, start + target);
+            while (end < chars.length && chars[end - 1] != '\n') {
+                end++;
+            }
+            ranges.add(new int[]{start, end});
+            start = end;
+        }
+        if (ranges.isEmpty()) {
+            ranges.add(new int[]{0, 0});
+        }
+        return ranges;
+    }
+
+    private static SchemaNode foldCharChunks(char[] chars, List<int[]> ranges, int maxEnum, int maxExamples) throws Exception {
+        List<Callable<SchemaNode>> tasks = new ArrayList<>(ranges.size());
+        for (int[] range : ranges) {
+            tasks.add(() -> {
+                try (JsonParser parser = jsonFactory.createParser(chars, range[0], range[1] - range[0])) {
+                    return foldDocuments(parser, new SchemaNode(maxEnum, maxExamples));
+                }
+            });
+        }
+        return mergeAll(ParallelUtil.invokeAll(tasks));
+    }
+
+    // Byte ranges that each start at a line boundary
+    private static List<long[]> splitFile(Path file) throws IOException {
+        List<long[]> ranges = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long target = Math.min(MAX_CHUNK_BYTES, Math.max(MIN_CHUNK_BYTES, size / (ParallelUtil.parallelism() * 4L)));
+            ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+            long start = 0;
+            while (start < size) {
+                long end = Math.min(size, start + target);
+                end = nextLineStart(channel, end, size, buffer);
+                ranges.add(new long[]{start, end});
+                start = end;
+            }
+        }
+        if (ranges.isEmpty()) {
+            ranges.add(new long[]{0, 0});
+        }
+        return ranges;
+    }
+
+    private static long nextLineStart(FileChannel channel, long position, long size, ByteBuffer buffer) throws IOException {
+        while (position < size) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                return size;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    private static SchemaNode foldFileChunks(Path file, List<long[]> ranges, int maxEnum, int maxExamples) throws Exception {
+        List<Callable<SchemaNode>> tasks = new ArrayList<>(ranges.size());
+        for (long[] range : ranges) {
+            tasks.add(() -> {
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+                     JsonParser parser = jsonFactory.createParser(
+                             new ByteBufferInputStream(channel.map(FileChannel.MapMode.READ_ONLY, range[0], range[1] - range[0])))) {
+                    return foldDocuments(parser, new SchemaNode(maxEnum, maxExamples));
+                }
+            });
+        }
+        return mergeAll(ParallelUtil.invokeAll(tasks));
+    }
+
+    private static SchemaNode mergeAll(List<SchemaNode> nodes) {
+        SchemaNode merged = nodes.get(0);
+        for (int i = 1; i < nodes.size(); i++) {
+            merged.merge(nodes.get(i));
+        }
+        return merged;
+    }
+
+    private static Map<String, Object> buildResult(SchemaNode root, int chunks, long elapsedMs) {
+        Map<String, Object> schema = new LinkedHashMap<>();
+        schema.put("$schema", "https://json-schema.org/draft/2020-12/schema");
+        schema.putAll(root.toJsonSchema());
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("schema", schema);
+
+        SchemaNode records = root.recordNode();
+        if (records != null) {
+            long recordCount = root.items != null && records == root.items ? records.count : 1;
+            List<Map<String, Object>> columns = new ArrayList<>();
+            List<String> names = new ArrayList<>();
+            for (Map.Entry<String, SchemaNode> entry : records.properties.entrySet()) {
+                SchemaNode column = entry.getValue();
+                Map<String, Object> spec = new LinkedHashMap<>();
+                spec.put("name", entry.getKey());
+                spec.put("type", column.primaryType());
+                spec.put("nullable", column.nulls > 0 || column.count < records.objects);
+                String format = column.format();
+                if (format != null) {
+                    spec.put("format", format);
+                }
+                columns.add(spec);
+                names.add(entry.getKey());
+            }
+            result.put("columns", columns);
+            result.put("csvHeader", String.join(",", names));
+            result.put("toonHeader", "rows[" + recordCount + "]{" + String.join(",", names) + "}:");
+            result.put("records", recordCount);
+        }
+        result.put("chunks", chunks);
+        result.put("elapsedMs", elapsedMs);
+        return result;
+    }
+
+    /**
+     * Type information accumulated for one position in the document.
+     * Nodes from independently folded chunks combine with {@link #merge}.
+     */
+    public static class SchemaNode {
+        private static final int FORMAT_DATE_TIME = 1;
+        private static final int FORMAT_DATE = 2;
+        private static final int FORMAT_UUID = 4;
+        private static final int FORMAT_EMAIL = 8;
+        private static final int FORMAT_URI = 16;
+        private static final int ALL_FORMATS = 31;
+
+        private final int maxEnum;
+        private final int maxExamples;
+
+        long count;
+        long nulls;
+        long booleans;
+        long integers;
+        long numbers;
+        long strings;
+        long objects;
+        long arrays;
+
+        private double minimum = Double.POSITIVE_INFINITY;
+        private double maximum = Double.NEGATIVE_INFINITY;
+        private Object minimumValue;
+        private Object maximumValue;
+        private int minLength = Integer.MAX_VALUE;
+        private int maxLength = -1;
+        private long minItems = Long.MAX_VALUE;
+        private long maxItems = -1;
+        private int formats = ALL_FORMATS;
+
+        private final Map<String, SchemaNode> properties = new LinkedHashMap<>();
+        private SchemaNode items;
+        private Map<String, Long> enumValues = new LinkedHashMap<>();
+        private final List<Object> examples = new ArrayList<>();
+
+        public SchemaNode(int maxEnum, int maxExamples) {
+            this.maxEnum = maxEnum;
+            this.maxExamples = maxExamples;
+        }
+
+        SchemaNode property(String name) {
+            SchemaNode child = properties.get(name);
+            if (child == null) {
+                child = new SchemaNode(maxEnum, maxExamples);
+                properties.put(name, child);
+            }
+            return child;
+        }
+
+        SchemaNode items() {
+            if (items == null) {
+                items = new SchemaNode(maxEnum, maxExamples);
+            }
+            return items;
+        }
+
+        void observeLength(long length) {
+            minItems = Math.min(minItems, length);
+            maxItems = Math.max(maxItems, length);
+        }
+
+        void observeString(String value) {
+            strings++;
+            minLength = Math.min(minLength, value.length());
+            maxLength = Math.max(maxLength, value.length());
+            if (formats != 0) {
+                formats &= detectFormats(value);
+            }
+            if (enumValues != null) {
+                if (value.length() > MAX_ENUM_VALUE_LENGTH) {
+                    enumValues = null;
+                } else {
+                    enumValues.merge(value, 1L, Long::sum);
+                    if (enumValues.size() > maxEnum) {
+                        enumValues = null;
+                    }
+                }
+            }
+            addExample(value.length() > MAX_EXAMPLE_LENGTH ? value.substring(0, MAX_EXAMPLE_LENGTH) : value);
+        }
+
+        void observeInteger(double numeric, Object value) {
+            integers++;
+            observeRange(numeric, value);
+            addExample(value);
+        }
+
+        void observeNumber(double numeric, Object value) {
+            numbers++;
+            observeRange(numeric, value);
+            addExample(value);
+        }
+
+        void observeBoolean(boolean value) {
+            booleans++;
+            addExample(value);
+        }
+
+        /**
+         * Observe an untyped text value, as read from CSV, inferring its scalar type
+         */
+        void observeText(String text) {
+            count++;
+            if (text == null || text.isEmpty()) {
+                nulls++;
+                return;
+            }
+            if ("true".equalsIgnoreCase(text) || "false".equalsIgnoreCase(text)) {
+                observeBoolean(Boolean.parseBoolean(text));
+                return;
+            }
+            int kind = scanNumber(text);
+            if (kind == 1 && text.length() <= 18) {
+                long value = Long.parseLong(text);
+                observeInteger(value, value);
+            } else if (kind == 1) {
+                java.math.BigInteger value = new java.math.BigInteger(text);
+                observeInteger(value.doubleValue(), value);
+            } else if (kind == 2) {
+                double value = Double.parseDouble(text);
+                observeNumber(value, value);
+            } else {
+                observeString(text);
+            }
+        }
+
+        private void observeRange(double numeric, Object value) {
+            if (numeric < minimum) {
+                minimum = numeric;
+                minimumValue = value;
+            }
+            if (numeric > maximum) {
+                maximum = numeric;
+                maximumValue = value;
+            }
+        }
+
+        private void addExample(Object value) {
+            if (examples.size() < maxExamples && !examples.contains(value)) {
+                examples.add(value);
+            }
+        }
+
+        /**
+         * Combine statistics from a node folded over another chunk of the same position
+         */
+        public SchemaNode merge(SchemaNode other) {
+            count += other.count;
+            nulls += other.nulls;
+            booleans += other.booleans;
+            integers += other.integers;
+            numbers += other.numbers;
+            strings += other.strings;
+            objects += other.objects;
+            arrays += other.arrays;
+
+            if (other.minimum < minimum) {
+                minimum = other.minimum;
+                minimumValue = other.minimumValue;
+            }
+            if (other.maximum > maximum) {
+                maximum = other.maximum;
+                maximumValue = other.maximumValue;
+            }
+            minLength = Math.min(minLength, other.minLength);
+            maxLength = Math.max(maxLength, other.maxLength);
+            minItems = Math.min(minItems, other.minItems);
+            maxItems = Math.max(maxItems, other.maxItems);
+            if (other.strings > 0) {
+                formats &= other.formats;
+            }
+
+            for (Map.Entry<String, SchemaNode> entry : other.properties.entrySet()) {
+                SchemaNode existing = properties.get(entry.getKey());
+                if (existing == null) {
+                    properties.put(entry.getKey(), entry.getValue());
+                } else {
+                    existing.merge(entry.getValue());
+                }
+            }
+            if (other.items != null) {
+                if (items == null) {
+                    items = other.items;
+                } else {
+                    items.merge(other.items);
+                }
+            }
+
+            if (enumValues != null && other.enumValues != null) {
+                for (Map.Entry<String, Long> entry : other.enumValues.entrySet()) {
+                    enumValues.merge(entry.getKey(), entry.getValue(), Long::sum);
+                }
+                if (enumValues.size() > maxEnum) {
+                    enumValues = null;
+                }
+            } else if (other.strings > 0) {
+                enumValues = null;
+            }
+            for (Object example : other.examples) {
+                addExample(example);
+            }
+            return this;
+        }
+
+        /**
+         * The object node describing tabular records, if the document is an array of objects or a single object
+         */
+        SchemaNode recordNode() {
+            if (arrays > 0 && objects == 0 && items != null && items.objects > 0 && !items.properties.isEmpty()) {
+                return items;
+            }
+            if (objects > 0 && arrays == 0 && !properties.isEmpty()) {
+                return this;
+            }
+            return null;
+        }
+
+        String primaryType() {
+            List<String> types = types();
+            types.remove("null");
+            return types.size() == 1 ? types.get(0) : types.isEmpty() ? "null" : "string";
+        }
+
+        String format() {
+            if (strings == 0 || formats == 0) {
+                return null;
+            }
+            if ((formats & FORMAT_DATE_TIME) != 0) return "date-time";
+            if ((formats & FORMAT_DATE) != 0) return "date";
+            if ((formats & FORMAT_UUID) != 0) return "uuid";
+            if ((formats & FORMAT_EMAIL) != 0) return "email";
+            if ((formats & FORMAT_URI) != 0) return "uri";
+            return null;
+        }
+
+        private List<String> types() {
+            List<String> types = new ArrayList<>();
+            if (objects > 0) types.add("object");
+            if (arrays > 0) types.add("array");
+            if (strings > 0) types.add("string");
+            if (numbers > 0) {
+                types.add("number");
+            } else if (integers > 0) {
+                types.add("integer");
+            }
+            if (booleans > 0) types.add("boolean");
+            if (nulls > 0) types.add("null");
+            return types;
+        }
+
+        public Map<String, Object> toJsonSchema() {
+            Map<String, Object> schema = new LinkedHashMap<>();
+            List<String> types = types();
+            if (types.size() == 1) {
+                schema.put("type", types.get(0));
+            } else if (types.size() > 1) {
+                schema.put("type", types);
+            }
+
+            if (objects > 0) {
+                Map<String, Object> props = new LinkedHashMap<>();
+                List<String> required = new ArrayList<>();
+                for (Map.Entry<String, SchemaNode> entry : properties.entrySet()) {
+                    props.put(entry.getKey(), entry.getValue().toJsonSchema());
+                    if (entry.getValue().count >= objects) {
+                        required.add(entry.getKey());
+                    }
+                }
+                schema.put("properties", props);
+                if (!required.isEmpty()) {
+                    schema.put("required", required);
+                }
+            }
+
+            if (arrays > 0) {
+                if (items != null && items.count > 0) {
+                    schema.put("items", items.toJsonSchema());
+                }
+                schema.put("minItems", minItems);
+                schema.put("maxItems", maxItems);
+            }
+
+            if (strings > 0) {
+                schema.put("minLength", minLength);
+                schema.put("maxLength", maxLength);
+                String format = format();
+                if (format != null) {
+                    schema.put("format", format);
+                }
+                boolean onlyStrings = objects + arrays + integers + numbers + booleans == 0;
+                if (onlyStrings && enumValues != null && !enumValues.isEmpty() && strings >= 2L * enumValues.size()) {
+                    List<Object> values = new ArrayList<>(enumValues.keySet());
+                    if (nulls > 0) {
+                        values.add(null);
+                    }
+                    schema.put("enum", values);
+                }
+            }
+
+            if (integers + numbers > 0) {
+                schema.put("minimum", minimumValue);
+                schema.put("maximum", maximumValue);
+            }
+
+            if (!examples.isEmpty()) {
+                schema.put("examples", new ArrayList<>(examples));
+            }
+            return schema;
+        }
+
+        // 0 = not a number, 1 = integer, 2 = decimal or exponent form
+        private static int scanNumber(String text) {
+            int i = 0;
+            int length = text.length();
+            if (text.charAt(0) == '-' || text.charAt(0) == '+') {
+                i++;
+            }
+            int digits = 0;
+            while (i < length && Character.isDigit(text.charAt(i))) {
+                i++;
+                digits++;
+            }
+            if (digits == 0) {
+                return 0;
+            }
+            // Leading zeros (zip codes, identifiers) stay strings
+            int first = text.charAt(0) == '-' || text.charAt(0) == '+' ? 1 : 0;
+            if (digits > 1 && text.charAt(first) == '0' && (i == length || text.charAt(i) != '.')) {
+                return 0;
+            }
+            if (i == length) {
+                return 1;
+            }
+            if (text.charAt(i) == '.') {
+                i++;
+                int fraction = 0;
+                while (i < length && Character.isDigit(text.charAt(i))) {
+                    i++;
+                    fraction++;
+                }
+                if (fraction == 0) {
+                    return 0;
+                }
+            }
+            if (i < length && (text.charAt(i) == 'e' || text.charAt(i) == 'E')) {
+                i++;
+                if (i < length && (text.charAt(i) == '-' || text.charAt(i) == '+')) {
+                    i++;
+                }
+                int exponent = 0;
+                while (i < length && Character.isDigit(text.charAt(i))) {
+                    i++;
+                    exponent++;
+                }
+                if (exponent == 0) {
+                    return 0;
+                }
+            }
+            return i == length ? 2 : 0;
+        }
+
+        private static int detectFormats(String value) {
+            int length = value.length();
+            int result = 0;
+            if (length >= 10 && isDate(value)) {
+                result |= length == 10 ? FORMAT_DATE : 0;
+                if (length >= 19 && (value.charAt(10) == 'T' || value.charAt(10) == 't') && isTime(value, 11)) {
+                    result |= FORMAT_DATE_TIME;
+                }
+            }
+            if (length == 36 && isUuid(value)) {
+                result |= FORMAT_UUID;
+            }
+            int at = value.indexOf('@');
+            if (at > 0 && at == value.lastIndexOf('@') && value.indexOf('.', at) > at + 1
+                    && value.charAt(length - 1) != '.' && value.indexOf(' ') < 0) {
+                result |= FORMAT_EMAIL;
+            }
+            if ((value.startsWith("http://") || value.startsWith("https://")) && value.indexOf(' ') < 0) {
+                result |= FORMAT_URI;
+            }
+            return result;
+        }
+
+        private static boolean isDate(String v) {
+            return digits(v, 0, 4) && v.charAt(4) == '-' && digits(v, 5, 7) && v.charAt(7) == '-' && digits(v, 8, 10);
+        }
+
+        private static boolean isTime(String v, int offset) {
+            return digits(v, offset, offset + 2) && v.charAt(offset + 2) == ':'
+                    && digits(v, offset + 3, offset + 5) && v.charAt(offset + 5) == ':'
+                    && digits(v, offset + 6, offset + 8);
+        }
+
+        private static boolean isUuid(String v) {
+            for (int i = 0; i < 36; i++) {
+                char c = v.charAt(i);
+                if (i == 8 || i == 13 || i == 18 || i == 23) {
+                    if (c != '-') return false;
+                } else if (Character.digit(c, 16) < 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static boolean digits(String v, int from, int to) {
+            for (int i = from; i < to; i++) {
+                if (!Character.isDigit(v.charAt(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    // Reads a mapped region without copying it onto the heap
+    private static class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int n = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, n);
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
@@ -0,0 +1,272 @@
+package com.konvert.util;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.util.MinimalPrettyPrinter;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Flattens JSON or NDJSON records straight from a JsonParser into CSV or NDJSON rows, without building
+ * a tree or a map of every key. A top-level array (or each NDJSON line) yields one row per element;
+ * keys follow {@link DataTransformUtil#flattenData}: {@code parent.child} and {@code items[0]}.
+ * NDJSON is written in a single pass. CSV needs its header first, so a token-only pass collects the
+ * columns in first-seen order before the rows are written. When two paths flatten to the same key,
+ * such as {@code "a.b"} and {@code a} holding {@code b}, both outputs keep the last value.
+ */
+public class StreamingFlattener {
+
+    private static final JsonFactory jsonFactory = new JsonFactory();
+    private static final List<String> INPUTS = Arrays.asList("json", "ndjson");
+    private static final List<String> OUTPUTS = Arrays.asList("csv", "ndjson");
+    // Column name for rows that are scalars rather than objects
+    private static final String SCALAR_COLUMN = "value";
+
+    /**
+     * Whether this input and output pair is flattened by streaming
+     */
+    public static boolean canFlatten(String inputFormat, String outputFormat) {
+        return inputFormat != null && outputFormat != null
+                && INPUTS.contains(inputFormat.toLowerCase(Locale.ROOT))
+                && OUTPUTS.contains(outputFormat.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Flatten into a string; see {@link #flatten(String, String, String, String, Writer)}
+     */
+    public static String flattenToString(String input, String inputFormat, String outputFormat, String separator) throws IOException {
+        StringWriter out = new StringWriter(input.length());
+        flatten(input, inputFormat, outputFormat, separator, out);
+        return out.toString();
+    }
+
+    /**
+     * Flatten records into CSV or NDJSON rows on the writer
+     */
+    public static void flatten(String input, String inputFormat, String outputFormat, String separator,
+                               Writer out) throws IOException {
+        if (!canFlatten(inputFormat, outputFormat)) {
+            throw new IllegalArgumentException("Streaming flatten reads JSON or NDJSON and writes CSV or NDJSON");
+        }
+        String sep = separator == null || separator.isEmpty() ? "." : separator;
+
+        RowSink sink;
+        if ("csv".equalsIgnoreCase(outputFormat)) {
+            ColumnCollector columns = new ColumnCollector();
+            walk(input, sep, columns);
+            sink = new CsvSink(columns.names, out);
+        } else {
+            sink = new NdjsonSink(out);
+        }
+        walk(input, sep, sink);
+        sink.finish();
+    }
+
+    private static void walk(String input, String separator, RowSink sink) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(input)) {
+            Flattener flattener = new Flattener(parser, separator, sink);
+            JsonToken token;
+            // NDJSON is a sequence of root values, so both formats read the same way
+            while ((token = parser.nextToken()) != null) {
+                if (token == JsonToken.START_ARRAY) {
+                    while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                        flattener.row(token);
+                    }
+                } else {
+                    flattener.row(token);
+                }
+            }
+        }
+    }
+
+    /**
+     * Walks one record, keeping the current key in a single buffer that is cut back on the way up
+     */
+    private static final class Flattener {
+        private final JsonParser parser;
+        private final String separator;
+        private final RowSink sink;
+        private final StringBuilder path = new StringBuilder();
+
+        Flattener(JsonParser parser, String separator, RowSink sink) {
+            this.parser = parser;
+            this.separator = separator;
+            this.sink = sink;
+        }
+
+        void row(JsonToken token) throws IOException {
+            path.setLength(0);
+            sink.startRow();
+            if (token.isScalarValue()) {
+                path.append(SCALAR_COLUMN);
+            }
+            value(token);
+            sink.endRow();
+        }
+
+        private void value(JsonToken token) throws IOException {
+            int base = path.length();
+            if (token == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    path.setLength(base);
+                    if (base > 0) {
+                        path.append(separator);
+                    }
+                    path.append(parser.getCurrentName());
+                    value(parser.nextToken());
+                }
+            } else if (token == JsonToken.START_ARRAY) {
+                int index = 0;
+                while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                    path.setLength(base);
+                    path.append('[').append(index++).append(']');
+                    value(token);
+                }
+            } else {
+                sink.value(path, parser, token);
+            }
+            path.setLength(base);
+        }
+    }
+
+    private interface RowSink {
+        void startRow() throws IOException;
+
+        void value(CharSequence path, JsonParser parser, JsonToken token) throws IOException;
+
+        void endRow() throws IOException;
+
+        void finish() throws IOException;
+    }
+
+    // First pass for CSV: the union of keys in first-seen order
+    private static final class ColumnCollector implements RowSink {
+        final Map<String, Integer> names = new LinkedHashMap<>();
+
+        @Override
+        public void startRow() {
+        }
+
+        @Override
+        public void value(CharSequence path, JsonParser parser, JsonToken token) {
+            names.putIfAbsent(path.toString(), names.size());
+        }
+
+        @Override
+        public void endRow() {
+        }
+
+        @Override
+        public void finish() {
+        }
+    }
+
+    private static final class CsvSink implements RowSink {
+        private final Map<String, Integer> columns;
+        private final CSVPrinter printer;
+        private final String[] row;
+
+        CsvSink(Map<String, Integer> columns, Writer out) throws IOException {
+            this.columns = new HashMap<>(columns);
+            this.printer = new CSVPrinter(out, CSVFormat.DEFAULT);
+            this.row = new String[columns.size()];
+            printer.printRecord(columns.keySet());
+        }
+
+        @Override
+        public void startRow() {
+            Arrays.fill(row, null);
+        }
+
+        @Override
+        public void value(CharSequence path, JsonParser parser, JsonToken token) throws IOException {
+            Integer column = columns.get(path.toString());
+            if (column != null) {
+                row[column] = token == JsonToken.VALUE_NULL ? null : parser.getText();
+            }
+        }
+
+        @Override
+        public void endRow() throws IOException {
+            printer.printRecord((Object[]) row);
+        }
+
+        @Override
+        public void finish() throws IOException {
+            printer.flush();
+        }
+    }
+
+    // Holds one row so a key repeated within it is written once, in first-seen place with the last value
+    private static final class NdjsonSink implements RowSink {
+        private final JsonGenerator generator;
+        private final Map<String, Field> row = new LinkedHashMap<>();
+
+        NdjsonSink(Writer out) throws IOException {
+            generator = jsonFactory.createGenerator(out);
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setPrettyPrinter(new MinimalPrettyPrinter(""));
+        }
+
+        @Override
+        public void startRow() {
+            row.clear();
+        }
+
+        @Override
+        public void value(CharSequence path, JsonParser parser, JsonToken token) throws IOException {
+            Field field = row.computeIfAbsent(path.toString(), name -> new Field());
+            field.token = token;
+            field.text = token == JsonToken.VALUE_NULL ? null : parser.getText();
+        }
+
+        @Override
+        public void endRow() throws IOException {
+            generator.writeStartObject();
+            for (Map.Entry<String, Field> entry : row.entrySet()) {
+                generator.writeFieldName(entry.getKey());
+                Field field = entry.getValue();
+                switch (field.token) {
+                    case VALUE_NUMBER_INT:
+                    case VALUE_NUMBER_FLOAT:
+                        // Numbers keep their source text exactly
+                        generator.writeNumber(field.text);
+                        break;
+                    case VALUE_TRUE:
+                    case VALUE_FALSE:
+                        generator.writeBoolean(field.token == JsonToken.VALUE_TRUE);
+                        break;
+                    case VALUE_NULL:
+                        generator.writeNull();
+                        break;
+                    default:
+                        generator.writeString(field.text);
+                }
+            }
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+        }
+
+        @Override
+        public void finish() throws IOException {
+            generator.flush();
+        }
+    }
+
+    private static final class Field {
+        JsonToken token;
+        String text;
+    }
+}
@@ -0,0 +1,233 @@
+package com.konvert.util;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+/**
+ * Content hashes for every map and list of parsed documents, computed bottom-up in one pass so two
+ * subtrees can be compared by looking up two longs. A list hashes its elements in order; a map sums
+ * the hashes of its entries, so like {@link Map#equals} it ignores key order. Equal values always get
+ * equal hashes, so different hashes settle a comparison at once; equal hashes are confirmed by comparing
+ * content, since different values may rarely share one. Only subtrees of some size keep their hash; smaller ones are cheaper to rehash
+ * on demand than to look up. Containers with many children are hashed in chunks on the shared
+ * worker pool.
+ */
+final class SubtreeHashes {
+
+    private static final int PARALLEL_THRESHOLD = 10_000;
+    // Smallest subtree, counted in values, whose hash is kept
+    private static final int MIN_KEPT_SIZE = 32;
+    private static final long PRIME = 0x9E3779B97F4A7C15L;
+    private static final long NULL_HASH = 0x5BD1E9955BD1E995L;
+    private static final long LIST_SEED = 0x27D4EB2F165667C5L;
+    private static final long MAP_SEED = 0x165667B19E3779F9L;
+    // Values of different classes never compare equal, so the class is part of every scalar hash
+    private static final ClassValue<Long> TYPE_SEEDS = new ClassValue<Long>() {
+        @Override
+        protected Long computeValue(Class<?> type) {
+            return text(type.getName(), PRIME);
+        }
+    };
+
+    private final Map<Object, Long> containers = new IdentityHashMap<>();
+
+    private SubtreeHashes() {
+    }
+
+    /**
+     * Hashes one tree, or part of it, keeping the hashes of large subtrees
+     */
+    private static final class Hasher {
+        final Map<Object, Long> kept;
+        long size;
+
+        Hasher(boolean keep) {
+            kept = keep ? new IdentityHashMap<>() : null;
+        }
+    }
+
+    /**
+     * Hashes of every container in the given trees
+     */
+    static SubtreeHashes of(Object... roots) {
+        SubtreeHashes hashes = new SubtreeHashes();
+        for (Object root : roots) {
+            Hasher hasher = new Hasher(true);
+            compute(root, hasher);
+            hashes.containers.putAll(hasher.kept);
+        }
+        return hashes;
+    }
+
+    /**
+     * The content hash of a value from one of the hashed trees
+     */
+    long hash(Object value) {
+        if (value instanceof Map || value instanceof List) {
+            Long hash = containers.get(value);
+            if (hash != null) {
+                return hash;
+            }
+            // A small subtree, or one outside the hashed trees
+            return compute(value, new Hasher(false));
+        }
+        return scalar(value);
+    }
+
+    /**
+     * Whether two values from the hashed trees have the same content. Kept hashes that differ answer
+     * without a walk; a matching hash is confirmed by comparing the values.
+     */
+    boolean same(Object a, Object b) {
+        if (a == b) {
+            return true;
+        }
+        if (a == null || b == null || a.getClass() != b.getClass()) {
+            return false;
+        }
+        if (a instanceof Map || a instanceof List) {
+            Long hashA = containers.get(a);
+            Long hashB = containers.get(b);
+            if (hashA != null && hashB != null && hashA.longValue() != hashB.longValue()) {
+                return false;
+            }
+            // Equal subtrees are the same size, so either both hashes are kept or neither is
+            if ((hashA == null) != (hashB == null)) {
+                return false;
+            }
+        }
+        return a.equals(b);
+    }
+
+    private static long compute(Object value, Hasher hasher) {
+        long start = hasher.size++;
+        if (value == null || value instanceof String || value instanceof Number || value instanceof Boolean) {
+            return scalar(value);
+        }
+        if (value instanceof Map) {
+            Map<?, ?> map = (Map<?, ?>) value;
+            long sum = 0;
+            if (map.size() >= PARALLEL_THRESHOLD) {
+                List<Object> keys = new ArrayList<>(map.keySet());
+                List<Object> values = new ArrayList<>(map.values());
+                long[] valueHashes = computeInParallel(values, hasher);
+                for (int i = 0; i < valueHashes.length; i++) {
+                    sum += entry(scalarOrTree(keys.get(i), hasher), valueHashes[i]);
+                }
+            } else {
+                for (Map.Entry<?, ?> entry : map.entrySet()) {
+                    sum += entry(scalarOrTree(entry.getKey(), hasher), compute(entry.getValue(), hasher));
+                }
+            }
+            return keep(value, mix(MAP_SEED ^ sum ^ map.size()), start, hasher);
+        }
+        if (value instanceof List) {
+            List<?> list = (List<?>) value;
+            long hash = LIST_SEED;
+            if (list.size() >= PARALLEL_THRESHOLD) {
+                for (long element : computeInParallel(list, hasher)) {
+                    hash = mix(hash + element);
+                }
+            } else {
+                for (Object element : list) {
+                    hash = mix(hash + compute(element, hasher));
+                }
+            }
+            return keep(value, mix(hash ^ list.size()), start, hasher);
+        }
+        return scalar(value);
+    }
+
+    private static long keep(Object container, long hash, long start, Hasher hasher) {
+        if (hasher.kept != null && hasher.size - start >= MIN_KEPT_SIZE) {
+            hasher.kept.put(container, hash);
+        }
+        return hash;
+    }
+
+    // Keys are almost always scalars, but YAML allows containers as keys
+    private static long scalarOrTree(Object key, Hasher hasher) {
+        return key instanceof Map || key instanceof List ? compute(key, hasher) : scalar(key);
+    }
+
+    // Each chunk has its own hasher, merged afterwards, since IdentityHashMap is not thread-safe
+    private static long[] computeInParallel(List<?> values, Hasher hasher) {
+        int size = values.size();
+        int chunks = ParallelUtil.parallelism() * 4;
+        long[] result = new long[size];
+        List<Callable<Hasher>> tasks = new ArrayList<>(chunks);
+        for (int chunk = 0; chunk < chunks; chunk++) {
+            int from = (int) ((long) size * chunk / chunks);
+            int to = (int) ((long) size * (chunk + 1) / chunks);
+            tasks.add(() -> {
+                Hasher local = new Hasher(hasher.kept != null);
+                for (int i = from; i < to; i++) {
+                    result[i] = compute(values.get(i), local);
+                }
+                return local;
+            });
+        }
+        try {
+            for (Hasher local : ParallelUtil.invokeAll(tasks)) {
+                if (hasher.kept != null) {
+                    hasher.kept.putAll(local.kept);
+                }
+                hasher.size += local.size;
+            }
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("Hashing failed: " + e.getMessage(), e);
+        }
+        return result;
+    }
+
+    private static long scalar(Object value) {
+        if (value == null) {
+            return NULL_HASH;
+        }
+        long seed = TYPE_SEEDS.get(value.getClass());
+        if (value instanceof String) {
+            return text((String) value, seed);
+        }
+        if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return mix(seed ^ ((Number) value).longValue());
+        }
+        if (value instanceof Double || value instanceof Float) {
+            return mix(seed ^ Double.doubleToLongBits(((Number) value).doubleValue()));
+        }
+        if (value instanceof BigInteger || value instanceof BigDecimal) {
+            // equals on BigDecimal includes the scale, and so does its text
+            return text(value.toString(), seed);
+        }
+        if (value instanceof Boolean) {
+            return mix(seed ^ ((Boolean) value ? 1 : 2));
+        }
+        return mix(seed ^ value.hashCode());
+    }
+
+    // 64-bit FNV-1a over the characters, finished with a mix; String.hashCode is too narrow to trust
+    private static long text(String value, long seed) {
+        long hash = 0xCBF29CE484222325L ^ seed;
+        for (int i = 0; i < value.length(); i++) {
+            hash = (hash ^ value.charAt(i)) * 0x100000001B3L;
+        }
+        return mix(hash ^ value.length());
+    }
+
+    private static long entry(long key, long value) {
+        return mix(key * PRIME + value);
+    }
+
+    // The splitmix64 finalizer
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,608 @@
+package com.konvert.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Line-level diff of two texts of any size, written as unified diff hunks. Files are memory-mapped
+ * rather than read onto the heap. The common leading and trailing lines are found by comparing bytes
+ * in bulk. The lines between them are hashed to int symbols and diffed with {@link MyersDiff} one
+ * window at a time; a change still open at the end of a window is carried into the next, and hunks
+ * are written as soon as they are complete. Memory is bounded by the window, not the files. Lines
+ * are interned by 64-bit hash, and lines with equal hashes are compared byte for byte, including
+ * their line terminator. Changes too long for an exact diff within its cost limit are aligned on lines
+ * that occur once on each side, so inserted, deleted and moved blocks are reported at their size.
+ */
+public final class TextDiff {
+
+    public static final int DEFAULT_CONTEXT = 3;
+
+    private static final int SEGMENT_BITS = 30;
+    private static final long SEGMENT_MASK = (1L << SEGMENT_BITS) - 1;
+    private static final int COMPARE_CHUNK = 64 * 1024;
+    // Lines of each side diffed at once; a change longer than a window widens it up to the maximum
+    private static final int WINDOW_LINES = 1 << 10;
+    private static final int MAX_WINDOW_LINES = 1 << 18;
+    // Equal lines that must follow a change before it is written; shorter matches may be chance
+    private static final int SETTLE_LINES = 8;
+    private static final long FNV_BASIS = 0xCBF29CE484222325L;
+    private static final long FNV_PRIME = 0x100000001B3L;
+    private static final byte[] NO_NEWLINE = "\n\\ No newline at end of file\n".getBytes(StandardCharsets.US_ASCII);
+
+    private final int context;
+
+    /**
+     * A diff with the given number of unchanged lines around each change, 3 when null
+     */
+    public TextDiff(Integer context) {
+        if (context != null && context < 0) {
+            throw new IllegalArgumentException("Context lines cannot be negative");
+        }
+        this.context = context == null ? DEFAULT_CONTEXT : context;
+    }
+
+    /**
+     * Diff two strings, returning the unified diff as "output" along with the statistics
+     */
+    public static Map<String, Object> diff(String text1, String text2, Integer context) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Map<String, Object> result = new LinkedHashMap<>();
+        Map<String, Object> stats = new TextDiff(context).diff(new Text(text1.getBytes(StandardCharsets.UTF_8)),
+            new Text(text2.getBytes(StandardCharsets.UTF_8)), out, "input1", "input2");
+        result.put("output", out.toString(StandardCharsets.UTF_8));
+        result.putAll(stats);
+        return result;
+    }
+
+    /**
+     * Diff two files, streaming hunks to the output as they are found
+     */
+    public Map<String, Object> diff(Path file1, Path file2, OutputStream out, String label1, String label2)
+            throws IOException {
+        return diff(Text.map(file1), Text.map(file2), out, label1, label2);
+    }
+
+    private Map<String, Object> diff(Text a, Text b, OutputStream out, String label1, String label2)
+            throws IOException {
+        long start = System.nanoTime();
+
+        // Identical leading lines
+        long prefix = commonLines(a, 0, a.length, b, 0, b.length);
+        long prefixLines = a.countLines(0, prefix);
+
+        // Identical trailing bytes, cut forward to a line start in both texts
+        long limit = Math.min(a.length, b.length) - prefix;
+        long suffix = a.commonSuffix(b, limit);
+        while (suffix > 0 && !(a.startsLine(a.length - suffix) && b.startsLine(b.length - suffix))) {
+            suffix--;
+        }
+        long endA = a.length - suffix;
+        long endB = b.length - suffix;
+
+        // The lines in between are diffed a window at a time, skipping runs of equal lines in bulk
+        Hunks hunks = new Hunks(a, b, out, label1, label2);
+        Window windowA = new Window(a, endA);
+        Window windowB = new Window(b, endB);
+        LineSymbols symbols = new LineSymbols();
+        long offsetA = prefix;
+        long offsetB = prefix;
+        long lineA = prefixLines;
+        long lineB = prefixLines;
+        int size = WINDOW_LINES;
+        while (true) {
+            long same = commonLines(a, offsetA, endA, b, offsetB, endB);
+            if (same > 0) {
+                long lines = a.countLines(offsetA, offsetA + same);
+                offsetA += same;
+                offsetB += same;
+                lineA += lines;
+                lineB += lines;
+            }
+            if (offsetA >= endA && offsetB >= endB) {
+                break;
+            }
+
+            symbols.clear();
+            windowA.fill(offsetA, size, symbols);
+            windowB.fill(offsetB, size, symbols);
+            List<MyersDiff.Region> regions = MyersDiff.diff(windowA.symbols(), windowB.symbols());
+            int keep = regions.size();
+            if (keep > 0 && !(windowA.last() && windowB.last()) && windowA.count > 0 && windowB.count > 0) {
+                // A change may continue past the window end, and lines that match briefly inside a long
+                // change may match by chance, so only changes followed by a run of equal lines are kept
+                keep = settled(regions, windowA.count);
+                if (keep == 0) {
+                    if (size < MAX_WINDOW_LINES) {
+                        size *= 2;
+                        continue;
+                    }
+                    // At the largest window, keep all but a last change that runs into the window end
+                    keep = regions.size();
+                    if (keep > 1 && regions.get(keep - 1).aEnd == windowA.count) {
+                        keep--;
+                    }
+                }
+            }
+            int takeA = keep == 0 ? windowA.count : regions.get(keep - 1).aEnd;
+            int takeB = keep == 0 ? windowB.count : regions.get(keep - 1).bEnd;
+            for (int r = 0; r < keep; r++) {
+                MyersDiff.Region region = regions.get(r);
+                hunks.add(lineA + region.aStart, lineA + region.aEnd, windowA.start(region.aStart),
+                    lineB + region.bStart, lineB + region.bEnd, windowB.start(region.bStart));
+            }
+            offsetA = windowA.start(takeA);
+            offsetB = windowB.start(takeB);
+            lineA += takeA;
+            lineB += takeB;
+            size = WINDOW_LINES;
+        }
+        long suffixLines = a.countLines(a.length - suffix, a.length);
+        hunks.finish(lineA + suffixLines);
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("identical", hunks.count == 0);
+        stats.put("hunks", hunks.count);
+        stats.put("linesAdded", hunks.added);
+        stats.put("linesRemoved", hunks.removed);
+        stats.put("lines1", lineA + suffixLines);
+        stats.put("lines2", lineB + suffixLines);
+        stats.put("elapsedMs", (System.nanoTime() - start) / 1_000_000);
+        return stats;
+    }
+
+    // Number of leading regions up to the last one followed by at least SETTLE_LINES equal lines
+    private static int settled(List<MyersDiff.Region> regions, int countA) {
+        for (int r = regions.size() - 1; r >= 0; r--) {
+            int next = r + 1 < regions.size() ? regions.get(r + 1).aStart : countA;
+            if (next - regions.get(r).aEnd >= SETTLE_LINES) {
+                return r + 1;
+            }
+        }
+        return 0;
+    }
+
+    // Length of the run of whole lines that is the same in both ranges
+    private static long commonLines(Text a, long fromA, long endA, Text b, long fromB, long endB) {
+        long shared = Math.min(endA - fromA, endB - fromB);
+        long index = a.mismatch(fromA, b, fromB, shared);
+        if (index < 0 && endA - fromA == endB - fromB) {
+            return shared;
+        }
+        // Both ranges start lines, so a newline before the mismatch is a line end on both sides
+        return shared == 0 ? 0 : a.lineStart(fromA + (index < 0 ? shared : index)) - fromA;
+    }
+
+    // A hunk range: 1-based start and count, where an empty range names the line before it
+    private static String range(long from, long to) {
+        long count = to - from;
+        if (count == 1) {
+            return String.valueOf(from + 1);
+        }
+        return (count == 0 ? from : from + 1) + "," + count;
+    }
+
+    /**
+     * Bytes of a text, in segments of at most 1 GB so files past the 2 GB mapping limit fit
+     */
+    private static final class Text {
+        final ByteBuffer[] segments;
+        final long length;
+
+        Text(byte[] bytes) {
+            segments = new ByteBuffer[] {ByteBuffer.wrap(bytes)};
+            length = bytes.length;
+        }
+
+        private Text(ByteBuffer[] segments, long length) {
+            this.segments = segments;
+            this.length = length;
+        }
+
+        static Text map(Path file) throws IOException {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                long size = channel.size();
+                ByteBuffer[] segments = new ByteBuffer[(int) ((size + SEGMENT_MASK) >>> SEGMENT_BITS)];
+                for (int i = 0; i < segments.length; i++) {
+                    long position = (long) i << SEGMENT_BITS;
+                    segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                        Math.min(size - position, 1L << SEGMENT_BITS));
+                }
+                return new Text(segments, size);
+            }
+        }
+
+        byte at(long position) {
+            return segments[(int) (position >>> SEGMENT_BITS)].get((int) (position & SEGMENT_MASK));
+        }
+
+        // Up to length bytes from position, not crossing a segment boundary
+        ByteBuffer slice(long position, int length) {
+            ByteBuffer segment = segments[(int) (position >>> SEGMENT_BITS)];
+            int offset = (int) (position & SEGMENT_MASK);
+            return segment.slice(offset, Math.min(length, segment.limit() - offset));
+        }
+
+        /**
+         * Offset of the first of length bytes from position that differs from the other text's bytes
+         * from its position, or -1 when all are equal
+         */
+        long mismatch(long position, Text other, long otherPosition, long length) {
+            long done = 0;
+            while (done < length) {
+                int chunk = (int) Math.min(COMPARE_CHUNK, length - done);
+                ByteBuffer mine = slice(position + done, chunk);
+                ByteBuffer theirs = other.slice(otherPosition + done, chunk);
+                int size = Math.min(mine.remaining(), theirs.remaining());
+                int index = mine.limit(size).mismatch(theirs.limit(size));
+                if (index >= 0) {
+                    return done + index;
+                }
+                done += size;
+            }
+            return -1;
+        }
+
+        /**
+         * Number of identical bytes at the ends of both texts, at most limit
+         */
+        long commonSuffix(Text other, long limit) {
+            long matched = 0;
+            while (matched < limit) {
+                int chunk = (int) Math.min(COMPARE_CHUNK, limit - matched);
+                long mine = length - matched - chunk;
+                long theirs = other.length - matched - chunk;
+                ByteBuffer left = slice(mine, chunk);
+                ByteBuffer right = other.slice(theirs, chunk);
+                if (left.remaining() == chunk && right.remaining() == chunk && left.mismatch(right) < 0) {
+                    matched += chunk;
+                    continue;
+                }
+                // A difference, or a chunk across a segment boundary: compare it one byte at a time
+                long stop = matched + chunk;
+                while (matched < stop && at(length - matched - 1) == other.at(other.length - matched - 1)) {
+                    matched++;
+                }
+                if (matched < stop) {
+                    return matched;
+                }
+            }
+            return matched;
+        }
+
+        boolean startsLine(long position) {
+            return position == 0 || at(position - 1) == '\n';
+        }
+
+        // Start of the line holding the byte at position
+        long lineStart(long position) {
+            while (position > 0 && at(position - 1) != '\n') {
+                position--;
+            }
+            return position;
+        }
+
+        // End of the line starting at position, past its newline
+        long lineEnd(long position) {
+            while (position < length) {
+                ByteBuffer segment = segments[(int) (position >>> SEGMENT_BITS)];
+                int offset = (int) (position & SEGMENT_MASK);
+                for (int i = offset; i < segment.limit(); i++) {
+                    if (segment.get(i) == '\n') {
+                        return position + (i - offset) + 1;
+                    }
+                }
+                position += segment.limit() - offset;
+            }
+            return length;
+        }
+
+        // Lines in [from, to), counting an unterminated last line
+        long countLines(long from, long to) {
+            long lines = 0;
+            long position = from;
+            while (position < to) {
+                ByteBuffer segment = segments[(int) (position >>> SEGMENT_BITS)];
+                int offset = (int) (position & SEGMENT_MASK);
+                int end = (int) Math.min(segment.limit(), offset + (to - position));
+                int i = offset;
+                // Eight bytes at a time: each newline becomes a zero byte, and zero bytes are counted
+                for (; i + Long.BYTES <= end; i += Long.BYTES) {
+                    long word = segment.getLong(i) ^ 0x0A0A0A0A0A0A0A0AL;
+                    long low = (word & 0x7F7F7F7F7F7F7F7FL) + 0x7F7F7F7F7F7F7F7FL;
+                    lines += Long.bitCount(~(low | word | 0x7F7F7F7F7F7F7F7FL));
+                }
+                for (; i < end; i++) {
+                    if (segment.get(i) == '\n') {
+                        lines++;
+                    }
+                }
+                position += end - offset;
+            }
+            return to > from && at(to - 1) != '\n' ? lines + 1 : lines;
+        }
+
+        void copy(long from, long to, OutputStream out, byte[] buffer) throws IOException {
+            while (from < to) {
+                ByteBuffer slice = slice(from, (int) Math.min(buffer.length, to - from));
+                int size = slice.remaining();
+                slice.get(buffer, 0, size);
+                out.write(buffer, 0, size);
+                from += size;
+            }
+        }
+    }
+
+    /**
+     * Interns lines to dense int symbols in an open-addressing table keyed by line hash. Each symbol
+     * keeps the first line it was given for, so lines whose hashes collide get symbols of their own.
+     */
+    private static final class LineSymbols {
+        private long[] keys = new long[1024];
+        private int[] values = new int[1024];
+        private Text[] texts = new Text[512];
+        private long[] offsets = new long[512];
+        private int[] lengths = new int[512];
+        private int size;
+
+        void clear() {
+            if (size > 0) {
+                Arrays.fill(keys, 0);
+                Arrays.fill(texts, 0, size, null);
+                size = 0;
+            }
+        }
+
+        // The symbol of the line [from, to) of text, whose hash is given
+        int symbol(long hash, Text text, long from, long to) {
+            // The splitmix64 finalizer spreads the hash; zero marks an empty slot
+            hash = (hash ^ (hash >>> 30)) * 0xBF58476D1CE4E5B9L;
+            hash = (hash ^ (hash >>> 27)) * 0x94D049BB133111EBL;
+            hash ^= hash >>> 31;
+            if (hash == 0) {
+                hash = 1;
+            }
+            int mask = keys.length - 1;
+            int slot = (int) hash & mask;
+            while (keys[slot] != 0) {
+                if (keys[slot] == hash && sameLine(values[slot], text, from, to)) {
+                    return values[slot];
+                }
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = hash;
+            values[slot] = size;
+            if (size == texts.length) {
+                texts = Arrays.copyOf(texts, size * 2);
+                offsets = Arrays.copyOf(offsets, size * 2);
+                lengths = Arrays.copyOf(lengths, size * 2);
+            }
+            texts[size] = text;
+            offsets[size] = from;
+            // Lines past 2 GB compare by their first 2 GB only
+            lengths[size] = (int) Math.min(Integer.MAX_VALUE, to - from);
+            if (++size * 2 > keys.length) {
+                grow();
+            }
+            return size - 1;
+        }
+
+        private boolean sameLine(int symbol, Text text, long from, long to) {
+            long length = Math.min(Integer.MAX_VALUE, to - from);
+            return lengths[symbol] == length && texts[symbol].mismatch(offsets[symbol], text, from, length) < 0;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            int[] oldValues = values;
+            keys = new long[oldKeys.length * 2];
+            values = new int[oldKeys.length * 2];
+            int mask = keys.length - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0) {
+                    int slot = (int) oldKeys[i] & mask;
+                    while (keys[slot] != 0) {
+                        slot = (slot + 1) & mask;
+                    }
+                    keys[slot] = oldKeys[i];
+                    values[slot] = oldValues[i];
+                }
+            }
+        }
+    }
+
+    /**
+     * The next lines of one side's changed range, as symbols with their start offsets
+     */
+    private static final class Window {
+        private final Text text;
+        private final long end;
+        private long[] starts = new long[16];
+        private int[] lines = new int[16];
+        private long filledTo;
+        int count;
+
+        Window(Text text, long end) {
+            this.text = text;
+            this.end = end;
+        }
+
+        // Whether the window holds every remaining line
+        boolean last() {
+            return filledTo >= end;
+        }
+
+        int[] symbols() {
+            return Arrays.copyOf(lines, count);
+        }
+
+        // Offset of a line in the window, or of the line after it
+        long start(int line) {
+            return starts[line];
+        }
+
+        void fill(long offset, int size, LineSymbols symbols) {
+            if (starts.length < size + 1) {
+                starts = Arrays.copyOf(starts, size + 1);
+                lines = Arrays.copyOf(lines, size);
+            }
+            count = 0;
+            long hash = FNV_BASIS;
+            long position = offset;
+            starts[0] = offset;
+            while (position < end && count < size) {
+                ByteBuffer segment = text.segments[(int) (position >>> SEGMENT_BITS)];
+                int from = (int) (position & SEGMENT_MASK);
+                int to = (int) Math.min(segment.limit(), from + (end - position));
+                int i = from;
+                while (i < to) {
+                    byte value = segment.get(i++);
+                    hash = (hash ^ (value & 0xff)) * FNV_PRIME;
+                    if (value == '\n') {
+                        lines[count] = symbols.symbol(hash, text, starts[count], position + (i - from));
+                        count++;
+                        starts[count] = position + (i - from);
+                        hash = FNV_BASIS;
+                        if (count == size) {
+                            break;
+                        }
+                    }
+                }
+                position += i - from;
+            }
+            if (count < size && position > starts[count]) {
+                // An unterminated last line
+                lines[count] = symbols.symbol(hash, text, starts[count], position);
+                count++;
+                starts[count] = position;
+            }
+            filledTo = starts[count];
+        }
+    }
+
+    /**
+     * Collects changed line ranges into unified diff hunks, writing each once no later change can
+     * join it
+     */
+    private final class Hunks {
+        private final OutputStream out;
+        private final String header;
+        private final Cursor cursorA;
+        private final Cursor cursorB;
+        private final byte[] buffer = new byte[COMPARE_CHUNK];
+        private final List<long[]> pending = new ArrayList<>();
+        long count;
+        long added;
+        long removed;
+
+        Hunks(Text a, Text b, OutputStream out, String label1, String label2) {
+            this.out = out;
+            this.header = "--- " + label1 + "\n+++ " + label2 + "\n";
+            cursorA = new Cursor(a);
+            cursorB = new Cursor(b);
+        }
+
+        // A changed range by line numbers, with the offsets of its first lines
+        void add(long aStart, long aEnd, long aOffset, long bStart, long bEnd, long bOffset) throws IOException {
+            if (!pending.isEmpty() && aStart - pending.get(pending.size() - 1)[1] > 2L * context) {
+                write(Long.MAX_VALUE);
+            }
+            pending.add(new long[] {aStart, aEnd, bStart, bEnd, aOffset, bOffset});
+        }
+
+        void finish(long totalA) throws IOException {
+            if (!pending.isEmpty()) {
+                write(totalA);
+            }
+            out.flush();
+        }
+
+        private void write(long totalA) throws IOException {
+            if (count == 0) {
+                out.write(header.getBytes(StandardCharsets.UTF_8));
+            }
+            long[] head = pending.get(0);
+            long[] tail = pending.get(pending.size() - 1);
+            // Lines around the changes are common to both sides, so both ranges move together
+            long hunkA = Math.max(0, head[0] - context);
+            long hunkB = head[2] - (head[0] - hunkA);
+            long hunkEndA = Math.min(totalA, tail[1] + context);
+            long hunkEndB = tail[3] + (hunkEndA - tail[1]);
+            out.write(("@@ -" + range(hunkA, hunkEndA) + " +" + range(hunkB, hunkEndB) + " @@\n")
+                .getBytes(StandardCharsets.UTF_8));
+
+            // Jump to the first change, then back over its leading context
+            cursorA.seek(head[0], head[4], hunkA);
+            cursorB.seek(head[2], head[5], hunkB);
+            for (long[] change : pending) {
+                while (cursorA.line < change[0]) {
+                    cursorA.copy(' ', out, buffer);
+                    cursorB.skip();
+                }
+                while (cursorA.line < change[1]) {
+                    cursorA.copy('-', out, buffer);
+                    removed++;
+                }
+                while (cursorB.line < change[3]) {
+                    cursorB.copy('+', out, buffer);
+                    added++;
+                }
+            }
+            while (cursorA.line < hunkEndA) {
+                cursorA.copy(' ', out, buffer);
+                cursorB.skip();
+            }
+            pending.clear();
+            count++;
+        }
+    }
+
+    /**
+     * Walks the lines of a text forward, copying them to the diff output
+     */
+    private static final class Cursor {
+        private final Text text;
+        long line;
+        private long offset;
+
+        Cursor(Text text) {
+            this.text = text;
+        }
+
+        // Moves to a line known to start at offset, then back to an earlier target line
+        void seek(long known, long knownOffset, long target) {
+            line = known;
+            offset = knownOffset;
+            while (line > target) {
+                offset = text.lineStart(offset - 1);
+                line--;
+            }
+        }
+
+        void skip() {
+            offset = text.lineEnd(offset);
+            line++;
+        }
+
+        void copy(char marker, OutputStream out, byte[] buffer) throws IOException {
+            long end = text.lineEnd(offset);
+            out.write(marker);
+            text.copy(offset, end, out, buffer);
+            if (end == offset || text.at(end - 1) != '\n') {
+                out.write(NO_NEWLINE, 0, NO_NEWLINE.length);
+            }
+            offset = end;
+            line++;
+        }
+    }
+}
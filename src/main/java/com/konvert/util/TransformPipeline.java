@@ -0,0 +1,186 @@
+package com.konvert.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.konvert.FormatConverter;
+import com.konvert.table.ColumnarTable;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Runs a sequence of DataTransformUtil operations over one parsed tree: the input is parsed once,
+ * every step rewrites the tree in memory, and the result is serialized once in the output format.
+ */
+public class TransformPipeline {
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    /**
+     * Apply the steps in order. Each step is an object with an {@code op} (flatten, unflatten,
+     * rename-keys, transform-values, filter-fields, convert-types, query) and the same parameters as the
+     * single-operation endpoint: separator, renameMap, transformation, fieldsToRemove, typeMap or path.
+     * Returns the serialized output with the number of steps applied and the time spent.
+     */
+    public static Map<String, Object> run(String input, String inputFormat, String outputFormat,
+                                          List<?> steps) throws Exception {
+        if (input == null || input.trim().isEmpty()) {
+            throw new IllegalArgumentException("Input cannot be empty");
+        }
+        if (steps == null || steps.isEmpty()) {
+            throw new IllegalArgumentException("At least one pipeline step is required");
+        }
+        if (inputFormat == null || inputFormat.trim().isEmpty()) {
+            inputFormat = "json";
+        }
+        if (outputFormat == null || outputFormat.trim().isEmpty()) {
+            outputFormat = inputFormat;
+        }
+
+        // Validate every step before doing any work
+        List<Step> parsed = new ArrayList<>(steps.size());
+        for (int i = 0; i < steps.size(); i++) {
+            parsed.add(Step.parse(steps.get(i), i + 1));
+        }
+
+        long start = System.nanoTime();
+        JsonNode root = read(input, inputFormat);
+        for (Step step : parsed) {
+            root = step.apply(root);
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("output", write(root, outputFormat));
+        result.put("steps", parsed.size());
+        result.put("elapsedMs", (System.nanoTime() - start) / 1_000_000);
+        return result;
+    }
+
+    static JsonNode read(String input, String format) throws Exception {
+        if ("json".equalsIgnoreCase(format)) {
+            return mapper.readTree(input);
+        }
+        // Flat tabular input is typed by the table engine, as in FormatConverter.convert
+        ColumnarTable table = ColumnarTable.read(input, format);
+        Object data = table != null ? table.toData() : FormatConverter.parse(input, format, null);
+        return mapper.valueToTree(data);
+    }
+
+    static String write(JsonNode root, String format) throws Exception {
+        if ("json".equalsIgnoreCase(format)) {
+            return mapper.writerWithDefaultPrettyPrinter().writeValueAsString(root);
+        }
+        return FormatConverter.render(mapper.treeToValue(root, Object.class), format, null);
+    }
+
+    private static final class Step {
+        private final String op;
+        private final Map<?, ?> params;
+        private final int position;
+        // Parameter parsed once per step
+        private Object argument;
+
+        private Step(String op, Map<?, ?> params, int position) {
+            this.op = op;
+            this.params = params;
+            this.position = position;
+        }
+
+        static Step parse(Object raw, int position) throws Exception {
+            if (!(raw instanceof Map)) {
+                throw new IllegalArgumentException("Pipeline step " + position + " must be an object with an op");
+            }
+            Map<?, ?> params = (Map<?, ?>) raw;
+            Object op = params.get("op");
+            if (op == null || op.toString().isBlank()) {
+                throw new IllegalArgumentException("Pipeline step " + position + " is missing op");
+            }
+            // rename-keys, renameKeys and rename_keys name the same operation
+            String normalized = op.toString().toLowerCase(Locale.ROOT).replace("-", "").replace("_", "");
+            Step step = new Step(normalized, params, position);
+            step.argument = step.parseArgument(op.toString());
+            return step;
+        }
+
+        private Object parseArgument(String name) throws Exception {
+            switch (op) {
+                case "flatten":
+                case "unflatten":
+                    String separator = text("separator");
+                    return separator == null || separator.isEmpty() ? "." : separator;
+                case "renamekeys":
+                    return KeyPathMatcher.forRename(objectParam("renameMap", "Rename map"));
+                case "converttypes":
+                    Object typeMap = params.get("typeMap");
+                    if (typeMap instanceof String && "auto".equalsIgnoreCase(((String) typeMap).trim())) {
+                        return TypeCoercer.compile(mapper.valueToTree(typeMap));
+                    }
+                    return TypeCoercer.compile(objectParam("typeMap", "Type map"));
+                case "transformvalues":
+                    Object transformation = params.get("transformation");
+                    if (transformation instanceof List || transformation instanceof Map) {
+                        return ValueTransforms.compile(mapper.valueToTree(transformation));
+                    }
+                    return ValueTransforms.compile(required("transformation", "Transformation"));
+                case "filterfields":
+                    Object fields = params.get("fieldsToRemove");
+                    if (fields instanceof List) {
+                        fields = mapper.writeValueAsString(fields);
+                    }
+                    if (fields == null || fields.toString().trim().isEmpty()) {
+                        throw new IllegalArgumentException("Fields to remove are required at pipeline step " + position);
+                    }
+                    return KeyPathMatcher.forFilter(DataTransformUtil.parseFieldSet(fields.toString()));
+                case "query":
+                    return JsonPathQuery.compile(required("path", "JSONPath expression"));
+                default:
+                    throw new IllegalArgumentException("Unknown pipeline operation at step " + position + ": " + name);
+            }
+        }
+
+        JsonNode apply(JsonNode root) {
+            switch (op) {
+                case "flatten":
+                    return DataTransformUtil.flatten(root, (String) argument);
+                case "unflatten":
+                    return DataTransformUtil.unflatten(root, (String) argument);
+                case "renamekeys":
+                    return ((KeyPathMatcher) argument).rename(root);
+                case "transformvalues":
+                    return ((ValueTransforms) argument).apply(root);
+                case "filterfields":
+                    return ((KeyPathMatcher) argument).remove(root);
+                case "query":
+                    return DataTransformUtil.queryPath(root, (JsonPathQuery) argument);
+                default:
+                    return ((TypeCoercer) argument).apply(root);
+            }
+        }
+
+        private String text(String key) {
+            Object value = params.get(key);
+            return value == null ? null : value.toString();
+        }
+
+        private String required(String key, String label) {
+            String value = text(key);
+            if (value == null || value.trim().isEmpty()) {
+                throw new IllegalArgumentException(label + " is required at pipeline step " + position);
+            }
+            return value;
+        }
+
+        // Maps may be sent as JSON objects or, like the single-operation endpoints, as JSON strings
+        private JsonNode objectParam(String key, String label) throws Exception {
+            Object value = params.get(key);
+            JsonNode node = value == null || value instanceof String ? mapper.readTree(required(key, label)) : mapper.valueToTree(value);
+            if (node == null || !node.isObject()) {
+                throw new IllegalArgumentException(label + " must be a JSON object at pipeline step " + position);
+            }
+            return node;
+        }
+    }
+}
@@ -0,0 +1,559 @@
+package com.konvert.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.BigIntegerNode;
+import com.fasterxml.jackson.databind.node.BooleanNode;
+import com.fasterxml.jackson.databind.node.DecimalNode;
+import com.fasterxml.jackson.databind.node.DoubleNode;
+import com.fasterxml.jackson.databind.node.IntNode;
+import com.fasterxml.jackson.databind.node.LongNode;
+import com.fasterxml.jackson.databind.node.NullNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Converts scalar values to a target type with hand-written scanners instead of regular expressions
+ * and exceptions, so a value that does not fit costs a character scan and stays unchanged. Integers
+ * widen from int to long to BigInteger instead of overflowing, and decimals that a double cannot hold
+ * keep their digits as BigDecimal. A type map keys its types by field name or path rule, as in
+ * {@link KeyPathMatcher}, with {@code _default} for bare array elements. The {@code auto} plan types
+ * the string columns of a record array from a sample of rows, as text formats such as CSV need.
+ */
+public final class TypeCoercer {
+
+    public enum Type {
+        NUMBER, INT, LONG, DECIMAL, DOUBLE, BOOLEAN, STRING, NULL, DATE, DATETIME, AUTO;
+
+        /**
+         * The type for a type map value, or null for names that convert nothing
+         */
+        public static Type of(String name) {
+            if (name == null) {
+                return null;
+            }
+            switch (name.trim().toLowerCase(Locale.ROOT)) {
+                case "number":
+                    return NUMBER;
+                case "int":
+                case "integer":
+                    return INT;
+                case "long":
+                    return LONG;
+                case "decimal":
+                case "bigdecimal":
+                    return DECIMAL;
+                case "float":
+                case "double":
+                    return DOUBLE;
+                case "boolean":
+                case "bool":
+                    return BOOLEAN;
+                case "string":
+                    return STRING;
+                case "null":
+                    return NULL;
+                case "date":
+                    return DATE;
+                case "datetime":
+                case "timestamp":
+                    return DATETIME;
+                case "auto":
+                    return AUTO;
+                default:
+                    return null;
+            }
+        }
+    }
+
+    private static final String DEFAULT_KEY = "_default";
+    // Rows examined per column when inferring types
+    private static final int SAMPLE_ROWS = 1000;
+    // Significant digits a double reproduces exactly
+    private static final int DOUBLE_DIGITS = 15;
+    // scanNumber results: an integer, a fraction or exponent form, or neither
+    private static final int INTEGER = 0;
+    private static final int DECIMAL_FORM = 1;
+    private static final int NOT_A_NUMBER = -1;
+    // Digits a whole number written with an exponent, such as 1e3, may expand to
+    private static final int MAX_INTEGER_DIGITS = 1000;
+
+    private final KeyPathMatcher matcher;
+    private final Type defaultType;
+
+    private TypeCoercer(KeyPathMatcher matcher, Type defaultType) {
+        this.matcher = matcher;
+        this.defaultType = defaultType;
+    }
+
+    /**
+     * A plan from a type map object, or from the text {@code auto} for column inference
+     */
+    public static TypeCoercer compile(JsonNode typeMap) {
+        if (typeMap != null && typeMap.isTextual() && "auto".equalsIgnoreCase(typeMap.asText().trim())) {
+            return new TypeCoercer(null, Type.AUTO);
+        }
+        if (typeMap == null || !typeMap.isObject()) {
+            throw new IllegalArgumentException("Type map must be a JSON object or \"auto\"");
+        }
+        JsonNode fallback = typeMap.get(DEFAULT_KEY);
+        return new TypeCoercer(KeyPathMatcher.forMap(typeMap, Collections.singleton(DEFAULT_KEY)),
+                fallback == null ? null : Type.of(fallback.asText()));
+    }
+
+    /**
+     * Convert the tree in place and return it
+     */
+    public JsonNode apply(JsonNode root) {
+        if (matcher == null) {
+            return infer(root);
+        }
+        return matcher.mapValues(root, defaultType != null,
+                (value, mapped) -> coerce(value, mapped == null ? defaultType : Type.of(mapped)));
+    }
+
+    /**
+     * Convert one scalar, returning it unchanged when it does not fit the type
+     */
+    public static JsonNode coerce(JsonNode value, Type type) {
+        if (type == null || value.isContainerNode()) {
+            return value;
+        }
+        switch (type) {
+            case STRING:
+                return value.isTextual() ? value : TextNode.valueOf(value.asText());
+            case NULL:
+                return NullNode.getInstance();
+            case BOOLEAN:
+                return value.isBoolean() ? value : orValue(toBoolean(value.asText()), value);
+            case AUTO:
+                return value.isTextual() ? orValue(auto(value.textValue()), value) : value;
+            default:
+                break;
+        }
+        if (value.isNull()) {
+            return value;
+        }
+        String text = value.asText().trim();
+        if (type != Type.DATE && type != Type.DATETIME) {
+            text = withoutPlus(text);
+        }
+        switch (type) {
+            case NUMBER:
+                return value.isNumber() ? value : orValue(number(text, false), value);
+            case INT:
+                // Whole values become integers, as 1e3 does; others are numbers, as "3.14" was before
+                return value.isIntegralNumber() ? value
+                        : orValue(orValue(wholeNumber(text), number(text, false)), value);
+            case LONG:
+                return value.isIntegralNumber() ? value : orValue(wholeNumber(text), value);
+            case DECIMAL:
+                return orValue(number(text, true), value);
+            case DOUBLE:
+                if (value.isNumber()) {
+                    return value.isDouble() ? value : DoubleNode.valueOf(value.doubleValue());
+                }
+                // Double.parseDouble also reads ".5" and "5.", which the JSON grammar does not
+                return scanNumber(text, true) != NOT_A_NUMBER ? DoubleNode.valueOf(Double.parseDouble(text)) : value;
+            case DATE:
+                return orValue(date(text, false), value);
+            default:
+                return orValue(date(text, true), value);
+        }
+    }
+
+    private static JsonNode orValue(JsonNode converted, JsonNode original) {
+        return converted == null ? original : converted;
+    }
+
+    /**
+     * Classify text against the JSON number grammar: optional minus, digits, optional fraction and
+     * optional exponent. Leading zeros are accepted, as in "007".
+     */
+    static int scanNumber(String text) {
+        return scanNumber(text, false);
+    }
+
+    // Loosely, either side of the decimal point may be empty, as in ".5" and "5."
+    private static int scanNumber(String text, boolean loose) {
+        int length = text.length();
+        int i = 0;
+        if (i < length && text.charAt(i) == '-') {
+            i++;
+        }
+        int digits = i;
+        while (i < length && isDigit(text.charAt(i))) {
+            i++;
+        }
+        boolean whole = i > digits;
+        if (!whole && !(loose && i < length && text.charAt(i) == '.')) {
+            return NOT_A_NUMBER;
+        }
+        if (i == length) {
+            return INTEGER;
+        }
+        if (text.charAt(i) == '.') {
+            int fraction = ++i;
+            while (i < length && isDigit(text.charAt(i))) {
+                i++;
+            }
+            if (i == fraction && !(loose && whole)) {
+                return NOT_A_NUMBER;
+            }
+        }
+        if (i < length && (text.charAt(i) == 'e' || text.charAt(i) == 'E')) {
+            i++;
+            if (i < length && (text.charAt(i) == '+' || text.charAt(i) == '-')) {
+                i++;
+            }
+            int exponent = i;
+            while (i < length && isDigit(text.charAt(i))) {
+                i++;
+            }
+            if (i == exponent) {
+                return NOT_A_NUMBER;
+            }
+        }
+        return i == length ? DECIMAL_FORM : NOT_A_NUMBER;
+    }
+
+    // An explicit target takes "+5" as 5; auto typing does not, so "+4712345678" stays a phone number
+    private static String withoutPlus(String text) {
+        return text.length() > 1 && text.charAt(0) == '+' && (isDigit(text.charAt(1)) || text.charAt(1) == '.')
+                ? text.substring(1) : text;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static JsonNode number(String text, boolean exact) {
+        int form = scanNumber(text);
+        if (form == NOT_A_NUMBER) {
+            return null;
+        }
+        if (exact) {
+            return DecimalNode.valueOf(new BigDecimal(text));
+        }
+        return form == INTEGER ? integer(text) : decimal(text);
+    }
+
+    // int, long or BigInteger, whichever holds the value
+    private static JsonNode integer(String text) {
+        if (scanNumber(text) != INTEGER) {
+            return null;
+        }
+        boolean negative = text.charAt(0) == '-';
+        int start = negative ? 1 : 0;
+        if (text.length() - start > 18) {
+            BigInteger big = new BigInteger(text);
+            return big.bitLength() < 64 ? LongNode.valueOf(big.longValue()) : BigIntegerNode.valueOf(big);
+        }
+        long value = 0;
+        for (int i = start; i < text.length(); i++) {
+            value = value * 10 + (text.charAt(i) - '0');
+        }
+        if (negative) {
+            value = -value;
+        }
+        return value == (int) value ? IntNode.valueOf((int) value) : LongNode.valueOf(value);
+    }
+
+    // An integer, or a fraction or exponent form whose value is whole, as 1e3 or 2.50e1; null otherwise
+    private static JsonNode wholeNumber(String text) {
+        int form = scanNumber(text);
+        if (form != DECIMAL_FORM) {
+            return form == INTEGER ? integer(text) : null;
+        }
+        BigDecimal value = new BigDecimal(text);
+        if (value.signum() == 0) {
+            return IntNode.valueOf(0);
+        }
+        value = value.stripTrailingZeros();
+        if (value.scale() > 0 || value.precision() - value.scale() > MAX_INTEGER_DIGITS) {
+            return null;
+        }
+        return integer(value.toPlainString());
+    }
+
+    // A double when it keeps every significant digit, BigDecimal otherwise
+    private static JsonNode decimal(String text) {
+        int significant = 0;
+        boolean leading = true;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == 'e' || c == 'E') {
+                break;
+            }
+            if (isDigit(c) && !(leading && c == '0')) {
+                leading = false;
+                significant++;
+            }
+        }
+        if (significant <= DOUBLE_DIGITS) {
+            double value = Double.parseDouble(text);
+            if (Double.isFinite(value)) {
+                return DoubleNode.valueOf(value);
+            }
+        }
+        return DecimalNode.valueOf(new BigDecimal(text));
+    }
+
+    private static JsonNode toBoolean(String raw) {
+        String text = raw.trim();
+        switch (text.length()) {
+            case 1:
+                char c = Character.toLowerCase(text.charAt(0));
+                return c == '1' || c == 'y' || c == 't' ? BooleanNode.TRUE
+                        : c == '0' || c == 'n' || c == 'f' ? BooleanNode.FALSE : null;
+            case 2:
+                return text.equalsIgnoreCase("no") ? BooleanNode.FALSE : null;
+            case 3:
+                return text.equalsIgnoreCase("yes") ? BooleanNode.TRUE : null;
+            case 4:
+                return text.equalsIgnoreCase("true") ? BooleanNode.TRUE : null;
+            case 5:
+                return text.equalsIgnoreCase("false") ? BooleanNode.FALSE : null;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Normalize yyyy-MM-dd or yyyy/MM/dd, optionally followed by a time HH:mm[:ss[.fraction]] after
+     * 'T' or a space and a zone Z or ±HH[:]mm, to ISO-8601 text. Epoch seconds (10 digits) and
+     * milliseconds (13 digits) become UTC date-times.
+     */
+    private static JsonNode date(String text, boolean withTime) {
+        int length = text.length();
+        if ((length == 10 || length == 13) && scanNumber(text) == INTEGER) {
+            long epoch = Long.parseLong(text);
+            Instant instant = length == 10 ? Instant.ofEpochSecond(epoch) : Instant.ofEpochMilli(epoch);
+            String iso = instant.toString();
+            return TextNode.valueOf(withTime ? iso : iso.substring(0, 10));
+        }
+        if (length < 10 || !digits(text, 0, 4) || !digits(text, 5, 7) || !digits(text, 8, 10)) {
+            return null;
+        }
+        char separator = text.charAt(4);
+        if ((separator != '-' && separator != '/') || text.charAt(7) != separator) {
+            return null;
+        }
+        int year = number(text, 0, 4);
+        int month = number(text, 5, 7);
+        int day = number(text, 8, 10);
+        if (month < 1 || month > 12 || day < 1 || day > daysIn(year, month)) {
+            return null;
+        }
+        StringBuilder iso = new StringBuilder(32).append(text, 0, 4).append('-')
+                .append(text, 5, 7).append('-').append(text, 8, 10);
+        if (length == 10) {
+            return TextNode.valueOf(withTime ? iso.append("T00:00:00").toString() : iso.toString());
+        }
+        if (!withTime) {
+            // A date-time narrowed to its date, only when the rest is a valid time
+            return time(text, 10, new StringBuilder()) ? TextNode.valueOf(iso.toString()) : null;
+        }
+        return time(text, 10, iso) ? TextNode.valueOf(iso.toString()) : null;
+    }
+
+    private static boolean time(String text, int at, StringBuilder iso) {
+        int length = text.length();
+        if (at + 6 > length || (text.charAt(at) != 'T' && text.charAt(at) != 't' && text.charAt(at) != ' ')
+                || !digits(text, at + 1, at + 3) || text.charAt(at + 3) != ':' || !digits(text, at + 4, at + 6)) {
+            return false;
+        }
+        if (number(text, at + 1, at + 3) > 23 || number(text, at + 4, at + 6) > 59) {
+            return false;
+        }
+        iso.append('T').append(text, at + 1, at + 6);
+        int i = at + 6;
+        if (i + 3 <= length && text.charAt(i) == ':' && digits(text, i + 1, i + 3)) {
+            if (number(text, i + 1, i + 3) > 60) {
+                return false;
+            }
+            iso.append(text, i, i + 3);
+            i += 3;
+            if (i < length && text.charAt(i) == '.') {
+                int fraction = i + 1;
+                while (fraction < length && isDigit(text.charAt(fraction))) {
+                    fraction++;
+                }
+                if (fraction == i + 1 || fraction - i - 1 > 9) {
+                    return false;
+                }
+                iso.append(text, i, fraction);
+                i = fraction;
+            }
+        } else {
+            iso.append(":00");
+        }
+        if (i == length) {
+            return true;
+        }
+        char zone = text.charAt(i);
+        if ((zone == 'Z' || zone == 'z') && i + 1 == length) {
+            iso.append('Z');
+            return true;
+        }
+        if (zone != '+' && zone != '-') {
+            return false;
+        }
+        boolean colon = i + 6 == length && text.charAt(i + 3) == ':';
+        if (!(colon || i + 5 == length) || !digits(text, i + 1, i + 3)
+                || !digits(text, colon ? i + 4 : i + 3, length) || number(text, i + 1, i + 3) > 18) {
+            return false;
+        }
+        iso.append(zone).append(text, i + 1, i + 3).append(':').append(text, length - 2, length);
+        return true;
+    }
+
+    private static boolean digits(String text, int from, int to) {
+        if (to > text.length()) {
+            return false;
+        }
+        for (int i = from; i < to; i++) {
+            if (!isDigit(text.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int number(String text, int from, int to) {
+        int value = 0;
+        for (int i = from; i < to; i++) {
+            value = value * 10 + (text.charAt(i) - '0');
+        }
+        return value;
+    }
+
+    private static int daysIn(int year, int month) {
+        if (month == 2) {
+            return year % 4 == 0 && (year % 100 != 0 || year % 400 == 0) ? 29 : 28;
+        }
+        return month == 4 || month == 6 || month == 9 || month == 11 ? 30 : 31;
+    }
+
+    // A string typed by its own text: booleans, then numbers; leading-zero integers such as zip codes stay text
+    private static JsonNode auto(String raw) {
+        String text = raw.trim();
+        if (text.isEmpty()) {
+            return null;
+        }
+        if (text.equalsIgnoreCase("true") || text.equalsIgnoreCase("false")) {
+            return BooleanNode.valueOf(text.length() == 4);
+        }
+        int form = scanNumber(text);
+        if (form == NOT_A_NUMBER || hasLeadingZero(text, form)) {
+            return null;
+        }
+        return form == INTEGER ? integer(text) : decimal(text);
+    }
+
+    private static boolean hasLeadingZero(String text, int form) {
+        int start = text.charAt(0) == '-' ? 1 : 0;
+        return text.length() > start + 1 && text.charAt(start) == '0'
+                && (form == INTEGER || text.charAt(start + 1) != '.');
+    }
+
+    /**
+     * Type the string values of an array of records column by column. A column takes a type when
+     * every non-empty value in the first rows fits it. Anything other than a record array is typed
+     * value by value.
+     */
+    private static JsonNode infer(JsonNode root) {
+        if (!root.isArray()) {
+            return autoAll(root);
+        }
+        Map<String, Type> columns = new LinkedHashMap<>();
+        int sampled = 0;
+        for (JsonNode row : root) {
+            if (sampled++ == SAMPLE_ROWS) {
+                break;
+            }
+            if (!row.isObject()) {
+                continue;
+            }
+            Iterator<Map.Entry<String, JsonNode>> fields = row.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                JsonNode value = field.getValue();
+                if (value.isTextual() && !value.textValue().trim().isEmpty()) {
+                    columns.put(field.getKey(), widen(columns.get(field.getKey()), value.textValue().trim()));
+                } else if (value.isContainerNode()) {
+                    columns.put(field.getKey(), Type.STRING);
+                }
+            }
+        }
+        for (JsonNode row : root) {
+            if (!row.isObject()) {
+                continue;
+            }
+            ObjectNode record = (ObjectNode) row;
+            for (Map.Entry<String, Type> column : columns.entrySet()) {
+                Type type = column.getValue();
+                JsonNode value = record.get(column.getKey());
+                if (type == Type.STRING || value == null || !value.isTextual()) {
+                    continue;
+                }
+                // Values past the sample keep their text unless they fit the column's kind
+                JsonNode typed = auto(value.textValue());
+                if (typed != null && typed.isBoolean() == (type == Type.BOOLEAN)) {
+                    record.set(column.getKey(), typed);
+                }
+            }
+        }
+        return root;
+    }
+
+    // The narrowest type that fits both the column so far and this value
+    private static Type widen(Type current, String text) {
+        if (current == Type.STRING) {
+            return current;
+        }
+        Type type;
+        if (text.equalsIgnoreCase("true") || text.equalsIgnoreCase("false")) {
+            type = Type.BOOLEAN;
+        } else {
+            int form = scanNumber(text);
+            if (form == NOT_A_NUMBER || hasLeadingZero(text, form)) {
+                return Type.STRING;
+            }
+            type = form == INTEGER ? Type.LONG : Type.NUMBER;
+        }
+        if (current == null || current == type) {
+            return type;
+        }
+        boolean numeric = current != Type.BOOLEAN && type != Type.BOOLEAN;
+        return numeric ? Type.NUMBER : Type.STRING;
+    }
+
+    private static JsonNode autoAll(JsonNode node) {
+        if (node.isObject()) {
+            Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                field.setValue(autoAll(field.getValue()));
+            }
+            return node;
+        }
+        if (node.isArray()) {
+            ArrayNode array = (ArrayNode) node;
+            for (int i = 0; i < array.size(); i++) {
+                array.set(i, autoAll(array.get(i)));
+            }
+            return node;
+        }
+        return coerce(node, Type.AUTO);
+    }
+}
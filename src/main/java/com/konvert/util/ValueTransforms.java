@@ -0,0 +1,426 @@
+package com.konvert.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.BigIntegerNode;
+import com.fasterxml.jackson.databind.node.DecimalNode;
+import com.fasterxml.jackson.databind.node.DoubleNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.LongNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.Normalizer;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.temporal.TemporalAccessor;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.UnaryOperator;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * A registry of scalar value transforms and the plans built from them. A plan is a list of rules,
+ * each a chain of transforms applied in order to the values under a path rule as in
+ * {@link KeyPathMatcher}, or to every value when the rule has no path. Plans are written as a chain
+ * such as {@code trim|lowercase|hash:sha256}, or as JSON: a rule
+ * {@code {"path": "**.email", "ops": ["trim", {"op": "round", "scale": 2}]}}, an array of rules, or
+ * an object mapping paths to chains. Arrays above a threshold are transformed in parallel.
+ */
+public final class ValueTransforms {
+
+    /**
+     * Builds a transform from its parameters. The transform receives scalar values other than null
+     * and must be safe to call from several threads.
+     */
+    public interface Factory {
+        UnaryOperator<JsonNode> create(JsonNode params);
+    }
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+    private static final JsonNodeFactory nodes = JsonNodeFactory.instance;
+    // Parameter set by the short form name:value, per transform
+    private static final Map<String, String> arguments = new ConcurrentHashMap<>();
+    private static final Map<String, Factory> registry = new ConcurrentHashMap<>();
+
+    private static final int PATTERN_CACHE_SIZE = 256;
+    private static final Map<String, Pattern> patterns = Collections.synchronizedMap(
+            new LinkedHashMap<String, Pattern>(64, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Pattern> eldest) {
+                    return size() > PATTERN_CACHE_SIZE;
+                }
+            });
+
+    // ISO date, optionally followed by a time and an offset
+    private static final DateTimeFormatter ISO = new DateTimeFormatterBuilder()
+            .append(DateTimeFormatter.ISO_LOCAL_DATE)
+            .optionalStart().appendLiteral('T').append(DateTimeFormatter.ISO_LOCAL_TIME)
+            .optionalStart().appendOffsetId().optionalEnd()
+            .optionalEnd()
+            .toFormatter(Locale.ROOT);
+
+    static {
+        register("uppercase", null, params -> text(s -> s.toUpperCase(Locale.ROOT)));
+        register("lowercase", null, params -> text(s -> s.toLowerCase(Locale.ROOT)));
+        register("trim", null, params -> text(String::trim));
+        register("reverse", null, params -> text(s -> new StringBuilder(s).reverse().toString()));
+        register("hash", "algorithm", ValueTransforms::hash);
+        register("normalize", "form", ValueTransforms::normalize);
+        register("date", "to", ValueTransforms::date);
+        register("round", "scale", ValueTransforms::round);
+        register("replace", "pattern", ValueTransforms::replace);
+    }
+
+    private final List<Rule> rules;
+
+    private ValueTransforms(List<Rule> rules) {
+        this.rules = rules;
+    }
+
+    /**
+     * Add or replace a transform. The short form {@code name:value} sets the given parameter.
+     */
+    public static void register(String name, String argument, Factory factory) {
+        String key = normalizeName(name);
+        registry.put(key, factory);
+        if (argument == null) {
+            arguments.remove(key);
+        } else {
+            arguments.put(key, argument);
+        }
+    }
+
+    /**
+     * Compile a plan from a chain or from its JSON form
+     */
+    public static ValueTransforms compile(String spec) {
+        if (spec == null || spec.trim().isEmpty()) {
+            throw new IllegalArgumentException("Transformation cannot be empty");
+        }
+        String text = spec.trim();
+        if (text.startsWith("{") || text.startsWith("[")) {
+            try {
+                return compile(mapper.readTree(text));
+            } catch (IllegalArgumentException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IllegalArgumentException("Invalid transformation JSON: " + e.getMessage(), e);
+            }
+        }
+        return new ValueTransforms(Collections.singletonList(new Rule(null, chain(nodes.textNode(text)))));
+    }
+
+    /**
+     * Compile a plan from a chain, a rule, an array of rules or an object mapping paths to chains
+     */
+    public static ValueTransforms compile(JsonNode spec) {
+        List<Rule> rules = new ArrayList<>();
+        if (spec.isArray()) {
+            for (JsonNode rule : spec) {
+                rules.add(rule(rule));
+            }
+        } else if (spec.isObject() && !spec.has("op") && !spec.has("ops") && !spec.has("path")) {
+            Iterator<Map.Entry<String, JsonNode>> fields = spec.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                rules.add(new Rule(field.getKey(), chain(field.getValue())));
+            }
+        } else {
+            rules.add(rule(spec));
+        }
+        if (rules.isEmpty()) {
+            throw new IllegalArgumentException("Transformation must contain at least one rule");
+        }
+        return new ValueTransforms(rules);
+    }
+
+    /**
+     * Transform the tree in place, rule by rule, and return it
+     */
+    public JsonNode apply(JsonNode root) {
+        for (Rule rule : rules) {
+            if (rule.path == null && !root.isContainerNode()) {
+                root = rule.chain.apply(root);
+            } else {
+                rule.matcher.mapValues(root, rule.path == null, (value, mapped) -> rule.chain.apply(value));
+            }
+        }
+        return root;
+    }
+
+    private static Rule rule(JsonNode spec) {
+        if (spec.isTextual()) {
+            return new Rule(null, chain(spec));
+        }
+        if (!spec.isObject()) {
+            throw new IllegalArgumentException("Transformation rule must be a chain or an object: " + spec);
+        }
+        JsonNode path = spec.get("path");
+        String rulePath = path == null || path.asText().trim().isEmpty() ? null : path.asText().trim();
+        if (spec.has("ops")) {
+            return new Rule(rulePath, chain(spec.get("ops")));
+        }
+        return new Rule(rulePath, chain(spec));
+    }
+
+    // A chain from "a|b:1", from an array of names and op objects, or from a single op object
+    private static UnaryOperator<JsonNode> chain(JsonNode spec) {
+        List<UnaryOperator<JsonNode>> ops = new ArrayList<>();
+        if (spec.isTextual()) {
+            for (String step : spec.asText().split("\\|")) {
+                if (!step.trim().isEmpty()) {
+                    ops.add(shortForm(step.trim()));
+                }
+            }
+        } else if (spec.isArray()) {
+            for (JsonNode step : spec) {
+                ops.add(step.isTextual() ? shortForm(step.asText().trim()) : op(step));
+            }
+        } else {
+            ops.add(op(spec));
+        }
+        if (ops.isEmpty()) {
+            throw new IllegalArgumentException("Transformation chain is empty");
+        }
+        if (ops.size() == 1) {
+            return skippingNulls(ops.get(0));
+        }
+        return skippingNulls(value -> {
+            JsonNode result = value;
+            for (UnaryOperator<JsonNode> op : ops) {
+                if (result.isNull()) {
+                    break;
+                }
+                result = op.apply(result);
+            }
+            return result;
+        });
+    }
+
+    private static UnaryOperator<JsonNode> skippingNulls(UnaryOperator<JsonNode> op) {
+        return value -> value.isNull() ? value : op.apply(value);
+    }
+
+    // "name" or "name:value"; the value may itself contain colons, as date patterns do
+    private static UnaryOperator<JsonNode> shortForm(String step) {
+        int colon = step.indexOf(':');
+        String name = normalizeName(colon < 0 ? step : step.substring(0, colon));
+        ObjectNode params = nodes.objectNode();
+        if (colon >= 0) {
+            String argument = arguments.get(name);
+            if (argument == null) {
+                lookup(name);
+                throw new IllegalArgumentException("Transformation " + name + " takes no argument");
+            }
+            params.put(argument, step.substring(colon + 1));
+        }
+        return lookup(name).create(params);
+    }
+
+    private static UnaryOperator<JsonNode> op(JsonNode spec) {
+        JsonNode name = spec.get("op");
+        if (name == null || name.asText().trim().isEmpty()) {
+            throw new IllegalArgumentException("Transformation step is missing op: " + spec);
+        }
+        return lookup(normalizeName(name.asText())).create(spec);
+    }
+
+    private static Factory lookup(String name) {
+        Factory factory = registry.get(name);
+        if (factory == null) {
+            throw new IllegalArgumentException("Unknown transformation: " + name
+                    + ". Available: " + String.join(", ", new TreeSet<>(registry.keySet())));
+        }
+        return factory;
+    }
+
+    private static String normalizeName(String name) {
+        return name.trim().toLowerCase(Locale.ROOT).replace("-", "").replace("_", "");
+    }
+
+    private static UnaryOperator<JsonNode> text(UnaryOperator<String> function) {
+        return value -> value.isTextual() ? TextNode.valueOf(function.apply(value.textValue())) : value;
+    }
+
+    private static String param(JsonNode params, String name, String fallback) {
+        JsonNode value = params.get(name);
+        return value == null || value.isNull() || value.asText().isEmpty() ? fallback : value.asText();
+    }
+
+    // Hex digest of the value's text; digests are reused per thread
+    private static UnaryOperator<JsonNode> hash(JsonNode params) {
+        String algorithm = param(params, "algorithm", "SHA-256").toUpperCase(Locale.ROOT);
+        if (algorithm.matches("SHA\\d+")) {
+            algorithm = "SHA-" + algorithm.substring(3);
+        }
+        String name = algorithm;
+        try {
+            MessageDigest.getInstance(name);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalArgumentException("Unsupported hash algorithm: " + params.get("algorithm").asText(), e);
+        }
+        ThreadLocal<MessageDigest> digests = ThreadLocal.withInitial(() -> {
+            try {
+                return MessageDigest.getInstance(name);
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        HexFormat hex = HexFormat.of();
+        return value -> TextNode.valueOf(hex.formatHex(digests.get().digest(value.asText().getBytes(StandardCharsets.UTF_8))));
+    }
+
+    // Unicode normalization, NFKC by default, collapsing runs of whitespace unless disabled
+    private static UnaryOperator<JsonNode> normalize(JsonNode params) {
+        Normalizer.Form form;
+        try {
+            form = Normalizer.Form.valueOf(param(params, "form", "NFKC").toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown normalization form: " + params.get("form").asText()
+                    + ". Use NFC, NFD, NFKC or NFKD", e);
+        }
+        boolean whitespace = !"false".equalsIgnoreCase(param(params, "whitespace", "true"));
+        return text(s -> {
+            String normalized = Normalizer.isNormalized(s, form) ? s : Normalizer.normalize(s, form);
+            return whitespace ? collapseWhitespace(normalized) : normalized;
+        });
+    }
+
+    private static String collapseWhitespace(String text) {
+        StringBuilder result = new StringBuilder(text.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c)) {
+                pendingSpace = result.length() > 0;
+            } else {
+                if (pendingSpace) {
+                    result.append(' ');
+                    pendingSpace = false;
+                }
+                result.append(c);
+            }
+        }
+        return text.contentEquals(result) ? text : result.toString();
+    }
+
+    // Reformat dates from a pattern (ISO by default) to another; integers are read as epoch millis
+    private static UnaryOperator<JsonNode> date(JsonNode params) {
+        String to = param(params, "to", null);
+        if (to == null) {
+            throw new IllegalArgumentException("Date transformation requires a target pattern (to)");
+        }
+        DateTimeFormatter output = formatter(to);
+        String from = param(params, "from", null);
+        DateTimeFormatter input = from == null ? ISO : formatter(from);
+        return value -> {
+            try {
+                TemporalAccessor parsed;
+                if (value.isIntegralNumber()) {
+                    parsed = Instant.ofEpochMilli(value.longValue()).atOffset(ZoneOffset.UTC);
+                } else if (value.isTextual()) {
+                    parsed = input.parseBest(value.textValue().trim(),
+                            OffsetDateTime::from, LocalDateTime::from, LocalDate::from);
+                } else {
+                    return value;
+                }
+                return TextNode.valueOf(output.format(parsed));
+            } catch (RuntimeException e) {
+                // Not a date in the input pattern, or lacking a field the output needs
+                return value;
+            }
+        };
+    }
+
+    private static DateTimeFormatter formatter(String pattern) {
+        try {
+            return DateTimeFormatter.ofPattern(pattern, Locale.ROOT);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid date pattern: " + pattern, e);
+        }
+    }
+
+    // Round numbers to a number of decimal places, half up by default; other values are left alone
+    private static UnaryOperator<JsonNode> round(JsonNode params) {
+        int scale;
+        RoundingMode mode;
+        try {
+            scale = Integer.parseInt(param(params, "scale", "0").trim());
+            mode = RoundingMode.valueOf(param(params, "mode", "HALF_UP").trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid rounding parameters: " + e.getMessage(), e);
+        }
+        return value -> {
+            if (!value.isNumber() || value.isIntegralNumber() && scale >= 0) {
+                return value;
+            }
+            if (value.isDouble() || value.isFloat()) {
+                double d = value.doubleValue();
+                if (Double.isNaN(d) || Double.isInfinite(d)) {
+                    return value;
+                }
+            }
+            BigDecimal rounded = value.decimalValue().setScale(scale, mode);
+            if (scale <= 0) {
+                BigInteger integer = rounded.toBigInteger();
+                return integer.bitLength() < 64 ? LongNode.valueOf(integer.longValue()) : BigIntegerNode.valueOf(integer);
+            }
+            return value.isBigDecimal() ? DecimalNode.valueOf(rounded) : DoubleNode.valueOf(rounded.doubleValue());
+        };
+    }
+
+    // Regular expression replace; compiled patterns are shared across requests
+    private static UnaryOperator<JsonNode> replace(JsonNode params) {
+        String regex = param(params, "pattern", null);
+        if (regex == null) {
+            throw new IllegalArgumentException("Replace transformation requires a pattern");
+        }
+        Pattern pattern = patterns.get(regex);
+        if (pattern == null) {
+            try {
+                pattern = Pattern.compile(regex);
+            } catch (PatternSyntaxException e) {
+                throw new IllegalArgumentException("Invalid pattern: " + e.getMessage(), e);
+            }
+            patterns.put(regex, pattern);
+        }
+        Pattern compiled = pattern;
+        String replacement = param(params, "replacement", "");
+        return text(s -> compiled.matcher(s).replaceAll(replacement));
+    }
+
+    private static final class Rule {
+        final String path;
+        final UnaryOperator<JsonNode> chain;
+        final KeyPathMatcher matcher;
+
+        Rule(String path, UnaryOperator<JsonNode> chain) {
+            this.path = path;
+            this.chain = chain;
+            ObjectNode map = nodes.objectNode();
+            map.put(path == null ? "**" : path, "");
+            this.matcher = KeyPathMatcher.forMap(map, Collections.emptySet());
+        }
+    }
+}
@@ -0,0 +1,470 @@
+package com.konvert.util;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.DefaultPrettyPrinter;
+import com.fasterxml.jackson.core.util.MinimalPrettyPrinter;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.openxml4j.opc.PackagingURIHelper;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.model.SharedStrings;
+import org.apache.poi.xssf.model.Styles;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+/**
+ * Streams XLSX workbooks into CSV, JSON, NDJSON or TOON without loading the workbook.
+ * Rows are read with POI's SAX sheet handler, so only the shared-strings table and one row per sheet
+ * are held in memory. Selected sheets are converted in parallel, each into its own temp file.
+ */
+public class XlsxStreamReader {
+
+    private static final JsonFactory jsonFactory = new JsonFactory();
+    private static final List<String> FORMATS = Arrays.asList("csv", "json", "ndjson", "toon");
+    // Tabular TOON for a single sheet uses the same key FormatConverter uses for lists
+    private static final String TOON_LIST_KEY = "rows";
+
+    /**
+     * Whether workbooks can be streamed directly into this format
+     */
+    public static boolean canWrite(String format) {
+        return format != null && FORMATS.contains(format.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Convert a workbook into a string; see {@link #convert(Path, String, String, OutputStream)}
+     */
+    public static String convertToString(Path workbook, String toFormat, String sheet) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        convert(workbook, toFormat, sheet, out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Convert a workbook and write the result to the given stream.
+     * The first non-empty row of each sheet is its header; cells beyond the header width are dropped.
+     * CSV and NDJSON take a single sheet (the first unless one is named), JSON and TOON take every
+     * sheet unless one is named, keyed by sheet name when there is more than one.
+     */
+    public static Map<String, Object> convert(Path workbook, String toFormat, String sheet, OutputStream out) throws Exception {
+        if (!canWrite(toFormat)) {
+            throw new IllegalArgumentException("Workbooks can be streamed to CSV, JSON, NDJSON or TOON, not " + toFormat);
+        }
+        String format = toFormat.toLowerCase(Locale.ROOT);
+        long start = System.nanoTime();
+
+        List<SheetOutput> outputs = new ArrayList<>();
+        try (OPCPackage pkg = OPCPackage.open(workbook.toFile(), PackageAccess.READ)) {
+            XSSFReader reader = new XSSFReader(pkg);
+            SharedStrings strings = new ReadOnlySharedStringsTable(pkg, false);
+            Styles styles = reader.getStylesTable();
+
+            List<String[]> sheets = selectSheets(reader, format, sheet);
+            List<Callable<SheetOutput>> tasks = new ArrayList<>(sheets.size());
+            try {
+                for (String[] ref : sheets) {
+                    SheetOutput output = new SheetOutput(ref[0], Files.createTempFile("konvertr-xlsx-", "." + format));
+                    outputs.add(output);
+                    tasks.add(() -> convertSheet(workbook, ref[1], format, strings, styles, output));
+                }
+                ParallelUtil.invokeAll(tasks);
+                assemble(outputs, format, out);
+            } finally {
+                for (SheetOutput output : outputs) {
+                    Files.deleteIfExists(output.file);
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("XLSX conversion failed: " + e.getMessage(), e);
+        }
+
+        List<Map<String, Object>> sheetStats = new ArrayList<>();
+        long totalRows = 0;
+        long droppedCells = 0;
+        for (SheetOutput output : outputs) {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("name", output.name);
+            stats.put("rows", output.rows);
+            stats.put("columns", output.header == null ? 0 : output.header.size());
+            sheetStats.add(stats);
+            totalRows += output.rows;
+            droppedCells += output.droppedCells;
+        }
+        Map<String, Object> result = new HashMap<>();
+        result.put("sheets", sheetStats);
+        result.put("rows", totalRows);
+        result.put("droppedCells", droppedCells);
+        result.put("elapsedMs", (System.nanoTime() - start) / 1_000_000);
+        return result;
+    }
+
+    // Returns {sheet name, part name} pairs in workbook order
+    private static List<String[]> selectSheets(XSSFReader reader, String format, String sheet) throws Exception {
+        List<String[]> sheets = new ArrayList<>();
+        XSSFReader.SheetIterator iterator = (XSSFReader.SheetIterator) reader.getSheetsData();
+        while (iterator.hasNext()) {
+            // The iterator opens each sheet's stream; only its name and part are needed here
+            InputStream sheetData = iterator.next();
+            sheetData.close();
+            sheets.add(new String[]{iterator.getSheetName(), iterator.getSheetPart().getPartName().getName()});
+        }
+        if (sheet != null && !sheet.trim().isEmpty()) {
+            for (String[] ref : sheets) {
+                if (ref[0].equalsIgnoreCase(sheet.trim())) {
+                    return Collections.singletonList(ref);
+                }
+            }
+            throw new IllegalArgumentException("Sheet not found: " + sheet);
+        }
+        if (sheets.isEmpty()) {
+            throw new IllegalArgumentException("Workbook has no sheets");
+        }
+        if ("csv".equals(format) || "ndjson".equals(format)) {
+            return Collections.singletonList(sheets.get(0));
+        }
+        return sheets;
+    }
+
+    // Each worker opens its own package; OPCPackage is not safe for concurrent reads
+    private static SheetOutput convertSheet(Path workbook, String partName, String format, SharedStrings strings,
+                                            Styles styles, SheetOutput output) throws Exception {
+        try (OPCPackage pkg = OPCPackage.open(workbook.toFile(), PackageAccess.READ);
+             InputStream sheetData = pkg.getPart(PackagingURIHelper.createPartName(partName)).getInputStream();
+             Writer writer = Files.newBufferedWriter(output.file, StandardCharsets.UTF_8)) {
+            RowSink sink = createSink(format, writer);
+            SheetRows rows = new SheetRows(sink, output);
+            XMLReader parser = XMLHelper.newXMLReader();
+            parser.setContentHandler(new XSSFSheetXMLHandler(styles, strings, rows, new DataFormatter(), false));
+            parser.parse(new InputSource(sheetData));
+            sink.finish();
+        }
+        return output;
+    }
+
+    private static void assemble(List<SheetOutput> outputs, String format, OutputStream out) throws IOException {
+        Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+        boolean keyed = outputs.size() > 1;
+        switch (format) {
+            case "json":
+                if (!keyed) {
+                    copy(outputs.get(0).file, writer, false);
+                    break;
+                }
+                writer.write("{\n");
+                for (int i = 0; i < outputs.size(); i++) {
+                    SheetOutput output = outputs.get(i);
+                    writer.write(i == 0 ? "  " : ",\n  ");
+                    writeJsonString(output.name, writer);
+                    writer.write(" : ");
+                    copy(output.file, writer, true);
+                }
+                writer.write("\n}");
+                break;
+            case "toon":
+                for (SheetOutput output : outputs) {
+                    writer.write(keyed ? toonKey(output.name) : TOON_LIST_KEY);
+                    writer.write("[" + output.rows + "]{");
+                    writer.write(output.header == null ? "" : String.join(",", output.header));
+                    writer.write("}:\n");
+                    copy(output.file, writer, false);
+                }
+                break;
+            default:
+                copy(outputs.get(0).file, writer, false);
+        }
+        writer.flush();
+    }
+
+    // Nested JSON sheets are re-indented one level; pretty-printed JSON never has raw newlines in strings
+    private static void copy(Path file, Writer writer, boolean indent) throws IOException {
+        char[] buffer = new char[8192];
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            int read;
+            while ((read = reader.read(buffer)) != -1) {
+                if (!indent) {
+                    writer.write(buffer, 0, read);
+                    continue;
+                }
+                int from = 0;
+                for (int i = 0; i < read; i++) {
+                    if (buffer[i] == '\n') {
+                        writer.write(buffer, from, i + 1 - from);
+                        writer.write("  ");
+                        from = i + 1;
+                    }
+                }
+                writer.write(buffer, from, read - from);
+            }
+        }
+    }
+
+    private static void writeJsonString(String value, Writer writer) throws IOException {
+        JsonGenerator generator = jsonFactory.createGenerator(writer);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        generator.writeString(value);
+        generator.flush();
+    }
+
+    private static String toonKey(String sheetName) {
+        String key = sheetName.trim().replaceAll("[\\s\\[\\]{}:,\"]+", "_");
+        return key.isEmpty() ? "sheet" : key;
+    }
+
+    private static String toonValue(String value) {
+        if (value.isEmpty() || value.indexOf(',') >= 0 || value.indexOf('\n') >= 0 || value.indexOf(' ') >= 0) {
+            return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+        }
+        return value;
+    }
+
+    private static RowSink createSink(String format, Writer writer) throws IOException {
+        switch (format) {
+            case "csv":
+                return new CsvSink(writer);
+            case "json":
+                return new JsonSink(writer, true);
+            case "ndjson":
+                return new JsonSink(writer, false);
+            default:
+                return new ToonSink(writer);
+        }
+    }
+
+    /**
+     * Collects SAX cell callbacks into header and data rows
+     */
+    private static final class SheetRows implements XSSFSheetXMLHandler.SheetContentsHandler {
+        private final RowSink sink;
+        private final SheetOutput output;
+        private final List<String> pending = new ArrayList<>();
+        private String[] row;
+        private int nextColumn;
+        private boolean empty;
+
+        SheetRows(RowSink sink, SheetOutput output) {
+            this.sink = sink;
+            this.output = output;
+        }
+
+        @Override
+        public void startRow(int rowNum) {
+            nextColumn = 0;
+            empty = true;
+            pending.clear();
+            if (row != null) {
+                Arrays.fill(row, "");
+            }
+        }
+
+        @Override
+        public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+            int column = cellReference == null ? nextColumn : columnIndex(cellReference);
+            nextColumn = column + 1;
+            String value = formattedValue == null ? "" : formattedValue;
+            if (!value.isEmpty()) {
+                empty = false;
+            }
+            if (row == null) {
+                while (pending.size() < column) {
+                    pending.add("");
+                }
+                pending.add(value);
+            } else if (column < row.length) {
+                row[column] = value;
+            } else if (!value.isEmpty()) {
+                output.droppedCells++;
+            }
+        }
+
+        @Override
+        public void endRow(int rowNum) {
+            if (empty) {
+                return;
+            }
+            try {
+                if (row == null) {
+                    output.header = uniqueHeader(pending);
+                    row = new String[output.header.size()];
+                    Arrays.fill(row, "");
+                    sink.header(output.header);
+                } else {
+                    sink.row(row);
+                    output.rows++;
+                }
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to write sheet " + output.name + ": " + e.getMessage(), e);
+            }
+        }
+
+        // Column letters of an A1-style reference, without building a CellReference per cell
+        private static int columnIndex(String reference) {
+            int column = 0;
+            for (int i = 0; i < reference.length(); i++) {
+                char c = reference.charAt(i);
+                if (c < 'A' || c > 'Z') {
+                    break;
+                }
+                column = column * 26 + (c - 'A' + 1);
+            }
+            return column - 1;
+        }
+
+        private static List<String> uniqueHeader(List<String> cells) {
+            List<String> header = new ArrayList<>(cells.size());
+            Map<String, Integer> seen = new HashMap<>();
+            for (int i = 0; i < cells.size(); i++) {
+                String name = cells.get(i).trim().isEmpty() ? "Column" + (i + 1) : cells.get(i).trim();
+                int count = seen.merge(name, 1, Integer::sum);
+                header.add(count == 1 ? name : name + "_" + count);
+            }
+            return header;
+        }
+    }
+
+    private interface RowSink {
+        void header(List<String> header) throws IOException;
+
+        void row(String[] values) throws IOException;
+
+        void finish() throws IOException;
+    }
+
+    private static final class CsvSink implements RowSink {
+        private final CSVPrinter printer;
+
+        CsvSink(Writer writer) throws IOException {
+            this.printer = new CSVPrinter(writer, CSVFormat.DEFAULT);
+        }
+
+        @Override
+        public void header(List<String> header) throws IOException {
+            printer.printRecord(header);
+        }
+
+        @Override
+        public void row(String[] values) throws IOException {
+            printer.printRecord((Object[]) values);
+        }
+
+        @Override
+        public void finish() throws IOException {
+            printer.flush();
+        }
+    }
+
+    private static final class JsonSink implements RowSink {
+        private final JsonGenerator generator;
+        private final boolean array;
+        private List<String> header;
+
+        JsonSink(Writer writer, boolean array) throws IOException {
+            this.generator = jsonFactory.createGenerator(writer);
+            this.generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            this.array = array;
+            if (array) {
+                generator.setPrettyPrinter(new DefaultPrettyPrinter());
+                generator.writeStartArray();
+            } else {
+                generator.setPrettyPrinter(new MinimalPrettyPrinter(""));
+            }
+        }
+
+        @Override
+        public void header(List<String> header) {
+            this.header = header;
+        }
+
+        @Override
+        public void row(String[] values) throws IOException {
+            generator.writeStartObject();
+            for (int i = 0; i < values.length; i++) {
+                generator.writeStringField(header.get(i), values[i]);
+            }
+            generator.writeEndObject();
+            if (!array) {
+                generator.writeRaw('\n');
+            }
+        }
+
+        @Override
+        public void finish() throws IOException {
+            if (array) {
+                generator.writeEndArray();
+            }
+            generator.flush();
+        }
+    }
+
+    // Rows only; the table header needs the final row count and is written during assembly
+    private static final class ToonSink implements RowSink {
+        private final Writer writer;
+
+        ToonSink(Writer writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        public void header(List<String> header) {
+        }
+
+        @Override
+        public void row(String[] values) throws IOException {
+            writer.write("  ");
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                writer.write(toonValue(values[i]));
+            }
+            writer.write('\n');
+        }
+
+        @Override
+        public void finish() throws IOException {
+            writer.flush();
+        }
+    }
+
+    private static final class SheetOutput {
+        final String name;
+        final Path file;
+        List<String> header;
+        long rows;
+        long droppedCells;
+
+        SheetOutput(String name, Path file) {
+            this.name = name;
+            this.file = file;
+        }
+    }
+}
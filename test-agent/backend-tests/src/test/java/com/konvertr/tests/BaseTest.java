@@ -9,8 +9,11 @@ import org.junit.jupiter.api.BeforeEach;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 import static io.restassured.RestAssured.given;
@@ -165,5 +168,75 @@ public abstract class BaseTest {
             throw new AssertionError("Expected success=false, but got: " + success);
         }
     }
+    
+    /**
+     * Build a PDF of text pages: each page is a list of lines and each line a list of cells,
+     * set far enough apart to read as table columns
+     */
+    protected static byte[] buildPdf(List<List<String[]>> pages) {
+        List<String> objects = new ArrayList<>();
+        StringBuilder kids = new StringBuilder();
+        for (int i = 0; i < pages.size(); i++) {
+            kids.append(4 + 2 * i).append(" 0 R ");
+        }
+        objects.add("<< /Type /Catalog /Pages 2 0 R >>");
+        objects.add("<< /Type /Pages /Kids [ " + kids + "] /Count " + pages.size() + " >>");
+        objects.add("<< /Type /Font /Subtype /Type1 /BaseFont /Helvetica >>");
+        for (int i = 0; i < pages.size(); i++) {
+            StringBuilder content = new StringBuilder();
+            int y = 740;
+            for (String[] line : pages.get(i)) {
+                for (int cell = 0; cell < line.length; cell++) {
+                    content.append(pdfText(line[cell], 72 + 150 * cell, y));
+                }
+                y -= 20;
+            }
+            objects.add(pdfPage(5 + 2 * i, "/Font << /F1 3 0 R >>"));
+            objects.add(pdfStream("", content.toString()));
+        }
+        return buildPdfObjects(objects);
+    }
+    
+    /**
+     * Serialize PDF objects, numbered from 1 with the catalog first, with a cross-reference table
+     */
+    protected static byte[] buildPdfObjects(List<String> objects) {
+        StringBuilder pdf = new StringBuilder("%PDF-1.4\n");
+        List<Integer> offsets = new ArrayList<>();
+        for (int i = 0; i < objects.size(); i++) {
+            offsets.add(pdf.length());
+            pdf.append(i + 1).append(" 0 obj\n").append(objects.get(i)).append("\nendobj\n");
+        }
+        int xref = pdf.length();
+        pdf.append("xref\n0 ").append(objects.size() + 1).append("\n0000000000 65535 f \n");
+        for (int offset : offsets) {
+            pdf.append(String.format("%010d 00000 n \n", offset));
+        }
+        pdf.append("trailer\n<< /Size ").append(objects.size() + 1).append(" /Root 1 0 R >>\nstartxref\n")
+            .append(xref).append("\n%%EOF\n");
+        return pdf.toString().getBytes(StandardCharsets.ISO_8859_1);
+    }
+    
+    /**
+     * A page object drawing the given content stream object with the given resources
+     */
+    protected static String pdfPage(int contents, String resources) {
+        return "<< /Type /Page /Parent 2 0 R /MediaBox [0 0 612 792] /Resources << " + resources
+            + " >> /Contents " + contents + " 0 R >>";
+    }
+    
+    /**
+     * An uncompressed stream object
+     */
+    protected static String pdfStream(String dictionary, String content) {
+        return "<< " + dictionary + " /Length " + content.length() + " >>\nstream\n" + content + "\nendstream";
+    }
+    
+    /**
+     * Content stream operators that show text at a position in font F1
+     */
+    protected static String pdfText(String text, int x, int y) {
+        String escaped = text.replace("\\", "\\\\").replace("(", "\\(").replace(")", "\\)");
+        return "BT /F1 10 Tf 1 0 0 1 " + x + " " + y + " Tm (" + escaped + ") Tj ET\n";
+    }
 }
-
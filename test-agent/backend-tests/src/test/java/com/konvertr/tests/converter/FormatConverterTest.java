@@ -5,10 +5,25 @@ import io.restassured.response.Response;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
 
 import static io.restassured.RestAssured.given;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 
 /**
  * Tests for format conversion endpoints
@@ -188,6 +203,90 @@ public class FormatConverterTest extends BaseTest {
         assertThat(error).isNotNull();
     }
     
+    @Test
+    @DisplayName("CSV to TOON to CSV roundtrip")
+    public void testCsvToonRoundtrip() {
+        String csv = "id,name,city\r\n1,Alice,New York\r\n2,Bob,\"Paris, FR\"\r\n";
+        
+        Response toonResponse = given()
+            .contentType("application/json")
+            .body(Map.of(
+                "input", csv,
+                "fromFormat", "csv",
+                "toFormat", "toon"
+            ))
+            .post("/convert");
+        
+        verifySuccess(toonResponse);
+        String toon = toonResponse.jsonPath().getString("output");
+        assertThat(toon).startsWith("rows[2]{id,name,city}:");
+        
+        Response csvResponse = given()
+            .contentType("application/json")
+            .body(Map.of(
+                "input", toon,
+                "fromFormat", "toon",
+                "toFormat", "csv"
+            ))
+            .post("/convert");
+        
+        verifySuccess(csvResponse);
+        assertThat(csvResponse.jsonPath().getString("output")).isEqualTo(csv);
+    }
+
+    @Test
+    @DisplayName("TOON to JSON - only JSON number syntax is numeric")
+    public void testToonLeadingZerosStayStrings() {
+        String toon = "rows[4]{id,zip,amount}:\n  1,01234,0.5\n  2,00501,-0\n  3,0,1e3\n  4,-07,1.\n";
+
+        Response response = given()
+            .contentType("application/json")
+            .body(Map.of(
+                "input", toon,
+                "fromFormat", "toon",
+                "toFormat", "json"
+            ))
+            .post("/convert");
+
+        verifySuccess(response);
+        List<Map<String, Object>> rows = parseJsonList(response.jsonPath().getString("output"));
+        assertThat(rows).extracting(row -> row.get("zip")).containsExactly("01234", "00501", 0, "-07");
+        assertThat(rows).extracting(row -> row.get("amount")).containsExactly(0.5, 0, 1000.0, "1.");
+    }
+
+    @Test
+    @DisplayName("CSV to XLSX export - large file")
+    public void testCsvToXlsxLargeFile() throws IOException {
+        int rows = 50000;
+        StringBuilder csv = new StringBuilder("id,name,score,active\n");
+        for (int i = 0; i < rows; i++) {
+            csv.append(i).append(",name ").append(i % 100).append(',').append(i * 0.5).append(',')
+                .append(i % 2 == 0).append('\n');
+        }
+        
+        Response response = given()
+            .multiPart("file", "large.csv", csv.toString().getBytes(StandardCharsets.UTF_8))
+            .multiPart("toFormat", "xlsx")
+            .post("/files/upload");
+        
+        verifySuccess(response);
+        assertThat(response.jsonPath().getString("outputFilename")).isEqualTo("large.xlsx");
+        // XLSX is a ZIP package: Base64 of "PK\3\4"
+        assertThat(response.jsonPath().getString("base64Content")).startsWith("UEsDB");
+        assertThat(response.jsonPath().getInt("stats.rows")).isEqualTo(rows);
+        assertThat(response.jsonPath().getInt("stats.sheets")).isEqualTo(1);
+        
+        // The last data row sits below the header row, with typed cells
+        String sheet = readZipEntry(Base64.getDecoder().decode(response.jsonPath().getString("base64Content")),
+            "xl/worksheets/sheet1.xml");
+        assertThat(sheet).contains("<row r=\"" + (rows + 1) + "\">");
+        assertThat(sheet).contains("<c r=\"A" + (rows + 1) + "\" t=\"n\"><v>" + (rows - 1) + ".0</v></c>"
+            + "<c r=\"B" + (rows + 1) + "\" t=\"inlineStr\"><is><t>name 99</t></is></c>"
+            + "<c r=\"C" + (rows + 1) + "\" t=\"n\"><v>" + ((rows - 1) * 0.5) + "</v></c>"
+            + "<c r=\"D" + (rows + 1) + "\" t=\"b\"><v>0</v></c>");
+        assertThat(sheet).doesNotContain("<row r=\"" + (rows + 2) + "\">");
+    }
+    
     @Test
     @DisplayName("Empty input - should return error")
     public void testEmptyInput() {
@@ -215,5 +314,395 @@ public class FormatConverterTest extends BaseTest {
         
         verifyError(response, 400);
     }
-}
+    
+    @Test
+    @DisplayName("Live session - a batch of edits with an invalid range is rejected as a whole")
+    public void testLiveSessionEditBatchIsAtomic() {
+        String input = "{\"a\":1,\"b\":2}";
+        String sessionId = createSession(input, "yaml");
+        String output = session(sessionId).jsonPath().getString("output");
+        
+        // The first edit is valid on its own; the second runs past the end of the document
+        Response rejected = given()
+            .contentType("application/json")
+            .body(Map.of("edits", List.of(
+                Map.of("start", 5, "end", 6, "text", "5"),
+                Map.of("start", 10, "end", 40, "text", ""))))
+            .post("/convert/session/" + sessionId);
+        
+        verifyError(rejected, 400);
+        assertThat(session(sessionId).jsonPath().getString("output")).isEqualTo(output);
+        assertThat(session(sessionId).jsonPath().getLong("version")).isZero();
+        
+        Response accepted = given()
+            .contentType("application/json")
+            .body(Map.of("baseVersion", 0, "edits", List.of(
+                Map.of("start", 5, "end", 6, "text", "5"),
+                Map.of("start", 11, "end", 12, "text", "7"))))
+            .post("/convert/session/" + sessionId);
+        
+        verifySuccess(accepted);
+        assertThat(accepted.jsonPath().getLong("version")).isEqualTo(1);
+        assertThat(session(sessionId).jsonPath().getString("output")).endsWith("a: 5\nb: 7\n");
+    }
+
+    @Test
+    @DisplayName("Live session - an edit batch that leaves invalid JSON keeps the last valid output")
+    public void testLiveSessionInvalidEditKeepsOutput() throws Exception {
+        String sessionId = createSession("[1,2,3]", "json");
+        String output = session(sessionId).jsonPath().getString("output");
+
+        // The first edit reparses on its own; the second leaves the document invalid
+        Response invalid = given()
+            .contentType("application/json")
+            .body(Map.of("edits", List.of(
+                Map.of("start", 1, "end", 2, "text", "7"),
+                Map.of("start", 3, "end", 4, "text", "x"))))
+            .post("/convert/session/" + sessionId);
+
+        verifySuccess(invalid);
+        assertThat(invalid.jsonPath().getBoolean("valid")).isFalse();
+        assertThat(invalid.jsonPath().getList("changes")).isEmpty();
+        assertThat(session(sessionId).jsonPath().getString("output")).isEqualTo(output);
+        assertThat(session(sessionId).jsonPath().getLong("version")).isZero();
+
+        Response fixed = given()
+            .contentType("application/json")
+            .body(Map.of("baseVersion", 0, "edit", Map.of("start", 3, "end", 4, "text", "8")))
+            .post("/convert/session/" + sessionId);
+
+        verifySuccess(fixed);
+        assertThat(fixed.jsonPath().getBoolean("valid")).isTrue();
+        assertThat(jsonMapper.readTree(session(sessionId).jsonPath().getString("output")))
+            .isEqualTo(jsonMapper.readTree("[7,8,3]"));
+    }
+
+    @Test
+    @DisplayName("Live session - stale base version conflicts and a failed patch leaves the document unchanged")
+    public void testLiveSessionVersionAndPatchRollback() {
+        String sessionId = createSession("{\"items\":[{\"id\":1}],\"name\":\"x\"}", "json");
+        String output = session(sessionId).jsonPath().getString("output");
+        
+        Response failed = given()
+            .contentType("application/json")
+            .body(Map.of("patch", List.of(
+                Map.of("op", "add", "path", "/items/0/tag", "value", "new"),
+                Map.of("op", "remove", "path", "/name"),
+                Map.of("op", "test", "path", "/items/0/id", "value", 2))))
+            .post("/convert/session/" + sessionId);
+        
+        verifyError(failed, 400);
+        assertThat(session(sessionId).jsonPath().getString("output")).isEqualTo(output);
+        
+        Response applied = given()
+            .contentType("application/json")
+            .body(Map.of("baseVersion", 0, "patch", List.of(Map.of("op", "replace", "path", "/name", "value", "y"))))
+            .post("/convert/session/" + sessionId);
+        verifySuccess(applied);
+        
+        Response stale = given()
+            .contentType("application/json")
+            .body(Map.of("baseVersion", 0, "patch", List.of(Map.of("op", "replace", "path", "/name", "value", "z"))))
+            .post("/convert/session/" + sessionId);
+        
+        verifyError(stale, 409);
+        assertThat(stale.jsonPath().getLong("version")).isEqualTo(1);
+        assertThat(parseJson(session(sessionId).jsonPath().getString("output"))).containsEntry("name", "y");
+    }
+    
+    @Test
+    @DisplayName("PDF extraction - pages stay in order and tables become CSV rows")
+    public void testPdfExtractionPagesAndTables() {
+        int pageCount = 40;
+        List<List<String[]>> pages = new ArrayList<>();
+        for (int page = 1; page <= pageCount; page++) {
+            List<String[]> lines = new ArrayList<>();
+            lines.add(new String[] {"Report page " + page});
+            lines.add(new String[] {"Name", "Region", "Total"});
+            lines.add(new String[] {"item" + page, "north", String.valueOf(page * 10)});
+            // One page has a wider table, so every row is padded to its width
+            lines.add(page == 7
+                ? new String[] {"extra" + page, "south", "5", "note"}
+                : new String[] {"extra" + page, "south", "5"});
+            pages.add(lines);
+        }
+        byte[] pdf = buildPdf(pages);
+        
+        String csv = extractPdf(pdf, "csv");
+        List<String> rows = csv.lines().collect(Collectors.toList());
+        assertThat(rows.get(0)).isEqualTo("page,table,column1,column2,column3,column4");
+        assertThat(rows).hasSize(1 + pageCount * 3);
+        for (int page = 1; page <= pageCount; page++) {
+            assertThat(rows.get(1 + (page - 1) * 3)).isEqualTo(page + "," + page + ",Name,Region,Total,");
+            assertThat(rows.get(2 + (page - 1) * 3)).isEqualTo(page + "," + page + ",item" + page + ",north," + page * 10 + ",");
+        }
+        assertThat(rows.get(3 + 6 * 3)).isEqualTo("7,7,extra7,south,5,note");
+        
+        List<Map<String, Object>> json = parseJsonList(extractPdf(pdf, "json"));
+        assertThat(json).hasSize(pageCount);
+        for (int page = 1; page <= pageCount; page++) {
+            assertThat(json.get(page - 1)).containsEntry("page", page);
+            assertThat((List<Object>) json.get(page - 1).get("tables")).hasSize(1);
+        }
+        
+        String text = extractPdf(pdf, "text");
+        int previous = -1;
+        for (int page = 1; page <= pageCount; page++) {
+            int position = text.indexOf("Report page " + page + "\n");
+            assertThat(position).isGreaterThan(previous);
+            previous = position;
+        }
+    }
+
+    @Test
+    @DisplayName("XLSX source - sheets stream into CSV, JSON and NDJSON")
+    public void testXlsxSourceConversion() throws IOException {
+        Map<String, List<String[]>> sheets = new LinkedHashMap<>();
+        List<String[]> people = new ArrayList<>();
+        people.add(new String[] {"Name", "Age", "City"});
+        people.add(new String[] {"Ann", "30", "Oslo"});
+        // A missing cell, then an empty row, then a cell past the header
+        people.add(new String[] {"Bob", null, "Rome"});
+        people.add(new String[] {null, null, null});
+        people.add(new String[] {"Cy", "41", "Lima", "extra"});
+        sheets.put("People", people);
+        List<String[]> totals = new ArrayList<>();
+        totals.add(new String[] {"Region", "Total"});
+        totals.add(new String[] {"north", "12.5"});
+        sheets.put("Totals", totals);
+        byte[] workbook = buildXlsx(sheets);
+
+        Response csv = given()
+            .multiPart("file", "report.xlsx", workbook)
+            .multiPart("toFormat", "csv")
+            .post("/files/upload");
+
+        verifySuccess(csv);
+        assertThat(csv.jsonPath().getString("detectedFormat")).isEqualTo("xlsx");
+        assertThat(csv.jsonPath().getString("content").lines().collect(Collectors.toList()))
+            .containsExactly("Name,Age,City", "Ann,30,Oslo", "Bob,,Rome", "Cy,41,Lima");
+
+        // The workbook payload is Base64 of the ZIP package itself, not of its Base64 text
+        Response xlsx = given()
+            .multiPart("file", "report.xlsx", workbook)
+            .multiPart("toFormat", "xlsx")
+            .post("/files/upload");
+
+        verifySuccess(xlsx);
+        assertThat(xlsx.jsonPath().getString("base64Content")).startsWith("UEsDB");
+        assertThat(xlsx.jsonPath().getInt("size"))
+            .isEqualTo(Base64.getDecoder().decode(xlsx.jsonPath().getString("base64Content")).length);
+
+        Response json = given()
+            .multiPart("file", "report.xlsx", workbook)
+            .multiPart("toFormat", "json")
+            .post("/files/convert/stream");
+
+        assertThat(json.getStatusCode()).isEqualTo(200);
+        Map<String, Object> bySheet = parseJson(json.asString());
+        assertThat(bySheet).containsOnlyKeys("People", "Totals");
+        assertThat((List<Object>) bySheet.get("People")).hasSize(3);
+        assertThat((List<Object>) bySheet.get("Totals")).containsExactly(Map.of("Region", "north", "Total", "12.5"));
+
+        Response ndjson = given()
+            .multiPart("file", "report.xlsx", workbook)
+            .multiPart("toFormat", "ndjson")
+            .multiPart("sheet", "totals")
+            .post("/files/convert/stream");
+
+        assertThat(ndjson.getStatusCode()).isEqualTo(200);
+        assertThat(ndjson.asString().trim()).isEqualTo("{\"Region\":\"north\",\"Total\":\"12.5\"}");
+
+        Response missing = given()
+            .multiPart("file", "report.xlsx", workbook)
+            .multiPart("toFormat", "csv")
+            .multiPart("sheet", "Budget")
+            .post("/files/convert/stream");
+
+        verifyError(missing, 400);
+    }
+
+    @Test
+    @DisplayName("Admission - an oversized workbook upload is converted by the streaming endpoint")
+    public void testAdmissionReroutesOversizedWorkbook() throws IOException {
+        Map<String, Object> admission = given().get("/health").jsonPath().getMap("admission");
+        long budgetMb = ((Number) admission.get("budgetMb")).longValue();
+        // Workbooks are estimated at 25 times their size; rows of four numbers take about 130 bytes stored
+        long workbookBytes = budgetMb * 1024 * 1024 / 25 + 1024 * 1024;
+        assumeTrue(workbookBytes <= 256L * 1024 * 1024, "Heap budget too large to exceed with a test upload");
+        int rows = (int) (workbookBytes / 120);
+
+        List<String[]> data = new ArrayList<>(rows + 1);
+        data.add(new String[] {"id", "twice", "mod", "half"});
+        for (int i = 1; i <= rows; i++) {
+            data.add(new String[] {String.valueOf(i), String.valueOf(i * 2), String.valueOf(i % 7), "0.5"});
+        }
+        // A file part, unlike a byte array, is sent with the content length admission control reads
+        Path workbook = Files.createTempFile("admission-", ".xlsx");
+        try {
+            Files.write(workbook, buildXlsx(Map.of("Data", data), Deflater.NO_COMPRESSION));
+            assertThat(Files.size(workbook)).isGreaterThan(workbookBytes);
+
+            Response csv = given()
+                .multiPart("file", workbook.toFile())
+                .multiPart("toFormat", "csv")
+                .post("/files/upload");
+
+            assertThat(csv.getStatusCode()).isEqualTo(200);
+            assertThat(csv.getHeader("X-Admission-Rerouted")).isEqualTo("/api/files/convert/stream");
+            String[] lines = csv.asString().split("\\r?\\n");
+            assertThat(lines).hasSize(rows + 1);
+            assertThat(lines[0]).isEqualTo("id,twice,mod,half");
+            assertThat(lines[1]).isEqualTo("1,2,1,0.5");
+
+            // Targets the streaming endpoint cannot write are still too large
+            Response yaml = given()
+                .multiPart("file", workbook.toFile())
+                .multiPart("toFormat", "yaml")
+                .post("/files/upload");
+
+            verifyError(yaml, 413);
+        } finally {
+            Files.deleteIfExists(workbook);
+        }
 
+        Map<String, Object> after = given().get("/health").jsonPath().getMap("admission");
+        assertThat(after.get("availableMb")).isEqualTo(admission.get("availableMb"));
+    }
+
+    // A minimal workbook: numbers are stored as numbers, other text in the shared-strings table
+    private static byte[] buildXlsx(Map<String, List<String[]>> sheets) throws IOException {
+        return buildXlsx(sheets, Deflater.DEFAULT_COMPRESSION);
+    }
+
+    private static byte[] buildXlsx(Map<String, List<String[]>> sheets, int level) throws IOException {
+        String main = "http://schemas.openxmlformats.org/spreadsheetml/2006/main";
+        String officeRels = "http://schemas.openxmlformats.org/officeDocument/2006/relationships";
+        List<String> strings = new ArrayList<>();
+        StringBuilder types = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+            + "<Types xmlns=\"http://schemas.openxmlformats.org/package/2006/content-types\">"
+            + "<Default Extension=\"rels\" ContentType=\"application/vnd.openxmlformats-package.relationships+xml\"/>"
+            + "<Default Extension=\"xml\" ContentType=\"application/xml\"/>"
+            + "<Override PartName=\"/xl/workbook.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.sheet.main+xml\"/>"
+            + "<Override PartName=\"/xl/styles.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.styles+xml\"/>"
+            + "<Override PartName=\"/xl/sharedStrings.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.sharedStrings+xml\"/>");
+        StringBuilder workbook = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?><workbook xmlns=\""
+            + main + "\" xmlns:r=\"" + officeRels + "\"><sheets>");
+        StringBuilder workbookRels = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+            + "<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">"
+            + "<Relationship Id=\"rIdStyles\" Type=\"" + officeRels + "/styles\" Target=\"styles.xml\"/>"
+            + "<Relationship Id=\"rIdStrings\" Type=\"" + officeRels + "/sharedStrings\" Target=\"sharedStrings.xml\"/>");
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+            zip.setLevel(level);
+            int index = 0;
+            for (Map.Entry<String, List<String[]>> sheet : sheets.entrySet()) {
+                index++;
+                types.append("<Override PartName=\"/xl/worksheets/sheet").append(index).append(".xml\" ContentType=\""
+                    + "application/vnd.openxmlformats-officedocument.spreadsheetml.worksheet+xml\"/>");
+                workbook.append("<sheet name=\"").append(sheet.getKey()).append("\" sheetId=\"").append(index)
+                    .append("\" r:id=\"rId").append(index).append("\"/>");
+                workbookRels.append("<Relationship Id=\"rId").append(index).append("\" Type=\"").append(officeRels)
+                    .append("/worksheet\" Target=\"worksheets/sheet").append(index).append(".xml\"/>");
+
+                StringBuilder data = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?><worksheet xmlns=\""
+                    + main + "\"><sheetData>");
+                List<String[]> rows = sheet.getValue();
+                for (int r = 0; r < rows.size(); r++) {
+                    data.append("<row r=\"").append(r + 1).append("\">");
+                    String[] cells = rows.get(r);
+                    for (int c = 0; c < cells.length; c++) {
+                        if (cells[c] == null) {
+                            continue;
+                        }
+                        String ref = (char) ('A' + c) + String.valueOf(r + 1);
+                        if (cells[c].matches("-?\\d+(\\.\\d+)?")) {
+                            data.append("<c r=\"").append(ref).append("\"><v>").append(cells[c]).append("</v></c>");
+                        } else {
+                            data.append("<c r=\"").append(ref).append("\" t=\"s\"><v>").append(strings.size()).append("</v></c>");
+                            strings.add(cells[c]);
+                        }
+                    }
+                    data.append("</row>");
+                }
+                data.append("</sheetData></worksheet>");
+                zipEntry(zip, "xl/worksheets/sheet" + index + ".xml", data.toString());
+            }
+
+            StringBuilder shared = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?><sst xmlns=\"" + main
+                + "\" count=\"" + strings.size() + "\" uniqueCount=\"" + strings.size() + "\">");
+            for (String value : strings) {
+                shared.append("<si><t>").append(value).append("</t></si>");
+            }
+            zipEntry(zip, "xl/sharedStrings.xml", shared.append("</sst>").toString());
+            zipEntry(zip, "xl/styles.xml", "<?xml version=\"1.0\" encoding=\"UTF-8\"?><styleSheet xmlns=\"" + main + "\">"
+                + "<fonts count=\"1\"><font/></fonts><fills count=\"1\"><fill/></fills><borders count=\"1\"><border/></borders>"
+                + "<cellStyleXfs count=\"1\"><xf/></cellStyleXfs><cellXfs count=\"1\"><xf numFmtId=\"0\"/></cellXfs></styleSheet>");
+            zipEntry(zip, "xl/workbook.xml", workbook.append("</sheets></workbook>").toString());
+            zipEntry(zip, "xl/_rels/workbook.xml.rels", workbookRels.append("</Relationships>").toString());
+            zipEntry(zip, "_rels/.rels", "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+                + "<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">"
+                + "<Relationship Id=\"rId1\" Type=\"" + officeRels + "/officeDocument\" Target=\"xl/workbook.xml\"/>"
+                + "</Relationships>");
+            zipEntry(zip, "[Content_Types].xml", types.append("</Types>").toString());
+        }
+        return bytes.toByteArray();
+    }
+
+    private static String readZipEntry(byte[] zip, String name) throws IOException {
+        // The central directory holds the sizes that streamed packages leave out of local headers
+        Path file = Files.createTempFile("package", ".zip");
+        try {
+            Files.write(file, zip);
+            try (ZipFile zipFile = new ZipFile(file.toFile())) {
+                ZipEntry entry = zipFile.getEntry(name);
+                assertThat(entry).as("zip entry " + name).isNotNull();
+                return new String(zipFile.getInputStream(entry).readAllBytes(), StandardCharsets.UTF_8);
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+    
+    private static void zipEntry(ZipOutputStream zip, String name, String content) throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+        zip.write(content.getBytes(StandardCharsets.UTF_8));
+        zip.closeEntry();
+    }
+
+    private String extractPdf(byte[] pdf, String toFormat) {
+        Response response = given()
+            .multiPart("file", "report.pdf", pdf)
+            .multiPart("toFormat", toFormat)
+            .post("/files/upload");
+        
+        verifySuccess(response);
+        assertThat(response.jsonPath().getString("detectedFormat")).isEqualTo("pdf");
+        return response.jsonPath().getString("content");
+    }
+    
+    private List<Map<String, Object>> parseJsonList(String json) {
+        try {
+            return jsonMapper.readValue(json, List.class);
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to parse JSON", e);
+        }
+    }
+    
+    private String createSession(String input, String toFormat) {
+        Response response = given()
+            .contentType("application/json")
+            .body(Map.of("input", input, "fromFormat", "json", "toFormat", toFormat))
+            .post("/convert/session");
+        
+        verifySuccess(response);
+        return response.jsonPath().getString("sessionId");
+    }
+    
+    private Response session(String sessionId) {
+        Response response = given().get("/convert/session/" + sessionId);
+        verifySuccess(response);
+        return response;
+    }
+}
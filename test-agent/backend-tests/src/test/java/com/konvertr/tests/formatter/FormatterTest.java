@@ -5,7 +5,15 @@ import io.restassured.response.Response;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 import static io.restassured.RestAssured.given;
 import static org.assertj.core.api.Assertions.assertThat;
@@ -96,5 +104,266 @@ public class FormatterTest extends BaseTest {
         // Should have same keys
         assertThat(formattedParsed.keySet()).containsAll(original.keySet());
     }
-}
+    
+    @Test
+    @DisplayName("Diff Compare - insertions are one difference and keyed arrays detect moves")
+    public void testDiffCompareSequences() {
+        StringBuilder before = new StringBuilder("[");
+        for (int i = 0; i < 500; i++) {
+            before.append(i == 0 ? "" : ",").append(i);
+        }
+        String original = before.append("]").toString();
+        String shifted = "[-1," + original.substring(1);
+        
+        Response response = given()
+            .contentType("application/json")
+            .body(Map.of("input1", original, "input2", shifted, "format", "json"))
+            .post("/diff/compare");
+        
+        verifySuccess(response);
+        assertThat(response.jsonPath().getInt("differenceCount")).isEqualTo(1);
+        assertThat(response.jsonPath().getString("differences[0].type")).isEqualTo("added");
+        assertThat(response.jsonPath().getString("differences[0].path")).isEqualTo("[0]");
+        
+        String left = "{\"users\":[{\"id\":1,\"name\":\"Ann\"},{\"id\":2,\"name\":\"Bob\"},{\"id\":3,\"name\":\"Cy\"}]}";
+        String right = "{\"users\":[{\"id\":3,\"name\":\"Cy\"},{\"id\":1,\"name\":\"Ann\"},{\"id\":2,\"name\":\"Bo\"}]}";
+        
+        response = given()
+            .contentType("application/json")
+            .body(Map.of("input1", left, "input2", right, "format", "json", "arrayKey", "id"))
+            .post("/diff/compare");
+        
+        verifySuccess(response);
+        assertThat(response.jsonPath().getList("differences.type")).containsExactlyInAnyOrder("value_changed", "moved");
+        assertThat(response.jsonPath().getList("differences.path")).contains("users[2].name", "users[0]");
+    }
+    
+    @Test
+    @DisplayName("Diff Compare - identical subtrees are skipped and relocated elements are moves")
+    public void testDiffCompareMoves() {
+        String left = "{\"config\":{\"servers\":[[\"a\",1],[\"b\",2],[\"c\",3]],\"limits\":{\"cpu\":2,\"mem\":4}}}";
+        String right = "{\"config\":{\"limits\":{\"mem\":4,\"cpu\":2},\"servers\":[[\"b\",2],[\"a\",1],[\"c\",4]]}}";
+        
+        Response response = given()
+            .contentType("application/json")
+            .body(Map.of("input1", left, "input2", right, "format", "json"))
+            .post("/diff/compare");
+        
+        verifySuccess(response);
+        assertThat(response.jsonPath().getInt("differenceCount")).isEqualTo(2);
+        assertThat(response.jsonPath().getList("differences.type")).containsExactly("moved", "value_changed");
+        assertThat(response.jsonPath().getList("differences.path")).containsExactly("config.servers[1]", "config.servers[2][1]");
+        assertThat(response.jsonPath().getString("differences[0].from")).isEqualTo("config.servers[0]");
+
+        // Reversed, the middle element keeps its index and is not reported
+        Response reversed = given()
+            .contentType("application/json")
+            .body(Map.of("input1", "[1,2,3,4,5]", "input2", "[5,4,3,2,1]", "format", "json"))
+            .post("/diff/compare");
+
+        verifySuccess(reversed);
+        List<Map<String, Object>> moves = reversed.jsonPath().getList("differences");
+        assertThat(moves).isNotEmpty().allSatisfy(move -> {
+            assertThat(move.get("type")).isEqualTo("moved");
+            assertThat(move.get("from")).isNotEqualTo(move.get("path"));
+        });
+        assertThat(reversed.jsonPath().getList("differences.path")).doesNotContain("[2]");
+    }
+    
+    @Test
+    @DisplayName("Diff Compare - text inputs produce unified diff hunks")
+    public void testDiffCompareText() {
+        StringBuilder left = new StringBuilder();
+        for (int i = 1; i <= 20; i++) {
+            left.append("line ").append(i).append("\n");
+        }
+        String original = left.toString();
+        String changed = original.replace("line 5\n", "line five\n") + "line 21\n";
+        
+        Response response = given()
+            .contentType("application/json")
+            .body(Map.of("input1", original, "input2", changed, "format", "text", "context", "1"))
+            .post("/diff/compare");
+        
+        verifySuccess(response);
+        assertThat(response.jsonPath().getBoolean("identical")).isFalse();
+        assertThat(response.jsonPath().getInt("hunks")).isEqualTo(2);
+        assertThat(response.jsonPath().getString("output")).isEqualTo(
+            "--- input1\n+++ input2\n"
+            + "@@ -4,3 +4,3 @@\n line 4\n-line 5\n+line five\n line 6\n"
+            + "@@ -20 +20,2 @@\n line 20\n+line 21\n");
+    }
+    
+    @Test
+    @DisplayName("Diff Patch - generated JSON Patch and merge patch replay the change")
+    public void testDiffPatchRoundTrip() {
+        String left = "{\"name\":\"api\",\"replicas\":2,\"ports\":[80,443],\"debug\":true}";
+        String right = "{\"name\":\"api\",\"replicas\":3,\"ports\":[8080,80,443]}";
+        
+        Response response = given()
+            .contentType("application/json")
+            .body(Map.of("input1", left, "input2", right, "format", "json"))
+            .post("/diff/patch");
+        
+        verifySuccess(response);
+        assertThat(response.jsonPath().getInt("operationCount")).isEqualTo(3);
+        String patch = response.jsonPath().getString("output");
+        
+        Response applied = given()
+            .contentType("application/json")
+            .body(Map.of("input", left, "format", "json", "patch", patch))
+            .post("/diff/apply");
+        
+        verifySuccess(applied);
+        assertThat(parseJson(applied.jsonPath().getString("output"))).isEqualTo(parseJson(right));
+        
+        Response merge = given()
+            .contentType("application/json")
+            .body(Map.of("input1", left, "input2", right, "format", "json", "type", "merge-patch"))
+            .post("/diff/patch");
+        
+        verifySuccess(merge);
+        assertThat(parseJson(merge.jsonPath().getString("output")))
+            .isEqualTo(parseJson("{\"replicas\":3,\"ports\":[8080,80,443],\"debug\":null}"));
+        
+        Response yaml = given()
+            .contentType("application/json")
+            .body(Map.of("input", "name: api\nreplicas: 2\n", "format", "yaml", "outputFormat", "json",
+                "patch", "{\"replicas\":5}"))
+            .post("/diff/apply");
+        
+        verifySuccess(yaml);
+        assertThat(parseJson(yaml.jsonPath().getString("output"))).isEqualTo(parseJson("{\"name\":\"api\",\"replicas\":5}"));
+    }
+    
+    @Test
+    @DisplayName("Diff Compare - CSV rows are matched by key columns regardless of order")
+    public void testDiffCompareKeyedCsv() {
+        String left = "id,name,amount\n1,alice,10\n2,bob,20\n3,carol,30\n";
+        String right = "id,name,amount\n3,carol,35\n4,dave,40\n1,alice,10\n";
+        
+        Response response = given()
+            .contentType("application/json")
+            .body(Map.of("input1", left, "input2", right, "format", "csv", "keys", "id"))
+            .post("/diff/compare");
+        
+        verifySuccess(response);
+        assertThat(response.jsonPath().getInt("differenceCount")).isEqualTo(3);
+        assertThat(response.jsonPath().getInt("added")).isEqualTo(1);
+        assertThat(response.jsonPath().getInt("removed")).isEqualTo(1);
+        assertThat(response.jsonPath().getInt("changed")).isEqualTo(1);
+        assertThat(response.jsonPath().getInt("unchanged")).isEqualTo(1);
+        assertThat(response.jsonPath().getList("differences.change")).containsExactly("changed", "added", "removed");
+        assertThat(response.jsonPath().getString("differences[0].columns.amount.from")).isEqualTo("30");
+        assertThat(response.jsonPath().getString("differences[0].columns.amount.to")).isEqualTo("35");
+        assertThat(response.jsonPath().getString("differences[2].key.id")).isEqualTo("2");
+    }
+    
+    @Test
+    @DisplayName("Diff Batch - archives are paired by path and results stream as NDJSON")
+    public void testDiffBatchArchives() throws IOException {
+        byte[] left = zip(Map.of(
+            "dev/app/config.json", "{\"replicas\":2,\"name\":\"api\"}",
+            "dev/app/limits.yaml", "cpu: 2\nmem: 4\n",
+            "dev/README.txt", "shared\n",
+            "dev/old.properties", "a=1\n"));
+        byte[] right = zip(Map.of(
+            "prod/app/config.json", "{\"name\":\"api\",\"replicas\":5}",
+            "prod/app/limits.yaml", "mem: 4\ncpu: 2\n",
+            "prod/README.txt", "shared\n",
+            "prod/new.properties", "b=2\n"));
+        
+        Response response = given()
+            .multiPart("left", "dev.zip", left)
+            .multiPart("right", "prod.zip", right)
+            .post("/files/diff/batch");
+        
+        assertThat(response.getStatusCode()).isEqualTo(200);
+        assertThat(response.getContentType()).startsWith("application/x-ndjson");
+        List<Map<String, Object>> lines = new ArrayList<>();
+        for (String line : response.asString().split("\n")) {
+            lines.add(parseJson(line));
+        }
+        Map<String, Object> summary = lines.get(lines.size() - 1);
+        assertThat(summary.get("type")).isEqualTo("summary");
+        assertThat(summary).containsEntry("files", 5).containsEntry("identical", 1).containsEntry("equivalent", 1)
+            .containsEntry("changed", 1).containsEntry("added", 1).containsEntry("removed", 1);
+        
+        Map<String, String> statuses = new HashMap<>();
+        for (Map<String, Object> line : lines.subList(0, lines.size() - 1)) {
+            statuses.put((String) line.get("path"), (String) line.get("status"));
+        }
+        assertThat(statuses).containsEntry("app/config.json", "changed")
+            .containsEntry("app/limits.yaml", "equivalent")
+            .containsEntry("README.txt", "identical")
+            .containsEntry("old.properties", "removed")
+            .containsEntry("new.properties", "added");
+    }
+    
+    @Test
+    @DisplayName("Text Diff - inserted, deleted and moved blocks are reported at their size")
+    public void testDiffTextFilesBlocks() {
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 20000; i++) {
+            lines.add("line " + i + " " + Integer.toHexString(i * 0x9E3779B9));
+        }
+        List<String> inserted = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            inserted.add("inserted " + i);
+        }
+        // 2,000 lines inserted at line 1,000 and 2,000 deleted at line 10,000
+        List<String> edited = new ArrayList<>(lines.subList(0, 1000));
+        edited.addAll(inserted);
+        edited.addAll(lines.subList(1000, 10000));
+        edited.addAll(lines.subList(12000, 20000));
+        // A 3,000-line block moved down by 10,000 lines
+        List<String> moved = new ArrayList<>(lines.subList(0, 2000));
+        moved.addAll(lines.subList(5000, 15000));
+        moved.addAll(lines.subList(2000, 5000));
+        moved.addAll(lines.subList(15000, 20000));
+        
+        assertThat(changedLines(lines, edited)).isEqualTo(4000);
+        assertThat(changedLines(lines, moved)).isEqualTo(6000);
+    }
+
+    @Test
+    @DisplayName("Text Diff - an empty upload is rejected")
+    public void testDiffTextFilesEmptyUpload() {
+        Response response = given()
+            .multiPart("file1", "a.txt", "line\n".getBytes(StandardCharsets.UTF_8))
+            .multiPart("file2", "b.txt", new byte[0])
+            .post("/files/diff/text");
 
+        verifyError(response, 400);
+        assertThat(response.jsonPath().getString("error")).isEqualTo("No file uploaded");
+    }
+
+    private int changedLines(List<String> lines1, List<String> lines2) {
+        Response response = given()
+            .multiPart("file1", "a.txt", (String.join("\n", lines1) + "\n").getBytes(StandardCharsets.UTF_8))
+            .multiPart("file2", "b.txt", (String.join("\n", lines2) + "\n").getBytes(StandardCharsets.UTF_8))
+            .multiPart("context", "0")
+            .post("/files/diff/text");
+        
+        assertThat(response.getStatusCode()).isEqualTo(200);
+        int changed = 0;
+        for (String line : response.asString().split("\n")) {
+            if ((line.startsWith("+") || line.startsWith("-")) && !line.startsWith("+++") && !line.startsWith("---")) {
+                changed++;
+            }
+        }
+        return changed;
+    }
+    
+    private static byte[] zip(Map<String, String> files) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+            for (Map.Entry<String, String> file : files.entrySet()) {
+                zip.putNextEntry(new ZipEntry(file.getKey()));
+                zip.write(file.getValue().getBytes(StandardCharsets.UTF_8));
+                zip.closeEntry();
+            }
+        }
+        return bytes.toByteArray();
+    }
+}
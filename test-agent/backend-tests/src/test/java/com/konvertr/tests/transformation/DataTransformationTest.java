@@ -5,6 +5,7 @@ import io.restassured.response.Response;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Map;
 
@@ -62,7 +63,62 @@ public class DataTransformationTest extends BaseTest {
         assertThat(parsed).containsKey("user.name");
         assertThat(parsed).containsKey("user.email");
     }
-    
+
+    @Test
+    @DisplayName("Flatten Records - an array yields one row per element")
+    public void testFlattenRecordsStreaming() {
+        String records = "[{\"id\":1,\"user\":{\"name\":\"Ann\"},\"tags\":[\"a\",\"b\"]},"
+            + "{\"id\":2,\"user\":{\"name\":\"Bob\",\"age\":40}},"
+            + "{\"id\":3.50,\"active\":true,\"note\":null}]";
+
+        Response ndjson = flattenRecords(records, "json", "ndjson");
+        verifySuccess(ndjson);
+        String[] rows = ndjson.jsonPath().getString("output").trim().split("\n");
+        assertThat(rows).containsExactly(
+            "{\"id\":1,\"user.name\":\"Ann\",\"tags[0]\":\"a\",\"tags[1]\":\"b\"}",
+            "{\"id\":2,\"user.name\":\"Bob\",\"user.age\":40}",
+            "{\"id\":3.50,\"active\":true,\"note\":null}");
+
+        Response csv = flattenRecords(records, "json", "csv");
+        verifySuccess(csv);
+        String[] lines = csv.jsonPath().getString("output").trim().split("\r?\n");
+        assertThat(lines).containsExactly(
+            "id,user.name,tags[0],tags[1],user.age,active,note",
+            "1,Ann,a,b,,,",
+            "2,Bob,,,40,,",
+            "3.50,,,,,true,");
+
+        Response lineInput = flattenRecords("{\"a\":{\"b\":1}}\n{\"a\":{\"b\":2}}\n", "ndjson", "csv");
+        verifySuccess(lineInput);
+        assertThat(lineInput.jsonPath().getString("output").trim().split("\r?\n"))
+            .containsExactly("a.b", "1", "2");
+    }
+
+    @Test
+    @DisplayName("Flatten Records - colliding keys keep the last value")
+    public void testFlattenRecordsCollidingKeys() {
+        String records = "{\"a.b\":1,\"x\":0,\"a\":{\"b\":2}}";
+
+        Response ndjson = flattenRecords(records, "json", "ndjson");
+        verifySuccess(ndjson);
+        assertThat(ndjson.jsonPath().getString("output").trim()).isEqualTo("{\"a.b\":2,\"x\":0}");
+
+        Response csv = flattenRecords(records, "json", "csv");
+        verifySuccess(csv);
+        assertThat(csv.jsonPath().getString("output").trim().split("\r?\n")).containsExactly("a.b,x", "2,0");
+    }
+
+    private Response flattenRecords(String input, String inputFormat, String outputFormat) {
+        return given()
+            .contentType("application/json")
+            .body(Map.of(
+                "input", input,
+                "inputFormat", inputFormat,
+                "outputFormat", outputFormat
+            ))
+            .post("/utilities/transform/flatten");
+    }
+
     @Test
     @DisplayName("Unflatten Structure")
     public void testUnflatten() {
@@ -89,6 +145,110 @@ public class DataTransformationTest extends BaseTest {
         assertThat(user).containsKey("email");
     }
     
+    @Test
+    @DisplayName("Unflatten Structure - backslashes outside escapes survive a round trip")
+    public void testUnflattenBackslashRoundTrip() {
+        String original = "{\"paths\":{\"C:\\\\dir\\\\x\":\"one\",\"share\\\\\":\"two\"}}";
+
+        Response flattened = given()
+            .contentType("application/json")
+            .body(Map.of(
+                "input", original,
+                "inputFormat", "json",
+                "outputFormat", "json",
+                "separator", "."
+            ))
+            .post("/utilities/transform/flatten");
+
+        verifySuccess(flattened);
+
+        Response response = given()
+            .contentType("application/json")
+            .body(Map.of(
+                "input", flattened.jsonPath().getString("output"),
+                "inputFormat", "json",
+                "outputFormat", "json",
+                "separator", "."
+            ))
+            .post("/utilities/transform/unflatten");
+
+        verifySuccess(response);
+        assertThat(parseJson(response.jsonPath().getString("output"))).isEqualTo(parseJson(original));
+
+        // An escaped separator still keeps a dotted name in one piece
+        Response escaped = given()
+            .contentType("application/json")
+            .body(Map.of(
+                "input", "{\"a\\\\.b.c\":1}",
+                "inputFormat", "json",
+                "outputFormat", "json",
+                "separator", "."
+            ))
+            .post("/utilities/transform/unflatten");
+
+        verifySuccess(escaped);
+        assertThat(parseJson(escaped.jsonPath().getString("output"))).isEqualTo(Map.of("a.b", Map.of("c", 1)));
+    }
+
+    @Test
+    @DisplayName("Unflatten Structure - array and object at the same path is rejected")
+    public void testUnflattenConflictingKinds() {
+        for (String flattenedJson : new String[] {
+            "{\"x[0]\":1,\"x.y\":2}",
+            "{\"x.y\":2,\"x[0]\":1}",
+            "{\"x[0]\":1,\"z\":3,\"x.y\":2}",
+            "{\"a.b[0]\":1,\"a.b.c\":2}"
+        }) {
+            Response response = given()
+                .contentType("application/json")
+                .body(Map.of(
+                    "input", flattenedJson,
+                    "inputFormat", "json",
+                    "outputFormat", "json",
+                    "separator", "."
+                ))
+                .post("/utilities/transform/unflatten");
+            
+            verifyError(response, 400);
+        }
+    }
+    
+    @Test
+    @DisplayName("Unflatten Structure - padding of sparse indices is bounded per document")
+    public void testUnflattenSparseIndices() {
+        StringBuilder flattenedJson = new StringBuilder("{");
+        for (int i = 0; i < 30; i++) {
+            flattenedJson.append(i == 0 ? "" : ",").append("\"a").append(i).append("[90000]\":1");
+        }
+        flattenedJson.append("}");
+        
+        Response response = given()
+            .contentType("application/json")
+            .body(Map.of(
+                "input", flattenedJson.toString(),
+                "inputFormat", "json",
+                "outputFormat", "json",
+                "separator", "."
+            ))
+            .post("/utilities/transform/unflatten");
+        
+        verifyError(response, 400);
+        
+        Response sparse = given()
+            .contentType("application/json")
+            .body(Map.of(
+                "input", "{\"a[2]\":1,\"b[0].c\":2}",
+                "inputFormat", "json",
+                "outputFormat", "json",
+                "separator", "."
+            ))
+            .post("/utilities/transform/unflatten");
+        
+        verifySuccess(sparse);
+        Map<String, Object> parsed = parseJson(sparse.jsonPath().getString("output"));
+        assertThat((List<Object>) parsed.get("a")).containsExactly(null, null, 1);
+    }
+    
     @Test
     @DisplayName("Rename Keys")
     public void testRenameKeys() {
@@ -139,5 +299,341 @@ public class DataTransformationTest extends BaseTest {
         assertThat(parsed).containsKey("name");
         assertThat(parsed).containsKey("email");
     }
-}
+    
+    @Test
+    @DisplayName("Transformation Pipeline - one parse for several steps")
+    public void testTransformPipeline() {
+        String inputJson = "{\"user\":{\"name\":\" John \",\"password\":\"secret\"},\"age\":\"30\"}";
+        
+        Response response = given()
+            .contentType("application/json")
+            .body(Map.of(
+                "input", inputJson,
+                "steps", List.of(
+                    Map.of("op", "filter-fields", "fieldsToRemove", "password"),
+                    Map.of("op", "rename-keys", "renameMap", Map.of("name", "fullName")),
+                    Map.of("op", "convert-types", "typeMap", Map.of("age", "int")),
+                    Map.of("op", "flatten", "separator", "_")
+                )
+            ))
+            .post("/utilities/transform/pipeline");
+        
+        verifySuccess(response);
+        assertThat(response.jsonPath().getInt("steps")).isEqualTo(4);
+        
+        Map<String, Object> parsed = parseJson(response.jsonPath().getString("output"));
+        assertThat(parsed).containsOnlyKeys("user_fullName", "age");
+        assertThat(((Number) parsed.get("age")).intValue()).isEqualTo(30);
+    }
+    
+    @Test
+    @DisplayName("Deep Merge - array strategies and null deletes")
+    public void testDeepMergeStrategies() {
+        String base = "services:\n  api:\n    replicas: 1\n    debug: true\n    ports:\n      - name: http\n        port: 80\n";
+        String overlay = "services:\n  api:\n    replicas: 3\n    debug: null\n    ports:\n      - name: http\n        port: 8080\n      - name: metrics\n        port: 9090\n";
+        
+        Response response = given()
+            .contentType("application/json")
+            .body(Map.of(
+                "inputs", List.of(base, overlay),
+                "inputFormat", "yaml",
+                "outputFormat", "json",
+                "arrays", "merge-by-key",
+                "mergeKey", "name",
+                "nullDeletes", true
+            ))
+            .post("/utilities/transform/merge/deep");
+        
+        verifySuccess(response);
+        assertThat(response.jsonPath().getInt("documents")).isEqualTo(2);
+        
+        Map<String, Object> parsed = parseJson(response.jsonPath().getString("output"));
+        @SuppressWarnings("unchecked")
+        Map<String, Object> api = (Map<String, Object>) ((Map<String, Object>) parsed.get("services")).get("api");
+        assertThat(api).containsOnlyKeys("replicas", "ports");
+        assertThat(api.get("replicas")).isEqualTo(3);
+        assertThat((List<?>) api.get("ports")).hasSize(2);
+    }
+
+    @Test
+    @DisplayName("Deep Merge - a malformed NDJSON line is a bad request")
+    public void testDeepMergeMalformedNdjson() {
+        for (String overlays : new String[] {
+            "{\"a\":1}\n{\"b\":\n",
+            "{\"a\":1}\n{\"b\" 2}\n{\"c\":3}\n",
+            "{\"a\":1}\n]\n"
+        }) {
+            Response response = given()
+                .contentType("application/json")
+                .body(Map.of(
+                    "inputs", List.of(overlays),
+                    "inputFormat", "ndjson",
+                    "outputFormat", "json"
+                ))
+                .post("/utilities/transform/merge/deep");
+
+            verifyError(response, 400);
+        }
+    }
+
+    @Test
+    @DisplayName("Deep Merge - N NDJSON overlays")
+    public void testDeepMergeOverlays() {
+        for (int n : new int[] {2, 10, 50, 100}) {
+            StringBuilder overlays = new StringBuilder();
+            for (int layer = 0; layer < n; layer++) {
+                overlays.append("{\"layer\":").append(layer).append(",\"services\":{");
+                for (int i = 0; i < 500; i++) {
+                    overlays.append(i > 0 ? "," : "").append("\"svc").append(i).append("\":{\"replicas\":").append(layer)
+                        .append(",\"env\":{\"K").append(layer).append("\":\"v\"}}");
+                }
+                overlays.append("}}\n");
+            }
+            
+            Response response = given()
+                .contentType("application/json")
+                .body(Map.of("inputs", List.of(overlays.toString()), "inputFormat", "ndjson"))
+                .post("/utilities/transform/merge/deep");
+            
+            verifySuccess(response);
+            assertThat(response.jsonPath().getInt("documents")).isEqualTo(n);
+            Map<String, Object> parsed = parseJson(response.jsonPath().getString("output"));
+            assertThat(parsed.get("layer")).isEqualTo(n - 1);
+            // Scalars take the last layer's value; nested objects collect every layer's keys
+            Map<String, Object> services = (Map<String, Object>) parsed.get("services");
+            assertThat(services).hasSize(500);
+            Map<String, Object> last = (Map<String, Object>) services.get("svc499");
+            assertThat(last.get("replicas")).isEqualTo(n - 1);
+            assertThat((Map<String, Object>) last.get("env")).hasSize(n).containsKeys("K0", "K" + (n - 1));
+        }
+    }
+    
+    @Test
+    @DisplayName("JSONPath Query - filter over nested arrays")
+    public void testQueryPath() {
+        String orders = "{\"orders\":[{\"id\":1,\"items\":[{\"sku\":\"a\",\"qty\":5},{\"sku\":\"b\",\"qty\":20}]},"
+            + "{\"id\":2,\"items\":[{\"sku\":\"c\",\"qty\":11}]}]}";
+        
+        Response response = given()
+            .contentType("application/json")
+            .body(Map.of("input", orders, "path", "$.orders[*].items[?(@.qty > 10)]", "outputFormat", "csv"))
+            .post("/utilities/transform/query");
+        
+        verifySuccess(response);
+        assertThat(response.jsonPath().getString("output").trim().split("\\R"))
+            .containsExactly("sku,qty", "b,20", "c,11");
+        
+        Response invalid = given()
+            .contentType("application/json")
+            .body(Map.of("input", orders, "path", "$.orders[?(@.qty >)]"))
+            .post("/utilities/transform/query");
+        verifyError(invalid, 400);
+    }
+    
+    @Test
+    @DisplayName("Filter Fields - path-scoped rules")
+    public void testFilterFieldsByPath() {
+        String input = "{\"db\":{\"primary\":{\"host\":\"a\",\"secret\":\"s1\"},\"replica\":{\"secret\":\"s2\"}},"
+            + "\"secret\":\"keep\",\"users\":[{\"name\":\"x\",\"password\":\"p\"}]}";
+        
+        Response response = given()
+            .contentType("application/json")
+            .body(Map.of("input", input, "fieldsToRemove", "db.*.secret,**.password"))
+            .post("/utilities/transform/filter-fields");
+        
+        verifySuccess(response);
+        Map<String, Object> parsed = parseJson(response.jsonPath().getString("output"));
+        assertThat(parsed.get("secret")).isEqualTo("keep");
+        assertThat(parsed.get("db").toString()).doesNotContain("secret").contains("host");
+        assertThat(parsed.get("users").toString()).doesNotContain("password").contains("name");
+    }
+    
+    @Test
+    @DisplayName("Convert Types - path-scoped map and column inference")
+    public void testConvertTypes() {
+        String input = "{\"order\":{\"id\":\"90071992547409\",\"paid\":\"yes\"},\"id\":\"keep\"}";
+        
+        Response response = given()
+            .contentType("application/json")
+            .body(Map.of("input", input, "typeMap", "{\"order.id\":\"long\",\"paid\":\"boolean\"}"))
+            .post("/utilities/transform/convert-types");
+        
+        verifySuccess(response);
+        Map<String, Object> parsed = parseJson(response.jsonPath().getString("output"));
+        @SuppressWarnings("unchecked")
+        Map<String, Object> order = (Map<String, Object>) parsed.get("order");
+        assertThat(((Number) order.get("id")).longValue()).isEqualTo(90071992547409L);
+        assertThat(order.get("paid")).isEqualTo(true);
+        assertThat(parsed.get("id")).isEqualTo("keep");
+        
+        Response inferred = given()
+            .contentType("application/json")
+            .body(Map.of("input", "[{\"zip\":\"02134\",\"qty\":\"3\"},{\"zip\":\"10001\",\"qty\":\"4\"}]", "typeMap", "auto"))
+            .post("/utilities/transform/convert-types");
+        
+        verifySuccess(inferred);
+        String output = inferred.jsonPath().getString("output");
+        assertThat(output).contains("\"02134\"").contains("\"qty\" : 3");
+
+        Response signed = given()
+            .contentType("application/json")
+            .body(Map.of("input", "{\"ratio\":\"+5\",\"count\":\"1e3\",\"half\":\"1.5\",\"step\":\"+25.0e-1\","
+                    + "\"phone\":\"+4712345678\",\"share\":\".5\",\"whole\":\"5.\",\"total\":\"12.0\"}",
+                "typeMap", "{\"ratio\":\"float\",\"count\":\"int\",\"half\":\"int\",\"step\":\"double\","
+                    + "\"share\":\"float\",\"whole\":\"double\",\"total\":\"integer\"}"))
+            .post("/utilities/transform/convert-types");
+
+        verifySuccess(signed);
+        Map<String, Object> values = parseJson(signed.jsonPath().getString("output"));
+        assertThat(values.get("ratio")).isEqualTo(5.0);
+        assertThat(values.get("count")).isEqualTo(1000);
+        // An int target keeps whole values integral and leaves others as numbers
+        assertThat(values.get("half")).isEqualTo(1.5);
+        assertThat(values.get("total")).isEqualTo(12);
+        assertThat(values.get("step")).isEqualTo(2.5);
+        assertThat(values.get("phone")).isEqualTo("+4712345678");
+        assertThat(values.get("share")).isEqualTo(0.5);
+        assertThat(values.get("whole")).isEqualTo(5.0);
+    }
+    
+    @Test
+    @DisplayName("Transform values with path-scoped chains")
+    public void testTransformValuesChain() {
+        String input = "{\"user\":{\"email\":\"  Bob@X.com \",\"name\":\"Bob\"},\"price\":2.675}";
+        String plan = "[{\"path\":\"**.email\",\"ops\":[\"trim\",\"lowercase\",\"hash:sha256\"]},"
+            + "{\"path\":\"price\",\"op\":\"round\",\"scale\":2}]";
+        
+        Response response = given()
+            .contentType("application/json")
+            .body(Map.of("input", input, "transformation", plan))
+            .post("/utilities/transform/transform-values");
+        
+        verifySuccess(response);
+        Map<String, Object> parsed = parseJson(response.jsonPath().getString("output"));
+        @SuppressWarnings("unchecked")
+        Map<String, Object> user = (Map<String, Object>) parsed.get("user");
+        assertThat(user.get("email")).isEqualTo("581d5f1930c81e73906dfbae2d46df90e4a1221064763a4e55ee85dab8312938");
+        assertThat(user.get("name")).isEqualTo("Bob");
+        assertThat(((Number) parsed.get("price")).doubleValue()).isEqualTo(2.68);
+        
+        Response unknown = given()
+            .contentType("application/json")
+            .body(Map.of("input", input, "transformation", "trim|shout"))
+            .post("/utilities/transform/transform-values");
+        
+        verifyError(unknown, 400);
+    }
+    
+    @Test
+    @DisplayName("Sort and group records through spilled runs")
+    public void testSortAndGroupRecords() {
+        // 2,505 records in runs of at most 1,000
+        StringBuilder csv = new StringBuilder("region,amount\nwest,10\neast,9\nwest,2.5\nnorth,7\neast,30\n");
+        for (int i = 0; i < 2500; i++) {
+            csv.append("south,1\n");
+        }
+        
+        Response sorted = given()
+            .contentType("application/json")
+            .body(Map.of("input", csv.toString(), "inputFormat", "csv", "outputFormat", "ndjson",
+                "keys", "-amount", "bufferRecords", 1000))
+            .post("/utilities/transform/sort");
+        
+        verifySuccess(sorted);
+        assertThat(sorted.jsonPath().getInt("runs")).isEqualTo(3);
+        assertThat(sorted.jsonPath().getString("output").split("\n")[0]).contains("\"30\"");
+        
+        Response grouped = given()
+            .contentType("application/json")
+            .body(Map.of("input", csv.toString(), "inputFormat", "csv", "outputFormat", "json",
+                "keys", "region", "aggregates", Map.of("total", "sum:amount"), "bufferRecords", 1000))
+            .post("/utilities/transform/group-by");
+        
+        verifySuccess(grouped);
+        String output = grouped.jsonPath().getString("output");
+        assertThat(output).contains("\"total\" : 39").contains("\"total\" : 12.5").contains("\"total\" : 2500");
+        assertThat(output.indexOf("east")).isLessThan(output.indexOf("north"));
+        
+        // A tiny buffer would spill a temp file every few records
+        Response tiny = given()
+            .contentType("application/json")
+            .body(Map.of("input", csv.toString(), "inputFormat", "csv", "keys", "-amount", "bufferRecords", 2))
+            .post("/utilities/transform/sort");
+        
+        verifyError(tiny, 400);
+    }
+    
+    @Test
+    @DisplayName("Join CSV with a JSON array")
+    public void testJoinRecords() {
+        String customers = "id,name\n1,Ann\n2,Bob\n3,Cy\n";
+        String orders = "[{\"customer\":1,\"total\":10},{\"customer\":1,\"total\":5},{\"customer\":2,\"total\":7}]";
+        
+        Response response = given()
+            .contentType("application/json")
+            .body(Map.of("left", customers, "leftFormat", "csv", "right", orders, "rightFormat", "json",
+                "outputFormat", "csv", "on", "id", "rightOn", "customer", "type", "left"))
+            .post("/utilities/transform/join");
+        
+        verifySuccess(response);
+        assertThat(response.jsonPath().getInt("written")).isEqualTo(4);
+        String output = response.jsonPath().getString("output");
+        assertThat(output).startsWith("id,name,customer,total");
+        assertThat(output).contains("1,Ann,1,10").contains("1,Ann,1,5").contains("2,Bob,2,7").contains("3,Cy,,");
+    }
+
+    @Test
+    @DisplayName("CSV output has a column for every key, not just the first record's")
+    public void testCsvOutputUnionOfKeys() {
+        String records = "{\"id\":3,\"name\":\"Cy\"}\n{\"id\":1,\"city\":\"Oslo\"}\n{\"id\":2,\"name\":\"Bob\",\"zip\":\"0150\"}\n";
+
+        Response sorted = given()
+            .contentType("application/json")
+            .body(Map.of("input", records, "inputFormat", "ndjson", "outputFormat", "csv", "keys", "-id"))
+            .post("/utilities/transform/sort");
 
+        verifySuccess(sorted);
+        assertThat(sorted.jsonPath().getString("output").trim().split("\r?\n"))
+            .containsExactly("id,name,zip,city", "3,Cy,,", "2,Bob,0150,", "1,,,Oslo");
+
+        String customers = "[{\"id\":9,\"name\":\"Dee\"},{\"id\":1,\"name\":\"Ann\"}]";
+        String orders = "customer,total\n1,10\n";
+        Response joined = given()
+            .contentType("application/json")
+            .body(Map.of("left", customers, "leftFormat", "json", "right", orders, "rightFormat", "csv",
+                "outputFormat", "csv", "on", "id", "rightOn", "customer", "type", "left"))
+            .post("/utilities/transform/join");
+
+        verifySuccess(joined);
+        String output = joined.jsonPath().getString("output");
+        assertThat(output).startsWith("id,name,customer,total");
+        assertThat(output).contains("9,Dee,,").contains("1,Ann,1,10");
+    }
+
+    @Test
+    @DisplayName("Join uploaded files whose format is detected from a prefix of the content")
+    public void testJoinFilesDetectsFormat() {
+        StringBuilder customers = new StringBuilder("[\n");
+        StringBuilder orders = new StringBuilder("customer,total\n");
+        for (int i = 0; i < 5000; i++) {
+            customers.append(i == 0 ? "" : ",\n").append("  {\n    \"id\" : ").append(i)
+                .append(",\n    \"name\" : \"customer ").append(i).append("\"\n  }");
+            orders.append(i).append(',').append(i * 10).append('\n');
+        }
+        customers.append("\n]\n");
+
+        Response response = given()
+            .multiPart("left", "customers.dat", customers.toString().getBytes(StandardCharsets.UTF_8))
+            .multiPart("right", "orders.txt", orders.toString().getBytes(StandardCharsets.UTF_8))
+            .multiPart("on", "id")
+            .multiPart("rightOn", "customer")
+            .multiPart("toFormat", "csv")
+            .post("/files/transform/join");
+
+        assertThat(response.getStatusCode()).isEqualTo(200);
+        String[] lines = response.asString().split("\r?\n");
+        assertThat(lines).hasSize(5001);
+        assertThat(lines[0]).isEqualTo("id,name,customer,total");
+        assertThat(lines).contains("4999,customer 4999,4999,49990");
+    }
+}
@@ -5,10 +5,29 @@ import io.restassured.response.Response;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
 import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
 
 import static io.restassured.RestAssured.given;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 
 /**
  * Tests for utility endpoints
@@ -255,5 +274,220 @@ public class UtilitiesTest extends BaseTest {
         
         assertThat(decompressed).isEqualTo(original);
     }
+    
+    @Test
+    @DisplayName("Schema Inference from NDJSON")
+    public void testSchemaInferenceNdjson() {
+        String input = "{\"id\":1,\"status\":\"active\",\"score\":1.5}\n"
+            + "{\"id\":2,\"status\":\"active\",\"score\":2}\n"
+            + "{\"id\":3,\"status\":\"inactive\"}\n"
+            + "{\"id\":4,\"status\":\"inactive\",\"score\":0}\n";
+        
+        Response response = given()
+            .contentType("application/json")
+            .body(Map.of("input", input, "format", "ndjson"))
+            .post("/utilities/schema/infer");
+        
+        verifySuccess(response);
+        assertThat(response.jsonPath().getString("schema.type")).isEqualTo("array");
+        assertThat(response.jsonPath().getString("schema.items.properties.id.type")).isEqualTo("integer");
+        assertThat(response.jsonPath().getString("schema.items.properties.score.type")).isEqualTo("number");
+        assertThat(response.jsonPath().getList("schema.items.required")).containsExactly("id", "status");
+        assertThat(response.jsonPath().getList("schema.items.properties.status.enum")).containsExactly("active", "inactive");
+        assertThat(response.jsonPath().getString("toonHeader")).isEqualTo("rows[4]{id,status,score}:");
+    }
+    
+    @Test
+    @DisplayName("Admission - oversized upload on a streaming route is admitted")
+    public void testAdmissionStreamsOversizedUpload() throws IOException {
+        Map<String, Object> admission = given().get("/health").jsonPath().getMap("admission");
+        long budgetMb = ((Number) admission.get("budgetMb")).longValue();
+        // Text is estimated at four times its size, so two files of budget / 8 each exceed the budget
+        long fileBytes = budgetMb * 1024 * 1024 / 8 + 1024 * 1024;
+        assumeTrue(fileBytes <= 1024L * 1024 * 1024, "Heap budget too large to exceed with a test upload");
+        
+        Path file = Files.createTempFile("admission-", ".txt");
+        try {
+            byte[] line = "the same line in both files, long enough to fill the upload quickly\n"
+                .getBytes(StandardCharsets.UTF_8);
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file))) {
+                for (long written = 0; written < fileBytes; written += line.length) {
+                    out.write(line);
+                }
+            }
+            
+            Response response = given()
+                .multiPart("file1", file.toFile())
+                .multiPart("file2", file.toFile())
+                .post("/files/diff/text");
+            
+            assertThat(response.getStatusCode()).isEqualTo(200);
+            assertThat(response.getHeader("X-Diff-Identical")).isEqualTo("true");
+            assertThat(response.getHeader("X-Diff-Hunks")).isEqualTo("0");
+        } finally {
+            Files.deleteIfExists(file);
+        }
+        
+        Map<String, Object> after = given().get("/health").jsonPath().getMap("admission");
+        assertThat(after.get("rejected")).isEqualTo(admission.get("rejected"));
+        assertThat(after.get("availableMb")).isEqualTo(admission.get("availableMb"));
+    }
+    
+    @Test
+    @DisplayName("PDF Masking - masked text is removed from the content streams")
+    public void testPdfMaskingRemovesText() throws Exception {
+        List<List<String[]>> pages = new ArrayList<>();
+        for (int page = 1; page <= 3; page++) {
+            pages.add(List.of(
+                new String[] {"Page " + page + " of the access policy"},
+                new String[] {"Contact alice.secret" + page + "@example.com for access"},
+                new String[] {"Owner", "bob.hidden" + page + "@example.org"}));
+        }
+        
+        Response response = given()
+            .multiPart("file", "policy.pdf", buildPdf(pages))
+            .multiPart("types", "email")
+            .post("/mask/file");
+        
+        verifySuccess(response);
+        assertThat(response.jsonPath().getString("detectedFormat")).isEqualTo("pdf");
+        assertThat(response.jsonPath().getInt("counts.email")).isEqualTo(6);
+        assertThat(response.jsonPath().getString("warning")).isNull();
+        
+        String streams = pdfStreams(Base64.getDecoder().decode(response.jsonPath().getString("base64Content")));
+        assertThat(streams).contains("access policy");
+        for (String secret : List.of("alice.secret", "bob.hidden", "@example.com", "@example.org")) {
+            assertThat(streams).doesNotContain(secret);
+        }
+    }
+    
+    @Test
+    @DisplayName("PDF Masking - text inside a form XObject is covered with a warning")
+    public void testPdfMaskingFormXObjectWarning() throws Exception {
+        List<String> objects = List.of(
+            "<< /Type /Catalog /Pages 2 0 R >>",
+            "<< /Type /Pages /Kids [ 4 0 R ] /Count 1 >>",
+            "<< /Type /Font /Subtype /Type1 /BaseFont /Helvetica >>",
+            pdfPage(5, "/Font << /F1 3 0 R >> /XObject << /Fm1 6 0 R >>"),
+            pdfStream("", pdfText("Letterhead below", 72, 740) + "q /Fm1 Do Q\n"),
+            pdfStream("/Type /XObject /Subtype /Form /BBox [0 0 612 792] /Resources << /Font << /F1 3 0 R >> >>",
+                pdfText("Reply to carol.form@example.com", 72, 700)));
+        
+        Response response = given()
+            .multiPart("file", "letter.pdf", buildPdfObjects(objects))
+            .multiPart("types", "email")
+            .post("/mask/file");
+        
+        verifySuccess(response);
+        assertThat(response.jsonPath().getInt("counts.email")).isEqualTo(1);
+        assertThat(response.jsonPath().getString("warning")).contains("shared form objects");
+    }
+    
+    // The decoded content of every stream in a PDF, inflating those that are Flate-compressed
+    private static String pdfStreams(byte[] pdf) throws Exception {
+        String raw = new String(pdf, StandardCharsets.ISO_8859_1);
+        StringBuilder streams = new StringBuilder();
+        Matcher matcher = Pattern.compile("(?<!end)stream\r?\n").matcher(raw);
+        int from = 0;
+        while (matcher.find(from)) {
+            int start = matcher.end();
+            int end = raw.indexOf("endstream", start);
+            byte[] data = Arrays.copyOfRange(pdf, start, end);
+            Inflater inflater = new Inflater();
+            inflater.setInput(data);
+            ByteArrayOutputStream inflated = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            try {
+                while (!inflater.finished() && !inflater.needsInput()) {
+                    inflated.write(buffer, 0, inflater.inflate(buffer));
+                }
+                streams.append(inflated.toString(StandardCharsets.ISO_8859_1));
+            } catch (DataFormatException e) {
+                streams.append(new String(data, StandardCharsets.ISO_8859_1));
+            } finally {
+                inflater.end();
+            }
+            streams.append('\n');
+            from = end;
+        }
+        return streams.toString();
+    }
+    
+    @Test
+    @DisplayName("DOCX Masking - large contract")
+    public void testDocxMaskingLargeContract() throws IOException {
+        int paragraphs = 2000;
+        int rows = 3000;
+        byte[] docx = buildDocx(paragraphs, rows);
+        
+        Response response = given()
+            .multiPart("file", "contract.docx", docx)
+            .multiPart("types", "email,phone")
+            .post("/mask/file");
+        
+        verifySuccess(response);
+        assertThat(response.jsonPath().getString("detectedFormat")).isEqualTo("docx");
+        // One email per body paragraph, one email and one phone per table row
+        assertThat(response.jsonPath().getInt("counts.email")).isEqualTo(paragraphs + rows);
+        assertThat(response.jsonPath().getInt("counts.phone")).isEqualTo(rows);
+        
+        String document = readZipEntry(Base64.getDecoder().decode(response.jsonPath().getString("base64Content")),
+            "word/document.xml");
+        assertThat(document).contains("Clause " + (paragraphs - 1) + " notices go to ", "Contact " + (rows - 1));
+        assertThat(document).doesNotContain("@example.com", "@example.org", "+1 555 ");
+    }
+    
+    private static String readZipEntry(byte[] zip, String name) throws IOException {
+        // The central directory holds the sizes that streamed packages leave out of local headers
+        Path file = Files.createTempFile("package", ".zip");
+        try {
+            Files.write(file, zip);
+            try (ZipFile zipFile = new ZipFile(file.toFile())) {
+                ZipEntry entry = zipFile.getEntry(name);
+                assertThat(entry).as("zip entry " + name).isNotNull();
+                return new String(zipFile.getInputStream(entry).readAllBytes(), StandardCharsets.UTF_8);
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+    
+    private static byte[] buildDocx(int paragraphs, int rows) throws IOException {
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < paragraphs; i++) {
+            body.append("<w:p><w:r><w:t xml:space=\"preserve\">Clause ").append(i)
+                .append(" notices go to </w:t></w:r><w:r><w:t>party").append(i).append("@example.com</w:t></w:r></w:p>");
+        }
+        body.append("<w:tbl>");
+        for (int i = 0; i < rows; i++) {
+            body.append("<w:tr><w:tc><w:p><w:r><w:t>Contact ").append(i).append("</w:t></w:r></w:p></w:tc>")
+                .append("<w:tc><w:p><w:r><w:t>user").append(i).append("@example.org</w:t></w:r></w:p></w:tc>")
+                .append("<w:tc><w:p><w:r><w:t>+1 555 ").append(String.format("%07d", i)).append("</w:t></w:r></w:p></w:tc></w:tr>");
+        }
+        body.append("</w:tbl>");
+        
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(out)) {
+            addZipEntry(zip, "[Content_Types].xml", "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>"
+                + "<Types xmlns=\"http://schemas.openxmlformats.org/package/2006/content-types\">"
+                + "<Default Extension=\"rels\" ContentType=\"application/vnd.openxmlformats-package.relationships+xml\"/>"
+                + "<Default Extension=\"xml\" ContentType=\"application/xml\"/>"
+                + "<Override PartName=\"/word/document.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.wordprocessingml.document.main+xml\"/>"
+                + "</Types>");
+            addZipEntry(zip, "_rels/.rels", "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>"
+                + "<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">"
+                + "<Relationship Id=\"rId1\" Type=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships/officeDocument\" Target=\"word/document.xml\"/>"
+                + "</Relationships>");
+            addZipEntry(zip, "word/document.xml", "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>"
+                + "<w:document xmlns:w=\"http://schemas.openxmlformats.org/wordprocessingml/2006/main\"><w:body>"
+                + body + "</w:body></w:document>");
+        }
+        return out.toByteArray();
+    }
+    
+    private static void addZipEntry(ZipOutputStream zip, String name, String content) throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+        zip.write(content.getBytes(StandardCharsets.UTF_8));
+        zip.closeEntry();
+    }
 }
-